@@ -0,0 +1,38 @@
+package common.ddd;
+
+//filtro (immutabile) degli eventi di una sottoscrizione: per tipo (maschera di bit sugli indici) e per aggregato
+public final class EventFilter {
+
+	private static final EventFilter ANY = new EventFilter(-1L, null);
+	private final long types; //un bit per ogni tipo accettato
+	private final String aggregateId; //aggregato accettato (null per tutti)
+
+	private EventFilter(long types, String aggregateId) {
+		this.types = types;
+		this.aggregateId = aggregateId;
+	}
+
+	//filtro che accetta tutti gli eventi
+	public static EventFilter any() {
+		return ANY;
+	}
+
+	//restringe il filtro ai tipi indicati
+	public EventFilter onlyTypes(EventType<?>... accepted) {
+		long mask = 0;
+		for (var type : accepted) {
+			mask |= 1L << type.index();
+		}
+		return new EventFilter(types & mask, aggregateId);
+	}
+
+	//restringe il filtro agli eventi dell'aggregato indicato
+	public EventFilter onlyAggregate(String id) {
+		return new EventFilter(types, id);
+	}
+
+	//verifica se un evento supera il filtro
+	public boolean test(RoutedEvent event) {
+		return (types & (1L << event.type().index())) != 0 && (aggregateId == null || aggregateId.equals(event.aggregateId()));
+	}
+}
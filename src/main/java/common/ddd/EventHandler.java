@@ -0,0 +1,8 @@
+package common.ddd;
+
+//gestore di un tipo di evento: riceve l'oggetto che gestisce l'evento (es. la sessione) e l'evento, già del tipo giusto
+@FunctionalInterface
+public interface EventHandler<C, T extends RoutedEvent> {
+
+	void handle(C target, T event);
+}
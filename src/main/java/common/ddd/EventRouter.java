@@ -0,0 +1,72 @@
+package common.ddd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+instradatore tipizzato degli eventi di dominio, senza riflessione e senza catene di instanceof:
+i gestori vengono registrati all'avvio, per tipo di evento, e stanno in una tabella indicizzata dall'indice del tipo,
+così che instradare un evento costi un solo accesso alla tabella (più l'eventuale filtro del sottoscrittore)
+il router è immutabile e senza stato: un'unica istanza (statica) può servire tutti gli oggetti che gestiscono gli eventi (passati a route),
+ciascuno con il proprio filtro per tipo e per aggregato (es. la sessione di un giocatore riceve solo gli eventi della sua partita)
+*/
+public final class EventRouter<C, E extends RoutedEvent> {
+
+	private final List<List<EventHandler<? super C, ? super E>>> handlers; //gestori per indice del tipo di evento
+
+	private EventRouter(List<List<EventHandler<? super C, ? super E>>> handlers) {
+		this.handlers = handlers;
+	}
+
+	//crea un router per la famiglia di eventi indicata (già popolata)
+	public static <C, E extends RoutedEvent> Builder<C, E> builder(EventTypes<E> types) {
+		return new Builder<>(types);
+	}
+
+	//instrada un evento ai gestori del suo tipo; restituisce false se l'evento non ha gestori
+	public boolean route(C target, E event) {
+		int index = event.type().index();
+		if (index >= handlers.size()) {
+			return false;
+		}
+		var forType = handlers.get(index);
+		for (int i = 0; i < forType.size(); i++) {
+			forType.get(i).handle(target, event);
+		}
+		return !forType.isEmpty();
+	}
+
+	//instrada un evento solo se supera il filtro del sottoscrittore; restituisce false se l'evento è stato filtrato o non ha gestori
+	public boolean route(C target, E event, EventFilter filter) {
+		return filter.test(event) && route(target, event);
+	}
+
+	//costruttore del router
+	public static final class Builder<C, E extends RoutedEvent> {
+
+		private final EventTypes<E> types; //famiglia degli eventi instradati
+		private final List<List<EventHandler<? super C, ? super E>>> handlers;
+
+		private Builder(EventTypes<E> types) {
+			this.types = types;
+			handlers = new ArrayList<>();
+			for (int i = 0; i < types.size(); i++) {
+				handlers.add(new ArrayList<>());
+			}
+		}
+
+		//registra un gestore per un tipo di evento (i gestori dello stesso tipo vengono chiamati nell'ordine di registrazione)
+		@SuppressWarnings("unchecked")
+		public <T extends E> Builder<C, E> on(EventType<T> type, EventHandler<? super C, ? super T> handler) {
+			if (type.family() != types || type.index() >= handlers.size()) {
+				throw new IllegalArgumentException("event type " + type + " is not part of this event family");
+			}
+			handlers.get(type.index()).add((EventHandler<? super C, ? super E>) handler); //sicuro: gli eventi del tipo T restituiscono sempre la costante di T
+			return this;
+		}
+
+		public EventRouter<C, E> build() {
+			return new EventRouter<>(handlers.stream().map(List::copyOf).toList());
+		}
+	}
+}
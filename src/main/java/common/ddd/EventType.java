@@ -0,0 +1,32 @@
+package common.ddd;
+
+//tipo di un evento di dominio, definito una sola volta (all'avvio) dalla famiglia di eventi a cui appartiene
+//l'indice è la posizione del tipo nelle tabelle dei gestori: un evento si instrada con un solo accesso ad un array
+public final class EventType<T extends RoutedEvent> {
+
+	private final EventTypes<? super T> family; //famiglia di eventi del tipo
+	private final int index; //indice del tipo nella famiglia
+	private final String name; //nome del tipo (es. "new-move")
+
+	EventType(EventTypes<? super T> family, int index, String name) {
+		this.family = family;
+		this.index = index;
+		this.name = name;
+	}
+
+	public EventTypes<? super T> family() {
+		return family;
+	}
+
+	public int index() {
+		return index;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,41 @@
+package common.ddd;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//famiglia (chiusa) di tipi di eventi di dominio: assegna ad ogni tipo un indice progressivo
+//va popolata una sola volta, all'avvio (di solito con le costanti dell'interfaccia sealed degli eventi)
+public final class EventTypes<E extends RoutedEvent> {
+
+	public static final int MAX_TYPES = 64; //numero massimo di tipi di una famiglia (i filtri usano una maschera di bit)
+	private final List<EventType<? extends E>> types; //tipi definiti, nell'ordine del loro indice
+
+	public EventTypes() {
+		types = new ArrayList<>();
+	}
+
+	//definisce un nuovo tipo di evento della famiglia
+	public synchronized <T extends E> EventType<T> define(String name) {
+		if (types.size() == MAX_TYPES) {
+			throw new IllegalStateException("too many event types");
+		}
+		for (var type : types) {
+			if (type.name().equals(name)) {
+				throw new IllegalArgumentException("event type " + name + " already defined");
+			}
+		}
+		var type = new EventType<T>(this, types.size(), name);
+		types.add(type);
+		return type;
+	}
+
+	//recupera il numero di tipi definiti
+	public synchronized int size() {
+		return types.size();
+	}
+
+	//recupera i tipi definiti
+	public synchronized List<EventType<? extends E>> all() {
+		return List.copyOf(types);
+	}
+}
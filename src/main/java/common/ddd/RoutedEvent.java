@@ -0,0 +1,11 @@
+package common.ddd;
+
+//evento di dominio che può essere instradato da un EventRouter: dichiara il proprio tipo (un indice nella tabella dei gestori) e l'aggregato che lo ha generato
+public interface RoutedEvent extends DomainEvent {
+
+	//tipo dell'evento (ogni record della gerarchia restituisce sempre la propria costante)
+	EventType<?> type();
+
+	//id dell'aggregato a cui si riferisce l'evento
+	String aggregateId();
+}
@@ -0,0 +1,39 @@
+package common.ids;
+
+//generatore di id univoci (in forma binaria compatta: un long non negativo)
+public interface IdGenerator {
+
+	//genera un nuovo id
+	long nextId();
+
+	//genera un nuovo id in forma testuale (prefisso + id in esadecimale)
+	default String nextId(String prefix) {
+		return format(prefix, nextId());
+	}
+
+	//converte un id nella forma testuale
+	static String format(String prefix, long id) {
+		return prefix + Long.toHexString(id);
+	}
+
+	//ricava l'id binario dalla forma testuale con il prefisso indicato (-1 se l'id non è valido o ha un altro prefisso)
+	static long parse(String prefix, String id) {
+		if (id == null || !id.startsWith(prefix)) {
+			return -1;
+		}
+		int start = prefix.length(); //l'id esadecimale segue il prefisso
+		int len = id.length() - start;
+		if (len == 0 || len > 16) { //un long ha al più 16 cifre esadecimali
+			return -1;
+		}
+		long value = 0;
+		for (int i = start; i < id.length(); i++) {
+			int digit = Character.digit(id.charAt(i), 16);
+			if (digit < 0) {
+				return -1;
+			}
+			value = (value << 4) | digit;
+		}
+		return value < 0 ? -1 : value; //gli id generati non sono mai negativi
+	}
+}
@@ -0,0 +1,52 @@
+package common.ids;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+generatore di id lock-free composto da tempo, nodo e sequenza (63 bit):
+41 bit di millisecondi dall'epoca del servizio, 10 bit di id del nodo (istanza del servizio) e 12 bit di sequenza
+id generati da nodi diversi non collidono mai, e quelli di uno stesso nodo sono strettamente crescenti
+*/
+public class TimeNodeSequenceIdGenerator implements IdGenerator {
+
+	static final long EPOCH = 1704067200000L; //epoca del servizio (01/01/2024), per ~69 anni di id
+	static final int NODE_BITS = 10;
+	static final int SEQUENCE_BITS = 12;
+	public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+	private final long node; //id del nodo
+	private final AtomicLong state; //ultimo istante e ultima sequenza usati (istante << SEQUENCE_BITS | sequenza)
+
+	public TimeNodeSequenceIdGenerator(int node) {
+		if (node < 0 || node > MAX_NODE) {
+			throw new IllegalArgumentException("node id must be in [0, " + MAX_NODE + "]");
+		}
+		this.node = node;
+		this.state = new AtomicLong();
+	}
+
+	//genera un nuovo id (senza lock: in caso di contesa ritenta la compare-and-set)
+	@Override
+	public long nextId() {
+		while (true) {
+			long prev = state.get();
+			long now = System.currentTimeMillis() - EPOCH;
+			long next;
+			if (now > (prev >>> SEQUENCE_BITS)) { //nuovo millisecondo: la sequenza riparte da zero
+				next = now << SEQUENCE_BITS;
+			} else { //stesso millisecondo (o orologio tornato indietro): incrementa la sequenza
+				next = prev + 1; //se la sequenza è esaurita il riporto passa al millisecondo successivo, senza attese
+			}
+			if (state.compareAndSet(prev, next)) {
+				long time = next >>> SEQUENCE_BITS;
+				return (time << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+			}
+		}
+	}
+
+	//ricava il nodo che ha generato l'id
+	public static int nodeOf(long id) {
+		return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE);
+	}
+}
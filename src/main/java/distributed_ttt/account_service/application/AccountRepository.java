@@ -14,9 +14,15 @@ public interface AccountRepository extends Repository {
 	//aggiunge un account
 	void addAccount(Account account);
 
+	//aggiunge un account solo se non è già presente (in modo atomico); restituisce false se l'account esiste già
+	boolean addAccountIfAbsent(Account account);
+
 	//verifica se un account è presente
 	boolean isPresent(String userName);
 
 	//recupera un account
 	Account getAccount(String userName) throws AccountNotFoundException;
+
+	//verifica la validità dei dati inseriti per l'account
+	boolean isValid(String userName, String password);
 }
@@ -13,11 +13,10 @@ public class AccountServiceImpl implements AccountService {
 	//registra un utente al servizio
 	public Account registerUser(String userName, String password) throws AccountAlreadyPresentException {
 		logger.log(Level.INFO, "Register User: " + userName + " " + password);
-		if (accountRepository.isPresent(userName)) { //se l'utente esiste già
-			throw new AccountAlreadyPresentException(); //lancia un'eccezione
-		}
 		var account = new Account(userName, password); //crea l'account
-		accountRepository.addAccount(account); //lo aggiunge
+		if (!accountRepository.addAccountIfAbsent(account)) { //lo aggiunge, se l'utente non esiste già (in modo atomico)
+			throw new AccountAlreadyPresentException(); //altrimenti lancia un'eccezione
+		}
 		return account; //restituisce l'account creato
 	}
 
@@ -37,7 +36,7 @@ public class AccountServiceImpl implements AccountService {
 		if (!accountRepository.isPresent(userName)) { //se l'utente non esiste
 			throw new AccountNotFoundException(); //lancia un'eccezione
 		}
-		return accountRepository.getAccount(userName).getPassword().equals(password); //verifica se la password inserita corrisponde a quella associata all'account
+		return accountRepository.isValid(userName, password); //verifica se la password inserita corrisponde a quella associata all'account
 	}
 
 	//definisce un repository per gli account
@@ -1,17 +1,23 @@
 package distributed_ttt.account_service.infrastructure;
 
+import java.nio.file.Path;
 import distributed_ttt.account_service.application.AccountServiceImpl;
+import distributed_ttt.account_service.application.AccountRepository;
 import io.vertx.core.Vertx;
 
-//sever servizio account
+/*
+sever servizio account
+argomento opzionale: la cartella in cui memorizzare gli account in file mappati in memoria (persistenti tra un riavvio e l'altro)
+*/
 public class AccountServiceMain {
 
 	static final int ACCOUNT_SERVICE_PORT = 9000; //porta sul quale il server ascolta le richiesta http
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
 
 		var service = new AccountServiceImpl(); //crea un'istanza del servizio account
-		service.bindAccountRepository(new InMemoryAccountRepository()); //crea un repository degli account utente e lo collega al servizio account
+		AccountRepository repository = args.length > 0 ? new MappedAccountRepository(Path.of(args[0])) : new InMemoryAccountRepository(); //crea un repository degli account utente
+		service.bindAccountRepository(repository); //collega il repository degli account al servizio account
 		var vertx = Vertx.vertx(); //crea un'istanza vertx per gestire le richieste http
 		var server = new AccountServiceController(service, ACCOUNT_SERVICE_PORT); //crea un'istanza del controller
 		vertx.deployVerticle(server); //avvia il server sulla porta specificata (esegue il metodo "start" del controller)
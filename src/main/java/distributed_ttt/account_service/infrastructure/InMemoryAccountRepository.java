@@ -1,6 +1,6 @@
 package distributed_ttt.account_service.infrastructure;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import common.exagonal.Adapter;
 import distributed_ttt.account_service.application.AccountRepository;
 import distributed_ttt.account_service.domain.Account;
@@ -9,10 +9,10 @@ import distributed_ttt.account_service.domain.Account;
 @Adapter
 public class InMemoryAccountRepository implements AccountRepository {
 
-	private HashMap<String, Account> userAccounts; //hashmap che associa l'utente all'account
+	private ConcurrentHashMap<String, Account> userAccounts; //mappa concorrente che associa l'utente all'account
 	
 	public InMemoryAccountRepository() {
-		userAccounts = new HashMap<>();
+		userAccounts = new ConcurrentHashMap<>();
 	}
 
 	//aggiunge un account
@@ -20,6 +20,11 @@ public class InMemoryAccountRepository implements AccountRepository {
 		userAccounts.put(account.getId(), account);
 	}
 
+	//aggiunge un account solo se non ne esiste già uno con lo stesso username (in modo atomico)
+	public boolean addAccountIfAbsent(Account account) {
+		return userAccounts.putIfAbsent(account.getId(), account) == null;
+	}
+
 	//recupera un account
 	@Override
 	public Account getAccount(String userName) {
@@ -30,4 +35,10 @@ public class InMemoryAccountRepository implements AccountRepository {
 	public boolean isPresent(String userName) {
 		return userAccounts.containsKey(userName);
 	}
+
+	//verifica l'autenticazione
+	public boolean isValid(String userName, String password) {
+		var account = userAccounts.get(userName); //recupera l'account con un'unica lettura
+		return (account != null && account.getPassword().equals(password));
+	}
 }
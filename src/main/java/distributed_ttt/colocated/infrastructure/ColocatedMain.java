@@ -0,0 +1,64 @@
+package distributed_ttt.colocated.infrastructure;
+
+import java.util.List;
+import distributed_ttt.account_service.application.AccountServiceImpl;
+import distributed_ttt.account_service.infrastructure.AccountServiceController;
+import distributed_ttt.account_service.infrastructure.InMemoryAccountRepository;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.infrastructure.GameServiceController;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.game_service.infrastructure.VertxGameEventChannel;
+import distributed_ttt.lobby_service.application.LobbyServiceImpl;
+import distributed_ttt.lobby_service.infrastructure.AccountServiceProxy;
+import distributed_ttt.lobby_service.infrastructure.GameServiceProxy;
+import distributed_ttt.lobby_service.infrastructure.LobbyServiceController;
+import distributed_ttt.lobby_service.infrastructure.ServiceGuard;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+/*
+avvia i tre servizi (account, gioco, lobby) in un'unica istanza vertx, ciascuno con il proprio controller e la propria porta
+le porte di uscita della lobby sono collegate direttamente ai servizi co-locati (senza passaggi http);
+con l'argomento "http" usano invece i proxy http, come nel deployment distribuito (per misurare il costo del confine di rete)
+*/
+public class ColocatedMain {
+
+	static final int ACCOUNT_SERVICE_PORT = 9000; //porte sulle quali i servizi ascoltano le richieste http
+	static final int LOBBY_SERVICE_PORT = 9001;
+	static final int GAME_SERVICE_PORT = 9002;
+	static final String ACCOUNT_SERVICE_ADDRESS = "http://localhost:" + ACCOUNT_SERVICE_PORT; //link dei servizi (stesso host)
+	static final String GAME_SERVICE_ADDRESS = "http://localhost:" + GAME_SERVICE_PORT;
+
+	public static void main(String[] args) {
+		var accountService = new AccountServiceImpl(); //crea il servizio degli account
+		accountService.bindAccountRepository(new InMemoryAccountRepository());
+		var gameService = new GameServiceImpl(); //crea il servizio di gioco
+		gameService.bindGameRepository(new InMemoryGameRepository());
+		deploy(Vertx.vertx(), accountService, gameService, args.length > 0 && args[0].equals("http"));
+	}
+
+	//avvia i tre servizi nell'istanza vertx indicata; la future restituisce il servizio di lobby quando tutti i controller sono pronti
+	public static Future<LobbyServiceImpl> deploy(Vertx vertx, AccountServiceImpl accountService, GameServiceImpl gameService, boolean overHttp) {
+		gameService.bindGameEventChannel(new VertxGameEventChannel(vertx.eventBus())); //pubblica gli eventi di ogni partita sul relativo topic dell'event bus
+		var gameController = new GameServiceController(gameService, GAME_SERVICE_PORT);
+
+		var lobby = new LobbyServiceImpl(); //crea il servizio di lobby
+		List<ServiceGuard> downstreams = List.of();
+		if (overHttp) { //porte di uscita collegate tramite http
+			var accountProxy = new AccountServiceProxy(vertx, ACCOUNT_SERVICE_ADDRESS);
+			var gameProxy = new GameServiceProxy(vertx, GAME_SERVICE_ADDRESS);
+			lobby.bindAccountService(accountProxy);
+			lobby.bindGameService(gameProxy);
+			downstreams = List.of(accountProxy.getGuard(), gameProxy.getGuard());
+		} else { //porte di uscita collegate direttamente ai servizi co-locati
+			lobby.bindAccountService(new InProcessAccountService(accountService));
+			lobby.bindGameService(new InProcessGameService(vertx, gameService, gameController));
+		}
+
+		return Future.all( //avvia i controller dei tre servizi
+				vertx.deployVerticle(new AccountServiceController(accountService, ACCOUNT_SERVICE_PORT)),
+				vertx.deployVerticle(gameController),
+				vertx.deployVerticle(new LobbyServiceController(lobby, LOBBY_SERVICE_PORT, GAME_SERVICE_ADDRESS, downstreams))
+		).map(lobby);
+	}
+}
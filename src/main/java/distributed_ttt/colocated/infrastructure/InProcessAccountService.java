@@ -0,0 +1,32 @@
+package distributed_ttt.colocated.infrastructure;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import common.exagonal.Adapter;
+import distributed_ttt.account_service.application.AccountNotFoundException;
+import distributed_ttt.lobby_service.application.AccountService;
+import distributed_ttt.lobby_service.application.UserNotFoundException;
+
+/*
+implementazione della porta di uscita che collega il servizio lobby al servizio degli account nello stesso processo:
+chiama direttamente il servizio applicativo degli account (thread-safe), senza richieste http nè codifica json
+*/
+@Adapter
+public class InProcessAccountService implements AccountService {
+
+	private final distributed_ttt.account_service.application.AccountService accountService; //servizio degli account co-locato
+
+	public InProcessAccountService(distributed_ttt.account_service.application.AccountService accountService) {
+		this.accountService = accountService;
+	}
+
+	//verifica la validità della password
+	@Override
+	public CompletionStage<Boolean> isValidPassword(String userName, String password) {
+		try {
+			return CompletableFuture.completedFuture(accountService.isValidPassword(userName, password));
+		} catch (AccountNotFoundException ex) {
+			return CompletableFuture.failedFuture(new UserNotFoundException());
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package distributed_ttt.colocated.infrastructure;
+
+import java.util.concurrent.CompletionStage;
+import common.exagonal.Adapter;
+import distributed_ttt.game_service.domain.InvalidJoinException;
+import distributed_ttt.game_service.infrastructure.GameServiceController;
+import distributed_ttt.game_service.infrastructure.VertxPlayerSessionEventObserver;
+import distributed_ttt.lobby_service.application.CreateGameFailedException;
+import distributed_ttt.lobby_service.application.GameAlreadyPresentException;
+import distributed_ttt.lobby_service.application.GameService;
+import distributed_ttt.lobby_service.application.InvalidJoinGameException;
+import distributed_ttt.lobby_service.application.JoinGameFailedException;
+import distributed_ttt.lobby_service.domain.TTTSymbol;
+import distributed_ttt.lobby_service.domain.UserId;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+
+/*
+implementazione della porta di uscita che collega il servizio lobby al servizio di gioco nello stesso processo:
+i comandi vengono eseguiti sul contesto del controller di gioco (come le sue richieste http, quindi senza accessi concorrenti alle partite)
+chiamando direttamente il servizio applicativo, senza richieste http nè codifica json
+*/
+@Adapter
+public class InProcessGameService implements GameService {
+
+	private final Vertx vertx;
+	private final distributed_ttt.game_service.application.GameService gameService; //servizio di gioco co-locato
+	private final GameServiceController gameController; //controller del servizio di gioco (fornisce il contesto di esecuzione)
+
+	public InProcessGameService(Vertx vertx, distributed_ttt.game_service.application.GameService gameService, GameServiceController gameController) {
+		this.vertx = vertx;
+		this.gameService = gameService;
+		this.gameController = gameController;
+	}
+
+	//crea una nuova partita
+	@Override
+	public CompletionStage<Void> createNewGame(String gameId) {
+		return gameController.execute(() -> {
+			gameService.createNewGame(gameId);
+			return (Void) null;
+		}).recover(ex -> Future.failedFuture(ex instanceof distributed_ttt.game_service.application.GameAlreadyPresentException ? new GameAlreadyPresentException() : new CreateGameFailedException()))
+		.toCompletionStage();
+	}
+
+	//fa entrare un utente in una partita
+	@Override
+	public CompletionStage<String> joinGame(UserId userId, String gameId, TTTSymbol symbol) {
+		var user = new distributed_ttt.game_service.domain.UserId(userId.id()); //converte i tipi della lobby in quelli del servizio di gioco
+		var gameSymbol = symbol == TTTSymbol.X ? distributed_ttt.game_service.domain.TTTSymbol.X : distributed_ttt.game_service.domain.TTTSymbol.O;
+		return gameController.execute(() -> gameService.joinGame(user, gameId, gameSymbol, new VertxPlayerSessionEventObserver(vertx.eventBus())).getId())
+			.recover(ex -> Future.failedFuture(ex instanceof InvalidJoinException ? new InvalidJoinGameException() : new JoinGameFailedException()))
+			.toCompletionStage();
+	}
+}
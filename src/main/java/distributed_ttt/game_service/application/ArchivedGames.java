@@ -0,0 +1,42 @@
+package distributed_ttt.game_service.application;
+
+import java.util.concurrent.ConcurrentHashMap;
+import common.ddd.Repository;
+import distributed_ttt.game_service.domain.ArchivedGame;
+
+//tiene traccia delle partite terminate e archiviate
+public class ArchivedGames implements Repository {
+
+	private ConcurrentHashMap<String, ArchivedGame> games; //mappa concorrente che associa l'id della partita al suo record archiviato
+
+	public ArchivedGames() {
+		games = new ConcurrentHashMap<>();
+	}
+
+	//aggiunge una partita archiviata
+	public void addGame(ArchivedGame game) {
+		games.put(game.getId(), game);
+	}
+
+	//verifica se una partita è stata archiviata
+	public boolean isPresent(String gameId) {
+		return games.containsKey(gameId);
+	}
+
+	//recupera una partita archiviata
+	public ArchivedGame getGame(String gameId) {
+		return games.get(gameId);
+	}
+
+	//scarta le partite terminate prima dell'istante indicato e ne restituisce il numero
+	public int removeGamesFinishedBefore(long time) {
+		int before = games.size();
+		games.values().removeIf(game -> game.finishedAt() < time);
+		return before - games.size();
+	}
+
+	//recupera il numero di partite archiviate
+	public int size() {
+		return games.size();
+	}
+}
@@ -0,0 +1,16 @@
+package distributed_ttt.game_service.application;
+
+import common.exagonal.OutBoundPort;
+import distributed_ttt.game_service.domain.GameEvent;
+
+/*
+interfaccia che collega l'architettura (applicazione) al canale degli eventi delle partite
+ogni evento viene pubblicato una sola volta sul topic della partita, indipendentemente dal numero di iscritti,
+insieme al suo numero di sequenza nella partita (vedi GameEventLog)
+*/
+@OutBoundPort
+public interface GameEventChannel {
+
+	//pubblica un evento sul topic della partita a cui si riferisce
+	void publish(long seq, GameEvent event);
+}
@@ -0,0 +1,236 @@
+package distributed_ttt.game_service.application;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.game_service.domain.GameEvent;
+import distributed_ttt.game_service.domain.GameObserver;
+
+/*
+dispatcher asincrono degli eventi di gioco: gli osservatori avvolti da queued() non vengono più notificati durante il comando,
+ma l'evento (insieme al suo osservatore) viene accodato in un buffer circolare limitato e il comando termina appena lo stato è salvato
+un thread dedicato svuota la coda a lotti, notificando gli osservatori nell'ordine in cui gli eventi sono stati accodati:
+una sola coda FIFO e un solo lotto alla volta garantiscono l'ordine degli eventi di ogni partita (e di ogni osservatore)
+il buffer è preallocato (due array paralleli): accodare un evento non crea oggetti
+gli osservatori avvolti vengono notificati da un altro thread: devono essere thread safe (es. le sessioni dei giocatori, che pubblicano sull'event bus)
+*/
+public class GameEventDispatcher implements AutoCloseable {
+
+	static Logger logger = Logger.getLogger("[GameEventDispatcher]");
+	public static final int DEFAULT_CAPACITY = 4096; //capacità predefinita della coda
+	public static final int BATCH_SIZE = 64; //numero massimo di eventi notificati per lotto
+
+	private final GameObserver[] targets; //osservatori degli eventi accodati
+	private final GameEvent[] events; //eventi accodati
+	private final int mask; //capacità - 1 (la capacità è una potenza di 2)
+	private int head; //posizione del primo evento in coda
+	private int size; //numero di eventi in coda
+	private final QueueFullPolicy policy; //politica adottata quando la coda è piena
+	private final ReentrantLock lock; //protegge la coda
+	private final Condition notEmpty; //segnalata quando viene accodato un evento in una coda vuota
+	private final Condition notFull; //segnalata quando un lotto libera spazio nella coda
+	private final Object dispatchLock; //un solo lotto alla volta (del consumatore o del comando): mantiene l'ordine degli eventi
+	private final GameObserver[] batchTargets; //lotto in corso di notifica (usato solo con dispatchLock)
+	private final GameEvent[] batchEvents;
+	private final Thread consumer; //thread dedicato che svuota la coda
+	private volatile boolean closed;
+	private volatile long dispatched; //eventi notificati
+	private volatile long batches; //lotti notificati
+	private volatile long dropped; //eventi scartati (politica DROP)
+
+	public GameEventDispatcher() {
+		this(DEFAULT_CAPACITY, QueueFullPolicy.CALLER_DRAINS);
+	}
+
+	public GameEventDispatcher(int capacity, QueueFullPolicy policy) {
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1); //arrotonda alla potenza di 2 successiva
+		targets = new GameObserver[size];
+		events = new GameEvent[size];
+		mask = size - 1;
+		this.policy = policy;
+		lock = new ReentrantLock();
+		notEmpty = lock.newCondition();
+		notFull = lock.newCondition();
+		dispatchLock = new Object();
+		batchTargets = new GameObserver[BATCH_SIZE];
+		batchEvents = new GameEvent[BATCH_SIZE];
+		consumer = new Thread(this::consume, "game-event-dispatcher");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	//avvolge un osservatore: i suoi eventi verranno accodati e notificati dal thread del dispatcher
+	public GameObserver queued(GameObserver observer) {
+		return new QueuedObserver(observer);
+	}
+
+	//notifica subito, nel thread chiamante, tutti gli eventi ancora in coda
+	public void flush() {
+		while (dispatchBatch() > 0) {
+		}
+	}
+
+	//arresta il consumatore dopo aver notificato gli eventi ancora in coda (quelli accodati in seguito vengono notificati subito)
+	public void close() {
+		lock.lock();
+		try {
+			closed = true; //sotto il lock: nessun evento può più essere accodato dopo la chiusura
+			notEmpty.signal();
+			notFull.signalAll(); //i comandi in attesa di spazio notificano da sé i loro eventi
+		} finally {
+			lock.unlock();
+		}
+		try {
+			consumer.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt(); //ripristina l'interruzione: gli eventi rimasti vengono comunque notificati qui sotto
+		}
+		flush();
+	}
+
+	//recupera il numero di eventi in coda
+	public int pending() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//recupera il numero di eventi notificati
+	public long getDispatched() {
+		return dispatched;
+	}
+
+	//recupera il numero di lotti notificati
+	public long getBatches() {
+		return batches;
+	}
+
+	//recupera il numero di eventi scartati perché la coda era piena
+	public long getDropped() {
+		return dropped;
+	}
+
+	//accoda l'evento di un osservatore, applicando la politica scelta se la coda è piena
+	private void offer(GameObserver target, GameEvent ev) {
+		lock.lock();
+		try {
+			while (!closed && size == events.length) { //coda piena
+				switch (policy) {
+					case DROP:
+						dropped++;
+						return;
+					case BLOCK:
+						notFull.awaitUninterruptibly();
+						break;
+					case CALLER_DRAINS:
+						lock.unlock(); //il lotto va notificato senza tenere il lock della coda (lo riprende per estrarlo)
+						try {
+							dispatchBatch();
+						} finally {
+							lock.lock();
+						}
+						break;
+				}
+			}
+			if (!closed) { //(verificato sotto il lock, come la chiusura: nessun evento resta in coda dopo close)
+				int tail = (head + size) & mask;
+				targets[tail] = target;
+				events[tail] = ev;
+				if (size++ == 0) { //la coda era vuota: sveglia il consumatore
+					notEmpty.signal();
+				}
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		flush(); //dispatcher chiuso: notifica subito, dopo gli eventi eventualmente rimasti in coda
+		synchronized (dispatchLock) {
+			deliver(target, ev);
+		}
+	}
+
+	//ciclo del consumatore: attende gli eventi e li notifica a lotti
+	private void consume() {
+		while (true) {
+			lock.lock();
+			try {
+				while (size == 0 && !closed) {
+					notEmpty.awaitUninterruptibly();
+				}
+				if (size == 0) { //chiuso e coda vuota
+					return;
+				}
+			} finally {
+				lock.unlock();
+			}
+			dispatchBatch();
+		}
+	}
+
+	//estrae dalla testa della coda un lotto di eventi e lo notifica; restituisce il numero di eventi notificati
+	private int dispatchBatch() {
+		synchronized (dispatchLock) {
+			int n;
+			lock.lock();
+			try {
+				n = Math.min(size, BATCH_SIZE);
+				for (int i = 0; i < n; i++) {
+					int slot = (head + i) & mask;
+					batchTargets[i] = targets[slot];
+					batchEvents[i] = events[slot];
+					targets[slot] = null; //non trattiene osservatori ed eventi già estratti
+					events[slot] = null;
+				}
+				head = (head + n) & mask;
+				size -= n;
+				if (n > 0) {
+					notFull.signalAll();
+				}
+			} finally {
+				lock.unlock();
+			}
+			for (int i = 0; i < n; i++) {
+				deliver(batchTargets[i], batchEvents[i]);
+				batchTargets[i] = null;
+				batchEvents[i] = null;
+			}
+			if (n > 0) {
+				dispatched += n;
+				batches++;
+			}
+			return n;
+		}
+	}
+
+	//notifica un evento ad un osservatore (un osservatore che fallisce non blocca gli eventi successivi)
+	private static void deliver(GameObserver target, GameEvent ev) {
+		try {
+			target.notifyGameEvent(ev);
+		} catch (RuntimeException ex) {
+			logger.log(Level.WARNING, "observer failed on " + ev, ex);
+		}
+	}
+
+	//osservatore che accoda gli eventi invece di notificarli
+	private class QueuedObserver implements GameObserver {
+
+		private final GameObserver target;
+
+		QueuedObserver(GameObserver target) {
+			this.target = target;
+		}
+
+		public void notifyGameEvent(GameEvent ev) {
+			offer(target, ev);
+		}
+
+		public GameObserver target() {
+			return target;
+		}
+	}
+}
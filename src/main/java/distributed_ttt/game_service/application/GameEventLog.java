@@ -0,0 +1,75 @@
+package distributed_ttt.game_service.application;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import distributed_ttt.game_service.domain.GameEvent;
+
+/*
+registro degli eventi recenti delle partite
+ogni evento riceve un numero di sequenza crescente all'interno della sua partita e viene conservato in un buffer circolare di dimensione fissa:
+un client che si riconnette indica l'ultimo evento ricevuto e recupera solo quelli persi (o un'istantanea, se sono già stati scartati)
+va usato solo dal thread che esegue i comandi del servizio (nessun lock)
+*/
+public class GameEventLog {
+
+	public static final int CAPACITY = 32; //numero di eventi conservati per partita
+
+	//buffer circolare degli eventi di una partita
+	private static class Ring {
+		SequencedGameEvent[] events; //allocato al primo evento
+		long lastSeq; //numero di sequenza dell'ultimo evento
+	}
+
+	private final Map<String, Ring> rings; //buffer per id della partita
+
+	public GameEventLog() {
+		rings = new HashMap<>();
+	}
+
+	//registra un evento della partita e gli assegna il numero di sequenza successivo
+	public SequencedGameEvent append(GameEvent event) {
+		var ring = rings.computeIfAbsent(event.gameId(), id -> new Ring());
+		if (ring.events == null) {
+			ring.events = new SequencedGameEvent[CAPACITY];
+		}
+		var sequenced = new SequencedGameEvent(++ring.lastSeq, event);
+		ring.events[(int) (ring.lastSeq % CAPACITY)] = sequenced; //sovrascrive l'evento più vecchio
+		return sequenced;
+	}
+
+	//recupera il numero di sequenza dell'ultimo evento della partita (0 se la partita non ha eventi registrati)
+	public long lastSeq(String gameId) {
+		var ring = rings.get(gameId);
+		return ring == null ? 0 : ring.lastSeq;
+	}
+
+	/*
+	recupera gli eventi della partita successivi a afterSeq
+	vuoto se non sono più tutti disponibili (scartati dal buffer, oppure afterSeq non corrisponde ad alcun evento registrato)
+	*/
+	public Optional<List<SequencedGameEvent>> since(String gameId, long afterSeq) {
+		var ring = rings.get(gameId);
+		long lastSeq = ring == null ? 0 : ring.lastSeq;
+		if (afterSeq < 0 || afterSeq > lastSeq || lastSeq - afterSeq > CAPACITY) {
+			return Optional.empty();
+		}
+		var events = new ArrayList<SequencedGameEvent>((int) (lastSeq - afterSeq));
+		for (long seq = afterSeq + 1; seq <= lastSeq; seq++) {
+			events.add(ring.events[(int) (seq % CAPACITY)]);
+		}
+		return Optional.of(events);
+	}
+
+	//rimuove gli eventi di una partita (es. quando viene archiviata)
+	public void remove(String gameId) {
+		rings.remove(gameId);
+	}
+
+	//recupera il numero di partite con eventi registrati
+	public int size() {
+		return rings.size();
+	}
+}
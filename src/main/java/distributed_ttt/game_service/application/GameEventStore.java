@@ -0,0 +1,47 @@
+package distributed_ttt.game_service.application;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import common.exagonal.OutBoundPort;
+import distributed_ttt.game_service.domain.GameEvent;
+import distributed_ttt.game_service.domain.GameSnapshot;
+
+/*
+interfaccia che collega l'architettura (applicazione) all'archivio degli eventi delle partite
+il flusso di ogni partita è in sola aggiunta (creazione, ingressi, avvio, mosse e fine): basta a ricostruire la partita,
+a verificarne lo svolgimento in caso di contestazioni e a rigiocarla; le istantanee periodiche evitano di riapplicare l'intero flusso
+*/
+@OutBoundPort
+public interface GameEventStore {
+
+	//aggiunge in coda al flusso di una partita i suoi nuovi eventi
+	void append(String gameId, List<GameEvent> events);
+
+	//recupera il numero di eventi nel flusso di una partita (0 se la partita non esiste)
+	long count(String gameId);
+
+	//recupera gli eventi di una partita a partire dalla posizione indicata (0 per l'intero flusso)
+	List<GameEvent> load(String gameId, long from);
+
+	//salva l'istantanea di una partita dopo i primi eventCount eventi del suo flusso
+	void saveSnapshot(String gameId, long eventCount, GameSnapshot snapshot);
+
+	//recupera l'ultima istantanea salvata di una partita
+	Optional<StoredGameSnapshot> loadSnapshot(String gameId);
+
+	//segna come archiviata una partita rimossa: il suo flusso resta nell'archivio, ma la partita non va più ricostruita all'apertura
+	void markArchived(String gameId);
+
+	//recupera gli id delle partite presenti nell'archivio
+	List<String> gameIds();
+
+	//recupera gli id delle partite né terminate né archiviate (le sole da ricostruire all'apertura)
+	List<String> openGameIds();
+
+	//restituisce una future che si completa quando tutti gli eventi aggiunti finora sono resi persistenti
+	//(gli archivi in memoria non hanno nulla da attendere)
+	default CompletableFuture<Void> whenDurable() {
+		return CompletableFuture.completedFuture(null);
+	}
+}
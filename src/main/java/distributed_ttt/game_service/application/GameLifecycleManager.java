@@ -0,0 +1,82 @@
+package distributed_ttt.game_service.application;
+
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+gestisce il ciclo di vita degli oggetti del servizio:
+archivia le partite terminate da più di un certo tempo e rimuove le sessioni giocatore inattive,
+così che partite, osservatori e buffer degli eventi non restino in memoria per sempre
+*/
+public class GameLifecycleManager {
+
+	static Logger logger = Logger.getLogger("[Game Lifecycle]");
+	private final PlayerSessions playerSessions; //sessioni giocatore
+	private final ArchivedGames archivedGames; //partite archiviate
+	private final GameEventLog eventLog; //eventi recenti delle partite
+	private GameRepository gameRepository; //partite in corso
+	private GameReadModel readModel; //modello di lettura delle partite (se definito)
+	private LifecyclePolicy policy; //tempi di permanenza di partite terminate e sessioni inattive
+	private final AtomicLong evictedGames; //numero totale di partite archiviate
+	private final AtomicLong discardedGames; //numero totale di partite archiviate e poi scartate
+	private final AtomicLong expiredPlayerSessions; //numero totale di sessioni giocatore scadute
+
+	public GameLifecycleManager(PlayerSessions playerSessions, ArchivedGames archivedGames, GameEventLog eventLog) {
+		this.playerSessions = playerSessions;
+		this.archivedGames = archivedGames;
+		this.eventLog = eventLog;
+		this.policy = LifecyclePolicy.DEFAULT;
+		this.evictedGames = new AtomicLong();
+		this.discardedGames = new AtomicLong();
+		this.expiredPlayerSessions = new AtomicLong();
+	}
+
+	//archivia le partite terminate e rimuove le sessioni giocatore inattive, rispetto all'istante now
+	public LifecycleStats evictExpired(long now) {
+		var evicted = new HashSet<String>(); //id delle partite archiviate in questo passaggio
+		for (var game : gameRepository.getGamesFinishedBefore(now - policy.finishedGameTtlMillis())) { //per ogni partita terminata da troppo tempo
+			archivedGames.addGame(game.archive()); //la archivia (prima di rimuoverla, così che resti sempre consultabile)
+			gameRepository.removeGame(game.getId()); //la rimuove dalle partite in corso
+			eventLog.remove(game.getId()); //e ne scarta gli eventi recenti (chi si riconnette riceve l'istantanea della partita archiviata)
+			if (readModel != null) {
+				readModel.gameRemoved(game.getId()); //e la vista del modello di lettura
+			}
+			evicted.add(game.getId());
+		}
+		int discarded = archivedGames.removeGamesFinishedBefore(now - policy.archivedGameTtlMillis()); //scarta le partite archiviate da troppo tempo
+		long idleSince = now - policy.idleSessionTtlMillis();
+		var expired = playerSessions.removeSessions(ps -> evicted.contains(ps.getGameId()) || ps.getLastAccess() < idleSince); //rimuove le sessioni delle partite archiviate e quelle inattive
+		for (var ps : expired) {
+			ps.detach(); //stacca la sessione dalla partita (se ancora in corso), insieme al suo buffer degli eventi
+		}
+		evictedGames.addAndGet(evicted.size());
+		discardedGames.addAndGet(discarded);
+		expiredPlayerSessions.addAndGet(expired.size());
+		if (!evicted.isEmpty() || discarded > 0 || !expired.isEmpty()) {
+			logger.log(Level.INFO, "archived " + evicted.size() + " games, discarded " + discarded + " archived games, expired " + expired.size() + " player sessions");
+		}
+		return getStats();
+	}
+
+	//recupera i contatori degli oggetti vivi e archiviati
+	public LifecycleStats getStats() {
+		return new LifecycleStats(gameRepository.count(), archivedGames.size(), playerSessions.size(), evictedGames.get(), discardedGames.get(), expiredPlayerSessions.get());
+	}
+
+	//definisce il repository delle partite in corso
+	public void bindGameRepository(GameRepository repo) {
+		this.gameRepository = repo;
+	}
+
+	//definisce il modello di lettura da cui rimuovere le partite archiviate
+	public void bindGameReadModel(GameReadModel model) {
+		this.readModel = model;
+	}
+
+	//definisce la politica di pulizia
+	public void bindLifecyclePolicy(LifecyclePolicy policy) {
+		this.policy = policy;
+	}
+}
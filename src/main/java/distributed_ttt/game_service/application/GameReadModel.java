@@ -0,0 +1,44 @@
+package distributed_ttt.game_service.application;
+
+import java.util.List;
+import java.util.Optional;
+import common.exagonal.OutBoundPort;
+import distributed_ttt.game_service.domain.GameEvent;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+
+/*
+interfaccia che collega l'architettura (applicazione) al modello di lettura delle partite (lato query, separato da quello dei comandi)
+il servizio lo aggiorna con la creazione delle partite, gli ingressi dei giocatori e gli eventi di ogni partita (dal thread che esegue i comandi);
+le interrogazioni leggono solo le viste del modello e i suoi indici (per stato e per giocatore), da qualsiasi thread
+*/
+@OutBoundPort
+public interface GameReadModel {
+
+	//registra una nuova partita
+	void gameCreated(String gameId, int width, int height, int winLength);
+
+	//registra una partita già esistente (es. ripristinata all'avvio, prima del collegamento del modello)
+	void gameRestored(GameSummary view);
+
+	//rimuove una partita (archiviata o rimossa dalle partite in corso)
+	void gameRemoved(String gameId);
+
+	//registra l'ingresso di un giocatore in una partita
+	void playerJoined(String gameId, UserId userId, TTTSymbol symbol);
+
+	//applica un evento della partita (avvio, mossa o fine)
+	void apply(GameEvent event);
+
+	//recupera la vista di una partita
+	Optional<GameSummary> getGame(String gameId);
+
+	//recupera le viste delle partite in un certo stato ("waiting-for-players", "started" o "finished")
+	List<GameSummary> getGamesByState(String gameState);
+
+	//recupera le viste delle partite di un giocatore
+	List<GameSummary> getGamesByPlayer(String userId);
+
+	//recupera il numero di partite nel modello
+	int size();
+}
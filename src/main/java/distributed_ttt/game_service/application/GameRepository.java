@@ -1,8 +1,12 @@
 package distributed_ttt.game_service.application;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import common.ddd.Repository;
 import common.exagonal.OutBoundPort;
 import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.GameSnapshot;
 
 /*
 interfaccia che collega l'architettura (applicazione) al db delle partite
@@ -14,10 +18,41 @@ public interface GameRepository extends Repository {
 	//aggiunge una partita
 	void addGame(Game game);
 
+	//aggiunge una partita solo se non è già presente (in modo atomico); restituisce false se la partita esiste già
+	boolean addGameIfAbsent(Game game);
+
 	//verifica se una partita è presente
 	boolean isPresent(String gameId);
 
 	//recupera una partita
 	Game getGame(String gameId);
 
+	//recupera l'istantanea immutabile di una partita (null se la partita non esiste)
+	//i repository che ricreano la partita ad ogni lettura possono costruirla direttamente dallo stato memorizzato
+	default GameSnapshot getGameSnapshot(String gameId) {
+		var game = getGame(gameId);
+		return game != null ? game.snapshot() : null;
+	}
+
+	//salva lo stato di una partita modificata (necessario per i repository che ricreano la partita ad ogni lettura)
+	void updateGame(Game game);
+
+	//rimuove una partita
+	void removeGame(String gameId);
+
+	//recupera le partite terminate prima dell'istante indicato
+	List<Game> getGamesFinishedBefore(long time);
+
+	//recupera il numero di partite presenti
+	int count();
+
+	//scorre tutte le partite presenti (senza garantire una vista atomica dell'intero repository)
+	void forEachGame(Consumer<Game> action);
+
+	//restituisce una future che si completa quando tutte le modifiche salvate finora sono rese persistenti
+	//(i repository in memoria non hanno nulla da attendere; chi risponde al client lo fa quando la future si completa, senza bloccarsi)
+	default CompletableFuture<Void> whenDurable() {
+		return CompletableFuture.completedFuture(null);
+	}
+
 }
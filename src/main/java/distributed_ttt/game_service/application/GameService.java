@@ -1,5 +1,8 @@
 package distributed_ttt.game_service.application;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import common.exagonal.InBoundPort;
 import distributed_ttt.game_service.domain.*;
 
@@ -8,7 +11,10 @@ import distributed_ttt.game_service.domain.*;
 public interface GameService  {
 
 	//recupera una partita
-	Game getGameInfo(String gameId) throws GameNotFoundException;
+	GameView getGameInfo(String gameId) throws GameNotFoundException;
+
+	//recupera l'istantanea immutabile di una partita (in corso o archiviata): non legge lo stato mutabile della partita
+	GameView getGameSnapshot(String gameId) throws GameNotFoundException;
 		
 	//recupera una sessione
 	PlayerSession getPlayerSession(String sessionId);
@@ -16,7 +22,25 @@ public interface GameService  {
 	//crea una nuova partita
 	void createNewGame(String gameId) throws GameAlreadyPresentException;
 
+	//crea una nuova partita su una griglia width x height in cui vince chi allinea winLength simboli
+	void createNewGame(String gameId, int width, int height, int winLength) throws GameAlreadyPresentException;
+
 	//esegue il join di un utente ad un partita
 	PlayerSession joinGame(UserId userId, String gameId, TTTSymbol symbol, PlayerSessionEventObserver observer) throws InvalidJoinException;
+
+	//recupera gli eventi di una partita successivi al numero di sequenza indicato (vuoto se non sono più tutti disponibili: al client serve un'istantanea)
+	Optional<List<SequencedGameEvent>> getGameEventsSince(String gameId, long seq);
+
+	//recupera il numero di sequenza dell'ultimo evento di una partita (0 se non ci sono eventi registrati)
+	long getLastGameEventSeq(String gameId);
+
+	//archivia le partite terminate e rimuove le sessioni giocatore inattive
+	LifecycleStats evictExpired();
+
+	//recupera i contatori degli oggetti vivi e archiviati
+	LifecycleStats getLifecycleStats();
+
+	//restituisce una future che si completa quando i comandi eseguiti finora sono resi persistenti (la risposta al client va inviata dopo)
+	CompletableFuture<Void> whenDurable();
     
 }
@@ -1,7 +1,12 @@
 package distributed_ttt.game_service.application;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import common.ids.IdGenerator;
+import common.ids.TimeNodeSequenceIdGenerator;
 import distributed_ttt.game_service.domain.*;
 
 //servizio applicativo che gestisce il flusso di gioco
@@ -10,11 +15,31 @@ public class GameServiceImpl implements GameService {
 	static Logger logger = Logger.getLogger("[Game Service]");
     private GameRepository gameRepository; //repository delle partite in corso
     private PlayerSessions playerSessionRepository; //repository delle sessioni dei giocatori
-    private int playerSessionCount; //numero di sessioni giocatore
+    private ArchivedGames archivedGames; //partite terminate e archiviate
+    private GameLifecycleManager lifecycle; //gestore del ciclo di vita di partite e sessioni
+    private IdGenerator sessionIds; //generatore degli id delle sessioni (univoci anche tra più istanze del servizio)
+    private GameObserver gameTopic; //osservatore che pubblica gli eventi di ogni partita sul relativo topic (se il canale è definito)
+    private GameEventLog eventLog; //eventi recenti di ogni partita, con il loro numero di sequenza
+    private GameReadModel readModel; //modello di lettura delle partite (se definito)
+    private GameObserver readModelFeed; //osservatore che applica gli eventi di ogni partita al modello di lettura (se definito)
+    private GameEventDispatcher dispatcher; //dispatcher asincrono delle notifiche ai giocatori (se definito)
     
     public GameServiceImpl(){
+    	this(0);
+    }
+
+	//crea un'istanza del servizio identificata da nodeId
+    public GameServiceImpl(int nodeId){
+    	this(new TimeNodeSequenceIdGenerator(nodeId));
+    }
+
+	//crea un'istanza del servizio con un generatore di id specifico
+    public GameServiceImpl(IdGenerator sessionIds){
     	playerSessionRepository = new PlayerSessions();
-    	playerSessionCount = 0;
+    	archivedGames = new ArchivedGames();
+    	eventLog = new GameEventLog();
+    	lifecycle = new GameLifecycleManager(playerSessionRepository, archivedGames, eventLog);
+    	this.sessionIds = sessionIds;
     }
     
 	//recupera una sessione
@@ -26,22 +51,49 @@ public class GameServiceImpl implements GameService {
 	//crea una nuova partita
 	@Override
 	public void createNewGame(String gameId) throws GameAlreadyPresentException {
-		logger.log(Level.INFO, "create New Game " + gameId);
-		var game = new Game(gameId); //crea una partita
-		if (gameRepository.isPresent(gameId)) { //se la partita esiste (è già avviata)
-			throw new GameAlreadyPresentException(); //lancia un'eccezione
+		createNewGame(gameId, 3, 3, 3); //crea una partita di tris classico
+	}
+
+	//crea una nuova partita su una griglia width x height in cui vince chi allinea winLength simboli
+	@Override
+	public void createNewGame(String gameId, int width, int height, int winLength) throws GameAlreadyPresentException {
+		logger.log(Level.INFO, "create New Game " + gameId + " (" + width + "x" + height + ", " + winLength + ")");
+		var game = new Game(gameId, width, height, winLength); //crea una partita
+		if (archivedGames.isPresent(gameId) || !gameRepository.addGameIfAbsent(game)) { //avvia la partita, se non esiste già né tra quelle in corso (in modo atomico) né tra quelle archiviate
+			throw new GameAlreadyPresentException(); //altrimenti lancia un'eccezione
+		}
+		if (readModel != null) {
+			readModel.gameCreated(gameId, width, height, winLength); //registra la partita nel modello di lettura
 		}
-		gameRepository.addGame(game); //avvia la partita
 	}
 	
 	//recupera una partita
 	@Override
-	public Game getGameInfo(String gameId) throws GameNotFoundException {
+	public GameView getGameInfo(String gameId) throws GameNotFoundException {
 		logger.log(Level.INFO, "create New Game " + gameId);
-		if (!gameRepository.isPresent(gameId)) { //se la partita non esiste (non è già avviata)
+		GameView game = gameRepository.getGame(gameId); //cerca la partita tra quelle in corso
+		if (game == null) { //se non è in corso
+			game = archivedGames.getGame(gameId); //la cerca tra quelle archiviate
+		}
+		if (game == null) { //se la partita non esiste
+			throw new GameNotFoundException(); //lancia un'eccezione
+		}
+		return game; //recupera la partita
+	}
+
+	//recupera l'istantanea immutabile di una partita
+	//con repository concorrenti può essere chiamato da qualsiasi thread, anche mentre la partita esegue una mossa
+	@Override
+	public GameView getGameSnapshot(String gameId) throws GameNotFoundException {
+		var snapshot = gameRepository.getGameSnapshot(gameId); //cerca la partita tra quelle in corso (senza ricrearla, con i repository compatti)
+		if (snapshot != null) {
+			return snapshot; //ultima istantanea pubblicata dalla partita
+		}
+		GameView archived = archivedGames.getGame(gameId); //le partite archiviate sono già immutabili
+		if (archived == null) { //se la partita non esiste
 			throw new GameNotFoundException(); //lancia un'eccezione
 		}
-		return gameRepository.getGame(gameId); //recupera la partita
+		return archived;
 	}
 
 	//fa entrare un utente in una partita
@@ -50,20 +102,102 @@ public class GameServiceImpl implements GameService {
 		logger.log(Level.INFO, "JoinGame - user: " + userId + " game: " + gameId + " symbol " + symbol);
 		var game = gameRepository.getGame(gameId); //recupera la partita
 		game.joinGame(userId, symbol); //fa entrare l'utente nella partita indicata
-		playerSessionCount++; //incrementa il numero di sessioni giocatore
-		var playerSessionId = "player-session-" + playerSessionCount; //crea un id per la sessione
-		var ps = new PlayerSession(playerSessionId, userId, game, symbol);  //crea la sessione
+		if (readModel != null) {
+			readModel.playerJoined(gameId, userId, symbol); //aggiorna il modello di lettura (prima dell'eventuale avvio della partita)
+			if (!game.getObservers().contains(readModelFeed)) {
+				game.addGameObserver(readModelFeed); //gli eventi della partita aggiornano il modello di lettura
+			}
+		}
+		var playerSessionId = sessionIds.nextId(PlayerSessions.ID_PREFIX); //crea un id per la sessione
+		var ps = new PlayerSession(playerSessionId, userId, gameId, gameRepository, symbol);  //crea la sessione
 		ps.bindPlayerSessionEventNotifier(notifier); //definisce un observer per la sessione
 		playerSessionRepository.addSession(ps); //aggiunge la sessione
-		game.addGameObserver(ps); //aggiunge l'observer
+		game.addGameObserver(dispatcher == null ? ps : dispatcher.queued(ps)); //aggiunge l'observer (con il dispatcher asincrono la mossa non attende la notifica)
+		if (gameTopic != null && !game.getObservers().contains(gameTopic)) { //se la partita non pubblica ancora i suoi eventi sul topic
+			game.addGameObserver(gameTopic); //aggiunge l'osservatore del topic (uno per partita, qualunque sia il numero di iscritti)
+		}
 		if (game.isReadyToStart()) { //se la partita può iniziare
 			game.startGame(); //avvia la partita
 		}
+		gameRepository.updateGame(game); //salva lo stato della partita
 		return ps; //restituisce la sessione giocatore
 	}
 
+	//recupera gli eventi di una partita successivi al numero di sequenza indicato (vuoto se non sono più tutti disponibili)
+	@Override
+	public Optional<List<SequencedGameEvent>> getGameEventsSince(String gameId, long seq) {
+		if (eventLog.lastSeq(gameId) == 0) { //nessun evento registrato: la partita non è ancora iniziata, oppure i suoi eventi sono andati persi (riavvio o archiviazione)
+			var game = gameRepository.getGame(gameId);
+			if (game == null || game.isStarted() || game.isFinished()) {
+				return Optional.empty();
+			}
+		}
+		return eventLog.since(gameId, seq);
+	}
+
+	//recupera il numero di sequenza dell'ultimo evento di una partita
+	@Override
+	public long getLastGameEventSeq(String gameId) {
+		return eventLog.lastSeq(gameId);
+	}
+
+	//archivia le partite terminate e rimuove le sessioni giocatore inattive
+	@Override
+	public LifecycleStats evictExpired() {
+		return lifecycle.evictExpired(System.currentTimeMillis());
+	}
+
+	//recupera i contatori degli oggetti vivi e archiviati
+	@Override
+	public LifecycleStats getLifecycleStats() {
+		return lifecycle.getStats();
+	}
+
+	//restituisce una future che si completa quando i comandi eseguiti finora sono resi persistenti
+	@Override
+	public CompletableFuture<Void> whenDurable() {
+		return gameRepository.whenDurable();
+	}
+
+	//definisce la politica di pulizia di partite terminate e sessioni inattive
+	public void bindLifecyclePolicy(LifecyclePolicy policy) {
+		lifecycle.bindLifecyclePolicy(policy);
+	}
+
 	//definisce un repository per le partite
 	public void bindGameRepository(GameRepository repo) {
     	this.gameRepository = repo;
+    	lifecycle.bindGameRepository(repo);
     }
+
+	//definisce il modello di lettura delle partite, aggiornato dalla creazione, dagli ingressi e dagli eventi di ogni partita
+	//le partite già presenti nel repository (es. ripristinate dal log all'avvio) vengono registrate subito nel modello
+	public void bindGameReadModel(GameReadModel model) {
+		readModel = model;
+		readModelFeed = model::apply;
+		lifecycle.bindGameReadModel(model); //le partite archiviate escono dal modello
+		if (gameRepository != null) {
+			gameRepository.forEachGame(game -> {
+				model.gameRestored(GameSummary.of(game.snapshot()));
+				if (game.isStarted() && !game.getObservers().contains(readModelFeed)) { //le partite in corso vi applicano anche le mosse successive
+					game.addGameObserver(readModelFeed);
+					gameRepository.updateGame(game);
+				}
+			});
+		}
+	}
+
+	//notifica gli eventi delle partite alle sessioni dei giocatori in modo asincrono, con il dispatcher indicato
+	//il topic e il modello di lettura restano sincroni: i numeri di sequenza degli eventi vengono assegnati durante il comando
+	public void bindGameEventDispatcher(GameEventDispatcher dispatcher) {
+		this.dispatcher = dispatcher;
+	}
+
+	//definisce il canale su cui pubblicare gli eventi delle partite (una sola volta per partita, con il loro numero di sequenza)
+	public void bindGameEventChannel(GameEventChannel channel) {
+		gameTopic = event -> {
+			var sequenced = eventLog.append(event); //registra l'evento, così che un client che si riconnette possa recuperarlo
+			channel.publish(sequenced.seq(), event);
+		};
+	}
 }
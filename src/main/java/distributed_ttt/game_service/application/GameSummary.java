@@ -0,0 +1,104 @@
+package distributed_ttt.game_service.application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import distributed_ttt.game_service.domain.*;
+
+/*
+vista denormalizzata (immutabile) di una partita nel modello di lettura
+è costruita solo a partire dalla creazione, dagli ingressi dei giocatori e dagli eventi della partita (avvio, mosse, fine):
+ogni aggiornamento crea una nuova vista con la versione successiva (la stessa della partita, quindi lo stesso ETag)
+*/
+public record GameSummary(String id, String board, int width, int height, int winLength, Game.GameState state,
+		Optional<String> playerCross, Optional<String> playerCircle, String currentTurn, Optional<String> winner, long version) implements GameView {
+
+	//vista di una partita appena creata
+	public static GameSummary created(String gameId, int width, int height, int winLength) {
+		return new GameSummary(gameId, "-".repeat(width * height), width, height, winLength, Game.GameState.WAITING_FOR_PLAYERS,
+				Optional.empty(), Optional.empty(), "X", Optional.empty(), 0);
+	}
+
+	//vista di una partita già esistente (es. ripristinata all'avvio), costruita dalla sua istantanea
+	public static GameSummary of(GameSnapshot game) {
+		var turn = game.state() == Game.GameState.WAITING_FOR_PLAYERS ? "X" : game.currentTurn(); //come per una partita appena creata
+		return new GameSummary(game.id(), game.board(), game.width(), game.height(), game.winLength(), game.state(),
+				game.playerCross(), game.playerCircle(), turn, game.winner(), game.version());
+	}
+
+	//vista dopo l'ingresso di un giocatore
+	public GameSummary joined(UserId userId, TTTSymbol symbol) {
+		var player = Optional.of(userId.id());
+		return new GameSummary(id, board, width, height, winLength, state, symbol == TTTSymbol.X ? player : playerCross,
+				symbol == TTTSymbol.O ? player : playerCircle, currentTurn, winner, version + 1);
+	}
+
+	//vista dopo un evento della partita
+	public GameSummary apply(GameEvent event) {
+		if (event instanceof GameStarted) {
+			return new GameSummary(id, board, width, height, winLength, Game.GameState.STARTED, playerCross, playerCircle, "X", winner, version + 1);
+		} else if (event instanceof NewMove move) {
+			var cells = board.toCharArray();
+			cells[move.y() * width + move.x()] = move.symbol().charAt(0); //stessa disposizione delle caselle della griglia
+			var next = move.symbol().equals("X") ? "O" : "X"; //il turno passa all'altro simbolo
+			return new GameSummary(id, new String(cells), width, height, winLength, state, playerCross, playerCircle, next, winner, version + 1);
+		} else if (event instanceof GameEnded ended) {
+			return new GameSummary(id, board, width, height, winLength, Game.GameState.FINISHED, playerCross, playerCircle, currentTurn, ended.winner(), version + 1);
+		}
+		return this;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getGameState() {
+		return stateName(state);
+	}
+
+	//nome dello stato della partita usato dalle api ("waiting-for-players", "started" o "finished")
+	public static String stateName(Game.GameState state) {
+		return switch (state) {
+			case WAITING_FOR_PLAYERS -> "waiting-for-players";
+			case STARTED -> "started";
+			case FINISHED -> "finished";
+		};
+	}
+
+	public boolean isStarted() {
+		return state == Game.GameState.STARTED;
+	}
+
+	public boolean isFinished() {
+		return state == Game.GameState.FINISHED;
+	}
+
+	//ricostruisce lo stato della griglia a partire dalla stringa compatta
+	public List<String> getBoardState() {
+		var cells = new ArrayList<String>(board.length());
+		for (int i = 0; i < board.length(); i++) {
+			cells.add(String.valueOf(board.charAt(i)));
+		}
+		return cells;
+	}
+
+	public int getBoardWidth() {
+		return width;
+	}
+
+	public int getBoardHeight() {
+		return height;
+	}
+
+	public int getWinLength() {
+		return winLength;
+	}
+
+	public String getCurrentTurn() {
+		return currentTurn;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+}
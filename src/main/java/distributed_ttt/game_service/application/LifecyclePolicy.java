@@ -0,0 +1,17 @@
+package distributed_ttt.game_service.application;
+
+/*
+record per la politica di pulizia del servizio:
+le partite terminate vengono archiviate dopo finishedGameTtlMillis, le sessioni giocatore inattive scadono dopo idleSessionTtlMillis
+e le partite archiviate vengono scartate archivedGameTtlMillis dopo la loro fine (così che anche l'archivio resti limitato)
+*/
+public record LifecyclePolicy(long finishedGameTtlMillis, long idleSessionTtlMillis, long archivedGameTtlMillis) {
+
+	public static final long DEFAULT_ARCHIVED_GAME_TTL = 24 * 60 * 60_000; //un giorno per le partite archiviate
+	public static final LifecyclePolicy DEFAULT = new LifecyclePolicy(5 * 60_000, 30 * 60_000); //5 minuti per le partite, 30 minuti per le sessioni
+
+	//politica con la conservazione predefinita delle partite archiviate
+	public LifecyclePolicy(long finishedGameTtlMillis, long idleSessionTtlMillis) {
+		this(finishedGameTtlMillis, idleSessionTtlMillis, DEFAULT_ARCHIVED_GAME_TTL);
+	}
+}
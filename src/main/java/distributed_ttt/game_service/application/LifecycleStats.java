@@ -0,0 +1,4 @@
+package distributed_ttt.game_service.application;
+
+//record con i contatori degli oggetti vivi e archiviati (ed i totali di quelli rimossi)
+public record LifecycleStats(int liveGames, int archivedGames, int playerSessions, long evictedGames, long discardedGames, long expiredPlayerSessions) {}
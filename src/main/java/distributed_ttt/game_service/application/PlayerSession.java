@@ -1,26 +1,43 @@
 package distributed_ttt.game_service.application;
 
+import common.ddd.EventFilter;
+import common.ddd.EventRouter;
 import distributed_ttt.game_service.domain.*;
 
 //sessione del giocatore
 public class PlayerSession implements GameObserver {
 
+	//gestori degli eventi di gioco, registrati una sola volta per tutte le sessioni
+	private static final EventRouter<PlayerSession, GameEvent> ROUTER = EventRouter.<PlayerSession, GameEvent>builder(GameEvent.TYPES)
+			.on(GameEvent.GAME_STARTED, (ps, e) -> ps.playerSessionEventNotifier.gameStarted(ps.playerSessionId)) //notifica al giocatore che la partita è iniziata
+			.on(GameEvent.GAME_ENDED, (ps, e) -> ps.playerSessionEventNotifier.gameEnded(ps.playerSessionId, e.winner())) //notifica al giocatore che la partita è terminata e il vincitore
+			.on(GameEvent.NEW_MOVE, PlayerSession::moved) //notifica al giocatore la mossa eseguita
+			.build();
+
 	private UserId userId; //id del giocatore
-	private Game game; //partita associata alla sessione
+	private String gameId; //id della partita associata alla sessione
+	private GameRepository gameRepository; //repository da cui recuperare la partita (che può essere ricreata ad ogni lettura)
 	private final TTTSymbol symbol; //simbolo del giocatore (X o O)
 	private String playerSessionId; //id della sessione del giocatore
 	private PlayerSessionEventObserver playerSessionEventNotifier; //observer associato alla sessione del giocatore (notifica il giocatore associato a questa sessione)
+	private volatile long lastAccess; //istante dell'ultimo accesso alla sessione
+	private final EventFilter subscription; //eventi notificati alla sessione (solo quelli della sua partita)
 	
-	public PlayerSession(String playerSessionId, UserId userId, Game game, TTTSymbol symbol) {
+	public PlayerSession(String playerSessionId, UserId userId, String gameId, GameRepository gameRepository, TTTSymbol symbol) {
 		this.userId = userId;
-		this.game = game;
+		this.gameId = gameId;
+		this.gameRepository = gameRepository;
 		this.symbol = symbol;
 		this.playerSessionId = playerSessionId;
+		this.lastAccess = System.currentTimeMillis();
+		this.subscription = EventFilter.any().onlyAggregate(gameId);
 	}
 
 	//fa eseguire al giocatore una mossa
 	public void makeMove(int x, int y) throws InvalidMoveException {
+		var game = gameRepository.getGame(gameId); //recupera la partita
 		game.makeAmove(userId, x, y);
+		gameRepository.updateGame(game); //salva lo stato della partita dopo la mossa
 	}
 
 	//recupera il simbolo del giocatore
@@ -33,20 +50,35 @@ public class PlayerSession implements GameObserver {
 		return playerSessionId;
 	}
 
-	//notifica gli eventi di gioco
-	public void notifyGameEvent(GameEvent ev) {
-		if (ev instanceof GameStarted) { //se l'evento è di tipo "GameStarted"
-			playerSessionEventNotifier.gameStarted(playerSessionId); //notifica al giocatore che la partita è iniziata
-		} else if (ev instanceof GameEnded) { //altrimenti se l'evento è di tipo "GameEnded"
-			var e = (GameEnded) ev;
-			playerSessionEventNotifier.gameEnded(playerSessionId, e.winner()); //notifica al giocatore che la partita è terminata e il vincitore
-		} else if (ev instanceof NewMove) { //altrimenti se l'evento è di tipo "NewMove"
-			var e = (NewMove) ev;
-			log("new move: " + e.symbol() + " in (" + e.x() + ", " + e.y() + ")");
-			playerSessionEventNotifier.newMove(playerSessionId, e.symbol(), e.x(), e.y()); //notifica al giocatore che la mossa eseguita dall'avversario
+	//recupera l'id della partita associata alla sessione
+	public String getGameId() {
+		return gameId;
+	}
+
+	//aggiorna l'istante dell'ultimo accesso alla sessione
+	public void touch() {
+		lastAccess = System.currentTimeMillis();
+	}
+
+	//recupera l'istante dell'ultimo accesso alla sessione
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
+	//stacca la sessione dalla partita (che smette di notificarle gli eventi)
+	public void detach() {
+		var game = gameRepository.getGame(gameId);
+		if (game != null) { //se la partita è ancora in corso
+			game.removeGameObserver(this);
+			gameRepository.updateGame(game);
 		}
 	}
 
+	//notifica gli eventi di gioco (un solo accesso alla tabella dei gestori, indicizzata dal tipo dell'evento)
+	public void notifyGameEvent(GameEvent ev) {
+		ROUTER.route(this, ev, subscription);
+	}
+
 	//definisce un observer per la sessione
 	public void bindPlayerSessionEventNotifier(PlayerSessionEventObserver playerSessionEventNotifier) {
 		this.playerSessionEventNotifier = playerSessionEventNotifier;
@@ -57,7 +89,13 @@ public class PlayerSession implements GameObserver {
 		return playerSessionEventNotifier;
 	}
 	
+	//notifica al giocatore una nuova mossa
+	private void moved(NewMove e) {
+		log("new move: " + e.symbol() + " in (" + e.x() + ", " + e.y() + ")");
+		playerSessionEventNotifier.newMove(playerSessionId, e.symbol(), e.x(), e.y());
+	}
+
 	private void log(String msg) {
-		System.out.println("[ player " + userId.id() + " in game " + game.getId() + " ] " + msg);
+		System.out.println("[ player " + userId.id() + " in game " + gameId + " ] " + msg);
 	}
 }
@@ -0,0 +1,8 @@
+package distributed_ttt.game_service.application;
+
+//politica con cui il dispatcher asincrono degli eventi di gioco tratta un evento quando la sua coda è piena
+public enum QueueFullPolicy {
+	BLOCK, //il comando attende che il consumatore liberi spazio (da non usare se il comando gira su un event loop)
+	DROP, //l'evento viene scartato e contato (le notifiche perse si recuperano dal topic della partita)
+	CALLER_DRAINS //il comando notifica lui stesso il lotto più vecchio della coda, poi accoda l'evento (l'ordine resta invariato)
+}
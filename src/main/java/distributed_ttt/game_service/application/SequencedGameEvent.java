@@ -0,0 +1,6 @@
+package distributed_ttt.game_service.application;
+
+import distributed_ttt.game_service.domain.GameEvent;
+
+//evento di una partita con il suo numero di sequenza (crescente, a partire da 1, all'interno della partita)
+public record SequencedGameEvent(long seq, GameEvent event) {}
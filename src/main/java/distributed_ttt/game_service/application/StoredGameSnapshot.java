@@ -0,0 +1,6 @@
+package distributed_ttt.game_service.application;
+
+import distributed_ttt.game_service.domain.GameSnapshot;
+
+//istantanea di una partita salvata nell'archivio degli eventi, valida dopo i primi eventCount eventi del flusso
+public record StoredGameSnapshot(long eventCount, GameSnapshot game) {}
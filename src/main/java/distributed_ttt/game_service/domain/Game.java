@@ -8,7 +8,7 @@ import java.util.logging.Logger;
 import common.ddd.Aggregate;
 
 //partita in corso
-public class Game implements Aggregate<String>{
+public class Game implements Aggregate<String>, GameView {
 
 	static Logger logger = Logger.getLogger("[Game]");
 	private String id; //id della partita
@@ -20,16 +20,97 @@ public class Game implements Aggregate<String>{
 	private Optional<UserId> winner; //vincitore
 	private Optional<UserId> currentTurn; //turno corrente
 	private List<GameObserver> observers; //lista degli osservatori (utenti) della partita
+	private long finishedAt; //istante in cui la partita è terminata (0 se non è ancora terminata)
+	private long version; //versione della partita (cresce ad ogni ingresso, avvio, mossa e fine della partita)
+	private volatile GameSnapshot snapshot; //istantanea immutabile dopo l'ultimo comando accettato (letta senza lock da qualsiasi thread)
+	private List<GameEvent> changes; //eventi non ancora salvati nell'archivio degli eventi (null se la partita non li registra)
 
 	public Game(String id) {
+		this(id, GameBoard.newBoard(id+"-board"));
+	}
+
+	//crea una partita su una griglia width x height in cui vince chi allinea winLength simboli
+	public Game(String id, int width, int height, int winLength) {
+		this(id, GameBoard.newBoard(id+"-board", width, height, winLength));
+	}
+
+	//crea una partita con una specifica rappresentazione della griglia
+	public Game(String id, GameBoard board) {
 		this.id = id;
-		board = new GameBoard(id+"-board");
+		this.board = board;
 		playerCross = Optional.empty();
 		playerCircle = Optional.empty();
 		currentTurn = Optional.empty();		
 		winner = Optional.empty();
 		state = GameState.WAITING_FOR_PLAYERS; //inizializza lo stato della partita come "in attesa"
 		observers = new ArrayList<>();		
+		publish();
+	}
+
+	//ricrea una partita a partire dal suo stato (usato dai repository che non mantengono l'oggetto partita)
+	public static Game restore(String id, GameBoard board, GameState state, Optional<UserId> playerCross, Optional<UserId> playerCircle,
+			Optional<TTTSymbol> turn, Optional<UserId> winner, long finishedAt, List<GameObserver> observers) {
+		var game = new Game(id, board);
+		game.state = state;
+		game.playerCross = playerCross;
+		game.playerCircle = playerCircle;
+		if (turn.isPresent()) { //il turno corrente è lo stesso riferimento del giocatore (vedi getCurrentTurn)
+			game.currentTurn = turn.get() == TTTSymbol.X ? playerCross : playerCircle;
+		}
+		game.winner = winner;
+		game.finishedAt = finishedAt;
+		game.observers = observers;
+		game.version = game.playerCross.map(p -> 1).orElse(0) + game.playerCircle.map(p -> 1).orElse(0); //la versione dipende solo dallo stato: ingressi, avvio, mosse e fine
+		if (state != GameState.WAITING_FOR_PLAYERS) {
+			game.version += state == GameState.FINISHED ? 2 : 1;
+			for (var cell : board.getState()) {
+				if (!cell.equals("-")) {
+					game.version++;
+				}
+			}
+		}
+		game.publish();
+		return game;
+	}
+
+	/*
+	ricrea una partita a partire dal suo flusso di eventi completo (il primo è GameCreated)
+	gli eventi vengono solo applicati: nessuna verifica, nessuna notifica e nessuna nuova registrazione
+	*/
+	public static Game rehydrate(List<GameEvent> history) {
+		if (history.isEmpty() || !(history.get(0) instanceof GameCreated created)) {
+			throw new IllegalArgumentException("the history of a game must start with GameCreated");
+		}
+		var game = new Game(created.gameId(), created.width(), created.height(), created.winLength());
+		game.replay(history.subList(1, history.size()));
+		return game;
+	}
+
+	//ricrea una partita a partire da una sua istantanea e dagli eventi successivi
+	public static Game rehydrate(GameSnapshot snapshot, List<GameEvent> tail) {
+		var board = GameBoard.newBoard(snapshot.id() + "-board", snapshot.width(), snapshot.height(), snapshot.winLength());
+		var cells = snapshot.board();
+		try {
+			for (int i = 0; i < cells.length(); i++) { //ricopia la griglia (l'ordine delle mosse non conta)
+				if (cells.charAt(i) != '-') {
+					board.newMove(cells.charAt(i) == 'X' ? TTTSymbol.X : TTTSymbol.O, i % snapshot.width(), i / snapshot.width());
+				}
+			}
+		} catch (InvalidMoveException ex) {
+			throw new IllegalArgumentException("invalid snapshot of game " + snapshot.id(), ex);
+		}
+		var game = new Game(snapshot.id(), board);
+		game.state = snapshot.state();
+		game.playerCross = snapshot.playerCross().map(UserId::new);
+		game.playerCircle = snapshot.playerCircle().map(UserId::new);
+		if (game.state != GameState.WAITING_FOR_PLAYERS) { //il turno corrente è lo stesso riferimento del giocatore (vedi getCurrentTurn)
+			game.currentTurn = snapshot.currentTurn().equals("X") ? game.playerCross : game.playerCircle;
+		}
+		game.winner = snapshot.winner().map(UserId::new);
+		game.finishedAt = snapshot.finishedAt();
+		game.version = snapshot.version(); //la versione è già nell'istantanea (non serve ricalcolarla dalla griglia)
+		game.replay(tail);
+		return game;
 	}
 
 	//restituisce l'id della partita
@@ -50,12 +131,17 @@ public class Game implements Aggregate<String>{
 		} else { //altrimenti
 			playerCircle = Optional.of(userId); //assegna al giocatore il simbolo "cerchio"
 		}
+		version++;
+		record(new PlayerJoined(id, userId.id(), symbol.toString()));
+		publish();
 	}
 
 	//avvia la partita
 	public void startGame() {
 		state = GameState.STARTED; //imposta lo stato della partita come "avviata"
 		currentTurn = playerCross; //inizializza il turno al giocatore "croce"
+		version++;
+		publish();
 		notifyGameEvent(new GameStarted(id));  //invia un evento di avvio della partita a tutti gli osservatori (giocatori) registrati alla partita
 	}
 	
@@ -63,6 +149,21 @@ public class Game implements Aggregate<String>{
 	public List<String> getBoardState(){
 		return this.board.getState();
 	}
+
+	//recupera il numero di colonne della griglia
+	public int getBoardWidth() {
+		return board.getWidth();
+	}
+
+	//recupera il numero di righe della griglia
+	public int getBoardHeight() {
+		return board.getHeight();
+	}
+
+	//recupera il numero di simboli consecutivi necessari per vincere
+	public int getWinLength() {
+		return board.getWinLength();
+	}
 	
 	//recupera il turno corrente
 	public String getCurrentTurn() {
@@ -108,17 +209,28 @@ public class Game implements Aggregate<String>{
 		if (userId.id().equals(p.id())) { //se l'utente (che chiama il metodo) è il giocatore associato al turno corrente
 			var gridSymbol = userId.id().equals(playerCross.get().id()) ? TTTSymbol.X : TTTSymbol.O; //se il giocatore ha simbolo "croce", memorizza il simbolo croce, altrimenti memorizza il simbolo "cerchio"
 			board.newMove(gridSymbol, x, y); //esegue la mossa
-			notifyGameEvent(new NewMove(id, gridSymbol.toString(), x, y)); //invia un evento di esecuzione della mossa a tutti gli osservatori (giocatori) registrati alla partita
+			version++;
+			var move = new NewMove(id, gridSymbol.toString(), x, y); //evento di esecuzione della mossa
+			GameEnded ended = null; //evento di terminazione della partita (se la mossa la conclude)
 
 			currentTurn = (currentTurn == playerCross) ? playerCircle : playerCross; //cambia il turno
 			var optWin = board.checkWinner(); //verifica la presenza di un vincitore
 			if (optWin.isPresent()) { //se è presente un vincitore
 				winner = Optional.of(getPlayerUsingSymbol(optWin.get())); //recupera il vincitore
 				state = GameState.FINISHED; //imposta lo stato della partita come "terminato"
-				notifyGameEvent(new GameEnded(id, Optional.of(winner.get().id())));
+				finishedAt = System.currentTimeMillis();
+				version++;
+				ended = new GameEnded(id, Optional.of(winner.get().id()), finishedAt);
 			} else if (board.isTie()) { //se è finita in parità
 				state = GameState.FINISHED; //imposta lo stato della partita come "terminato"
-				notifyGameEvent(new GameEnded(id, Optional.empty())); //invia un evento di terminazione della partita a tutti gli osservatori (giocatori) registrati alla partita
+				finishedAt = System.currentTimeMillis();
+				version++;
+				ended = new GameEnded(id, Optional.empty(), finishedAt);
+			}
+			publish(); //una sola istantanea per mossa (griglia, turno ed eventuale fine della partita), pubblicata prima di notificare gli osservatori (come join e avvio)
+			notifyGameEvent(move); //invia un evento di esecuzione della mossa a tutti gli osservatori (giocatori) registrati alla partita
+			if (ended != null) {
+				notifyGameEvent(ended); //invia un evento di terminazione della partita a tutti gli osservatori (giocatori) registrati alla partita
 			}
 		} else { //altrimenti
 			throw new InvalidMoveException(); //lancia un'eccezione
@@ -130,8 +242,139 @@ public class Game implements Aggregate<String>{
 		observers.add(observer);
 	}
 
+	//rimuove un osservatore dalla partita (anche se è stato aggiunto avvolto in un altro)
+	public void removeGameObserver(GameObserver observer) {
+		observers.removeIf(o -> o.target() == observer.target());
+	}
+
+	//recupera lo stato della partita
+	public GameState getState() {
+		return state;
+	}
+
+	//recupera la griglia della partita
+	public GameBoard getBoard() {
+		return board;
+	}
+
+	//recupera il giocatore "croce" (se presente)
+	public Optional<UserId> getPlayerCross() {
+		return playerCross;
+	}
+
+	//recupera il giocatore "cerchio" (se presente)
+	public Optional<UserId> getPlayerCircle() {
+		return playerCircle;
+	}
+
+	//recupera il vincitore (se presente)
+	public Optional<UserId> getWinner() {
+		return winner;
+	}
+
+	//recupera il simbolo del giocatore di turno (vuoto se la partita non è iniziata)
+	public Optional<TTTSymbol> getTurn() {
+		if (currentTurn.isEmpty()) {
+			return Optional.empty();
+		}
+		return Optional.of(currentTurn == playerCross ? TTTSymbol.X : TTTSymbol.O);
+	}
+
+	//recupera gli osservatori della partita
+	public List<GameObserver> getObservers() {
+		return observers;
+	}
+
+	//recupera l'istante in cui la partita è terminata (0 se non è ancora terminata)
+	public long getFinishedAt() {
+		return finishedAt;
+	}
+
+	//recupera la versione della partita
+	public long getVersion() {
+		return version;
+	}
+
+	//recupera l'istantanea immutabile della partita (può essere chiamato da qualsiasi thread)
+	public GameSnapshot snapshot() {
+		return snapshot;
+	}
+
+	//inizia a registrare gli eventi della partita, così che possano essere salvati nell'archivio degli eventi (vedi pullChanges)
+	public void recordChanges() {
+		if (changes == null) {
+			changes = new ArrayList<>();
+		}
+	}
+
+	//restituisce (e dimentica) gli eventi registrati dall'ultima chiamata
+	public List<GameEvent> pullChanges() {
+		if (changes == null || changes.isEmpty()) {
+			return List.of();
+		}
+		var pulled = changes;
+		changes = new ArrayList<>();
+		return pulled;
+	}
+
+	//crea il record archiviato della partita (terminata)
+	public ArchivedGame archive() {
+		return new ArchivedGame(id, board.getCells(), board.getWidth(), board.getHeight(), board.getWinLength(), getCurrentTurn(), winner.map(UserId::id), finishedAt);
+	}
+
+	//pubblica l'istantanea dello stato corrente (solo il thread che esegue i comandi sulla partita scrive il riferimento)
+	private void publish() {
+		snapshot = new GameSnapshot(id, board.getCells(), board.getWidth(), board.getHeight(), board.getWinLength(), state,
+				playerCross.map(UserId::id), playerCircle.map(UserId::id), getCurrentTurn(), winner.map(UserId::id), finishedAt, version);
+	}
+
+	//applica gli eventi già avvenuti e pubblica l'istantanea risultante
+	private void replay(List<GameEvent> events) {
+		try {
+			for (var ev : events) {
+				apply(ev);
+			}
+		} catch (InvalidMoveException ex) {
+			throw new IllegalArgumentException("invalid history of game " + id, ex);
+		}
+		publish();
+	}
+
+	//applica un evento già avvenuto (stessi cambiamenti di stato del comando che lo ha generato)
+	private void apply(GameEvent ev) throws InvalidMoveException {
+		if (ev instanceof PlayerJoined joined) { //ingresso di un giocatore
+			var player = Optional.of(new UserId(joined.userId()));
+			if (joined.symbol().equals("X")) {
+				playerCross = player;
+			} else {
+				playerCircle = player;
+			}
+		} else if (ev instanceof GameStarted) { //avvio della partita
+			state = GameState.STARTED;
+			currentTurn = playerCross;
+		} else if (ev instanceof NewMove move) { //mossa
+			board.newMove(TTTSymbol.valueOf(move.symbol()), move.x(), move.y());
+			currentTurn = (currentTurn == playerCross) ? playerCircle : playerCross;
+		} else if (ev instanceof GameEnded ended) { //fine della partita
+			state = GameState.FINISHED;
+			winner = ended.winner().map(UserId::new);
+			finishedAt = ended.endedAt(); //l'istante originale: la conservazione della partita ricostruita non riparte
+		} else {
+			return; //eventi che non cambiano lo stato
+		}
+		version++;
+	}
+
+	//registra un evento (se la partita registra i propri eventi)
+	private void record(GameEvent ev) {
+		if (changes != null) {
+			changes.add(ev);
+		}
+	}
+
 	//invia un evento di notifica agli osservatori
 	private void notifyGameEvent(GameEvent ev) {
+		record(ev);
 		for (var o: observers) { //per ogni elemento nella lista degli osservatori
 			o.notifyGameEvent(ev); //notifica l'osservatore
 		}
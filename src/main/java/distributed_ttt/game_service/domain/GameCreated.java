@@ -0,0 +1,11 @@
+package distributed_ttt.game_service.domain;
+
+import common.ddd.EventType;
+
+//record per la partita creata (primo evento del flusso di una partita: griglia width x height in cui vince chi allinea winLength simboli)
+public record GameCreated (String gameId, int width, int height, int winLength) implements GameEvent {
+
+	public EventType<GameCreated> type() {
+		return GAME_CREATED;
+	}
+}
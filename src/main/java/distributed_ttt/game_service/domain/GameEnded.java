@@ -1,6 +1,12 @@
 package distributed_ttt.game_service.domain;
 
 import java.util.Optional;
+import common.ddd.EventType;
 
-//record per la partita terminata
-public record GameEnded (String gameId, Optional<String> winner) implements GameEvent {}
+//record per la partita terminata (con l'istante della fine, così che riapplicare l'evento dia sempre lo stesso stato)
+public record GameEnded (String gameId, Optional<String> winner, long endedAt) implements GameEvent {
+
+	public EventType<GameEnded> type() {
+		return GAME_ENDED;
+	}
+}
@@ -1,6 +1,27 @@
 package distributed_ttt.game_service.domain;
 
-import common.ddd.DomainEvent;
+import common.ddd.EventType;
+import common.ddd.EventTypes;
+import common.ddd.RoutedEvent;
 
 //interfaccia per l'evento di gioco
-public interface GameEvent extends DomainEvent {}
+public sealed interface GameEvent extends RoutedEvent permits GameCreated, PlayerJoined, GameStarted, NewMove, GameEnded {
+
+	EventTypes<GameEvent> TYPES = new EventTypes<>(); //tipi degli eventi di gioco (indici delle tabelle dei gestori)
+	EventType<GameCreated> GAME_CREATED = TYPES.define("game-created");
+	EventType<PlayerJoined> PLAYER_JOINED = TYPES.define("player-joined");
+	EventType<GameStarted> GAME_STARTED = TYPES.define("game-started");
+	EventType<NewMove> NEW_MOVE = TYPES.define("new-move");
+	EventType<GameEnded> GAME_ENDED = TYPES.define("game-ended");
+
+	//id della partita a cui si riferisce l'evento
+	String gameId();
+
+	//tipo dell'evento
+	EventType<? extends GameEvent> type();
+
+	//l'aggregato di un evento di gioco è la sua partita
+	default String aggregateId() {
+		return gameId();
+	}
+}
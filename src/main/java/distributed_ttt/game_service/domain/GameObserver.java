@@ -4,4 +4,9 @@ package distributed_ttt.game_service.domain;
 public interface GameObserver {
 
 	void notifyGameEvent(GameEvent event);
+
+	//osservatore effettivo (diverso da questo se lo avvolge, ad esempio per notificarlo in modo asincrono)
+	default GameObserver target() {
+		return this;
+	}
 }
@@ -0,0 +1,65 @@
+package distributed_ttt.game_service.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import common.ddd.ValueObject;
+
+/*
+istantanea (immutabile) di una partita dopo l'ultimo comando accettato
+la partita ne pubblica una nuova ad ogni comando tramite un unico riferimento volatile:
+qualsiasi thread può leggerla senza lock e senza vedere uno stato a metà di una mossa
+la griglia è compattata in una stringa con un carattere per cella (come in ArchivedGame)
+*/
+public record GameSnapshot(String id, String board, int width, int height, int winLength, Game.GameState state,
+		Optional<String> playerCross, Optional<String> playerCircle, String currentTurn, Optional<String> winner, long finishedAt, long version) implements GameView, ValueObject {
+
+	public String getId() {
+		return id;
+	}
+
+	public String getGameState() {
+		return switch (state) {
+			case WAITING_FOR_PLAYERS -> "waiting-for-players";
+			case STARTED -> "started";
+			case FINISHED -> "finished";
+		};
+	}
+
+	public boolean isStarted() {
+		return state == Game.GameState.STARTED;
+	}
+
+	public boolean isFinished() {
+		return state == Game.GameState.FINISHED;
+	}
+
+	//ricostruisce lo stato della griglia a partire dalla stringa compatta
+	public List<String> getBoardState() {
+		var cells = new ArrayList<String>(board.length());
+		for (int i = 0; i < board.length(); i++) {
+			cells.add(String.valueOf(board.charAt(i)));
+		}
+		return cells;
+	}
+
+	public int getBoardWidth() {
+		return width;
+	}
+
+	public int getBoardHeight() {
+		return height;
+	}
+
+	public int getWinLength() {
+		return winLength;
+	}
+
+	public String getCurrentTurn() {
+		return currentTurn;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+}
@@ -1,4 +1,11 @@
 package distributed_ttt.game_service.domain;
 
+import common.ddd.EventType;
+
 //record per la partita avviata
-public record GameStarted (String gameId) implements GameEvent {}
+public record GameStarted (String gameId) implements GameEvent {
+
+	public EventType<GameStarted> type() {
+		return GAME_STARTED;
+	}
+}
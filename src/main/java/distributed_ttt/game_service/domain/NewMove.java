@@ -1,4 +1,11 @@
 package distributed_ttt.game_service.domain;
 
+import common.ddd.EventType;
+
 //record per la mossa
-public record NewMove (String gameId, String symbol, int x, int y) implements GameEvent {}
+public record NewMove (String gameId, String symbol, int x, int y) implements GameEvent {
+
+	public EventType<NewMove> type() {
+		return NEW_MOVE;
+	}
+}
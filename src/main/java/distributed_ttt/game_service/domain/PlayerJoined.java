@@ -0,0 +1,11 @@
+package distributed_ttt.game_service.domain;
+
+import common.ddd.EventType;
+
+//record per l'ingresso di un giocatore nella partita
+public record PlayerJoined (String gameId, String userId, String symbol) implements GameEvent {
+
+	public EventType<PlayerJoined> type() {
+		return PLAYER_JOINED;
+	}
+}
@@ -0,0 +1,266 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+import common.exagonal.Adapter;
+import distributed_ttt.game_service.application.GameEventStore;
+import distributed_ttt.game_service.application.StoredGameSnapshot;
+import distributed_ttt.game_service.domain.Game.GameState;
+import distributed_ttt.game_service.domain.GameEnded;
+import distributed_ttt.game_service.domain.GameEvent;
+import distributed_ttt.game_service.domain.GameSnapshot;
+
+/*
+implementazione persistente dell'archivio degli eventi delle partite: i flussi restano in un InMemoryGameEventStore,
+e ogni aggiunta (eventi, istantanea, archiviazione) viene prima accodata ad un GameLog nella cartella indicata
+all'apertura i segmenti del log vengono riletti in ordine e i flussi ricostruiti senza decodificare gli eventi,
+così che EventSourcedGameRepository.open possa ricostruire le partite aperte anche dopo un riavvio
+l'archivio è in sola aggiunta: i segmenti non vengono mai compattati (i flussi delle partite terminate servono a verificarle e rigiocarle)
+ogni record è [lunghezza][crc32c][contenuto], come in GameRecordCodec; un record troncato chiude la lettura del suo segmento
+*/
+@Adapter
+public class DurableGameEventStore implements GameEventStore, AutoCloseable {
+
+	static Logger logger = Logger.getLogger("[DurableGameEventStore]");
+	static final byte EVENTS = 1; //[id][numero di eventi][fine della partita][eventi codificati come in InMemoryGameEventStore]
+	static final byte SNAPSHOT = 2; //[id][numero di eventi][istantanea]
+	static final byte ARCHIVED = 3; //[id]
+	private static final int HEADER = 8; //lunghezza e crc
+	private static final int MAX_RECORD = 1 << 24; //lunghezza massima plausibile di un record
+
+	private final InMemoryGameEventStore memory; //flussi delle partite
+	private final FsyncPolicy policy; //politica di scrittura su disco
+	private final GameLog log; //log delle aggiunte
+	private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null); //conferma dell'ultimo record aggiunto al log
+
+	private DurableGameEventStore(InMemoryGameEventStore memory, FsyncPolicy policy, GameLog log) {
+		this.memory = memory;
+		this.policy = policy;
+		this.log = log;
+	}
+
+	//ricostruisce i flussi dai segmenti della cartella e apre un nuovo segmento per le aggiunte successive
+	public static DurableGameEventStore open(Path dir, FsyncPolicy policy, long fsyncIntervalMillis) throws IOException {
+		long start = System.currentTimeMillis();
+		Files.createDirectories(dir);
+		var memory = new InMemoryGameEventStore();
+		long lastSegment = 0;
+		long records = 0;
+		for (long segment : GameLogRecovery.list(dir, "wal-", ".log")) {
+			records += replay(dir.resolve(GameLog.segmentName(segment)), memory);
+			lastSegment = segment;
+		}
+		logger.log(Level.INFO, "recovered " + memory.gameIds().size() + " event streams (" + memory.openGameIds().size() + " open) from "
+				+ records + " records in " + (System.currentTimeMillis() - start) + " ms");
+		return new DurableGameEventStore(memory, policy, new GameLog(dir, lastSegment + 1, policy, fsyncIntervalMillis)); //mai in coda ad un record troncato
+	}
+
+	//aggiunge in coda al flusso di una partita i suoi nuovi eventi (codificati una sola volta, per il log e per il flusso)
+	public void append(String gameId, List<GameEvent> events) {
+		var encoded = InMemoryGameEventStore.encode(events);
+		boolean ended = events.stream().anyMatch(ev -> ev instanceof GameEnded);
+		var id = bytes(gameId);
+		var buf = allocate(1 + 2 + id.length + 2 + 1 + encoded.length);
+		buf.put(EVENTS);
+		putBytes(buf, id);
+		buf.putShort((short) events.size()).put((byte) (ended ? 1 : 0)).put(encoded);
+		write(buf);
+		memory.appendEncoded(gameId, encoded, 0, encoded.length, events.size(), ended);
+	}
+
+	//recupera il numero di eventi nel flusso di una partita
+	public long count(String gameId) {
+		return memory.count(gameId);
+	}
+
+	//recupera gli eventi di una partita a partire dalla posizione indicata
+	public List<GameEvent> load(String gameId, long from) {
+		return memory.load(gameId, from);
+	}
+
+	//salva l'istantanea di una partita dopo i primi eventCount eventi del suo flusso
+	public void saveSnapshot(String gameId, long eventCount, GameSnapshot snapshot) {
+		var id = bytes(gameId);
+		var board = bytes(snapshot.board());
+		var cross = snapshot.playerCross().map(DurableGameEventStore::bytes).orElse(null);
+		var circle = snapshot.playerCircle().map(DurableGameEventStore::bytes).orElse(null);
+		var winner = snapshot.winner().map(DurableGameEventStore::bytes).orElse(null);
+		var buf = allocate(1 + 2 + id.length + 8 + 2 + board.length + 6 + 1 + 1 + 2 + len(cross) + 2 + len(circle) + 2 + len(winner) + 8 + 8);
+		buf.put(SNAPSHOT);
+		putBytes(buf, id);
+		buf.putLong(eventCount);
+		putBytes(buf, board);
+		buf.putShort((short) snapshot.width()).putShort((short) snapshot.height()).putShort((short) snapshot.winLength());
+		buf.put((byte) snapshot.state().ordinal());
+		buf.put((byte) snapshot.currentTurn().charAt(0));
+		putBytes(buf, cross);
+		putBytes(buf, circle);
+		putBytes(buf, winner);
+		buf.putLong(snapshot.finishedAt()).putLong(snapshot.version());
+		write(buf);
+		memory.saveSnapshot(gameId, eventCount, snapshot);
+	}
+
+	//recupera l'ultima istantanea salvata di una partita
+	public Optional<StoredGameSnapshot> loadSnapshot(String gameId) {
+		return memory.loadSnapshot(gameId);
+	}
+
+	//segna come archiviata una partita rimossa (il suo flusso resta nell'archivio)
+	public void markArchived(String gameId) {
+		var id = bytes(gameId);
+		var buf = allocate(1 + 2 + id.length);
+		buf.put(ARCHIVED);
+		putBytes(buf, id);
+		write(buf);
+		memory.markArchived(gameId);
+	}
+
+	//recupera gli id delle partite presenti nell'archivio
+	public List<String> gameIds() {
+		return memory.gameIds();
+	}
+
+	//recupera gli id delle partite né terminate né archiviate
+	public List<String> openGameIds() {
+		return memory.openGameIds();
+	}
+
+	//con la politica ALWAYS si completa quando l'ultimo record aggiunto (e quindi ogni record precedente) è forzato su disco
+	public CompletableFuture<Void> whenDurable() {
+		if (policy != FsyncPolicy.ALWAYS) {
+			return CompletableFuture.completedFuture(null);
+		}
+		synchronized (this) {
+			return lastWrite;
+		}
+	}
+
+	//scrive i record in attesa e chiude il log
+	public void close() {
+		log.close();
+	}
+
+	//sigilla un record (crc del contenuto) e lo accoda al log
+	//se un errore di scrittura ha reso il log inutilizzabile lancia UncheckedIOException: il flusso in memoria non viene modificato
+	private void write(ByteBuffer buf) {
+		var c = new CRC32C();
+		c.update(buf.array(), HEADER, buf.capacity() - HEADER);
+		buf.putInt(4, (int) c.getValue());
+		buf.flip();
+		synchronized (this) {
+			lastWrite = log.append(buf);
+		}
+	}
+
+	//riapplica ai flussi i record di un segmento e ne restituisce il numero
+	private static long replay(Path file, InMemoryGameEventStore memory) throws IOException {
+		long records = 0;
+		try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			while (true) {
+				int len;
+				try {
+					len = in.readInt();
+				} catch (EOFException ex) {
+					break;
+				}
+				int crc = in.readInt();
+				if (len <= 0 || len > MAX_RECORD) {
+					throw new EOFException("bad record length " + len);
+				}
+				var payload = new byte[len];
+				in.readFully(payload);
+				if (!GameRecordCodec.isValid(payload, crc)) {
+					throw new EOFException("bad record checksum");
+				}
+				apply(ByteBuffer.wrap(payload), memory);
+				records++;
+			}
+		} catch (EOFException ex) {
+			logger.log(Level.WARNING, "truncated record in " + file.getFileName() + " after " + records + " records: " + ex.getMessage());
+		}
+		return records;
+	}
+
+	//riapplica un record ai flussi
+	private static void apply(ByteBuffer buf, InMemoryGameEventStore memory) {
+		byte type = buf.get();
+		var gameId = getString(buf);
+		switch (type) {
+			case EVENTS: {
+				int count = buf.getShort();
+				boolean ended = buf.get() != 0;
+				memory.appendEncoded(gameId, buf.array(), buf.position(), buf.remaining(), count, ended);
+				break;
+			}
+			case SNAPSHOT: {
+				long eventCount = buf.getLong();
+				var board = getString(buf);
+				int width = buf.getShort(), height = buf.getShort(), winLength = buf.getShort();
+				var state = GameState.values()[buf.get()];
+				var turn = String.valueOf((char) buf.get());
+				var cross = Optional.ofNullable(getString(buf));
+				var circle = Optional.ofNullable(getString(buf));
+				var winner = Optional.ofNullable(getString(buf));
+				long finishedAt = buf.getLong();
+				long version = buf.getLong();
+				memory.saveSnapshot(gameId, eventCount, new GameSnapshot(gameId, board, width, height, winLength, state, cross, circle, turn, winner, finishedAt, version));
+				break;
+			}
+			case ARCHIVED:
+				memory.markArchived(gameId);
+				break;
+			default:
+				throw new IllegalStateException("corrupted event log record of game " + gameId);
+		}
+	}
+
+	//alloca un record con lo spazio per l'intestazione
+	private static ByteBuffer allocate(int size) {
+		var buf = ByteBuffer.allocate(HEADER + size);
+		buf.putInt(size).putInt(0);
+		return buf;
+	}
+
+	private static byte[] bytes(String s) {
+		var bytes = s.getBytes(StandardCharsets.UTF_8);
+		if (bytes.length > Short.MAX_VALUE) { //la lunghezza non sarebbe più rappresentabile su 2 byte
+			throw new IllegalArgumentException("string of " + bytes.length + " bytes is too long for an event log record (max " + Short.MAX_VALUE + ")");
+		}
+		return bytes;
+	}
+
+	private static int len(byte[] bytes) {
+		return bytes == null ? 0 : bytes.length;
+	}
+
+	private static void putBytes(ByteBuffer buf, byte[] bytes) {
+		if (bytes == null) {
+			buf.putShort((short) -1); //valore assente
+		} else {
+			buf.putShort((short) bytes.length).put(bytes);
+		}
+	}
+
+	private static String getString(ByteBuffer buf) {
+		int len = buf.getShort();
+		if (len < 0) {
+			return null;
+		}
+		var s = new String(buf.array(), buf.position(), len, StandardCharsets.UTF_8);
+		buf.position(buf.position() + len);
+		return s;
+	}
+}
@@ -0,0 +1,247 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import common.exagonal.Adapter;
+import distributed_ttt.game_service.application.GameRepository;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.GameSnapshot;
+
+/*
+implementazione della porta di uscita che rende persistente un altro repository delle partite (in memoria o compatto):
+ogni cambiamento di stato (creazione, join, mossa, rimozione) viene aggiunto al log prima di essere confermato,
+e periodicamente viene scritto uno snapshot dell'intero repository che sostituisce i segmenti del log precedenti
+lo snapshot non blocca le scritture: dato che ogni record contiene lo stato completo della partita, le modifiche
+concorrenti allo snapshot finiscono comunque nei segmenti successivi e vengono riapplicate al ripristino
+*/
+@Adapter
+public class DurableGameRepository implements GameRepository {
+
+	static Logger logger = Logger.getLogger("[DurableGameRepository]");
+	private final GameRepository delegate; //repository che mantiene le partite in memoria
+	private final Path dir; //cartella del log e degli snapshot
+	private final FsyncPolicy policy; //politica di scrittura su disco
+	private final GameLog log; //log dei cambiamenti di stato
+	private final long snapshotEvery; //numero di record dopo cui scrivere un nuovo snapshot
+	private final ExecutorService snapshotter; //thread che scrive gli snapshot
+	private long recordsSinceSnapshot; //record aggiunti al log dall'ultimo snapshot
+	private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null); //conferma dell'ultimo record aggiunto al log
+	private boolean snapshotRunning;
+
+	private DurableGameRepository(GameRepository delegate, Path dir, FsyncPolicy policy, GameLog log, long snapshotEvery) {
+		this.delegate = delegate;
+		this.dir = dir;
+		this.policy = policy;
+		this.log = log;
+		this.snapshotEvery = snapshotEvery;
+		this.snapshotter = Executors.newSingleThreadExecutor(r -> {
+			var t = new Thread(r, "game-snapshotter");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	//ripristina le partite della cartella nel repository indicato (vuoto) e lo rende persistente
+	public static DurableGameRepository open(GameRepository delegate, Path dir, FsyncPolicy policy, long fsyncIntervalMillis, long snapshotEvery) throws IOException {
+		Files.createDirectories(dir);
+		var recovery = GameLogRecovery.recover(dir, delegate, Runtime.getRuntime().availableProcessors());
+		var log = new GameLog(dir, recovery.nextSegment(), policy, fsyncIntervalMillis);
+		return new DurableGameRepository(delegate, dir, policy, log, snapshotEvery);
+	}
+
+	//aggiunge una partita
+	public void addGame(Game game) {
+		var record = GameRecordCodec.put(game); //codificato prima della modifica: una partita non codificabile non viene aggiunta
+		synchronized (this) {
+			delegate.addGame(game);
+			append(record);
+		}
+	}
+
+	//aggiunge una partita solo se non ne esiste già una con lo stesso id (in modo atomico)
+	public boolean addGameIfAbsent(Game game) {
+		var record = GameRecordCodec.put(game);
+		synchronized (this) {
+			if (!delegate.addGameIfAbsent(game)) {
+				return false;
+			}
+			append(record);
+		}
+		return true;
+	}
+
+	//salva lo stato di una partita modificata
+	public void updateGame(Game game) {
+		var record = GameRecordCodec.put(game);
+		synchronized (this) {
+			delegate.updateGame(game);
+			append(record);
+		}
+	}
+
+	//rimuove una partita
+	public void removeGame(String gameId) {
+		var record = GameRecordCodec.remove(gameId);
+		synchronized (this) {
+			delegate.removeGame(gameId);
+			append(record);
+		}
+	}
+
+	//verifica la presenza di una partita
+	public boolean isPresent(String gameId) {
+		return delegate.isPresent(gameId);
+	}
+
+	//recupera una partita
+	public Game getGame(String gameId) {
+		return delegate.getGame(gameId);
+	}
+
+	//recupera l'istantanea di una partita (dal repository delegato, senza ricreare la partita se può evitarlo)
+	public GameSnapshot getGameSnapshot(String gameId) {
+		return delegate.getGameSnapshot(gameId);
+	}
+
+	//recupera le partite terminate prima dell'istante indicato
+	public List<Game> getGamesFinishedBefore(long time) {
+		return delegate.getGamesFinishedBefore(time);
+	}
+
+	//recupera il numero di partite presenti
+	public int count() {
+		return delegate.count();
+	}
+
+	//scorre tutte le partite presenti
+	public void forEachGame(Consumer<Game> action) {
+		delegate.forEachGame(action);
+	}
+
+	/*
+	restituisce una future che si completa quando tutti i record aggiunti finora sono scritti (e forzati su disco, con la politica ALWAYS)
+	le modifiche non attendono la scrittura: chi deve confermarle al client (es. il controller) lo fa quando la future si completa,
+	così che il thread che esegue i comandi non si blocchi e i record di più comandi finiscano nello stesso gruppo (group commit)
+	con le politiche INTERVAL e NEVER la conferma non attende il disco e la future è già completata
+	*/
+	public CompletableFuture<Void> whenDurable() {
+		if (policy != FsyncPolicy.ALWAYS) {
+			return CompletableFuture.completedFuture(null);
+		}
+		synchronized (this) {
+			return lastWrite; //il log conferma i record in ordine: l'ultimo li copre tutti
+		}
+	}
+
+	//recupera il numero di record scritti sul log
+	public long getLoggedRecords() {
+		return log.getWrittenRecords();
+	}
+
+	//recupera il numero di scritture forzate su disco del log (con la politica ALWAYS, record / scritture forzate = record per gruppo)
+	public long getLogForces() {
+		return log.getForces();
+	}
+
+	//aggiunge un record al log (chiamato sotto il lock, così che l'ordine del log sia quello delle modifiche)
+	//se un errore di scrittura ha reso il log inutilizzabile lancia UncheckedIOException: la modifica non è più resa persistente
+	private void append(ByteBuffer record) {
+		lastWrite = log.append(record);
+		if (++recordsSinceSnapshot >= snapshotEvery && !snapshotRunning) { //avvia uno snapshot in background
+			snapshotRunning = true;
+			recordsSinceSnapshot = 0;
+			snapshotter.execute(() -> {
+				try {
+					snapshot();
+				} catch (IOException ex) {
+					logger.log(Level.SEVERE, "snapshot failed", ex);
+				} finally {
+					synchronized (this) {
+						snapshotRunning = false;
+					}
+				}
+			});
+		}
+	}
+
+	//scrive uno snapshot di tutte le partite ed elimina i segmenti del log (e gli snapshot) che sostituisce
+	public void snapshot() throws IOException {
+		long segment;
+		synchronized (this) { //le modifiche successive finiscono nel nuovo segmento
+			segment = log.rotate();
+		}
+		var file = dir.resolve(GameLogRecovery.snapshotName(segment));
+		var tmp = dir.resolve(file.getFileName() + ".tmp");
+		long[] count = {0};
+		try (var ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			var batch = new ArrayList<ByteBuffer>();
+			delegate.forEachGame(game -> {
+				batch.add(GameRecordCodec.put(game));
+				count[0]++;
+				if (batch.size() == 1024) {
+					write(ch, batch);
+				}
+			});
+			batch.add(GameRecordCodec.end(count[0]));
+			write(ch, batch);
+			ch.force(true);
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+		Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		log.sync().join(); //il segmento precedente non riceve più scritture
+		for (long old : GameLogRecovery.list(dir, "wal-", ".log")) {
+			if (old < segment) {
+				Files.deleteIfExists(dir.resolve(GameLog.segmentName(old)));
+			}
+		}
+		for (long old : GameLogRecovery.list(dir, "snapshot-", ".bin")) {
+			if (old < segment) {
+				Files.deleteIfExists(dir.resolve(GameLogRecovery.snapshotName(old)));
+			}
+		}
+		logger.log(Level.INFO, "snapshot of " + count[0] + " games written (segment " + segment + ")");
+	}
+
+	private static void write(FileChannel ch, List<ByteBuffer> batch) {
+		try {
+			var array = batch.toArray(new ByteBuffer[0]);
+			long remaining = 0;
+			for (var b : array) {
+				remaining += b.remaining();
+			}
+			while (remaining > 0) {
+				remaining -= ch.write(array);
+			}
+			batch.clear();
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	//scrive i record in attesa e chiude il log
+	public void close() {
+		snapshotter.shutdown();
+		try { //attende lo snapshot in corso
+			snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		log.close();
+	}
+}
@@ -0,0 +1,97 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.util.List;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocketFrame;
+
+/*
+evento di una partita da inoltrare a più destinatari, codificato al più una volta per forma
+(json o binaria, con o senza id della partita, server-sent events, risposta long-poll)
+le forme vengono create solo al primo destinatario che le richiede e poi condivise da tutti gli altri
+*/
+final class EncodedGameEvent {
+
+	private final String gameId; //id della partita
+	private final GameEventMessage event;
+	private String plain; //json dell'evento
+	private String tagged; //json dell'evento con l'id della partita
+	private Buffer binary; //forma binaria dell'evento
+	private Buffer binaryTagged; //forma binaria dell'evento preceduta dall'id della partita
+	private Buffer sse; //evento server-sent events
+	private Buffer poll; //risposta long-poll con il solo evento
+
+	EncodedGameEvent(String gameId, GameEventMessage event) {
+		this.gameId = gameId;
+		this.event = event;
+	}
+
+	//recupera l'evento
+	GameEventMessage event() {
+		return event;
+	}
+
+	/*
+	scrive l'evento su un websocket, nella forma richiesta dal client (binaria o json) e con l'id della partita se il websocket ne segue più d'una
+	il json viene serializzato una sola volta; il buffer binario viene condiviso (senza copie) da tutti i websocket
+	*/
+	void writeTo(ServerWebSocket webSocket, boolean useBinary, boolean multiplexed) {
+		if (useBinary) {
+			webSocket.writeFrame(WebSocketFrame.binaryFrame(binary(multiplexed), true));
+		} else if (multiplexed) {
+			if (tagged == null) {
+				tagged = event.toJson(gameId);
+			}
+			webSocket.writeTextMessage(tagged);
+		} else {
+			if (plain == null) {
+				plain = event.toJson();
+			}
+			webSocket.writeTextMessage(plain);
+		}
+	}
+
+	//evento server-sent events (con il numero di sequenza come id, per la riconnessione)
+	Buffer sse() {
+		if (sse == null) {
+			sse = sseEvent(event);
+		}
+		return sse;
+	}
+
+	//risposta long-poll con il solo evento
+	Buffer poll() {
+		if (poll == null) {
+			poll = GameEventTopics.pollReply(List.of(event), seqOf(event));
+		}
+		return poll;
+	}
+
+	//forma binaria dell'evento, preceduta dall'id della partita se il websocket ne segue più d'una
+	private Buffer binary(boolean multiplexed) {
+		if (binary == null) {
+			binary = GameEventMessageCodec.toBinary(event);
+		}
+		if (!multiplexed) {
+			return binary;
+		}
+		if (binaryTagged == null) {
+			binaryTagged = Buffer.buffer(binary.length() + gameId.length() + 3).appendByte(GameCommandFrames.TAGGED_EVENT);
+			GameEventMessageCodec.appendString(binaryTagged, gameId);
+			binaryTagged.appendBuffer(binary);
+		}
+		return binaryTagged;
+	}
+
+	//evento server-sent events: "id: <seq>" (se presente) e "data: <json>"
+	static Buffer sseEvent(GameEventMessage event) {
+		long seq = seqOf(event);
+		var json = event.toJson();
+		return Buffer.buffer(json.length() + 32).appendString(seq < 0 ? "" : "id: " + seq + "\n").appendString("data: ").appendString(json).appendString("\n\n");
+	}
+
+	//numero di sequenza di un evento (-1 se l'evento non ne ha uno)
+	static long seqOf(GameEventMessage event) {
+		return event instanceof GameEventMessage.Sequenced s ? s.seq() : -1;
+	}
+}
@@ -0,0 +1,153 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import common.exagonal.Adapter;
+import distributed_ttt.game_service.application.GameEventStore;
+import distributed_ttt.game_service.application.GameRepository;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.GameCreated;
+import distributed_ttt.game_service.domain.GameEvent;
+
+/*
+implementazione della porta di uscita che affianca ad un altro repository delle partite (in memoria o compatto) il loro flusso di eventi:
+ogni comando accettato da una partita (creazione, ingresso, avvio, mossa, fine) finisce in coda al flusso della partita nell'archivio degli eventi,
+e ogni snapshotEvery eventi viene salvata un'istantanea della partita, così che la ricostruzione riapplichi solo gli eventi successivi
+le partite rimosse (archiviate) restano nell'archivio degli eventi, segnate come archiviate: il loro svolgimento si può sempre verificare o rigiocare,
+ma all'apertura vengono ricostruite solo le partite né terminate né archiviate
+*/
+@Adapter
+public class EventSourcedGameRepository implements GameRepository {
+
+	static Logger logger = Logger.getLogger("[EventSourcedGameRepository]");
+	private final GameRepository delegate; //repository che mantiene le partite in memoria
+	private final GameEventStore store; //archivio degli eventi delle partite
+	private final long snapshotEvery; //numero di eventi dopo cui salvare una nuova istantanea della partita
+
+	public EventSourcedGameRepository(GameRepository delegate, GameEventStore store, long snapshotEvery) {
+		this.delegate = delegate;
+		this.store = store;
+		this.snapshotEvery = snapshotEvery;
+	}
+
+	/*
+	ricostruisce (in parallelo) nel repository indicato le partite né terminate né archiviate dell'archivio e le rende event sourced
+	(i flussi delle partite terminate o archiviate non vengono letti); dopo un riavvio serve un archivio persistente (DurableGameEventStore),
+	uno in memoria ricostruisce solo le partite dello stesso processo
+	le partite già presenti nel repository (es. ripristinate dal log di DurableGameRepository) non vengono ricostruite,
+	e quelle senza un flusso aprono il proprio flusso a partire da un'istantanea
+	*/
+	public static EventSourcedGameRepository open(GameRepository delegate, GameEventStore store, long snapshotEvery, ForkJoinPool pool) throws Exception {
+		var repository = new EventSourcedGameRepository(delegate, store, snapshotEvery);
+		var ids = store.openGameIds();
+		var games = pool.submit(() -> ids.parallelStream().filter(id -> !delegate.isPresent(id)).map(repository::rehydrate).filter(Objects::nonNull).toList()).get();
+		for (var game : games) {
+			delegate.addGame(game);
+		}
+		delegate.forEachGame(game -> {
+			if (store.count(game.getId()) == 0) {
+				repository.startStream(game);
+			}
+		});
+		logger.log(Level.INFO, games.size() + " games rehydrated from " + ids.size() + " open event streams");
+		return repository;
+	}
+
+	//ricostruisce una partita dall'ultima istantanea salvata e dagli eventi successivi (null se la partita non è nell'archivio)
+	public Game rehydrate(String gameId) {
+		var snapshot = store.loadSnapshot(gameId);
+		if (snapshot.isPresent()) {
+			return Game.rehydrate(snapshot.get().game(), store.load(gameId, snapshot.get().eventCount()));
+		}
+		var history = store.load(gameId, 0);
+		return history.isEmpty() ? null : Game.rehydrate(history);
+	}
+
+	//aggiunge una partita
+	public void addGame(Game game) {
+		delegate.addGame(game);
+		startStream(game);
+	}
+
+	//aggiunge una partita solo se non ne esiste già una con lo stesso id (in modo atomico)
+	public boolean addGameIfAbsent(Game game) {
+		if (!delegate.addGameIfAbsent(game)) {
+			return false;
+		}
+		startStream(game);
+		return true;
+	}
+
+	//salva lo stato di una partita modificata: i suoi nuovi eventi vanno in coda al flusso
+	public void updateGame(Game game) {
+		delegate.updateGame(game);
+		var changes = game.pullChanges();
+		if (changes.isEmpty()) {
+			return;
+		}
+		store.append(game.getId(), changes);
+		long count = store.count(game.getId());
+		long snapshotAt = store.loadSnapshot(game.getId()).map(s -> s.eventCount()).orElse(0L);
+		if (count - snapshotAt >= snapshotEvery) { //salva una nuova istantanea
+			store.saveSnapshot(game.getId(), count, game.snapshot());
+		}
+	}
+
+	//rimuove una partita (il suo flusso di eventi resta nell'archivio, segnato come archiviato)
+	public void removeGame(String gameId) {
+		delegate.removeGame(gameId);
+		store.markArchived(gameId);
+	}
+
+	//verifica la presenza di una partita
+	public boolean isPresent(String gameId) {
+		return delegate.isPresent(gameId);
+	}
+
+	//recupera una partita (che da questo momento registra i propri eventi, anche se il repository la ricrea ad ogni lettura)
+	public Game getGame(String gameId) {
+		var game = delegate.getGame(gameId);
+		if (game != null) {
+			game.recordChanges();
+		}
+		return game;
+	}
+
+	//recupera le partite terminate prima dell'istante indicato
+	public List<Game> getGamesFinishedBefore(long time) {
+		return delegate.getGamesFinishedBefore(time);
+	}
+
+	//recupera il numero di partite presenti
+	public int count() {
+		return delegate.count();
+	}
+
+	//scorre tutte le partite presenti
+	public void forEachGame(Consumer<Game> action) {
+		delegate.forEachGame(action);
+	}
+
+	//le modifiche sono confermate quando sono persistenti sia nel repository delegato sia nell'archivio degli eventi
+	public CompletableFuture<Void> whenDurable() {
+		return CompletableFuture.allOf(delegate.whenDurable(), store.whenDurable()); //già completata se nessuno dei due attende il disco
+	}
+
+	//apre il flusso di una nuova partita; se la partita ha già uno stato (es. ripristinata altrove) lo salva come istantanea
+	private void startStream(Game game) {
+		var events = new ArrayList<GameEvent>();
+		events.add(new GameCreated(game.getId(), game.getBoardWidth(), game.getBoardHeight(), game.getWinLength()));
+		events.addAll(game.pullChanges());
+		store.append(game.getId(), events);
+		if (game.getVersion() > 0 && events.size() == 1) {
+			store.saveSnapshot(game.getId(), 1, game.snapshot());
+		}
+		game.recordChanges();
+	}
+}
@@ -0,0 +1,8 @@
+package distributed_ttt.game_service.infrastructure;
+
+//politica con cui il log delle partite forza la scrittura su disco
+public enum FsyncPolicy {
+	ALWAYS, //forza ogni gruppo di record prima di confermarlo (nessuna perdita in caso di crash)
+	INTERVAL, //forza periodicamente (in caso di crash si perdono al più gli ultimi millisecondi)
+	NEVER //lascia la scrittura su disco al sistema operativo
+}
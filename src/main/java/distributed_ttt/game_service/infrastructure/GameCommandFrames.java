@@ -0,0 +1,168 @@
+package distributed_ttt.game_service.infrastructure;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+/*
+protocollo dei comandi sul canale websocket degli eventi: sulla stessa connessione da cui riceve gli eventi il client può entrare
+in una partita ed eseguire le mosse; ogni comando porta un id scelto dal client, che viene riportato nella risposta (ack)
+forma testuale (json):
+- {"cmd":"join","id":1,"gameId":"g1","user":"..","symbol":"X"} -> {"ack":1,"result":"ok","playerSessionId":".."}
+- {"cmd":"move","id":2,"playerSessionId":"..","x":0,"y":1} -> {"ack":2,"result":"accepted"} oppure {"ack":2,"result":"invalid-move"}
+- in caso di errore -> {"ack":n,"result":"error","error":".."}
+forma binaria compatta (frame binari), con le stringhe di lunghezza prefissata come in GameEventMessageCodec:
+- join [1][id:int][gameId][user][simbolo:byte], move [2][id:int][playerSessionId][x:short][y:short]
+- ack [0x20][id:int][esito:byte][sessione giocatore o errore]
+- gli eventi hanno la forma binaria di GameEventMessageCodec (preceduta da [0x10][gameId] se il websocket segue più partite)
+*/
+public final class GameCommandFrames {
+
+	static final byte JOIN = 1, MOVE = 2; //tipi di comando
+	public static final byte TAGGED_EVENT = 0x10, ACK = 0x20; //tipi di frame inviati dal server (oltre agli eventi)
+	private static final String[] RESULTS = {"ok", "accepted", "invalid-move", "error"}; //esiti, nell'ordine della codifica binaria
+
+	private GameCommandFrames() {}
+
+	//comando ricevuto dal client
+	public sealed interface Command {
+		int id(); //id scelto dal client e riportato nella risposta
+	}
+
+	//ingresso in una partita (user è l'utente o la sua sessione, a seconda del servizio)
+	public record Join(int id, String gameId, String user, String symbol) implements Command {
+		public String toJson() {
+			return new JsonObject().put("cmd", "join").put("id", id).put("gameId", gameId).put("user", user).put("symbol", symbol).toString();
+		}
+
+		public Buffer toBinary() {
+			var buf = Buffer.buffer(32).appendByte(JOIN).appendInt(id);
+			GameEventMessageCodec.appendString(buf, gameId);
+			GameEventMessageCodec.appendString(buf, user);
+			return buf.appendByte((byte) symbol.charAt(0));
+		}
+	}
+
+	//mossa di una sessione giocatore
+	public record Move(int id, String playerSessionId, int x, int y) implements Command {
+		public String toJson() {
+			return new JsonObject().put("cmd", "move").put("id", id).put("playerSessionId", playerSessionId).put("x", x).put("y", y).toString();
+		}
+
+		public Buffer toBinary() {
+			var buf = Buffer.buffer(32).appendByte(MOVE).appendInt(id);
+			GameEventMessageCodec.appendString(buf, playerSessionId);
+			return buf.appendShort((short) x).appendShort((short) y);
+		}
+	}
+
+	//risposta ad un comando (detail è la sessione giocatore dopo un ingresso riuscito o la specifica dell'errore)
+	public record Ack(int id, String result, String detail) {
+
+		static Ack ok(int id, String playerSessionId) {
+			return new Ack(id, "ok", playerSessionId);
+		}
+
+		static Ack accepted(int id) {
+			return new Ack(id, "accepted", null);
+		}
+
+		static Ack invalidMove(int id) {
+			return new Ack(id, "invalid-move", null);
+		}
+
+		static Ack error(int id, String error) {
+			return new Ack(id, "error", error);
+		}
+
+		//errore dovuto ad un'eccezione (alcune, es. NullPointerException, non hanno messaggio: si usa il nome della classe)
+		static Ack error(int id, Throwable ex) {
+			return error(id, ex.getMessage() != null ? ex.getMessage() : ex.getClass().getSimpleName());
+		}
+
+		public String toJson() {
+			var json = new JsonObject().put("ack", id).put("result", result);
+			if (detail != null) {
+				json.put(result.equals("ok") ? "playerSessionId" : "error", detail);
+			}
+			return json.toString();
+		}
+
+		public Buffer toBinary() {
+			var buf = Buffer.buffer(16).appendByte(ACK).appendInt(id).appendByte((byte) indexOf(result));
+			GameEventMessageCodec.appendString(buf, detail);
+			return buf;
+		}
+
+		//ricava la risposta dalla forma binaria
+		public static Ack fromBinary(Buffer buf) {
+			return new Ack(buf.getInt(1), RESULTS[buf.getByte(5)], GameEventMessageCodec.getString(buf, 6));
+		}
+	}
+
+	//ricava il comando dalla forma testuale (IllegalArgumentException se il comando non è valido)
+	static Command fromJson(JsonObject obj) {
+		int id = idOf(obj);
+		var cmd = obj.getValue("cmd");
+		if ("join".equals(cmd)) {
+			return new Join(id, stringField(obj, "gameId"), stringField(obj, "user"), stringField(obj, "symbol"));
+		} else if ("move".equals(cmd)) {
+			return new Move(id, stringField(obj, "playerSessionId"), intField(obj, "x"), intField(obj, "y"));
+		}
+		throw new IllegalArgumentException("unknown command " + cmd);
+	}
+
+	//id del comando in forma testuale (0 se manca o non è un numero: serve anche per rispondere ad un comando non valido)
+	static int idOf(JsonObject obj) {
+		return obj.getValue("id") instanceof Number n ? n.intValue() : 0;
+	}
+
+	//campo stringa obbligatorio di un comando
+	private static String stringField(JsonObject obj, String field) {
+		if (obj.getValue(field) instanceof String value) {
+			return value;
+		}
+		throw new IllegalArgumentException("missing " + field);
+	}
+
+	//campo intero obbligatorio di un comando: un numero oppure una stringa numerica (come nelle richieste http)
+	private static int intField(JsonObject obj, String field) {
+		var value = obj.getValue(field);
+		if (value instanceof Number n) {
+			return n.intValue();
+		}
+		if (value instanceof String s) {
+			try {
+				return Integer.parseInt(s.trim());
+			} catch (NumberFormatException ex) {
+				throw new IllegalArgumentException("invalid " + field);
+			}
+		}
+		throw new IllegalArgumentException("missing " + field);
+	}
+
+	//ricava il comando dalla forma binaria
+	static Command fromBinary(Buffer buf) {
+		byte type = buf.getByte(0);
+		int id = buf.getInt(1);
+		int pos = 5;
+		var first = GameEventMessageCodec.getString(buf, pos);
+		pos += 2 + Math.max(0, buf.getShort(pos));
+		if (type == JOIN) {
+			var user = GameEventMessageCodec.getString(buf, pos);
+			pos += 2 + Math.max(0, buf.getShort(pos));
+			return new Join(id, first, user, String.valueOf((char) buf.getByte(pos)));
+		} else if (type == MOVE) {
+			return new Move(id, first, buf.getShort(pos), buf.getShort(pos + 2));
+		}
+		throw new IllegalArgumentException("unknown command type " + type);
+	}
+
+	private static int indexOf(String result) {
+		for (int i = 0; i < RESULTS.length; i++) {
+			if (RESULTS[i].equals(result)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException(result);
+	}
+}
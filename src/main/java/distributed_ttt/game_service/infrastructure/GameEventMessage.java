@@ -0,0 +1,109 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.util.List;
+import java.util.Optional;
+import distributed_ttt.game_service.domain.GameEnded;
+import distributed_ttt.game_service.domain.GameEvent;
+import distributed_ttt.game_service.domain.GameStarted;
+import distributed_ttt.game_service.domain.GameView;
+import distributed_ttt.game_service.domain.NewMove;
+
+/*
+eventi di una partita inviati sull'event bus ad una sessione giocatore (corrispondono a GameStarted, NewMove e GameEnded)
+più l'istantanea della partita inviata agli spettatori quando iniziano a seguirla;
+sul topic della partita ogni evento viaggia con il suo numero di sequenza (Sequenced), che il client usa per riprendere dopo una disconnessione
+viaggiano come oggetti immutabili all'interno del processo e in forma binaria compatta tra nodi diversi (vedi GameEventMessageCodec);
+toJson produce la forma testuale compatta per i client websocket
+*/
+public sealed interface GameEventMessage {
+
+	//forma json compatta dell'evento
+	String toJson();
+
+	//forma json compatta dell'evento con l'id della partita (per i websocket che seguono più partite)
+	default String toJson(String gameId) {
+		return "{\"gameId\":" + quote(gameId) + "," + toJson().substring(1);
+	}
+
+	//partita avviata
+	record Started() implements GameEventMessage {
+		public String toJson() {
+			return "{\"event\":\"game-started\"}";
+		}
+	}
+
+	//nuova mossa
+	record Moved(String symbol, int x, int y) implements GameEventMessage {
+		public String toJson() {
+			return "{\"event\":\"new-move\",\"x\":" + x + ",\"y\":" + y + ",\"symbol\":" + quote(symbol) + "}";
+		}
+	}
+
+	//partita terminata (senza vincitore in caso di pareggio)
+	record Ended(Optional<String> winner) implements GameEventMessage {
+		public String toJson() {
+			return winner.isEmpty() ? "{\"event\":\"game-ended\",\"result\":\"tie\"}" : "{\"event\":\"game-ended\",\"winner\":" + quote(winner.get()) + "}";
+		}
+	}
+
+	//istantanea della partita (stato, dimensioni, griglia e turno, se la partita è iniziata)
+	record Snapshot(String gameState, int width, int height, List<String> boardState, Optional<String> turn) implements GameEventMessage {
+
+		//crea l'istantanea di una partita
+		public static Snapshot of(GameView game) {
+			var started = game.isStarted() || game.isFinished();
+			return new Snapshot(game.getGameState(), game.getBoardWidth(), game.getBoardHeight(),
+					started ? game.getBoardState() : List.of(), game.isStarted() ? Optional.of(game.getCurrentTurn()) : Optional.empty());
+		}
+
+		public String toJson() {
+			var sb = new StringBuilder(64 + boardState.size() * 4);
+			sb.append("{\"event\":\"game-snapshot\",\"gameState\":").append(quote(gameState))
+				.append(",\"width\":").append(width).append(",\"height\":").append(height).append(",\"boardState\":[");
+			for (int i = 0; i < boardState.size(); i++) {
+				sb.append(i == 0 ? "" : ",").append(quote(boardState.get(i)));
+			}
+			sb.append(']');
+			turn.ifPresent(t -> sb.append(",\"turn\":").append(quote(t)));
+			return sb.append('}').toString();
+		}
+	}
+
+	//evento (o istantanea) con il numero di sequenza nella partita: l'istantanea porta il numero dell'ultimo evento che contiene
+	record Sequenced(long seq, GameEventMessage event) implements GameEventMessage {
+		public String toJson() {
+			return "{\"seq\":" + seq + "," + event.toJson().substring(1);
+		}
+	}
+
+	//crea il messaggio corrispondente ad un evento della partita, con il suo numero di sequenza
+	static Sequenced of(long seq, GameEvent event) {
+		GameEventMessage message;
+		if (event instanceof NewMove e) { //nuova mossa
+			message = new Moved(e.symbol(), e.x(), e.y());
+		} else if (event instanceof GameEnded e) { //fine della partita
+			message = new Ended(e.winner());
+		} else { //inizio della partita
+			message = STARTED;
+		}
+		return new Sequenced(seq, message);
+	}
+
+	Started STARTED = new Started(); //l'evento di avvio non ha dati: un'unica istanza condivisa
+
+	//stringa json (con escape di virgolette, backslash e caratteri di controllo)
+	private static String quote(String s) {
+		var sb = new StringBuilder(s.length() + 2).append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+}
@@ -0,0 +1,119 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Optional;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+
+/*
+codec dell'event bus per gli eventi di una partita
+- all'interno del processo l'evento (immutabile) viene consegnato così com'è, senza copie
+- tra nodi diversi viene codificato in forma binaria: [tipo][dati], con simbolo e vincitore come stringhe di lunghezza prefissata
+  (un evento con il numero di sequenza è [5][numero di sequenza][evento])
+*/
+public class GameEventMessageCodec implements MessageCodec<GameEventMessage, GameEventMessage> {
+
+	public static final String NAME = "ttt-game-event"; //nome con cui il codec è registrato
+	public static final DeliveryOptions DELIVERY = new DeliveryOptions().setCodecName(NAME); //opzioni di invio che usano il codec
+	private static final byte STARTED = 1, MOVED = 2, ENDED = 3, SNAPSHOT = 4, SEQUENCED = 5; //tipi di evento
+
+	//registra il codec sull'event bus (se non è già registrato, es. da un'altra istanza del controller)
+	public static void registerOn(EventBus eventBus) {
+		try {
+			eventBus.registerCodec(new GameEventMessageCodec());
+		} catch (IllegalStateException ex) {
+			//già registrato
+		}
+	}
+
+	//forma binaria dell'evento (la stessa usata tra nodi diversi), inviata ai client websocket che usano i frame binari
+	public static Buffer toBinary(GameEventMessage event) {
+		var buffer = Buffer.buffer(24);
+		new GameEventMessageCodec().encodeToWire(buffer, event);
+		return buffer;
+	}
+
+	@Override
+	public void encodeToWire(Buffer buffer, GameEventMessage event) {
+		if (event instanceof GameEventMessage.Sequenced s) {
+			buffer.appendByte(SEQUENCED).appendLong(s.seq());
+			encodeToWire(buffer, s.event());
+		} else if (event instanceof GameEventMessage.Moved m) {
+			buffer.appendByte(MOVED);
+			appendString(buffer, m.symbol());
+			buffer.appendShort((short) m.x()).appendShort((short) m.y());
+		} else if (event instanceof GameEventMessage.Ended e) {
+			buffer.appendByte(ENDED);
+			appendString(buffer, e.winner().orElse(null));
+		} else if (event instanceof GameEventMessage.Snapshot sn) {
+			buffer.appendByte(SNAPSHOT);
+			appendString(buffer, sn.gameState());
+			buffer.appendShort((short) sn.width()).appendShort((short) sn.height()).appendInt(sn.boardState().size());
+			for (var cell : sn.boardState()) {
+				appendString(buffer, cell);
+			}
+			appendString(buffer, sn.turn().orElse(null));
+		} else {
+			buffer.appendByte(STARTED);
+		}
+	}
+
+	@Override
+	public GameEventMessage decodeFromWire(int pos, Buffer buffer) {
+		byte type = buffer.getByte(pos++);
+		if (type == MOVED) {
+			var symbol = getString(buffer, pos);
+			pos += 2 + buffer.getShort(pos); //salta la stringa del simbolo
+			return new GameEventMessage.Moved(symbol, buffer.getShort(pos), buffer.getShort(pos + 2));
+		} else if (type == ENDED) {
+			return new GameEventMessage.Ended(Optional.ofNullable(getString(buffer, pos)));
+		} else if (type == SEQUENCED) {
+			return new GameEventMessage.Sequenced(buffer.getLong(pos), decodeFromWire(pos + 8, buffer));
+		} else if (type == SNAPSHOT) {
+			var gameState = getString(buffer, pos);
+			pos += 2 + buffer.getShort(pos);
+			int width = buffer.getShort(pos), height = buffer.getShort(pos + 2), cells = buffer.getInt(pos + 4);
+			pos += 8;
+			var board = new ArrayList<String>(cells);
+			for (int i = 0; i < cells; i++) {
+				board.add(getString(buffer, pos));
+				pos += 2 + buffer.getShort(pos);
+			}
+			return new GameEventMessage.Snapshot(gameState, width, height, board, Optional.ofNullable(getString(buffer, pos)));
+		}
+		return GameEventMessage.STARTED;
+	}
+
+	@Override
+	public GameEventMessage transform(GameEventMessage event) {
+		return event; //gli eventi sono immutabili: nessuna copia all'interno del processo
+	}
+
+	@Override
+	public String name() {
+		return NAME;
+	}
+
+	@Override
+	public byte systemCodecID() {
+		return -1; //codec definito dall'utente
+	}
+
+	//stringa (simbolo o id utente) con lunghezza prefissata (-1 se assente)
+	static void appendString(Buffer buffer, String s) {
+		if (s == null) {
+			buffer.appendShort((short) -1);
+		} else {
+			var bytes = s.getBytes(StandardCharsets.UTF_8);
+			buffer.appendShort((short) bytes.length).appendBytes(bytes);
+		}
+	}
+
+	static String getString(Buffer buffer, int pos) {
+		int len = buffer.getShort(pos);
+		return len < 0 ? null : buffer.getString(pos + 2, pos + 2 + len, "UTF-8");
+	}
+}
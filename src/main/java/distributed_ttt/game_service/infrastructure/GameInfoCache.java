@@ -0,0 +1,86 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import distributed_ttt.game_service.domain.GameView;
+import io.vertx.core.buffer.Buffer;
+
+/*
+cache delle risposte di GET /games/:gameId, una per partita e valida per una sola versione della partita
+finché la partita non cambia la risposta viene riusata così com'è (senza rileggere la griglia né serializzare di nuovo il json);
+la versione è anche l'ETag della risposta: un client che indica in If-None-Match la versione corrente riceve 304
+la cache ha una dimensione massima: oltre, viene scartata la partita letta meno di recente
+va usata solo dal thread che possiede le partite (nessun lock)
+*/
+public class GameInfoCache {
+
+	public static final int DEFAULT_CAPACITY = 4096; //numero massimo di partite in cache
+
+	//risposta codificata di una versione della partita
+	private record Entry(long version, Buffer body) {}
+
+	private final Map<String, Entry> entries; //risposte per id della partita (in ordine di accesso)
+	private long hits; //richieste servite dalla cache
+	private long misses; //richieste che hanno codificato la risposta
+
+	public GameInfoCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public GameInfoCache(int capacity) {
+		entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	//ETag della versione corrente della partita
+	public static String etag(GameView game) {
+		return "\"" + game.getVersion() + "\"";
+	}
+
+	//true se l'header If-None-Match indica l'ETag (anche in un elenco, o con il prefisso W/ o "*")
+	public static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (var tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.equals("*") || tag.equals(etag) || (tag.startsWith("W/") && tag.substring(2).equals(etag))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//recupera la risposta per la versione corrente della partita, codificandola con encoder solo se la versione è cambiata
+	public Buffer get(GameView game, Function<GameView, Buffer> encoder) {
+		var entry = entries.get(game.getId());
+		if (entry != null && entry.version() == game.getVersion()) {
+			hits++;
+			return entry.body();
+		}
+		misses++;
+		var body = encoder.apply(game);
+		entries.put(game.getId(), new Entry(game.getVersion(), body));
+		return body;
+	}
+
+	//recupera il numero di partite in cache
+	public int size() {
+		return entries.size();
+	}
+
+	//recupera il numero di richieste servite dalla cache
+	public long getHits() {
+		return hits;
+	}
+
+	//recupera il numero di richieste che hanno codificato la risposta
+	public long getMisses() {
+		return misses;
+	}
+}
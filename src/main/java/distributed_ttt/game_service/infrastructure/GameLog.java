@@ -0,0 +1,223 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+log in sola aggiunta (write-ahead log) dei cambiamenti di stato delle partite, diviso in segmenti numerati
+i record vengono accodati dai chiamanti e scritti da un unico thread a gruppi (group commit):
+mentre un gruppo viene scritto e forzato su disco, i record successivi si accumulano nel gruppo seguente
+un errore di scrittura rende il log inutilizzabile: il segmento può terminare con un record scritto a metà (scartato al ripristino),
+quindi nessun record viene più aggiunto dopo di esso; i record in attesa falliscono e le aggiunte successive vengono rifiutate
+*/
+public class GameLog implements AutoCloseable {
+
+	static Logger logger = Logger.getLogger("[GameLog]");
+	private static final int MAX_BATCH = 4096; //numero massimo di record scritti con un'unica operazione
+
+	private final Path dir; //cartella dei segmenti
+	private final FsyncPolicy policy; //politica di scrittura su disco
+	private final long fsyncIntervalMillis; //intervallo tra due scritture forzate (politica INTERVAL)
+	private final ArrayDeque<Entry> queue; //record in attesa di essere scritti
+	private final Thread writer; //thread che scrive i record
+	private FileChannel channel; //segmento corrente
+	private long segment; //numero del segmento corrente (usato solo dal chiamante, sotto il lock del repository)
+	private boolean closed;
+	private volatile IOException failure; //errore di scrittura che ha reso il log inutilizzabile
+	private volatile long writtenRecords; //numero di record scritti (aggiornato solo dal thread di scrittura)
+	private volatile long forces; //numero di scritture forzate su disco (aggiornato solo dal thread di scrittura)
+
+	//record da scrivere (o richiesta di passare ad un nuovo segmento, se record è null)
+	private record Entry(ByteBuffer record, long nextSegment, CompletableFuture<Void> done) {}
+
+	public GameLog(Path dir, long firstSegment, FsyncPolicy policy, long fsyncIntervalMillis) throws IOException {
+		this.dir = dir;
+		this.policy = policy;
+		this.fsyncIntervalMillis = fsyncIntervalMillis;
+		this.queue = new ArrayDeque<>();
+		this.segment = firstSegment;
+		this.channel = open(firstSegment);
+		this.writer = new Thread(this::writeLoop, "game-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	//nome del file di un segmento
+	static String segmentName(long segment) {
+		return String.format("wal-%016d.log", segment);
+	}
+
+	//accoda un record; la future si completa quando il record è scritto (e forzato su disco, con la politica ALWAYS)
+	//lancia UncheckedIOException se il log è fallito
+	public CompletableFuture<Void> append(ByteBuffer record) {
+		var done = new CompletableFuture<Void>();
+		enqueue(new Entry(record, -1, done));
+		return done;
+	}
+
+	//restituisce una future che si completa quando tutti i record accodati finora sono stati scritti
+	public CompletableFuture<Void> sync() {
+		return append(ByteBuffer.allocate(0));
+	}
+
+	//passa ad un nuovo segmento: i record accodati da qui in poi vi verranno scritti; restituisce il suo numero
+	public long rotate() {
+		segment++;
+		enqueue(new Entry(null, segment, new CompletableFuture<>()));
+		return segment;
+	}
+
+	//recupera il numero del segmento corrente
+	public long currentSegment() {
+		return segment;
+	}
+
+	//recupera il numero di record scritti
+	public long getWrittenRecords() {
+		return writtenRecords;
+	}
+
+	//recupera il numero di scritture forzate su disco (ogni gruppo con la politica ALWAYS)
+	public long getForces() {
+		return forces;
+	}
+
+	//true se un errore di scrittura ha reso il log inutilizzabile
+	public boolean isFailed() {
+		return failure != null;
+	}
+
+	private void enqueue(Entry entry) {
+		synchronized (queue) {
+			if (failure != null) {
+				throw new UncheckedIOException("game log failed", failure);
+			}
+			if (closed) {
+				throw new IllegalStateException("game log closed");
+			}
+			queue.add(entry);
+			queue.notify();
+		}
+	}
+
+	//ciclo del thread di scrittura
+	private void writeLoop() {
+		var batch = new ArrayList<Entry>();
+		var buffers = new ArrayList<ByteBuffer>();
+		long lastForce = System.currentTimeMillis();
+		boolean dirty = false; //ci sono scritture non ancora forzate su disco
+		while (true) {
+			synchronized (queue) {
+				while (queue.isEmpty() && !closed) {
+					try {
+						if (dirty && policy == FsyncPolicy.INTERVAL) { //attende al più fino alla prossima scrittura forzata
+							queue.wait(Math.max(1, fsyncIntervalMillis - (System.currentTimeMillis() - lastForce)));
+							break;
+						}
+						queue.wait();
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				if (queue.isEmpty() && closed) {
+					break;
+				}
+				while (!queue.isEmpty() && batch.size() < MAX_BATCH) { //preleva un gruppo di record
+					batch.add(queue.poll());
+				}
+			}
+			try {
+				for (var e : batch) {
+					if (e.record() == null) { //passaggio ad un nuovo segmento
+						writeAll(buffers);
+						channel.force(false);
+						channel.close();
+						channel = open(e.nextSegment());
+						lastForce = System.currentTimeMillis();
+						dirty = false;
+					} else if (e.record().hasRemaining()) {
+						buffers.add(e.record());
+						writtenRecords++;
+					}
+				}
+				if (writeAll(buffers)) {
+					dirty = true;
+				}
+				if (dirty && (policy == FsyncPolicy.ALWAYS || (policy == FsyncPolicy.INTERVAL && System.currentTimeMillis() - lastForce >= fsyncIntervalMillis))) {
+					channel.force(false);
+					forces++;
+					lastForce = System.currentTimeMillis();
+					dirty = false;
+				}
+				for (var e : batch) {
+					e.done().complete(null);
+				}
+			} catch (IOException ex) {
+				logger.log(Level.SEVERE, "game log write failed, no more records will be accepted", ex);
+				synchronized (queue) { //da qui in poi le aggiunte vengono rifiutate
+					failure = ex;
+					batch.addAll(queue);
+					queue.clear();
+				}
+				var error = new UncheckedIOException(ex);
+				for (var e : batch) { //falliscono il gruppo corrente e tutti i record in attesa
+					e.done().completeExceptionally(error);
+				}
+				break;
+			}
+			batch.clear();
+		}
+		try {
+			if (failure == null) {
+				channel.force(false);
+			}
+			channel.close();
+		} catch (IOException ex) {
+			logger.log(Level.SEVERE, "game log close failed", ex);
+		}
+	}
+
+	//scrive i buffer sul segmento corrente (con un'unica scrittura vettoriale, se possibile)
+	private boolean writeAll(ArrayList<ByteBuffer> buffers) throws IOException {
+		if (buffers.isEmpty()) {
+			return false;
+		}
+		var array = buffers.toArray(new ByteBuffer[0]);
+		long remaining = 0;
+		for (var b : array) {
+			remaining += b.remaining();
+		}
+		while (remaining > 0) {
+			remaining -= channel.write(array);
+		}
+		buffers.clear();
+		return true;
+	}
+
+	private FileChannel open(long segment) throws IOException {
+		return FileChannel.open(dir.resolve(segmentName(segment)), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	//scrive i record accodati e chiude il log
+	public void close() {
+		synchronized (queue) {
+			closed = true;
+			queue.notify();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import distributed_ttt.game_service.application.GameRepository;
+
+/*
+ripristino delle partite a partire dall'ultimo snapshot completo e dai segmenti del log successivi
+i record vengono letti in ordine e ripartiti per partita (in base all'id) mantenendo solo l'ultimo stato di ciascuna;
+le partite vengono poi ricreate e inserite nel repository in parallelo, una partizione per thread
+*/
+public final class GameLogRecovery {
+
+	static Logger logger = Logger.getLogger("[GameLogRecovery]");
+	private static final int MAX_RECORD = 1 << 24; //lunghezza massima plausibile di un record
+
+	//risultato del ripristino
+	public record Result(long nextSegment, long snapshotGames, long replayedRecords, int recoveredGames, long millis) {}
+
+	private GameLogRecovery() {}
+
+	//nome del file di uno snapshot (che sostituisce tutti i segmenti precedenti a quello indicato)
+	static String snapshotName(long segment) {
+		return String.format("snapshot-%016d.bin", segment);
+	}
+
+	//ripristina le partite della cartella nel repository (vuoto)
+	public static Result recover(Path dir, GameRepository target, int parallelism) throws IOException {
+		long start = System.currentTimeMillis();
+		var snapshots = list(dir, "snapshot-", ".bin");
+		var segments = list(dir, "wal-", ".log");
+		var partitions = new ArrayList<Map<String, byte[]>>(parallelism); //ultimo record di ciascuna partita, ripartito per id
+		for (int i = 0; i < parallelism; i++) {
+			partitions.add(new HashMap<>());
+		}
+
+		long snapshotSegment = 0; //i segmenti precedenti sono contenuti nello snapshot
+		long snapshotGames = 0;
+		for (int i = snapshots.size() - 1; i >= 0; i--) { //cerca lo snapshot completo più recente
+			long count = read(dir.resolve(snapshotName(snapshots.get(i))), partitions, true);
+			if (count >= 0) {
+				snapshotSegment = snapshots.get(i);
+				snapshotGames = count;
+				break;
+			}
+			for (var p : partitions) { //snapshot incompleto: lo scarta
+				p.clear();
+			}
+		}
+		long replayed = 0;
+		long lastSegment = snapshotSegment;
+		for (long segment : segments) {
+			lastSegment = Math.max(lastSegment, segment);
+			if (segment >= snapshotSegment) {
+				replayed += read(dir.resolve(GameLog.segmentName(segment)), partitions, false);
+			}
+		}
+
+		var pool = Executors.newFixedThreadPool(parallelism);
+		try {
+			var futs = new ArrayList<Future<Integer>>();
+			for (var p : partitions) {
+				futs.add(pool.submit(() -> { //ricrea le partite della partizione
+					int games = 0;
+					for (var payload : p.values()) {
+						if (GameRecordCodec.type(payload) == GameRecordCodec.PUT) { //le partite rimosse non vengono ricreate
+							target.addGame(GameRecordCodec.decode(payload));
+							games++;
+						}
+					}
+					return games;
+				}));
+			}
+			int recovered = 0;
+			for (var f : futs) {
+				recovered += f.get();
+			}
+			var result = new Result(lastSegment + 1, snapshotGames, replayed, recovered, System.currentTimeMillis() - start);
+			logger.log(Level.INFO, "recovered " + recovered + " games (snapshot: " + snapshotGames + ", replayed records: " + replayed + ") in " + result.millis() + " ms");
+			return result;
+		} catch (InterruptedException | ExecutionException ex) {
+			throw new IOException("game log recovery failed", ex);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/*
+	legge i record di un file e ne tiene l'ultimo per partita
+	per uno snapshot restituisce il numero di partite (-1 se incompleto), per un segmento il numero di record letti
+	la lettura di un segmento si ferma al primo record troncato o corrotto (scrittura interrotta da un crash)
+	*/
+	private static long read(Path file, List<Map<String, byte[]>> partitions, boolean snapshot) throws IOException {
+		long records = 0;
+		try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+			while (true) {
+				int len;
+				try {
+					len = in.readInt();
+				} catch (EOFException ex) {
+					break;
+				}
+				int crc = in.readInt();
+				if (len <= 0 || len > MAX_RECORD) {
+					throw new EOFException("bad record length " + len);
+				}
+				var payload = new byte[len];
+				in.readFully(payload);
+				if (!GameRecordCodec.isValid(payload, crc)) {
+					throw new EOFException("bad record checksum");
+				}
+				if (GameRecordCodec.type(payload) == GameRecordCodec.END) {
+					return GameRecordCodec.endCount(payload);
+				}
+				var id = GameRecordCodec.gameId(payload);
+				partitions.get(Math.floorMod(id.hashCode(), partitions.size())).put(id, payload);
+				records++;
+			}
+		} catch (EOFException ex) {
+			if (!snapshot) {
+				logger.log(Level.WARNING, "truncated record in " + file.getFileName() + " after " + records + " records: " + ex.getMessage());
+			}
+		}
+		return snapshot ? -1 : records;
+	}
+
+	//elenca (in ordine) i numeri dei file con il prefisso e il suffisso indicati
+	static List<Long> list(Path dir, String prefix, String suffix) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.map(p -> p.getFileName().toString())
+					.filter(n -> n.startsWith(prefix) && n.endsWith(suffix))
+					.map(n -> Long.parseLong(n.substring(prefix.length(), n.length() - suffix.length())))
+					.sorted()
+					.toList();
+		}
+	}
+}
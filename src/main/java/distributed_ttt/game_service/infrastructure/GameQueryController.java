@@ -0,0 +1,116 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.game_service.application.GameReadModel;
+import distributed_ttt.game_service.application.GameSummary;
+import io.vertx.core.Future;
+import io.vertx.core.VerticleBase;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+/*
+controller delle interrogazioni sulle partite (lato query):
+legge solo il modello di lettura, mai le partite del servizio, quindi non passa dal thread che esegue i comandi
+se ne possono avviare più istanze (sulla stessa porta, una per event loop): il traffico di lettura scala indipendentemente dai comandi
+*/
+public class GameQueryController extends VerticleBase {
+
+	static Logger logger = Logger.getLogger("[Game Query Controller]");
+	static final String GAMES_RESOURCE_PATH = GameServiceController.GAMES_RESOURCE_PATH; //rotta per elencare le partite in un certo stato ("?state=<stato>")
+	static final String GAME_RESOURCE_PATH = GameServiceController.GAME_RESOURCE_PATH; //rotta per recuperare le informazioni di una partita
+	static final String PLAYER_GAMES_RESOURCE_PATH = "/api/" + GameServiceController.API_VERSION + "/players/:userId/games"; //rotta per elencare le partite di un giocatore
+	private final GameReadModel readModel; //modello di lettura delle partite (condiviso tra le istanze del controller)
+	private final int port; //porta su cui il server ascolta le richieste http
+	private GameInfoCache infoCache; //risposte di GET /games/:gameId, una per versione della partita (di questa istanza del controller)
+
+	public GameQueryController(GameReadModel readModel, int port) {
+		this.readModel = readModel;
+		this.port = port;
+	}
+
+	//avvia il server
+	public Future<?> start() {
+		infoCache = new GameInfoCache();
+		var router = Router.router(vertx); //router per l'instradamento delle richieste http
+		router.route(HttpMethod.GET, GAMES_RESOURCE_PATH).handler(this::getGamesByState); //associa alla rotta per elencare le partite il relativo metodo
+		router.route(HttpMethod.GET, GAME_RESOURCE_PATH).handler(this::getGameInfo); //associa alla rotta per recuperare le informazioni di una partita il relativo metodo
+		router.route(HttpMethod.GET, PLAYER_GAMES_RESOURCE_PATH).handler(this::getGamesByPlayer); //associa alla rotta per elencare le partite di un giocatore il relativo metodo
+		var fut = vertx.createHttpServer().requestHandler(router).listen(port); //avvia il server sulla porta specificata
+		fut.onSuccess(res -> logger.log(Level.INFO, "TTT Game Query Service ready - port: " + port));
+		return fut;
+	}
+
+	//recupera le informazioni di una partita dalla sua vista (304 se il client ha già la versione corrente, indicata in If-None-Match)
+	protected void getGameInfo(RoutingContext context) {
+		var response = context.response();
+		var view = readModel.getGame(context.pathParam("gameId")); //recupera la vista della partita
+		if (view.isEmpty()) { //se la partita non è nel modello di lettura
+			var reply = new JsonObject(); //crea un oggetto json di risposta al client
+			reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+			reply.put("error", "game-not-present"); //popola l'oggetto con la specifica dell'errore
+			sendReply(response, reply); //invia la risposta al client
+			return;
+		}
+		var etag = GameInfoCache.etag(view.get()); //la vista ha la stessa versione della partita
+		response.putHeader("ETag", etag);
+		if (GameInfoCache.matches(context.request().getHeader("If-None-Match"), etag)) { //il client ha già questa versione
+			response.setStatusCode(304).end();
+			return;
+		}
+		response.putHeader("content-type", "application/json"); //imposta l’header del messaggio http come json
+		response.end(infoCache.get(view.get(), GameServiceController::gameInfoReply)); //stessa risposta del servizio di gioco (codificata una sola volta per versione)
+	}
+
+	//elenca le partite in un certo stato (indicato con "?state=", "waiting-for-players" se assente)
+	protected void getGamesByState(RoutingContext context) {
+		var state = context.queryParams().get("state");
+		sendGames(context.response(), readModel.getGamesByState(state == null ? "waiting-for-players" : state));
+	}
+
+	//elenca le partite di un giocatore
+	protected void getGamesByPlayer(RoutingContext context) {
+		sendGames(context.response(), readModel.getGamesByPlayer(context.pathParam("userId")));
+	}
+
+	//invia al client un elenco di partite
+	private void sendGames(HttpServerResponse response, List<GameSummary> views) {
+		var games = new JsonArray();
+		for (var view : views) { //per ogni vista
+			games.add(summaryJson(view));
+		}
+		var reply = new JsonObject(); //crea un oggetto json di risposta al client
+		reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+		reply.put("games", games); //popola l'oggetto con l'elenco delle partite
+		sendReply(response, reply); //invia la risposta al client
+	}
+
+	//codifica il riepilogo di una partita in un elenco (senza la griglia)
+	static JsonObject summaryJson(GameSummary view) {
+		var game = new JsonObject();
+		game.put("gameId", view.id());
+		game.put("gameState", view.getGameState());
+		game.put("width", view.width());
+		game.put("height", view.height());
+		game.put("winLength", view.winLength());
+		view.playerCross().ifPresent(p -> game.put("playerX", p));
+		view.playerCircle().ifPresent(p -> game.put("playerO", p));
+		if (view.isStarted()) { //se la partita è iniziata
+			game.put("turn", view.getCurrentTurn());
+		}
+		view.winner().ifPresent(w -> game.put("winner", w));
+		game.put("version", view.version());
+		return game;
+	}
+
+	//invia una risposta json al client
+	private void sendReply(HttpServerResponse response, JsonObject reply) {
+		response.putHeader("content-type", "application/json"); //imposta l’header del messaggio http come json
+		response.end(reply.toString()); //converte l’oggetto json in stringa, lo invia al client e chiude la risposta
+	}
+}
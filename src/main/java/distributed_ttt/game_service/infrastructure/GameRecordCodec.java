@@ -0,0 +1,165 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.Game.GameState;
+import distributed_ttt.game_service.domain.GameBoard;
+import distributed_ttt.game_service.domain.InvalidMoveException;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+
+/*
+codifica binaria dei record del log e degli snapshot delle partite
+ogni record è [lunghezza][crc32c][contenuto] e contiene lo stato completo della partita (o la sua rimozione):
+riapplicare un record è idempotente e, per ogni partita, conta solo l'ultimo record
+id e giocatori sono stringhe con la lunghezza su 2 byte: quelle più lunghe di MAX_STRING_BYTES vengono rifiutate (IllegalArgumentException)
+*/
+public final class GameRecordCodec {
+
+	static final byte PUT = 1; //stato di una partita
+	static final byte REMOVE = 2; //rimozione di una partita
+	static final byte END = 3; //fine di uno snapshot (con il numero di partite)
+	static final int HEADER = 8; //lunghezza e crc
+	static final int MAX_STRING_BYTES = Short.MAX_VALUE; //lunghezza massima (in byte) di id e giocatori
+
+	private GameRecordCodec() {}
+
+	//codifica lo stato di una partita
+	static ByteBuffer put(Game game) {
+		var id = game.getId().getBytes(StandardCharsets.UTF_8);
+		var cross = game.getPlayerCross().map(u -> u.id().getBytes(StandardCharsets.UTF_8)).orElse(null);
+		var circle = game.getPlayerCircle().map(u -> u.id().getBytes(StandardCharsets.UTF_8)).orElse(null);
+		var cells = game.getBoardState();
+		int packedCells = (cells.size() + 3) / 4; //2 bit per casella
+		int size = 1 + 2 + id.length + 3 + 3 + 8 + 2 + len(cross) + 2 + len(circle) + packedCells;
+		var buf = ByteBuffer.allocate(HEADER + size);
+		buf.putInt(size).putInt(0);
+		buf.put(PUT);
+		putBytes(buf, id);
+		buf.put((byte) game.getBoardWidth()).put((byte) game.getBoardHeight()).put((byte) game.getWinLength());
+		buf.put((byte) game.getState().ordinal());
+		buf.put((byte) (game.getTurn().isEmpty() ? 0 : game.getTurn().get() == TTTSymbol.X ? 1 : 2));
+		buf.put((byte) (game.getWinner().isEmpty() ? 0 : game.getWinner().equals(game.getPlayerCross()) ? 1 : 2));
+		buf.putLong(game.getFinishedAt());
+		putBytes(buf, cross);
+		putBytes(buf, circle);
+		for (int i = 0; i < packedCells; i++) {
+			int b = 0;
+			for (int j = 0; j < 4 && i * 4 + j < cells.size(); j++) {
+				var c = cells.get(i * 4 + j);
+				b |= (c.equals("X") ? 1 : c.equals("O") ? 2 : 0) << (2 * j);
+			}
+			buf.put((byte) b);
+		}
+		return seal(buf);
+	}
+
+	//codifica la rimozione di una partita
+	static ByteBuffer remove(String gameId) {
+		var id = gameId.getBytes(StandardCharsets.UTF_8);
+		int size = 1 + 2 + id.length;
+		var buf = ByteBuffer.allocate(HEADER + size);
+		buf.putInt(size).putInt(0);
+		buf.put(REMOVE);
+		putBytes(buf, id);
+		return seal(buf);
+	}
+
+	//codifica la fine di uno snapshot
+	static ByteBuffer end(long games) {
+		var buf = ByteBuffer.allocate(HEADER + 9);
+		buf.putInt(9).putInt(0);
+		buf.put(END).putLong(games);
+		return seal(buf);
+	}
+
+	//verifica il crc di un record (contenuto senza intestazione)
+	static boolean isValid(byte[] payload, int crc) {
+		var c = new CRC32C();
+		c.update(payload);
+		return (int) c.getValue() == crc;
+	}
+
+	//recupera il tipo di un record
+	static byte type(byte[] payload) {
+		return payload[0];
+	}
+
+	//recupera l'id della partita di un record PUT o REMOVE
+	static String gameId(byte[] payload) {
+		int len = ((payload[1] & 0xFF) << 8) | (payload[2] & 0xFF);
+		return new String(payload, 3, len, StandardCharsets.UTF_8);
+	}
+
+	//recupera il numero di partite di un record END
+	static long endCount(byte[] payload) {
+		return ByteBuffer.wrap(payload, 1, 8).getLong();
+	}
+
+	//ricrea la partita codificata in un record PUT (senza osservatori)
+	static Game decode(byte[] payload) {
+		var buf = ByteBuffer.wrap(payload);
+		buf.get(); //tipo
+		var id = new String(getBytes(buf), StandardCharsets.UTF_8);
+		int width = buf.get() & 0xFF, height = buf.get() & 0xFF, winLength = buf.get() & 0xFF;
+		var state = GameState.values()[buf.get()];
+		int turn = buf.get();
+		int winner = buf.get();
+		long finishedAt = buf.getLong();
+		var crossBytes = getBytes(buf);
+		var circleBytes = getBytes(buf);
+		Optional<UserId> cross = crossBytes == null ? Optional.empty() : Optional.of(new UserId(new String(crossBytes, StandardCharsets.UTF_8)));
+		Optional<UserId> circle = circleBytes == null ? Optional.empty() : Optional.of(new UserId(new String(circleBytes, StandardCharsets.UTF_8)));
+		var board = GameBoard.newBoard(id + "-board", width, height, winLength);
+		try {
+			for (int i = 0; i < width * height; i++) { //rigioca le caselle occupate
+				int c = (payload[buf.position() + i / 4] >>> (2 * (i % 4))) & 3;
+				if (c != 0) {
+					board.newMove(c == 1 ? TTTSymbol.X : TTTSymbol.O, i % width, i / width);
+				}
+			}
+		} catch (InvalidMoveException ex) {
+			throw new IllegalStateException("corrupted game record " + id, ex);
+		}
+		return Game.restore(id, board, state, cross, circle,
+				turn == 0 ? Optional.empty() : Optional.of(turn == 1 ? TTTSymbol.X : TTTSymbol.O),
+				winner == 1 ? cross : winner == 2 ? circle : Optional.empty(), finishedAt, new ArrayList<>());
+	}
+
+	private static int len(byte[] bytes) {
+		return bytes == null ? 0 : bytes.length;
+	}
+
+	private static void putBytes(ByteBuffer buf, byte[] bytes) {
+		if (bytes != null && bytes.length > MAX_STRING_BYTES) { //la lunghezza non sarebbe più rappresentabile su 2 byte
+			throw new IllegalArgumentException("string of " + bytes.length + " bytes is too long for a game record (max " + MAX_STRING_BYTES + ")");
+		}
+		if (bytes == null) {
+			buf.putShort((short) -1); //valore assente
+		} else {
+			buf.putShort((short) bytes.length).put(bytes);
+		}
+	}
+
+	private static byte[] getBytes(ByteBuffer buf) {
+		int len = buf.getShort();
+		if (len < 0) {
+			return null;
+		}
+		var bytes = new byte[len];
+		buf.get(bytes);
+		return bytes;
+	}
+
+	//calcola il crc del contenuto e prepara il buffer per la scrittura
+	private static ByteBuffer seal(ByteBuffer buf) {
+		var c = new CRC32C();
+		c.update(buf.array(), HEADER, buf.capacity() - HEADER);
+		buf.putInt(4, (int) c.getValue());
+		return buf.flip();
+	}
+}
@@ -1,16 +1,22 @@
 package distributed_ttt.game_service.infrastructure;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import distributed_ttt.game_service.application.*;
 import distributed_ttt.game_service.application.GameService;
 import distributed_ttt.game_service.domain.*;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.VerticleBase;
-import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
 import io.vertx.core.json.*;
 import io.vertx.ext.web.*;
 import io.vertx.ext.web.handler.StaticHandler;
@@ -28,7 +34,14 @@ public class GameServiceController extends VerticleBase  {
 	static final String GAME_RESOURCE_PATH =  GAMES_RESOURCE_PATH +   "/:gameId"; //rotta per recuperare le informazioni di una partita
 	static final String JOIN_GAME_RESOURCE_PATH = GAME_RESOURCE_PATH + "/join"; //rotta per far entrare un utente in una partita
 	static final String PLAYER_MOVE_RESOURCE_PATH = GAME_RESOURCE_PATH + "/:playerSessionId/move"; //rotta per eseguire una mossa
+	static final String GAME_EVENTS_RESOURCE_PATH = GAME_RESOURCE_PATH + "/events"; //rotta (server-sent events) per ricevere gli eventi di una partita
+	static final String GAME_POLL_RESOURCE_PATH = GAME_RESOURCE_PATH + "/poll"; //rotta (long-poll, "?since=<seq>", numero di sequenza dell'ultimo evento ricevuto) per attendere gli eventi di una partita
+	static final long POLL_TIMEOUT = 25_000; //tempo massimo (in ms) di attesa di una richiesta long-poll
+	static final String LIFECYCLE_RESOURCE_PATH = "/api/" + API_VERSION + "/lifecycle"; //rotta per recuperare i contatori di partite e sessioni vive e archiviate
+	static final long EVICTION_PERIOD = 10_000; //intervallo (in ms) tra due passaggi di pulizia di partite terminate e sessioni inattive
 	private GameService gameService; //servizio di gioco
+	private GameEventTopics topics; //iscrizioni dei websocket ai topic delle partite
+	private GameInfoCache infoCache; //risposte di GET /games/:gameId, una per versione della partita
 	
 	public GameServiceController(GameService service, int port) {
 		this.port = port;
@@ -40,6 +53,9 @@ public class GameServiceController extends VerticleBase  {
 	//avvia il server (eseguito automaticamente alla chiamata "vertx.deployVerticle(server)")
 	public Future<?> start() {
 		logger.log(Level.INFO, "TTT Game Service initializing...");
+		GameEventMessageCodec.registerOn(vertx.eventBus()); //registra il codec degli eventi di gioco sull'event bus
+		topics = new GameEventTopics(vertx.eventBus(), context); //topic delle partite a cui si iscrivono i websocket di questo controller
+		infoCache = new GameInfoCache(); //usata solo dal contesto del controller (lo stesso che esegue i comandi)
 		HttpServer server = vertx.createHttpServer(); //crea un sever http
 				
 		Router router = Router.router(vertx); //router per l'instradamento delle richieste http
@@ -47,9 +63,13 @@ public class GameServiceController extends VerticleBase  {
 		router.route(HttpMethod.GET, GAME_RESOURCE_PATH).handler(this::getGameInfo); //associa alla rotta per recuperare le informazioni di una partita il relativo metodo
 		router.route(HttpMethod.POST, JOIN_GAME_RESOURCE_PATH).handler(this::joinGame); //associa alla rotta per far entrare un utente in una partita il relativo metodo
 		router.route(HttpMethod.POST, PLAYER_MOVE_RESOURCE_PATH).handler(this::makeAMove); //associa alla rotta per eseguire una mossa il relativo metodo
+		router.route(HttpMethod.GET, GAME_EVENTS_RESOURCE_PATH).handler(this::streamGameEvents); //associa alla rotta per ricevere gli eventi di una partita (server-sent events) il relativo metodo
+		router.route(HttpMethod.GET, GAME_POLL_RESOURCE_PATH).handler(this::pollGameEvents); //associa alla rotta per attendere gli eventi di una partita (long-poll) il relativo metodo
+		router.route(HttpMethod.GET, LIFECYCLE_RESOURCE_PATH).handler(this::getLifecycleStats); //associa alla rotta per recuperare i contatori del ciclo di vita il relativo metodo
 		this.handleEventSubscription(server); //registra un websocket handler al server per ascoltare le richieste del client
 
 		router.route("/public/*").handler(StaticHandler.create()); //gestisce le richieste del client che iniziano con "public", relative all'aspetto della pagina web
+		vertx.setPeriodic(EVICTION_PERIOD, id -> gameService.evictExpired()); //pianifica la pulizia periodica sul contesto del controller (lo stesso che esegue i comandi)
 
 		var fut = server.requestHandler(router).listen(port); //avvia il server sulla porta specificata
 		fut.onSuccess(res -> { //in caso di avvio con successo
@@ -59,6 +79,40 @@ public class GameServiceController extends VerticleBase  {
 		return fut; //restituisce la future
 	}
 
+	//esegue un comando sul contesto del controller (lo stesso che esegue le richieste http), per le chiamate in-process dei servizi co-locati
+	//il risultato viene restituito quando il comando è reso persistente, come le risposte http
+	public <T> Future<T> execute(Callable<T> command) {
+		Promise<T> result = Promise.promise();
+		context.runOnContext(v -> {
+			try {
+				T res = command.call();
+				whenDurable(() -> result.complete(res), result::fail);
+			} catch (Exception ex) {
+				result.fail(ex);
+			}
+		});
+		return result.future();
+	}
+
+	/*
+	esegue then quando i comandi eseguiti finora sono resi persistenti (subito, se il repository non attende il disco), altrimenti failed
+	il controller non si blocca in attesa della scrittura: nel frattempo esegue altri comandi, i cui record finiscono nello stesso gruppo del log
+	*/
+	private void whenDurable(Runnable then, Handler<Throwable> failed) {
+		var durable = gameService.whenDurable();
+		if (durable.isDone() && !durable.isCompletedExceptionally()) { //niente da attendere: la risposta resta sincrona
+			then.run();
+			return;
+		}
+		Future.fromCompletionStage(durable, context).onComplete(ar -> { //completata sul contesto del controller
+			if (ar.succeeded()) {
+				then.run();
+			} else {
+				failed.handle(ar.cause());
+			}
+		});
+	}
+
 	//crea una nuova partita
 	protected void createNewGame(RoutingContext context) { //context è l'oggetto che rappresenta la richiesta http
 		logger.log(Level.INFO, "CreateNewGame request - " + context.currentRoute().getPath());
@@ -68,52 +122,147 @@ public class GameServiceController extends VerticleBase  {
 			var reply = new JsonObject(); //crea un oggetto json di risposta al client
 			try {
 				var gameId = userInfo.getString("gameId"); //estrae il valore del campo "gameId"
-				this.gameService.createNewGame(gameId); //crea una partita
+				var width = userInfo.getInteger("width", 3); //estrae il valore (opzionale) del campo "width"
+				var height = userInfo.getInteger("height", 3); //estrae il valore (opzionale) del campo "height"
+				var winLength = userInfo.getInteger("winLength", 3); //estrae il valore (opzionale) del campo "winLength"
+				this.gameService.createNewGame(gameId, width, height, winLength); //crea una partita
 				reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
 				reply.put("gameLink", GAMES_RESOURCE_PATH + "/" + gameId); //popola l'oggetto con il link della partita creata
 				var joinPath = GAMES_RESOURCE_PATH + "/" + gameId + "/join"; //costruisce il link per entrare nella partita
 				reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per entrare nella partita
-				sendReply(context.response(), reply); //invia la risposta al client
+				whenDurable(() -> sendReply(context.response(), reply), ex -> sendError(context.response())); //invia la risposta al client quando la partita è resa persistente
 			} catch (GameAlreadyPresentException ex) {
 				reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
 				reply.put("error", "game-already-present"); //popola l'oggetto con la specifica dell'errore
 				sendReply(context.response(), reply); //invia la risposta al client
+			} catch (IllegalArgumentException ex) {
+				reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+				reply.put("error", "invalid-board-size"); //popola l'oggetto con la specifica dell'errore
+				sendReply(context.response(), reply); //invia la risposta al client
 			} catch (Exception ex1) {
 				sendError(context.response()); //invia un errore al client
 			}			
 		});		
 	}
 
-	//recupera le informazioni di una partita
+	//recupera le informazioni di una partita (304 se il client ha già la versione corrente, indicata in If-None-Match)
 	protected void getGameInfo(RoutingContext context) {
 		logger.log(Level.INFO, "get game info");
 		var gameId = context.pathParam("gameId"); //estrae (dall'url) il valore del campo "gameId"
-		var reply = new JsonObject(); //crea un oggetto json di risposta al client
+		var response = context.response();
 		try {
-			var game = gameService.getGameInfo(gameId); //recupera la partita con id "gameId"
-			reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-			var gameJson = new JsonObject(); //crea un oggetto json partita per memorizzare le informazioni della partita
-			gameJson.put("gameId", game.getId()); //popola l'oggetto partita con il relativo id
-			gameJson.put("gameState", game.getGameState()); //popola l'oggetto partita con il relativo stato
-			if (game.isStarted() || game.isFinished()) { //se la partita è iniziata o terminata
-				var bs = game.getBoardState(); //recupera lo stato della griglia
-				JsonArray array = new JsonArray(); //crea un arrray per lo stato della griglia
-				for (var el : bs) { //per ogni elemento della griglia
-					array.add(el); //lo aggiunge all'array
-				}
-				gameJson.put("boardState", array); //popola l'oggetto partita con l'array
-			}
-			if (game.isStarted()) { //se la partita è iniziata
-				gameJson.put("turn", game.getCurrentTurn()); //popola l'oggetto partita con il turno corrente
+			var game = gameService.getGameSnapshot(gameId); //recupera l'istantanea immutabile della partita con id "gameId" (può restare in cache così com'è)
+			var etag = GameInfoCache.etag(game); //la versione della partita identifica la risposta
+			response.putHeader("ETag", etag);
+			if (GameInfoCache.matches(context.request().getHeader("If-None-Match"), etag)) { //il client ha già questa versione
+				response.setStatusCode(304).end(); //risponde senza leggere la griglia
+				return;
 			}
-			reply.put("gameInfo", gameJson); //popola l'oggetto di risposta con l'oggetto partita
-			sendReply(context.response(), reply); //invia la risposta al client
+			response.putHeader("content-type", "application/json"); //imposta l’header del messaggio http come json
+			response.end(infoCache.get(game, GameServiceController::gameInfoReply)); //invia la risposta (codificata una sola volta per versione)
 		} catch (GameNotFoundException ex) {
+			var reply = new JsonObject(); //crea un oggetto json di risposta al client
 			reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
 			reply.put("error", "game-not-present"); //popola l'oggetto con la specifica dell'errore
-			sendReply(context.response(), reply); //invia la risposta al client
+			sendReply(response, reply); //invia la risposta al client
 		} catch (Exception ex1) {
-			sendError(context.response()); //invia un errore al client
+			sendError(response); //invia un errore al client
+		}
+	}
+
+	//codifica la risposta con le informazioni di una partita
+	static Buffer gameInfoReply(GameView game) {
+		var reply = new JsonObject(); //crea un oggetto json di risposta al client
+		reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+		var gameJson = new JsonObject(); //crea un oggetto json partita per memorizzare le informazioni della partita
+		gameJson.put("gameId", game.getId()); //popola l'oggetto partita con il relativo id
+		gameJson.put("gameState", game.getGameState()); //popola l'oggetto partita con il relativo stato
+		gameJson.put("width", game.getBoardWidth()); //popola l'oggetto partita con il numero di colonne della griglia
+		gameJson.put("height", game.getBoardHeight()); //popola l'oggetto partita con il numero di righe della griglia
+		gameJson.put("winLength", game.getWinLength()); //popola l'oggetto partita con il numero di simboli da allineare per vincere
+		if (game.isStarted() || game.isFinished()) { //se la partita è iniziata o terminata
+			var bs = game.getBoardState(); //recupera lo stato della griglia
+			JsonArray array = new JsonArray(); //crea un arrray per lo stato della griglia
+			for (var el : bs) { //per ogni elemento della griglia
+				array.add(el); //lo aggiunge all'array
+			}
+			gameJson.put("boardState", array); //popola l'oggetto partita con l'array
+		}
+		if (game.isStarted()) { //se la partita è iniziata
+			gameJson.put("turn", game.getCurrentTurn()); //popola l'oggetto partita con il turno corrente
+		}
+		reply.put("gameInfo", gameJson); //popola l'oggetto di risposta con l'oggetto partita
+		return reply.toBuffer();
+	}
+
+	//recupera i contatori di partite e sessioni vive e archiviate
+	protected void getLifecycleStats(RoutingContext context) {
+		var stats = gameService.getLifecycleStats();
+		var reply = new JsonObject(); //crea un oggetto json di risposta al client
+		reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+		reply.put("liveGames", stats.liveGames()); //partite in corso
+		reply.put("archivedGames", stats.archivedGames()); //partite archiviate
+		reply.put("playerSessions", stats.playerSessions()); //sessioni giocatore attive
+		reply.put("evictedGames", stats.evictedGames()); //totale delle partite archiviate dall'avvio
+		reply.put("discardedGames", stats.discardedGames()); //totale delle partite archiviate e poi scartate dall'avvio
+		reply.put("expiredPlayerSessions", stats.expiredPlayerSessions()); //totale delle sessioni giocatore scadute dall'avvio
+		reply.put("eventSockets", topics.getSockets()); //websocket aperti sul canale degli eventi
+		reply.put("eventSubscriptions", topics.getSubscriptions()); //partite seguite dai websocket aperti
+		reply.put("eventTopics", topics.size()); //topic delle partite con almeno un iscritto
+		reply.put("eventStreams", topics.getStreams()); //stream server-sent events aperti
+		reply.put("parkedPolls", topics.getParkedPolls()); //richieste long-poll in attesa di un evento
+		reply.put("gameInfoCacheHits", infoCache.getHits()); //richieste GET /games/:gameId servite dalla cache
+		reply.put("gameInfoCacheMisses", infoCache.getMisses()); //richieste GET /games/:gameId che hanno codificato la risposta
+		sendReply(context.response(), reply); //invia la risposta al client
+	}
+
+	/*
+	apre uno stream server-sent events con gli eventi di una partita
+	riparte dall'evento successivo a "Last-Event-ID" (inviato dal browser alla riconnessione) o a "since", altrimenti dall'istantanea della partita
+	*/
+	protected void streamGameEvents(RoutingContext context) {
+		var gameId = context.pathParam("gameId"); //estrae (dall'url) il valore del campo "gameId"
+		var lastEventId = context.request().getHeader("Last-Event-ID");
+		long since = parseSince(lastEventId != null ? lastEventId : context.request().getParam("since"), -1);
+		topics.open(gameId); //apre il topic della partita (lo stesso dei websocket)
+		try {
+			topics.stream(gameId, context.response(), catchUp(gameService, gameId, since)); //invia gli eventi persi (o l'istantanea) e poi quelli del topic
+		} catch (GameNotFoundException ex) {
+			topics.cancel(gameId);
+			sendGameNotPresent(context.response());
+		}
+	}
+
+	/*
+	attende gli eventi di una partita successivi al numero di sequenza "since" (long-poll)
+	se ci sono già eventi (o se servono un'istantanea) risponde subito, altrimenti la richiesta resta in attesa del prossimo evento (senza thread)
+	la risposta contiene gli eventi e il numero di sequenza ("seq") da indicare nella richiesta successiva; senza eventi entro il timeout risponde 204
+	*/
+	protected void pollGameEvents(RoutingContext context) {
+		var gameId = context.pathParam("gameId"); //estrae (dall'url) il valore del campo "gameId"
+		long since = parseSince(context.request().getParam("since"), -1);
+		topics.open(gameId); //apre il topic della partita (lo stesso dei websocket)
+		try {
+			var events = catchUp(gameService, gameId, since); //eventi persi (o istantanea)
+			if (events.isEmpty()) { //il client è aggiornato: attende il prossimo evento
+				topics.park(gameId, context.response(), POLL_TIMEOUT);
+			} else {
+				topics.cancel(gameId);
+				var last = (GameEventMessage.Sequenced) events.get(events.size() - 1);
+				context.response().putHeader("content-type", "application/json").end(GameEventTopics.pollReply(events, last.seq()));
+			}
+		} catch (GameNotFoundException ex) {
+			topics.cancel(gameId);
+			sendGameNotPresent(context.response());
+		}
+	}
+
+	//ricava il numero di sequenza indicato dal client (defaultValue se assente o non valida)
+	static long parseSince(String since, long defaultValue) {
+		try {
+			return since == null ? defaultValue : Long.parseLong(since.trim());
+		} catch (NumberFormatException ex) {
+			return defaultValue;
 		}
 	}
 
@@ -131,7 +280,7 @@ public class GameServiceController extends VerticleBase  {
 				var playerSession = gameService.joinGame(new UserId(userId), gameId, symbol.equals("X") ? TTTSymbol.X : TTTSymbol.O, new VertxPlayerSessionEventObserver(vertx.eventBus())); //esegue il join dell'utente nella partita
 				reply.put("playerSessionId", playerSession.getId()); //popola l'oggetto con l'id della sessione giocatore
 				reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-				sendReply(context.response(), reply); //invia la risposta al client
+				whenDurable(() -> sendReply(context.response(), reply), ex -> sendError(context.response())); //invia la risposta al client quando il join è reso persistente
 			} catch (InvalidJoinException  ex) {
 				reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
 				reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
@@ -160,7 +309,7 @@ public class GameServiceController extends VerticleBase  {
 				var movePath = PLAYER_MOVE_RESOURCE_PATH.replace(":gameId",gameId).replace(":playerSessionId",ps.getId()); //costruisce il link per eseguire una mossa nella partita
 				reply.put("moveLink", movePath); //popola l'oggetto con il link per eseguire la mossa
 				reply.put("gameLink", GAMES_RESOURCE_PATH + "/" + gameId); //popola l'oggetto con il link alla partita
-				sendReply(context.response(), reply); //invia la risposta al client
+				whenDurable(() -> sendReply(context.response(), reply), ex -> sendError(context.response())); //invia la risposta al client quando la mossa è resa persistente
 			} catch (InvalidMoveException ex) {
 				reply.put("result", "invalid-move"); //popola l'oggetto con un'informazione di errore
 				sendReply(context.response(), reply); //invia la risposta al client
@@ -179,31 +328,160 @@ public class GameServiceController extends VerticleBase  {
 	protected void handleEventSubscription(HttpServer server) {
 		server.webSocketHandler(webSocket -> { //registra un handlder per websocket
 			logger.log(Level.INFO, "New TTT subscription accepted.");
-			webSocket.textMessageHandler(openMsg -> { //imposta un handler per i messaggi ricevuti dal client
-				logger.log(Level.INFO, "For game: " + openMsg);
+			topics.track(webSocket); //alla chiusura il websocket lascia tutti i topic a cui si iscrive
+			var followed = new ArrayList<PlayerSession>(); //sessioni giocatore seguite dal websocket (ogni frame del client le mantiene attive)
+			webSocket.binaryMessageHandler(buf -> { //comandi in forma binaria compatta
+				touch(followed);
+				GameCommandFrames.Command command;
+				try {
+					command = GameCommandFrames.fromBinary(buf); //decodifica il comando
+				} catch (RuntimeException ex) { //frame non valido
+					webSocket.close(); //chiude il websocket
+					return;
+				}
+				topics.useBinary(webSocket); //da qui in poi anche gli eventi sono inviati in forma binaria
+				handleCommand(webSocket, command, true, followed);
+			});
+			webSocket.textMessageHandler(openMsg -> { //imposta un handler per i messaggi ricevuti dal client (ogni messaggio aggiunge o rimuove un'iscrizione, oppure è un comando)
+				touch(followed);
 				JsonObject obj = new JsonObject(openMsg); //converte il messaggio ricevuto dal client in un oggetto json
+				if (obj.containsKey("cmd")) { //se il client invia un comando (ingresso in una partita o mossa)
+					GameCommandFrames.Command command;
+					try {
+						command = GameCommandFrames.fromJson(obj); //decodifica il comando
+					} catch (RuntimeException ex) { //comando non valido (sconosciuto, campi mancanti o del tipo sbagliato): il client riceve comunque la risposta
+						sendAck(webSocket, GameCommandFrames.Ack.error(GameCommandFrames.idOf(obj), "invalid-command"), false);
+						return;
+					}
+					handleCommand(webSocket, command, false, followed);
+					return;
+				}
+				logger.log(Level.INFO, "For game: " + openMsg);
+				if (obj.containsKey("spectate")) { //se il client vuole seguire una partita come spettatore (da "lastSeq", se indicato, altrimenti da un'istantanea)
+					watchGame(obj.getString("spectate"), webSocket, obj.getLong("lastSeq", -1L));
+					return;
+				}
+				if (obj.containsKey("unsubscribe")) { //se il client non vuole più seguire una partita
+					topics.unsubscribe(obj.getString("unsubscribe"), webSocket);
+					return;
+				}
 				String playerSessionId = obj.getString("playerSessionId"); //estrae il valore del campo "playerSessionId"
 
-				EventBus eb = vertx.eventBus(); //recupera l'event bus di vertx
-				eb.consumer(playerSessionId, msg -> { //iscrive l'event bus all'indirizzo creato e, ogni volta che arriva un messaggio all'event bus...
-					JsonObject ev = (JsonObject) msg.body(); //...lo converte in json
-					logger.log(Level.INFO, "Event: " + ev.encodePrettily());
-					webSocket.writeTextMessage(ev.encodePrettily()); //lo invia al client tramite websocket
-				});
-
 				var ps = gameService.getPlayerSession(playerSessionId); //recupera la sessione del giocatore corrispondente al servizio principale (ovvero l'utente in prima persona)
-				var en = ps.getPlayerSessionEventNotifier(); //recupera il notificatore di eventi della sessione del giocatore
-				en.enableEventNotification(playerSessionId); //abilita la notifica degli eventi per questa sessione sul bus con l'indirizzo "playerSessionId"
+				if (ps == null) { //se la sessione non esiste
+					webSocket.close(); //chiude il websocket
+					return;
+				}
+				followPlayerSession(webSocket, ps, obj.getLong("lastSeq", 0L), followed); //il client che si riconnette indica l'ultimo evento ricevuto ("lastSeq")
 			});
 		});
 	}
 
+	//iscrive il websocket agli eventi della partita di una sessione giocatore, a partire dall'evento successivo a lastSeq
+	private void followPlayerSession(ServerWebSocket webSocket, PlayerSession ps, long lastSeq, List<PlayerSession> followed) {
+		followed.add(ps); //da qui in poi l'attività sul websocket conta come attività della sessione
+		var gameId = ps.getGameId(); //recupera la partita della sessione
+		topics.open(gameId); //apre il topic della partita (un solo consumer sull'event bus per tutti i websocket della partita)
+		try {
+			topics.subscribe(gameId, webSocket, catchUp(gameService, gameId, lastSeq)); //invia al client gli eventi persi e poi quelli pubblicati sul topic della partita
+		} catch (GameNotFoundException ex) { //la partita non esiste più
+			topics.cancel(gameId);
+			webSocket.close(); //chiude il websocket
+		}
+	}
+
+	/*
+	recupera gli eventi della partita successivi a lastSeq (con il loro numero di sequenza)
+	se non sono più tutti disponibili restituisce l'istantanea della partita, con il numero di sequenza dell'ultimo evento
+	*/
+	static List<GameEventMessage> catchUp(GameService gameService, String gameId, long lastSeq) throws GameNotFoundException {
+		var missed = gameService.getGameEventsSince(gameId, lastSeq);
+		if (missed.isPresent()) {
+			return missed.get().stream().<GameEventMessage>map(e -> GameEventMessage.of(e.seq(), e.event())).toList();
+		}
+		long seq = gameService.getLastGameEventSeq(gameId); //letto prima dell'istantanea (sullo stesso thread, quindi coerente)
+		return List.of(new GameEventMessage.Sequenced(seq, GameEventMessage.Snapshot.of(gameService.getGameInfo(gameId))));
+	}
+
+	//esegue un comando ricevuto sul websocket e invia la risposta (con l'id del comando) nella stessa forma del comando
+	private void handleCommand(ServerWebSocket webSocket, GameCommandFrames.Command command, boolean binary, List<PlayerSession> followed) {
+		if (command instanceof GameCommandFrames.Join join) { //ingresso in una partita: il websocket riceve anche gli eventi della partita
+			if (!join.symbol().equals("X") && !join.symbol().equals("O")) { //simbolo non valido: nessun ingresso
+				sendAck(webSocket, GameCommandFrames.Ack.error(join.id(), "invalid-symbol"), binary);
+				return;
+			}
+			try {
+				var ps = gameService.joinGame(new UserId(join.user()), join.gameId(), TTTSymbol.valueOf(join.symbol()), new VertxPlayerSessionEventObserver(vertx.eventBus())); //esegue il join dell'utente nella partita
+				whenDurable(() -> { //quando il join è reso persistente
+					sendAck(webSocket, GameCommandFrames.Ack.ok(join.id(), ps.getId()), binary); //la risposta precede gli eventi della partita
+					followPlayerSession(webSocket, ps, 0, followed);
+				}, ex -> sendAck(webSocket, GameCommandFrames.Ack.error(join.id(), ex), binary));
+			} catch (Exception ex) {
+				sendAck(webSocket, GameCommandFrames.Ack.error(join.id(), ex), binary);
+			}
+		} else if (command instanceof GameCommandFrames.Move move) { //mossa (se la risposta attende il disco, l'evento corrispondente può precederla)
+			var ack = makeAMove(move);
+			whenDurable(() -> sendAck(webSocket, ack, binary), ex -> sendAck(webSocket, GameCommandFrames.Ack.error(move.id(), ex), binary)); //le risposte restano in ordine: il log conferma i record in ordine
+		}
+	}
+
+	//esegue una mossa ricevuta sul websocket
+	private GameCommandFrames.Ack makeAMove(GameCommandFrames.Move move) {
+		var ps = gameService.getPlayerSession(move.playerSessionId()); //recupera la sessione del giocatore
+		if (ps == null) { //se la sessione non esiste
+			return GameCommandFrames.Ack.error(move.id(), "player-session-not-found");
+		}
+		try {
+			ps.makeMove(move.x(), move.y()); //fa eseguire al giocatore una mossa
+			return GameCommandFrames.Ack.accepted(move.id());
+		} catch (InvalidMoveException ex) {
+			return GameCommandFrames.Ack.invalidMove(move.id());
+		} catch (Exception ex) {
+			return GameCommandFrames.Ack.error(move.id(), ex);
+		}
+	}
+
+	//segna come attive le sessioni giocatore seguite da un websocket (chi gioca solo sul websocket non viene considerato inattivo)
+	private static void touch(List<PlayerSession> followed) {
+		for (var ps : followed) {
+			ps.touch();
+		}
+	}
+
+	//invia la risposta ad un comando
+	private void sendAck(ServerWebSocket webSocket, GameCommandFrames.Ack ack, boolean binary) {
+		if (binary) {
+			webSocket.writeBinaryMessage(ack.toBinary());
+		} else {
+			webSocket.writeTextMessage(ack.toJson());
+		}
+	}
+
+	//iscrive il websocket di uno spettatore al topic della partita: riceve gli eventi successivi a lastSeq (o l'istantanea della partita) e poi gli eventi del topic
+	private void watchGame(String gameId, ServerWebSocket webSocket, long lastSeq) {
+		topics.open(gameId); //apre il topic della partita
+		try {
+			topics.watch(gameId, webSocket, catchUp(gameService, gameId, lastSeq), seq -> watchGame(gameId, webSocket, seq)); //invia il recupero e poi gli eventi (e ripete l'iscrizione se lo spettatore resta indietro)
+		} catch (GameNotFoundException ex) { //se la partita non esiste
+			topics.cancel(gameId);
+			webSocket.close(); //chiude il websocket
+		}
+	}
+
 	//invia la risposta al client
 	private void sendReply(HttpServerResponse response, JsonObject reply) {
 		response.putHeader("content-type", "application/json"); //imposta l’header del messaggio http come json
 		response.end(reply.toString()); //converte l’oggetto json in stringa, lo invia al client e chiude la risposta
 	}
 
+	//invia al client l'errore di partita inesistente
+	private void sendGameNotPresent(HttpServerResponse response) {
+		var reply = new JsonObject(); //crea un oggetto json di risposta al client
+		reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+		reply.put("error", "game-not-present"); //popola l'oggetto con la specifica dell'errore
+		sendReply(response, reply); //invia la risposta al client
+	}
+
 	//invia una risposta di errore al client
 	private void sendError(HttpServerResponse response) {
 		response.setStatusCode(500);  //imposta lo stato della risposta a 500 (errore)
@@ -1,20 +1,56 @@
 package distributed_ttt.game_service.infrastructure;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import distributed_ttt.game_service.application.*;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
 
-//server servizio di gioco
+/*
+server servizio di gioco
+argomenti opzionali: l'id del nodo (da specificare se si avviano più istanze del servizio),
+le opzioni del repository separate da virgole: "packed" per memorizzare le partite in forma compatta (per milioni di partite contemporanee)
+ed "events" per registrare il flusso di eventi di ogni partita (per verificarne o rigiocarne lo svolgimento), es. "packed,events"
+e la cartella in cui rendere persistenti le partite (log + snapshot, ripristinati all'avvio) e, con "events", i flussi di eventi
+(nella sottocartella "events": le partite aperte vengono ricostruite all'avvio; senza cartella i flussi restano solo in memoria),
+seguita dalla politica di scrittura su disco dei log ("always", "interval" o "never", predefinita "interval")
+le notifiche ai giocatori sono inviate in modo asincrono, a lotti, da un thread dedicato
+le interrogazioni sulle partite (elenchi per stato e per giocatore) sono servite da un modello di lettura separato, su un'altra porta
+*/
 public class GameServiceMain {
 
 	static final int GAME_SERVICE_PORT = 9002; //porta sul quale il server ascolta le richiesta http
+	static final int GAME_QUERY_PORT = 9003; //porta sulla quale le istanze del controller delle interrogazioni ascoltano le richieste http
 
-	public static void main(String[] args) {
+	static final long FSYNC_INTERVAL = 10; //intervallo tra due scritture forzate del log su disco (in ms, con la politica "interval")
+	static final long SNAPSHOT_EVERY = 1_000_000; //numero di record del log dopo cui scrivere uno snapshot
+	static final long EVENT_SNAPSHOT_EVERY = 16; //numero di eventi di una partita dopo cui salvarne un'istantanea nell'archivio degli eventi
 
-		var service = new GameServiceImpl(); //crea un'istanza del servizio di gioco
-		service.bindGameRepository(new InMemoryGameRepository()); //crea un repository delle partite e lo collega al servizio di gioco
+	public static void main(String[] args) throws Exception {
+
+		var service = new GameServiceImpl(args.length > 0 ? Integer.parseInt(args[0]) : 0); //crea un'istanza del servizio di gioco
+		var options = args.length > 1 ? List.of(args[1].split(",")) : List.<String>of(); //opzioni del repository
+		var packed = options.contains("packed");
+		GameRepository repository = packed ? new PackedGameRepository() : new InMemoryGameRepository(); //crea un repository delle partite
+		var fsync = args.length > 3 ? FsyncPolicy.valueOf(args[3].toUpperCase()) : FsyncPolicy.INTERVAL; //politica di scrittura su disco dei log
+		if (args.length > 2) { //rende persistenti le partite nella cartella indicata
+			repository = DurableGameRepository.open(repository, Path.of(args[2]), fsync, FSYNC_INTERVAL, SNAPSHOT_EVERY);
+		}
+		if (options.contains("events")) { //registra il flusso di eventi di ogni partita (e ricostruisce le partite aperte dell'archivio)
+			GameEventStore store = args.length > 2 ? DurableGameEventStore.open(Path.of(args[2], "events"), fsync, FSYNC_INTERVAL) : new InMemoryGameEventStore();
+			repository = EventSourcedGameRepository.open(repository, store, EVENT_SNAPSHOT_EVERY, ForkJoinPool.commonPool());
+		}
+		service.bindGameRepository(repository); //collega il repository delle partite al servizio di gioco
+		service.bindGameEventDispatcher(new GameEventDispatcher()); //le mosse non attendono le notifiche ai giocatori (accodate e inviate a lotti da un thread dedicato)
 		var vertx = Vertx.vertx(); //crea un'istanza vertx per gestire le richieste http
+		service.bindGameEventChannel(new VertxGameEventChannel(vertx.eventBus())); //pubblica gli eventi di ogni partita sul relativo topic dell'event bus
+		var readModel = new InMemoryGameReadModel(); //modello di lettura delle partite (lato query)
+		service.bindGameReadModel(readModel); //il servizio lo aggiorna con la creazione, gli ingressi e gli eventi di ogni partita
 		var server = new GameServiceController(service, GAME_SERVICE_PORT); //crea un'istanza del controller
 		vertx.deployVerticle(server); //avvia il server sulla porta specificata (esegue il metodo "start" del controller)
+		vertx.deployVerticle(() -> new GameQueryController(readModel, GAME_QUERY_PORT), //avvia un controller delle interrogazioni per ogni core
+				new DeploymentOptions().setInstances(Runtime.getRuntime().availableProcessors()));
 	}
 
 }
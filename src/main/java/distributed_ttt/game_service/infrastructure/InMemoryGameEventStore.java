@@ -0,0 +1,243 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import common.exagonal.Adapter;
+import distributed_ttt.game_service.application.GameEventStore;
+import distributed_ttt.game_service.application.StoredGameSnapshot;
+import distributed_ttt.game_service.domain.*;
+
+/*
+implementazione in memoria dell'archivio degli eventi delle partite
+il flusso di ogni partita è un log binario in sola aggiunta (pochi byte per evento, l'id della partita non viene ripetuto):
+una partita di tris completa occupa circa 230 byte (id e strutture della mappa compresi) invece di una decina di oggetti evento
+ogni flusso ha un solo scrittore alla volta; le letture (anche in parallelo, durante la ricostruzione) sincronizzano sul flusso
+un indice delle partite né terminate né archiviate evita di scorrere (e decodificare) tutti i flussi all'apertura
+*/
+@Adapter
+public class InMemoryGameEventStore implements GameEventStore {
+
+	static final byte CREATED = 1; //[w][h][k]
+	static final byte JOINED = 2; //[simbolo][utente]
+	static final byte STARTED = 3;
+	static final byte MOVE = 4; //[simbolo][x][y]
+	static final byte ENDED = 5; //[istante della fine: long][vincitore]
+	static final short NO_WINNER = -1; //lunghezza del vincitore in caso di pareggio
+	//(numeri come short, stringhe come [lunghezza short][utf-8], simboli come un byte 'X' o 'O')
+
+	//flusso degli eventi di una partita
+	private static class Stream {
+		byte[] data = new byte[32]; //eventi codificati
+		int length; //byte usati
+		long count; //numero di eventi
+		StoredGameSnapshot snapshot; //ultima istantanea salvata
+		boolean closed; //la partita è terminata o è stata archiviata
+	}
+
+	private final ConcurrentHashMap<String, Stream> streams; //flusso per id della partita
+	private final Set<String> openGames; //id delle partite né terminate né archiviate (aggiornato sotto il lock del flusso)
+
+	public InMemoryGameEventStore() {
+		streams = new ConcurrentHashMap<>();
+		openGames = ConcurrentHashMap.newKeySet();
+	}
+
+	//aggiunge in coda al flusso di una partita i suoi nuovi eventi
+	public void append(String gameId, List<GameEvent> events) {
+		var stream = streams.computeIfAbsent(gameId, id -> new Stream());
+		synchronized (stream) {
+			for (var ev : events) {
+				encode(stream, ev);
+				stream.count++;
+				if (ev instanceof GameEnded) {
+					stream.closed = true;
+				}
+			}
+			track(gameId, stream);
+		}
+	}
+
+	//aggiunge in coda al flusso di una partita count eventi già codificati (es. riletti dal log di DurableGameEventStore)
+	void appendEncoded(String gameId, byte[] data, int offset, int length, int count, boolean ended) {
+		var stream = streams.computeIfAbsent(gameId, id -> new Stream());
+		synchronized (stream) {
+			reserve(stream, length).put(data, offset, length);
+			stream.count += count;
+			if (ended) {
+				stream.closed = true;
+			}
+			track(gameId, stream);
+		}
+	}
+
+	//codifica gli eventi nel formato dei flussi
+	static byte[] encode(List<GameEvent> events) {
+		var stream = new Stream();
+		for (var ev : events) {
+			encode(stream, ev);
+		}
+		return Arrays.copyOf(stream.data, stream.length);
+	}
+
+	//aggiorna l'indice delle partite aperte (chiamato sotto il lock del flusso)
+	private void track(String gameId, Stream stream) {
+		if (stream.closed) {
+			openGames.remove(gameId);
+		} else {
+			openGames.add(gameId);
+		}
+	}
+
+	//segna come archiviata una partita rimossa (il suo flusso resta nell'archivio)
+	public void markArchived(String gameId) {
+		var stream = streams.get(gameId);
+		if (stream == null) {
+			return;
+		}
+		synchronized (stream) {
+			stream.closed = true;
+			openGames.remove(gameId);
+		}
+	}
+
+	//recupera il numero di eventi nel flusso di una partita
+	public long count(String gameId) {
+		var stream = streams.get(gameId);
+		if (stream == null) {
+			return 0;
+		}
+		synchronized (stream) {
+			return stream.count;
+		}
+	}
+
+	//recupera gli eventi di una partita a partire dalla posizione indicata
+	public List<GameEvent> load(String gameId, long from) {
+		var stream = streams.get(gameId);
+		if (stream == null) {
+			return List.of();
+		}
+		ByteBuffer buf;
+		long count;
+		synchronized (stream) {
+			buf = ByteBuffer.wrap(stream.data, 0, stream.length);
+			count = stream.count;
+		}
+		var events = new ArrayList<GameEvent>((int) Math.max(0, count - from));
+		for (long i = 0; i < count; i++) {
+			var ev = decode(gameId, buf); //gli eventi hanno lunghezza variabile: quelli precedenti vanno comunque letti
+			if (i >= from) {
+				events.add(ev);
+			}
+		}
+		return events;
+	}
+
+	//salva l'istantanea di una partita dopo i primi eventCount eventi del suo flusso
+	public void saveSnapshot(String gameId, long eventCount, GameSnapshot snapshot) {
+		var stream = streams.computeIfAbsent(gameId, id -> new Stream());
+		synchronized (stream) {
+			stream.snapshot = new StoredGameSnapshot(eventCount, snapshot);
+		}
+	}
+
+	//recupera l'ultima istantanea salvata di una partita
+	public Optional<StoredGameSnapshot> loadSnapshot(String gameId) {
+		var stream = streams.get(gameId);
+		if (stream == null) {
+			return Optional.empty();
+		}
+		synchronized (stream) {
+			return Optional.ofNullable(stream.snapshot);
+		}
+	}
+
+	//recupera gli id delle partite presenti nell'archivio
+	public List<String> gameIds() {
+		return new ArrayList<>(streams.keySet());
+	}
+
+	//recupera gli id delle partite né terminate né archiviate
+	public List<String> openGameIds() {
+		return new ArrayList<>(openGames);
+	}
+
+	//codifica un evento in coda al flusso
+	private static void encode(Stream stream, GameEvent ev) {
+		if (ev instanceof GameCreated created) {
+			var buf = reserve(stream, 7);
+			buf.put(CREATED).putShort((short) created.width()).putShort((short) created.height()).putShort((short) created.winLength());
+		} else if (ev instanceof PlayerJoined joined) {
+			var user = joined.userId().getBytes(StandardCharsets.UTF_8);
+			var buf = reserve(stream, 4 + user.length);
+			buf.put(JOINED).put((byte) joined.symbol().charAt(0)).putShort((short) user.length).put(user);
+		} else if (ev instanceof GameStarted) {
+			reserve(stream, 1).put(STARTED);
+		} else if (ev instanceof NewMove move) {
+			var buf = reserve(stream, 6);
+			buf.put(MOVE).put((byte) move.symbol().charAt(0)).putShort((short) move.x()).putShort((short) move.y());
+		} else if (ev instanceof GameEnded ended) {
+			var winner = ended.winner().map(w -> w.getBytes(StandardCharsets.UTF_8)).orElse(null);
+			var buf = reserve(stream, 11 + (winner == null ? 0 : winner.length));
+			buf.put(ENDED).putLong(ended.endedAt());
+			if (winner == null) {
+				buf.putShort(NO_WINNER);
+			} else {
+				buf.putShort((short) winner.length).put(winner);
+			}
+		} else {
+			throw new IllegalArgumentException("unknown game event " + ev);
+		}
+	}
+
+	//riserva size byte in coda al flusso (raddoppiando il buffer se serve) e restituisce il buffer su cui scriverli
+	private static ByteBuffer reserve(Stream stream, int size) {
+		if (stream.length + size > stream.data.length) {
+			stream.data = Arrays.copyOf(stream.data, Math.max(stream.data.length * 2, stream.length + size));
+		}
+		var buf = ByteBuffer.wrap(stream.data, stream.length, size);
+		stream.length += size;
+		return buf;
+	}
+
+	//decodifica l'evento successivo del flusso
+	private static GameEvent decode(String gameId, ByteBuffer buf) {
+		byte type = buf.get();
+		switch (type) {
+			case CREATED:
+				return new GameCreated(gameId, buf.getShort(), buf.getShort(), buf.getShort());
+			case JOINED: {
+				var symbol = symbol(buf.get());
+				return new PlayerJoined(gameId, getString(buf, buf.getShort()), symbol);
+			}
+			case STARTED:
+				return new GameStarted(gameId);
+			case MOVE:
+				return new NewMove(gameId, symbol(buf.get()), buf.getShort(), buf.getShort());
+			case ENDED: {
+				long endedAt = buf.getLong();
+				short len = buf.getShort();
+				return new GameEnded(gameId, len == NO_WINNER ? Optional.empty() : Optional.of(getString(buf, len)), endedAt);
+			}
+			default:
+				throw new IllegalStateException("corrupted event stream of game " + gameId);
+		}
+	}
+
+	//simbolo codificato (senza creare una nuova stringa)
+	private static String symbol(byte b) {
+		return b == 'X' ? "X" : "O";
+	}
+
+	private static String getString(ByteBuffer buf, int len) {
+		var bytes = new byte[len];
+		buf.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
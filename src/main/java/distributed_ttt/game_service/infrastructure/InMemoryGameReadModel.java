@@ -0,0 +1,145 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import common.exagonal.Adapter;
+import distributed_ttt.game_service.application.GameReadModel;
+import distributed_ttt.game_service.application.GameSummary;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.GameEvent;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+
+/*
+modello di lettura delle partite in memoria
+le viste (immutabili) e gli indici sono in mappe concorrenti: un solo thread scrittore (quello che esegue i comandi del servizio)
+e qualsiasi numero di lettori (ad esempio più istanze del controller delle interrogazioni) senza lock
+un lettore può vedere per un istante una partita in due stati dell'indice: le interrogazioni ricontrollano lo stato della vista
+*/
+@Adapter
+public class InMemoryGameReadModel implements GameReadModel {
+
+	private final ConcurrentHashMap<String, GameSummary> views; //vista di ogni partita per id
+	private final Map<Game.GameState, Set<String>> byState; //id delle partite per stato
+	private final ConcurrentHashMap<String, Set<String>> byPlayer; //id delle partite per giocatore
+
+	public InMemoryGameReadModel() {
+		views = new ConcurrentHashMap<>();
+		byState = new EnumMap<>(Game.GameState.class);
+		for (var state : Game.GameState.values()) { //l'indice per stato non cambia più dopo la costruzione
+			byState.put(state, ConcurrentHashMap.newKeySet());
+		}
+		byPlayer = new ConcurrentHashMap<>();
+	}
+
+	//registra una nuova partita
+	public void gameCreated(String gameId, int width, int height, int winLength) {
+		update(GameSummary.created(gameId, width, height, winLength));
+	}
+
+	//registra una partita già esistente
+	public void gameRestored(GameSummary view) {
+		view.playerCross().ifPresent(player -> byPlayer.compute(player, (id, games) -> add(games, view.id())));
+		view.playerCircle().ifPresent(player -> byPlayer.compute(player, (id, games) -> add(games, view.id())));
+		update(view);
+	}
+
+	//rimuove una partita dalle viste e dagli indici (i giocatori senza più partite escono dall'indice)
+	public void gameRemoved(String gameId) {
+		var view = views.remove(gameId);
+		if (view == null) {
+			return;
+		}
+		byState.get(view.state()).remove(gameId);
+		view.playerCross().ifPresent(player -> removePlayerGame(player, gameId));
+		view.playerCircle().ifPresent(player -> removePlayerGame(player, gameId));
+	}
+
+	//registra l'ingresso di un giocatore in una partita
+	public void playerJoined(String gameId, UserId userId, TTTSymbol symbol) {
+		var view = views.get(gameId);
+		if (view != null) { //partita sconosciuta al modello (già archiviata): viene ignorata
+			byPlayer.compute(userId.id(), (id, games) -> add(games, gameId));
+			update(view.joined(userId, symbol));
+		}
+	}
+
+	//applica un evento della partita
+	public void apply(GameEvent event) {
+		var view = views.get(event.gameId());
+		if (view != null) {
+			update(view.apply(event));
+		}
+	}
+
+	//recupera la vista di una partita
+	public Optional<GameSummary> getGame(String gameId) {
+		return Optional.ofNullable(views.get(gameId));
+	}
+
+	//recupera le viste delle partite in un certo stato
+	public List<GameSummary> getGamesByState(String gameState) {
+		var games = new ArrayList<GameSummary>();
+		for (var state : Game.GameState.values()) {
+			if (GameSummary.stateName(state).equals(gameState)) {
+				collect(byState.get(state), view -> view.state() == state, games);
+			}
+		}
+		return games;
+	}
+
+	//recupera le viste delle partite di un giocatore
+	public List<GameSummary> getGamesByPlayer(String userId) {
+		var games = new ArrayList<GameSummary>();
+		var ids = byPlayer.get(userId);
+		if (ids != null) {
+			collect(ids, view -> view.playerCross().equals(Optional.of(userId)) || view.playerCircle().equals(Optional.of(userId)), games);
+		}
+		return games;
+	}
+
+	//recupera il numero di partite nel modello
+	public int size() {
+		return views.size();
+	}
+
+	//pubblica la nuova vista e aggiorna l'indice per stato (prima aggiunge al nuovo stato, poi rimuove dal precedente)
+	private void update(GameSummary view) {
+		var previous = views.put(view.id(), view);
+		byState.get(view.state()).add(view.id());
+		if (previous != null && previous.state() != view.state()) {
+			byState.get(previous.state()).remove(view.id());
+		}
+	}
+
+	//aggiunge una partita all'insieme di un giocatore (dentro compute: atomico rispetto alla rimozione dell'insieme vuoto)
+	private static Set<String> add(Set<String> games, String gameId) {
+		var set = games == null ? ConcurrentHashMap.<String>newKeySet() : games;
+		set.add(gameId);
+		return set;
+	}
+
+	//rimuove una partita dall'indice di un giocatore (e il giocatore, se non ha più partite)
+	private void removePlayerGame(String player, String gameId) {
+		byPlayer.computeIfPresent(player, (id, games) -> {
+			games.remove(gameId);
+			return games.isEmpty() ? null : games;
+		});
+	}
+
+	//raccoglie le viste delle partite indicate che soddisfano il filtro (la vista corrente è quella che conta)
+	private void collect(Set<String> ids, Predicate<GameSummary> filter, List<GameSummary> games) {
+		for (var id : ids) {
+			var view = views.get(id);
+			if (view != null && filter.test(view)) {
+				games.add(view);
+			}
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package distributed_ttt.game_service.infrastructure;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import common.exagonal.Adapter;
 import distributed_ttt.game_service.application.GameRepository;
 import distributed_ttt.game_service.domain.Game;
@@ -9,10 +12,10 @@ import distributed_ttt.game_service.domain.Game;
 @Adapter
 public class InMemoryGameRepository implements GameRepository {
 
-	private HashMap<String, Game> games; //hashmap che associa l'id della partita alla partita
+	private ConcurrentHashMap<String, Game> games; //mappa concorrente che associa l'id della partita alla partita
 
 	public InMemoryGameRepository() {
-		games = new HashMap<>();
+		games = new ConcurrentHashMap<>();
 	}
 
 	//aggiunge una partita
@@ -21,6 +24,11 @@ public class InMemoryGameRepository implements GameRepository {
 
 	}
 
+	//aggiunge una partita solo se non ne esiste già una con lo stesso id (in modo atomico)
+	public boolean addGameIfAbsent(Game game) {
+		return games.putIfAbsent(game.getId(), game) == null;
+	}
+
 	//verifica la presenza di un account
 	public boolean isPresent(String gameId) {
 		return games.containsKey(gameId);
@@ -31,4 +39,35 @@ public class InMemoryGameRepository implements GameRepository {
 		return games.get(gameId);
 	}
 
+	//salva lo stato di una partita modificata (l'oggetto partita è già quello memorizzato)
+	public void updateGame(Game game) {
+		games.replace(game.getId(), game);
+	}
+
+	//rimuove una partita
+	public void removeGame(String gameId) {
+		games.remove(gameId);
+	}
+
+	//recupera le partite terminate prima dell'istante indicato
+	public List<Game> getGamesFinishedBefore(long time) {
+		var finished = new ArrayList<Game>();
+		for (var game : games.values()) {
+			if (game.isFinished() && game.getFinishedAt() < time) {
+				finished.add(game);
+			}
+		}
+		return finished;
+	}
+
+	//recupera il numero di partite presenti
+	public int count() {
+		return games.size();
+	}
+
+	//scorre tutte le partite presenti
+	public void forEachGame(Consumer<Game> action) {
+		games.values().forEach(action);
+	}
+
 }
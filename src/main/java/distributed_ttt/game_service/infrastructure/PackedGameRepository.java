@@ -0,0 +1,574 @@
+package distributed_ttt.game_service.infrastructure;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import common.exagonal.Adapter;
+import distributed_ttt.game_service.application.GameRepository;
+import distributed_ttt.game_service.domain.BitboardGameBoard;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.Game.GameState;
+import distributed_ttt.game_service.domain.GameObserver;
+import distributed_ttt.game_service.domain.GameSnapshot;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+
+/*
+implementazione della porta di uscita che collega l'architettura (applicazione) al db delle partite,
+con le partite memorizzate in forma compatta in array di primitivi invece che come grafo di oggetti:
+- una parola (long) per partita con le maschere delle caselle, lo stato, il turno, il vincitore e l'istante di fine partita
+- due interi per partita con gli indici dei giocatori (internati: ogni utente è memorizzato una sola volta,
+  e viene dimenticato quando nessuna partita fa più riferimento a lui)
+- l'id della partita in un'arena di byte, indicizzato da una tabella hash ad indirizzamento aperto
+- gli osservatori (solo per le partite che ne hanno) in pagine parallele, allocate solo quando servono
+gli array sono divisi in pagine di dimensione fissa: la crescita non copia mai l'intero stato e il garbage collector
+vede poche grandi pagine prive di riferimenti invece di milioni di piccoli oggetti
+le partite vengono ricreate ad ogni lettura e salvate con updateGame, mentre le istantanee (getGameSnapshot)
+vengono costruite direttamente dalla forma compatta; le (rare) partite su griglie diverse da 3x3 o con id molto lunghi sono mantenute come oggetti
+*/
+@Adapter
+public class PackedGameRepository implements GameRepository {
+
+	//struttura della parola di stato di una partita
+	private static final int CIRCLE_SHIFT = 9; //bit 0-8: caselle "croce", bit 9-17: caselle "cerchio"
+	private static final int STATE_SHIFT = 18; //bit 18-19: stato della partita
+	private static final int TURN_SHIFT = 20; //bit 20-21: simbolo di turno (0 nessuno, 1 croce, 2 cerchio)
+	private static final int WINNER_SHIFT = 22; //bit 22-23: simbolo del vincitore (0 nessuno, 1 croce, 2 cerchio)
+	private static final int FINISHED_SHIFT = 24; //bit 24-63: istante di fine partita (ms dall'epoca del repository)
+	private static final long CELLS_MASK = 0x1FF;
+	private static final long FINISHED_MASK = (1L << 40) - 1;
+	private static final long EPOCH = 1704067200000L; //epoca del repository (01/01/2024)
+
+	private static final int PAGE_BITS = 16; //ogni pagina contiene 65536 partite
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final int ARENA_PAGE_SIZE = 1 << 20; //dimensione (in byte) di una pagina dell'arena degli id
+	private static final int MAX_ID_BYTES = 255; //lunghezza massima (in byte) di un id memorizzato nell'arena
+	private static final int EMPTY = 0; //cella libera della tabella hash
+	private static final int TOMBSTONE = -1; //cella della tabella hash di una partita rimossa
+	private static final GameObserver[] NO_OBSERVERS = new GameObserver[0];
+
+	private long[][] words; //parole di stato delle partite
+	private int[][] players; //indici dei giocatori (due per partita: croce e cerchio; 0 se assente)
+	private long[][] idRefs; //posizione dell'id nell'arena (-1 se la posizione è libera)
+	private int[][] hashes; //hash dell'id (per confronti e ridimensionamenti senza ricalcolarlo)
+	private GameObserver[][][] observers; //osservatori delle partite (pagina null finché nessuna sua partita ne ha; null se la partita non ne ha)
+	private int slotCount; //numero di posizioni utilizzate (comprese quelle liberate)
+	private int[] freeSlots; //posizioni liberate dalle partite rimosse
+	private int freeCount;
+	private int liveCount; //numero di partite memorizzate in forma compatta
+
+	private int[] table; //tabella hash ad indirizzamento aperto: posizione della partita + 1
+	private int tableFilled; //celle occupate della tabella (comprese quelle rimosse)
+
+	private byte[][] arena; //pagine dell'arena degli id (lunghezza + byte UTF-8)
+	private int arenaPos; //prima posizione libera nell'ultima pagina
+	private long arenaUsed; //byte occupati nell'arena
+	private long arenaDead; //byte occupati da id di partite rimosse
+
+	private final HashMap<String, Integer> playerIndex; //indice di ciascun utente
+	private final ArrayList<Optional<UserId>> playerIds; //utenti internati (l'indice 0 è "nessun giocatore"; null se l'indice è libero)
+	private int[] playerRefs; //numero di riferimenti (dalle partite) a ciascun utente internato
+	private int[] freePlayers; //indici liberati dagli utenti non più referenziati
+	private int freePlayerCount;
+	private final HashMap<String, Game> otherGames; //partite che non possono essere memorizzate in forma compatta
+	private final ReentrantReadWriteLock lock; //più letture concorrenti, una sola scrittura
+
+	public PackedGameRepository() {
+		words = new long[0][];
+		players = new int[0][];
+		idRefs = new long[0][];
+		hashes = new int[0][];
+		observers = new GameObserver[0][][];
+		freeSlots = new int[16];
+		table = new int[1 << 10];
+		arena = new byte[][] {new byte[ARENA_PAGE_SIZE]};
+		playerIndex = new HashMap<>();
+		playerIds = new ArrayList<>();
+		playerIds.add(Optional.empty());
+		playerRefs = new int[16];
+		freePlayers = new int[16];
+		otherGames = new HashMap<>();
+		lock = new ReentrantReadWriteLock();
+	}
+
+	//aggiunge una partita (sostituendo quella con lo stesso id)
+	public void addGame(Game game) {
+		lock.writeLock().lock();
+		try {
+			if (!isPackable(game)) {
+				otherGames.put(game.getId(), game);
+				return;
+			}
+			var key = game.getId().getBytes(StandardCharsets.UTF_8);
+			int h = hash(game.getId());
+			int idx = find(key, h);
+			int slot = idx >= 0 ? table[idx] - 1 : insert(key, h);
+			write(slot, game);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//aggiunge una partita solo se non ne esiste già una con lo stesso id (in modo atomico)
+	public boolean addGameIfAbsent(Game game) {
+		lock.writeLock().lock();
+		try {
+			var key = game.getId().getBytes(StandardCharsets.UTF_8);
+			int h = hash(game.getId());
+			if (otherGames.containsKey(game.getId()) || find(key, h) >= 0) { //se la partita esiste già
+				return false;
+			}
+			if (isPackable(game)) {
+				write(insert(key, h), game);
+			} else {
+				otherGames.put(game.getId(), game);
+			}
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//verifica la presenza di una partita
+	public boolean isPresent(String gameId) {
+		lock.readLock().lock();
+		try {
+			return slotOf(gameId) >= 0 || otherGames.containsKey(gameId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//recupera una partita (ricreandola a partire dalla forma compatta)
+	public Game getGame(String gameId) {
+		lock.readLock().lock();
+		try {
+			int slot = slotOf(gameId);
+			return slot >= 0 ? materialize(slot, gameId) : otherGames.get(gameId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//recupera l'istantanea di una partita, costruita dalla forma compatta senza ricreare la partita (null se la partita non esiste)
+	public GameSnapshot getGameSnapshot(String gameId) {
+		lock.readLock().lock();
+		try {
+			int slot = slotOf(gameId);
+			if (slot >= 0) {
+				return snapshot(slot, gameId);
+			}
+			var game = otherGames.get(gameId);
+			return game != null ? game.snapshot() : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//salva lo stato di una partita modificata
+	public void updateGame(Game game) {
+		lock.writeLock().lock();
+		try {
+			int slot = slotOf(game.getId());
+			if (slot >= 0) {
+				write(slot, game);
+			} else if (otherGames.containsKey(game.getId())) {
+				otherGames.put(game.getId(), game);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//rimuove una partita
+	public void removeGame(String gameId) {
+		lock.writeLock().lock();
+		try {
+			if (otherGames.remove(gameId) != null) {
+				return;
+			}
+			int idx = find(gameId.getBytes(StandardCharsets.UTF_8), hash(gameId));
+			if (idx < 0) {
+				return;
+			}
+			int slot = table[idx] - 1;
+			table[idx] = TOMBSTONE;
+			long ref = idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK];
+			arenaDead += 1 + idLength(ref);
+			idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK] = -1; //libera la posizione
+			setObservers(slot, NO_OBSERVERS);
+			var ids = players[slot >>> PAGE_BITS];
+			int off = slot & PAGE_MASK;
+			release(ids[2 * off]);
+			release(ids[2 * off + 1]);
+			ids[2 * off] = ids[2 * off + 1] = 0; //la posizione liberata non fa più riferimento ai giocatori
+			if (freeCount == freeSlots.length) {
+				freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+			}
+			freeSlots[freeCount++] = slot;
+			liveCount--;
+			if (arenaDead > ARENA_PAGE_SIZE && arenaDead * 2 > arenaUsed) { //se più di metà dell'arena è occupata da id rimossi
+				compactArena();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//recupera le partite terminate prima dell'istante indicato
+	public List<Game> getGamesFinishedBefore(long time) {
+		lock.readLock().lock();
+		try {
+			var finished = new ArrayList<Game>();
+			int finishedState = GameState.FINISHED.ordinal();
+			for (int slot = 0; slot < slotCount; slot++) { //scorre le parole di stato senza ricreare le partite
+				if (idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK] < 0) {
+					continue;
+				}
+				long w = words[slot >>> PAGE_BITS][slot & PAGE_MASK];
+				if (((w >>> STATE_SHIFT) & 3) == finishedState && finishedAt(w) < time) {
+					finished.add(materialize(slot, readId(slot)));
+				}
+			}
+			for (var game : otherGames.values()) {
+				if (game.isFinished() && game.getFinishedAt() < time) {
+					finished.add(game);
+				}
+			}
+			return finished;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//recupera il numero di partite presenti
+	public int count() {
+		lock.readLock().lock();
+		try {
+			return liveCount + otherGames.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//scorre tutte le partite presenti, una pagina alla volta (così da non bloccare a lungo le scritture)
+	public void forEachGame(Consumer<Game> action) {
+		var batch = new ArrayList<Game>();
+		for (int first = 0; ; first += PAGE_SIZE) {
+			lock.readLock().lock();
+			try {
+				if (first >= slotCount) { //aggiunge infine le partite mantenute come oggetti
+					batch.addAll(otherGames.values());
+				} else {
+					for (int slot = first; slot < Math.min(first + PAGE_SIZE, slotCount); slot++) {
+						if (idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK] >= 0) {
+							batch.add(materialize(slot, readId(slot)));
+						}
+					}
+				}
+			} finally {
+				lock.readLock().unlock();
+			}
+			batch.forEach(action); //esegue l'azione fuori dal lock
+			if (first >= slotCount) {
+				return;
+			}
+			batch.clear();
+		}
+	}
+
+	//verifica se la partita può essere memorizzata in forma compatta
+	private boolean isPackable(Game game) {
+		return game.getBoard() instanceof BitboardGameBoard && game.getId().length() <= MAX_ID_BYTES / 3; //ogni carattere occupa al più 3 byte UTF-8
+	}
+
+	//ricrea la partita memorizzata nella posizione indicata
+	private Game materialize(int slot, String gameId) {
+		int page = slot >>> PAGE_BITS;
+		int off = slot & PAGE_MASK;
+		long w = words[page][off];
+		var board = new BitboardGameBoard(gameId + "-board", (int) (w & CELLS_MASK), (int) ((w >>> CIRCLE_SHIFT) & CELLS_MASK));
+		var state = GameState.values()[(int) ((w >>> STATE_SHIFT) & 3)];
+		var cross = playerIds.get(players[page][2 * off]);
+		var circle = playerIds.get(players[page][2 * off + 1]);
+		var turn = symbol((int) ((w >>> TURN_SHIFT) & 3));
+		int winnerCode = (int) ((w >>> WINNER_SHIFT) & 3);
+		Optional<UserId> winner = winnerCode == 1 ? cross : winnerCode == 2 ? circle : Optional.empty();
+		var obs = observers[page] != null ? observers[page][off] : null;
+		return Game.restore(gameId, board, state, cross, circle, turn, winner, state == GameState.FINISHED ? finishedAt(w) : 0,
+				obs != null ? new ArrayList<>(Arrays.asList(obs)) : new ArrayList<>());
+	}
+
+	/*
+	costruisce l'istantanea della partita memorizzata nella posizione indicata, uguale a quella pubblicata dalla partita ricreata
+	(stessa griglia, turno e versione: vedi Game.restore), senza creare la griglia, la partita né la lista degli osservatori
+	*/
+	private GameSnapshot snapshot(int slot, String gameId) {
+		int page = slot >>> PAGE_BITS;
+		int off = slot & PAGE_MASK;
+		long w = words[page][off];
+		int crossBits = (int) (w & CELLS_MASK);
+		int circleBits = (int) ((w >>> CIRCLE_SHIFT) & CELLS_MASK);
+		var cells = new char[9];
+		for (int i = 0; i < 9; i++) {
+			cells[i] = (crossBits & (1 << i)) != 0 ? 'X' : (circleBits & (1 << i)) != 0 ? 'O' : '-';
+		}
+		var state = GameState.values()[(int) ((w >>> STATE_SHIFT) & 3)];
+		int crossIndex = players[page][2 * off];
+		int circleIndex = players[page][2 * off + 1];
+		var cross = playerIds.get(crossIndex).map(UserId::id);
+		var circle = playerIds.get(circleIndex).map(UserId::id);
+		int turnCode = (int) ((w >>> TURN_SHIFT) & 3);
+		//come Game.getCurrentTurn: "X" se il turno è il riferimento del giocatore "croce" (anche senza turno e senza giocatori)
+		boolean crossTurn = turnCode == 1 || (turnCode == 2 && circleIndex == crossIndex) || (turnCode == 0 && crossIndex == 0);
+		int winnerCode = (int) ((w >>> WINNER_SHIFT) & 3);
+		long version = (crossIndex != 0 ? 1 : 0) + (circleIndex != 0 ? 1 : 0); //come Game.restore: la versione dipende solo dallo stato
+		if (state != GameState.WAITING_FOR_PLAYERS) {
+			version += (state == GameState.FINISHED ? 2 : 1) + Integer.bitCount(crossBits | circleBits);
+		}
+		return new GameSnapshot(gameId, new String(cells), 3, 3, 3, state, cross, circle, crossTurn ? "X" : "O",
+				winnerCode == 1 ? cross : winnerCode == 2 ? circle : Optional.empty(), state == GameState.FINISHED ? finishedAt(w) : 0, version);
+	}
+
+	//scrive lo stato della partita nella posizione indicata
+	private void write(int slot, Game game) {
+		int page = slot >>> PAGE_BITS;
+		int off = slot & PAGE_MASK;
+		var board = (BitboardGameBoard) game.getBoard();
+		var cross = game.getPlayerCross();
+		int winnerCode = game.getWinner().isEmpty() ? 0 : game.getWinner().equals(cross) ? 1 : 2;
+		long finished = game.isFinished() ? Math.min(Math.max(game.getFinishedAt() - EPOCH, 0), FINISHED_MASK) : 0;
+		words[page][off] = board.getCrossBits()
+				| ((long) board.getCircleBits() << CIRCLE_SHIFT)
+				| ((long) game.getState().ordinal() << STATE_SHIFT)
+				| ((long) game.getTurn().map(s -> s == TTTSymbol.X ? 1 : 2).orElse(0) << TURN_SHIFT)
+				| ((long) winnerCode << WINNER_SHIFT)
+				| (finished << FINISHED_SHIFT);
+		int crossIndex = intern(cross); //prima i nuovi riferimenti, poi il rilascio dei vecchi (un giocatore invariato non viene dimenticato)
+		int circleIndex = intern(game.getPlayerCircle());
+		release(players[page][2 * off]);
+		release(players[page][2 * off + 1]);
+		players[page][2 * off] = crossIndex;
+		players[page][2 * off + 1] = circleIndex;
+		setObservers(slot, game.getObservers().isEmpty() ? NO_OBSERVERS : game.getObservers().toArray(NO_OBSERVERS));
+	}
+
+	//memorizza gli osservatori di una partita (allocando la pagina solo per il primo osservatore)
+	private void setObservers(int slot, GameObserver[] obs) {
+		int page = slot >>> PAGE_BITS;
+		if (observers[page] == null) {
+			if (obs.length == 0) {
+				return;
+			}
+			observers[page] = new GameObserver[PAGE_SIZE][];
+		}
+		observers[page][slot & PAGE_MASK] = obs.length == 0 ? null : obs;
+	}
+
+	//recupera l'indice (internato) di un giocatore, aggiungendo un riferimento
+	private int intern(Optional<UserId> player) {
+		if (player.isEmpty()) {
+			return 0;
+		}
+		var index = playerIndex.get(player.get().id());
+		if (index == null) {
+			if (freePlayerCount > 0) { //riusa l'indice di un utente dimenticato
+				index = freePlayers[--freePlayerCount];
+				playerIds.set(index, player);
+			} else {
+				index = playerIds.size();
+				playerIds.add(player);
+				if (index == playerRefs.length) {
+					playerRefs = Arrays.copyOf(playerRefs, index * 2);
+				}
+			}
+			playerIndex.put(player.get().id(), index);
+		}
+		playerRefs[index]++;
+		return index;
+	}
+
+	//rilascia un riferimento ad un giocatore internato: l'utente non più referenziato viene dimenticato e il suo indice riusato
+	private void release(int index) {
+		if (index == 0 || --playerRefs[index] > 0) {
+			return;
+		}
+		playerIndex.remove(playerIds.get(index).get().id());
+		playerIds.set(index, null);
+		if (freePlayerCount == freePlayers.length) {
+			freePlayers = Arrays.copyOf(freePlayers, freePlayerCount * 2);
+		}
+		freePlayers[freePlayerCount++] = index;
+	}
+
+	//recupera il numero di utenti internati (referenziati da almeno una partita memorizzata in forma compatta)
+	public int getInternedPlayers() {
+		lock.readLock().lock();
+		try {
+			return playerIndex.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private static Optional<TTTSymbol> symbol(int code) {
+		return code == 1 ? Optional.of(TTTSymbol.X) : code == 2 ? Optional.of(TTTSymbol.O) : Optional.empty();
+	}
+
+	private static long finishedAt(long w) {
+		return (w >>> FINISHED_SHIFT) + EPOCH;
+	}
+
+	//recupera la posizione della partita (-1 se non è memorizzata in forma compatta)
+	private int slotOf(String gameId) {
+		int idx = find(gameId.getBytes(StandardCharsets.UTF_8), hash(gameId));
+		return idx < 0 ? -1 : table[idx] - 1;
+	}
+
+	private static int hash(String gameId) {
+		int h = gameId.hashCode() * 0x9E3779B9; //distribuisce anche gli id con hash simili
+		return h ^ (h >>> 16);
+	}
+
+	//cerca l'id nella tabella hash e restituisce l'indice della cella (-1 se assente)
+	private int find(byte[] key, int h) {
+		int mask = table.length - 1;
+		for (int i = h & mask; ; i = (i + 1) & mask) {
+			int e = table[i];
+			if (e == EMPTY) {
+				return -1;
+			}
+			if (e != TOMBSTONE) {
+				int slot = e - 1;
+				if (hashes[slot >>> PAGE_BITS][slot & PAGE_MASK] == h && idEquals(slot, key)) {
+					return i;
+				}
+			}
+		}
+	}
+
+	//alloca una posizione per un nuovo id e la inserisce nella tabella hash
+	private int insert(byte[] key, int h) {
+		if ((tableFilled + 1) * 2 > table.length) { //mantiene il fattore di carico sotto il 50%
+			rehash();
+		}
+		int slot = allocateSlot();
+		idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK] = writeId(key);
+		hashes[slot >>> PAGE_BITS][slot & PAGE_MASK] = h;
+		int mask = table.length - 1;
+		int i = h & mask;
+		while (table[i] != EMPTY && table[i] != TOMBSTONE) {
+			i = (i + 1) & mask;
+		}
+		if (table[i] == EMPTY) {
+			tableFilled++;
+		}
+		table[i] = slot + 1;
+		liveCount++;
+		return slot;
+	}
+
+	//ricostruisce la tabella hash (raddoppiandola se necessario ed eliminando le celle rimosse)
+	private void rehash() {
+		int capacity = table.length;
+		while (liveCount * 4 >= capacity) {
+			capacity *= 2;
+		}
+		table = new int[capacity];
+		tableFilled = 0;
+		int mask = capacity - 1;
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK] < 0) {
+				continue;
+			}
+			int i = hashes[slot >>> PAGE_BITS][slot & PAGE_MASK] & mask;
+			while (table[i] != EMPTY) {
+				i = (i + 1) & mask;
+			}
+			table[i] = slot + 1;
+			tableFilled++;
+		}
+	}
+
+	//alloca una posizione (riusando quelle liberate, altrimenti in coda aggiungendo pagine se necessario)
+	private int allocateSlot() {
+		if (freeCount > 0) {
+			return freeSlots[--freeCount];
+		}
+		int slot = slotCount++;
+		int page = slot >>> PAGE_BITS;
+		if (page == words.length) { //aggiunge una pagina
+			words = Arrays.copyOf(words, page + 1);
+			players = Arrays.copyOf(players, page + 1);
+			idRefs = Arrays.copyOf(idRefs, page + 1);
+			hashes = Arrays.copyOf(hashes, page + 1);
+			observers = Arrays.copyOf(observers, page + 1); //la pagina degli osservatori viene allocata solo quando serve
+			words[page] = new long[PAGE_SIZE];
+			players[page] = new int[2 * PAGE_SIZE];
+			idRefs[page] = new long[PAGE_SIZE];
+			hashes[page] = new int[PAGE_SIZE];
+			Arrays.fill(idRefs[page], -1);
+		}
+		return slot;
+	}
+
+	//scrive un id nell'arena e ne restituisce la posizione
+	private long writeId(byte[] key) {
+		if (arenaPos + 1 + key.length > ARENA_PAGE_SIZE) { //se l'id non entra nella pagina corrente
+			arena = Arrays.copyOf(arena, arena.length + 1);
+			arena[arena.length - 1] = new byte[ARENA_PAGE_SIZE];
+			arenaPos = 0;
+		}
+		var page = arena[arena.length - 1];
+		long ref = (long) (arena.length - 1) * ARENA_PAGE_SIZE + arenaPos;
+		page[arenaPos] = (byte) key.length;
+		System.arraycopy(key, 0, page, arenaPos + 1, key.length);
+		arenaPos += 1 + key.length;
+		arenaUsed += 1 + key.length;
+		return ref;
+	}
+
+	private int idLength(long ref) {
+		return arena[(int) (ref / ARENA_PAGE_SIZE)][(int) (ref % ARENA_PAGE_SIZE)] & 0xFF;
+	}
+
+	//confronta l'id memorizzato nella posizione con quello cercato
+	private boolean idEquals(int slot, byte[] key) {
+		long ref = idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK];
+		var page = arena[(int) (ref / ARENA_PAGE_SIZE)];
+		int pos = (int) (ref % ARENA_PAGE_SIZE);
+		return (page[pos] & 0xFF) == key.length && Arrays.equals(page, pos + 1, pos + 1 + key.length, key, 0, key.length);
+	}
+
+	//legge l'id memorizzato nella posizione
+	private String readId(int slot) {
+		long ref = idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK];
+		var page = arena[(int) (ref / ARENA_PAGE_SIZE)];
+		int pos = (int) (ref % ARENA_PAGE_SIZE);
+		return new String(page, pos + 1, page[pos] & 0xFF, StandardCharsets.UTF_8);
+	}
+
+	//ricopia gli id delle partite presenti in una nuova arena, liberando lo spazio di quelle rimosse
+	private void compactArena() {
+		var old = arena;
+		arena = new byte[][] {new byte[ARENA_PAGE_SIZE]};
+		arenaPos = 0;
+		arenaUsed = 0;
+		arenaDead = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			long ref = idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK];
+			if (ref < 0) {
+				continue;
+			}
+			var page = old[(int) (ref / ARENA_PAGE_SIZE)];
+			int pos = (int) (ref % ARENA_PAGE_SIZE);
+			idRefs[slot >>> PAGE_BITS][slot & PAGE_MASK] = writeId(Arrays.copyOfRange(page, pos + 1, pos + 1 + (page[pos] & 0xFF)));
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package distributed_ttt.game_service.infrastructure;
+
+import common.exagonal.Adapter;
+import distributed_ttt.game_service.application.GameEventChannel;
+import distributed_ttt.game_service.domain.GameEvent;
+import io.vertx.core.eventbus.EventBus;
+
+/*
+implementazione della porta di uscita che pubblica gli eventi delle partite sull'event bus
+ogni evento viene pubblicato una sola volta all'indirizzo "game/<gameId>", con il suo numero di sequenza, da cui ogni controller lo inoltra ai propri websocket iscritti
+*/
+@Adapter
+public class VertxGameEventChannel implements GameEventChannel {
+
+	private final EventBus eventBus; //event bus di vertx
+
+	public VertxGameEventChannel(EventBus eventBus) {
+		this.eventBus = eventBus;
+	}
+
+	//pubblica un evento sul topic della partita
+	public void publish(long seq, GameEvent event) {
+		eventBus.publish(GameEventTopics.address(event.gameId()), GameEventMessage.of(seq, event), GameEventMessageCodec.DELIVERY);
+	}
+}
@@ -1,12 +1,16 @@
 package distributed_ttt.lobby_service.application;
 
+import java.util.concurrent.CompletionStage;
 import common.exagonal.OutBoundPort;
 
-//interfaccia che contiene tutti i metodi che la lobby (ambiente pre-partita) può richiamare per interagire con il servizio degli account
+/*
+interfaccia che contiene tutti i metodi che la lobby (ambiente pre-partita) può richiamare per interagire con il servizio degli account
+i metodi sono asincroni: restituiscono subito e completano il risultato (o lo falliscono con l'eccezione indicata) alla risposta del servizio
+*/
 @OutBoundPort
 public interface AccountService  {
 
-	//verifica la validità della password
-	boolean isValidPassword(String userName, String password) throws UserNotFoundException, ServiceNotAvailableException;;
+	//verifica la validità della password (fallisce con UserNotFoundException o ServiceNotAvailableException)
+	CompletionStage<Boolean> isValidPassword(String userName, String password);
 
 }
@@ -1,15 +1,19 @@
 package distributed_ttt.lobby_service.application;
 
+import java.util.concurrent.CompletionStage;
 import common.exagonal.OutBoundPort;
 import distributed_ttt.lobby_service.domain.*;
 
-//interfaccia che contiene tutti i metodi che la lobby può richiamare per interagire con il servizio di gioco
+/*
+interfaccia che contiene tutti i metodi che la lobby può richiamare per interagire con il servizio di gioco
+i metodi sono asincroni: restituiscono subito e completano il risultato (o lo falliscono con l'eccezione indicata) alla risposta del servizio
+*/
 @OutBoundPort
 public interface GameService  {
 
-	//crea una nuova partita
-	void createNewGame(String gameId) throws GameAlreadyPresentException, CreateGameFailedException, ServiceNotAvailableException;
+	//crea una nuova partita (fallisce con GameAlreadyPresentException, CreateGameFailedException o ServiceNotAvailableException)
+	CompletionStage<Void> createNewGame(String gameId);
 
-	//fa entrare un utente in una partita
-	String joinGame(UserId userId, String gameId, TTTSymbol symbol) throws InvalidJoinGameException, JoinGameFailedException, ServiceNotAvailableException;
+	//fa entrare un utente in una partita e restituisce l'id della sessione giocatore (fallisce con InvalidJoinGameException, JoinGameFailedException o ServiceNotAvailableException)
+	CompletionStage<String> joinGame(UserId userId, String gameId, TTTSymbol symbol);
 }
@@ -1,18 +1,25 @@
 package distributed_ttt.lobby_service.application;
 
+import java.util.concurrent.CompletionStage;
 import common.exagonal.InBoundPort;
 import distributed_ttt.lobby_service.domain.TTTSymbol;
 
-//interfaccia che contiene tutti i metodi che il client può richiamare per interagire con la lobby
+/*
+interfaccia che contiene tutti i metodi che il client può richiamare per interagire con la lobby
+le operazioni che coinvolgono altri servizi sono asincrone (per non bloccare l'event loop del controller)
+*/
 @InBoundPort
 public interface LobbyService  {
 
-	//logga l'utente
-	String login(String userName, String password) throws LoginFailedException;
+	//logga l'utente e restituisce l'id della sessione (fallisce con LoginFailedException)
+	CompletionStage<String> login(String userName, String password);
 
-	//crea una nuova partita
-	void createNewGame(String sessionId, String gameId) throws CreateGameFailedException;
+	//crea una nuova partita (fallisce con CreateGameFailedException)
+	CompletionStage<Void> createNewGame(String sessionId, String gameId);
 
-	//fa entrare l'utente in una partita
-	String joinGame(String sessionId, String gameId, TTTSymbol symbol) throws JoinGameFailedException;
+	//fa entrare l'utente in una partita e restituisce l'id della sessione giocatore (fallisce con JoinGameFailedException)
+	CompletionStage<String> joinGame(String sessionId, String gameId, TTTSymbol symbol);
+
+	//rimuove le sessioni utente inattive e ne restituisce il numero
+	int expireIdleSessions();
 }
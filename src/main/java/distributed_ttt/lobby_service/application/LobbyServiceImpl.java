@@ -1,7 +1,12 @@
 package distributed_ttt.lobby_service.application;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import common.ids.IdGenerator;
+import common.ids.TimeNodeSequenceIdGenerator;
 import distributed_ttt.lobby_service.domain.*;
 
 //servizio di lobby
@@ -9,65 +14,84 @@ public class LobbyServiceImpl implements LobbyService {
 
 	static Logger logger = Logger.getLogger("[Lobby Service]");
     private UserSessions userSessionRepository; //repository delle sessioni degli utenti
-    private int sessionCount; //numero di sessioni utente
+    static final long IDLE_SESSION_TTL = 30 * 60_000; //tempo (in ms) dopo cui una sessione utente inattiva scade
+    private IdGenerator sessionIds; //generatore degli id delle sessioni (univoci anche tra più istanze del servizio)
     private AccountService accountService; //servizio di gestione account per la lobby
     private GameService gameService; //servizio di gestione partite per la lobby
     
     public LobbyServiceImpl(){
+    	this(0);
+    }
+
+	//crea un'istanza del servizio identificata da nodeId
+    public LobbyServiceImpl(int nodeId){
+    	this(new TimeNodeSequenceIdGenerator(nodeId));
+    }
+
+	//crea un'istanza del servizio con un generatore di id specifico
+    public LobbyServiceImpl(IdGenerator sessionIds){
     	userSessionRepository = new UserSessions();
-    	sessionCount = 0;
+    	this.sessionIds = sessionIds;
     }
 
 	//esegue il login di un utente al servizio di lobby
 	@Override
-	public String login(String userName, String password) throws LoginFailedException {
+	public CompletionStage<String> login(String userName, String password) {
 		logger.log(Level.INFO, "Login: " + userName + " " + password);
-		try {
-			if (!accountService.isValidPassword(userName, password)) { //se i dati non sono corretti
-				throw new LoginFailedException(); //lancia un'eccezione
-			}			
+		return accountService.isValidPassword(userName, password).handle((valid, ex) -> { //alla risposta del servizio degli account
+			if (ex != null || !valid) { //se i dati non sono corretti (o il servizio non è disponibile)
+				throw new CompletionException(new LoginFailedException()); //fallisce il login
+			}
 			var id = new UserId(userName); //crea l'utente
-			sessionCount++; //incrementa il numero di sessioni utente
-			var sessionId = "user-session-" + sessionCount; //crea un id per la sessione
+			var sessionId = sessionIds.nextId(UserSessions.ID_PREFIX); //crea un id per la sessione
 			var us = new UserSession(sessionId, id, this); //crea la sessione
 			userSessionRepository.addSession(us); //aggiunge la sessione
 			return us.getSessionId(); //restituisce la sessione creata
-		} catch (UserNotFoundException | ServiceNotAvailableException ex) {
-			throw new LoginFailedException();
-		}
+		});
     }
 
 	//crea una nuova partita
 	@Override
-	public void createNewGame(String sessionId, String gameId) throws CreateGameFailedException {
+	public CompletionStage<Void> createNewGame(String sessionId, String gameId) {
 		logger.log(Level.INFO, "create new game " + sessionId + " " + gameId);
-		try {			
-			if (userSessionRepository.isPresent(sessionId)) { //se la sessione dell'utente esiste
-				gameService.createNewGame(gameId); //crea una partita
-			} else { //altrimenti
-				throw new CreateGameFailedException(); //lancia un'eccezione
-			}
-		} catch (ServiceNotAvailableException | GameAlreadyPresentException ex) {
-			throw new CreateGameFailedException();
+		if (!userSessionRepository.isPresent(sessionId)) { //se la sessione dell'utente non esiste
+			return CompletableFuture.failedFuture(new CreateGameFailedException()); //fallisce subito
 		}
+		return gameService.createNewGame(gameId).handle((res, ex) -> { //crea una partita
+			if (ex != null) { //se il servizio di gioco ha rifiutato la richiesta (o non è disponibile)
+				throw new CompletionException(new CreateGameFailedException());
+			}
+			return res;
+		});
     }
 
 	//fa entrare un utente in una partita
 	@Override
-	public String joinGame(String sessionId, String gameId, TTTSymbol symbol) throws JoinGameFailedException  {
+	public CompletionStage<String> joinGame(String sessionId, String gameId, TTTSymbol symbol) {
 		logger.log(Level.INFO, "join game " + sessionId + " " + gameId);
-		try {			
-			if (userSessionRepository.isPresent(sessionId)) { //se la sessione dell'utente esiste
-				var us = userSessionRepository.getSession(sessionId); //recupera la sessione
-				return gameService.joinGame(us.getUserId(), gameId, symbol); //fa entrare l'utente nella partita indicata
-			} else { //altrimenti
-				throw new InvalidJoinGameException(); //lancia un'eccezione
-			}
-		} catch (InvalidJoinGameException | ServiceNotAvailableException ex) {
-			throw new JoinGameFailedException();
+		var us = userSessionRepository.getSession(sessionId); //recupera la sessione
+		if (us == null) { //se la sessione dell'utente non esiste
+			return CompletableFuture.failedFuture(new JoinGameFailedException()); //fallisce subito
 		}
+		return gameService.joinGame(us.getUserId(), gameId, symbol).handle((playerSessionId, ex) -> { //fa entrare l'utente nella partita indicata
+			if (ex != null) { //se il servizio di gioco ha rifiutato la richiesta (o non è disponibile)
+				throw new CompletionException(new JoinGameFailedException());
+			}
+			return playerSessionId; //restituisce l'id della sessione del giocatore
+		});
     }
 
+	//rimuove le sessioni utente inattive e ne restituisce il numero
+	@Override
+	public int expireIdleSessions() {
+		long idleSince = System.currentTimeMillis() - IDLE_SESSION_TTL;
+		int expired = userSessionRepository.removeSessions(us -> us.getLastAccess() < idleSince);
+		if (expired > 0) {
+			logger.log(Level.INFO, "expired " + expired + " user sessions");
+		}
+		return expired;
+	}
+
 	//definisce un servizio di gestione account
 	public void bindAccountService(AccountService service) {
 		this.accountService = service;
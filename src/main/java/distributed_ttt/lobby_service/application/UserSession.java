@@ -8,11 +8,13 @@ public class UserSession {
 	private String sessionId;
 	private UserId userId;
 	private LobbyService lobbyService;
+	private volatile long lastAccess; //istante dell'ultimo accesso alla sessione
 
 	public UserSession(String sessionId, UserId userId, LobbyService lobby) {
 		this.userId = userId;
 		this.lobbyService = lobby;
 		this.sessionId = sessionId;
+		this.lastAccess = System.currentTimeMillis();
 	}
 
 	public String getSessionId() {
@@ -23,4 +25,14 @@ public class UserSession {
 		return userId;
 	}
 
+	//aggiorna l'istante dell'ultimo accesso alla sessione
+	public void touch() {
+		lastAccess = System.currentTimeMillis();
+	}
+
+	//recupera l'istante dell'ultimo accesso alla sessione
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
 }
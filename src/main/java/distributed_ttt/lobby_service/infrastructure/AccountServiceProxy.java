@@ -1,13 +1,9 @@
 package distributed_ttt.lobby_service.infrastructure;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpRequest.BodyPublishers;
+import java.util.concurrent.CompletionStage;
 import common.exagonal.Adapter;
 import distributed_ttt.lobby_service.application.AccountService;
-import distributed_ttt.lobby_service.application.ServiceNotAvailableException;
-import java.net.http.HttpResponse;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 
 /*
@@ -15,45 +11,33 @@ implementazione della porta di uscita che collega il sevizio lobby con il serviz
 è chiamato "proxy" perchè svolge due ruoli:
 1) implementa una porta di uscita
 2) fa da intermediario tra due componenti/servizi del sistema
+le richieste sono non bloccanti e condividono il pool di connessioni verso il servizio degli account
 */
 @Adapter
 public class AccountServiceProxy implements AccountService {
 
-	private String serviceURI; //link del servizio account
+	private ServiceClient client; //client http del servizio account
 	
-	public AccountServiceProxy(String serviceAPIEndpoint)  {
-		this.serviceURI = serviceAPIEndpoint;		
+	public AccountServiceProxy(Vertx vertx, String serviceAPIEndpoint)  {
+		this(vertx, serviceAPIEndpoint, ServiceClientConfig.DEFAULT, ResilienceConfig.DEFAULT);
+	}
+
+	public AccountServiceProxy(Vertx vertx, String serviceAPIEndpoint, ServiceClientConfig config, ResilienceConfig resilience)  {
+		this.client = new ServiceClient(vertx, serviceAPIEndpoint, config, resilience);
+	}
+
+	//recupera il guard del servizio (per le metriche)
+	public ServiceGuard getGuard() {
+		return client.getGuard();
 	}
 
 	//verifica la validità della password
 	@Override
-	public boolean isValidPassword(String userName, String password) throws ServiceNotAvailableException {
-		try {
-			HttpClient client = HttpClient.newHttpClient(); //crea un client http
-			JsonObject body = new JsonObject(); //crea un oggetto json di richiesta
-			body.put("password", password); //popola l'oggetto con la password
-			String isValidReq = serviceURI + "/api/v1/accounts/" + userName + "/check-pwd"; //costruisce il link della richiesta al servizio account
-			HttpRequest request = HttpRequest.newBuilder() //costruisce la richiesta specificando:
-					.uri(URI.create(isValidReq)) //link
-					.header("Accept", "application/json") //tipo di risposta attesa
-					.POST(BodyPublishers.ofString(body.toString())) //tipo di richiesta
-					.build();
-			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString()); //invia la richiesta al servizio account
-			System.out.println("Response Code: " + response.statusCode());
-			if (response.statusCode() == 200) { //se il codice di risposta è "200"
-				JsonObject json = new JsonObject(response.body()); //legge il messaggio di risposta
-				var res = json.getString("result"); //estrae il valore del campo "result"
-				if (res.equals("valid-password")) { //se il valore è "valid-password"
-					return true; //restituisce "true"
-				} else { //altrimenti
-					return false; //restituisce "false"
-				}
-			} else { //altrimenti
-				System.out.println("POST request failed: " + response.body());
-				return false; //restituisce "false"
-			}
-		} catch (Exception ex) {
-			throw new ServiceNotAvailableException();
-		}
+	public CompletionStage<Boolean> isValidPassword(String userName, String password) {
+		JsonObject body = new JsonObject(); //crea un oggetto json di richiesta
+		body.put("password", password); //popola l'oggetto con la password
+		return client.post("/api/v1/accounts/" + userName + "/check-pwd", body, true) //invia la richiesta al servizio account
+				.map(json -> json.getString("result").equals("valid-password")) //la password è valida se il campo "result" vale "valid-password"
+				.toCompletionStage();
 	}
 }
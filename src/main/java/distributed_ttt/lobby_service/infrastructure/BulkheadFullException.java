@@ -0,0 +1,8 @@
+package distributed_ttt.lobby_service.infrastructure;
+
+import distributed_ttt.lobby_service.application.ServiceNotAvailableException;
+
+//chiamata rifiutata perchè il numero massimo di chiamate contemporanee verso il servizio è stato raggiunto
+public class BulkheadFullException extends ServiceNotAvailableException {
+
+}
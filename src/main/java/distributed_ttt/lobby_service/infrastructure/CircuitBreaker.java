@@ -0,0 +1,98 @@
+package distributed_ttt.lobby_service.infrastructure;
+
+/*
+circuit breaker di un servizio a valle
+- chiuso: le chiamate passano e il loro esito viene registrato in una finestra scorrevole delle ultime chiamate
+- aperto: le chiamate vengono rifiutate subito (senza contattare il servizio) fino allo scadere del tempo di apertura
+- semi-aperto: passa un numero limitato di chiamate di prova; se riescono tutte si richiude, altrimenti si riapre
+*/
+public class CircuitBreaker {
+
+	public enum State {CLOSED, OPEN, HALF_OPEN} //stati del circuit breaker
+
+	private final ResilienceConfig config;
+	private final boolean[] failed; //finestra scorrevole: esito delle ultime chiamate
+	private final boolean[] slow; //finestra scorrevole: chiamate lente
+	private int pos; //prossima posizione della finestra
+	private int filled; //chiamate registrate nella finestra
+	private int failures; //chiamate fallite nella finestra
+	private int slowCalls; //chiamate lente nella finestra
+	private State state;
+	private long openedAt; //istante di apertura
+	private int halfOpenStarted; //chiamate di prova avviate
+	private int halfOpenSucceeded; //chiamate di prova riuscite
+
+	public CircuitBreaker(ResilienceConfig config) {
+		this.config = config;
+		this.failed = new boolean[config.windowSize()];
+		this.slow = new boolean[config.windowSize()];
+		this.state = State.CLOSED;
+	}
+
+	//verifica se una chiamata può passare (restituisce false se il circuito è aperto)
+	public synchronized boolean tryAcquire(long now) {
+		if (state == State.OPEN) {
+			if (now - openedAt < config.openMillis()) {
+				return false;
+			}
+			state = State.HALF_OPEN; //scaduto il tempo di apertura, prova a richiudere
+			halfOpenStarted = 0;
+			halfOpenSucceeded = 0;
+		}
+		if (state == State.HALF_OPEN) {
+			if (halfOpenStarted >= config.halfOpenCalls()) {
+				return false;
+			}
+			halfOpenStarted++;
+		}
+		return true;
+	}
+
+	//registra l'esito di una chiamata
+	public synchronized void onResult(boolean failure, long millis, long now) {
+		boolean isSlow = millis >= config.slowCallMillis();
+		if (state == State.HALF_OPEN) {
+			if (failure || isSlow) { //una chiamata di prova non riuscita riapre il circuito
+				open(now);
+			} else if (++halfOpenSucceeded >= config.halfOpenCalls()) { //tutte le chiamate di prova sono riuscite
+				close();
+			}
+			return;
+		}
+		if (state == State.OPEN) { //esito di una chiamata avviata prima dell'apertura
+			return;
+		}
+		if (filled == failed.length) { //la finestra è piena: esce la chiamata più vecchia
+			failures -= failed[pos] ? 1 : 0;
+			slowCalls -= slow[pos] ? 1 : 0;
+		} else {
+			filled++;
+		}
+		failed[pos] = failure;
+		slow[pos] = isSlow;
+		failures += failure ? 1 : 0;
+		slowCalls += isSlow ? 1 : 0;
+		pos = (pos + 1) % failed.length;
+		if (filled >= config.minCalls() && (failures >= config.failureRateThreshold() * filled || slowCalls >= config.slowCallRateThreshold() * filled)) {
+			open(now);
+		}
+	}
+
+	//recupera lo stato del circuit breaker
+	public synchronized State getState() {
+		return state;
+	}
+
+	private void open(long now) {
+		state = State.OPEN;
+		openedAt = now;
+	}
+
+	private void close() {
+		state = State.CLOSED;
+		pos = 0;
+		filled = 0;
+		failures = 0;
+		slowCalls = 0;
+	}
+}
@@ -0,0 +1,8 @@
+package distributed_ttt.lobby_service.infrastructure;
+
+import distributed_ttt.lobby_service.application.ServiceNotAvailableException;
+
+//chiamata rifiutata perchè il circuit breaker del servizio è aperto
+public class CircuitOpenException extends ServiceNotAvailableException {
+
+}
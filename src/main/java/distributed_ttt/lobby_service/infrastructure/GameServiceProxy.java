@@ -1,19 +1,16 @@
 package distributed_ttt.lobby_service.infrastructure;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpRequest.BodyPublishers;
+import java.util.concurrent.CompletionStage;
 import common.exagonal.Adapter;
 import distributed_ttt.lobby_service.application.CreateGameFailedException;
 import distributed_ttt.lobby_service.application.GameAlreadyPresentException;
 import distributed_ttt.lobby_service.application.GameService;
 import distributed_ttt.lobby_service.application.InvalidJoinGameException;
 import distributed_ttt.lobby_service.application.JoinGameFailedException;
-import distributed_ttt.lobby_service.application.ServiceNotAvailableException;
 import distributed_ttt.lobby_service.domain.TTTSymbol;
 import distributed_ttt.lobby_service.domain.UserId;
-import java.net.http.HttpResponse;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 
 /*
@@ -21,84 +18,58 @@ implementazione della porta di uscita che collega il sevizio lobby con il serviz
 è chiamato "proxy" perchè svolge due ruoli:
 1) implementa una porta di uscita
 2) fa da intermediario tra due componenti/servizi del sistema
+le richieste sono non bloccanti e condividono il pool di connessioni verso il servizio di gioco
 */
 @Adapter
 public class GameServiceProxy implements GameService {
 
-	private String serviceURI; //url del servizio di gioco
+	private ServiceClient client; //client http del servizio di gioco
 	
-	public GameServiceProxy(String serviceAPIEndpoint)  {
-		this.serviceURI = serviceAPIEndpoint;		
+	public GameServiceProxy(Vertx vertx, String serviceAPIEndpoint)  {
+		this(vertx, serviceAPIEndpoint, ServiceClientConfig.DEFAULT, ResilienceConfig.DEFAULT);
+	}
+
+	public GameServiceProxy(Vertx vertx, String serviceAPIEndpoint, ServiceClientConfig config, ResilienceConfig resilience)  {
+		this.client = new ServiceClient(vertx, serviceAPIEndpoint, config, resilience);
+	}
+
+	//recupera il guard del servizio (per le metriche)
+	public ServiceGuard getGuard() {
+		return client.getGuard();
 	}
 
     //cera una nuova partita
 	@Override
-	public void createNewGame(String gameId) throws GameAlreadyPresentException, CreateGameFailedException, ServiceNotAvailableException {
-        try {
-            HttpClient client = HttpClient.newHttpClient(); //crea un client http
-            JsonObject body = new JsonObject(); //crea un oggetto json di richiesta
-            body.put("gameId", gameId); //popola l'oggetto con l'id della partita
-            String gameResEndpoint = serviceURI + "/api/v1/games"; //costruisce il link della richiesta al servizio di gioco
-            HttpRequest request = HttpRequest.newBuilder() //costruisce la richiesta specificando:
-                    .uri(URI.create(gameResEndpoint)) //link
-                    .header("Accept", "application/json") //tipo di risposta attesa
-                    .POST(BodyPublishers.ofString(body.toString())) //tipo di richiesta
-                    .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString()); //invia la richiesta al servizio di gioco
-            System.out.println("Response Code: " + response.statusCode());
-            if (response.statusCode() == 200) { //se il codice di risposta è "200"
-                JsonObject json = new JsonObject(response.body()); //legge il messaggio di risposta
-                var res = json.getString("result"); //estrae il valore del campo "result"
-                if (res.equals("error")) { //se il valore è "error"
-                    var err = json.getString("error"); //estrae il valore del campo "error"
-                    if (err.equals("game-already-present")) { //se il valore è "game-already-present"
-                        throw new GameAlreadyPresentException(); //lancia un'eccezione
-                    } else { //altrimenti
-                        throw new CreateGameFailedException(); //lancia un'eccezione (diversa)
+	public CompletionStage<Void> createNewGame(String gameId) {
+        JsonObject body = new JsonObject(); //crea un oggetto json di richiesta
+        body.put("gameId", gameId); //popola l'oggetto con l'id della partita
+        return client.post("/api/v1/games", body, false) //invia la richiesta al servizio di gioco
+                .compose(json -> {
+                    if (json.getString("result").equals("error")) { //se il valore del campo "result" è "error"
+                        return Future.<Void>failedFuture(json.getString("error").equals("game-already-present") ? new GameAlreadyPresentException() : new CreateGameFailedException());
                     }
-                }
-            } else { //altrimenti
-                System.out.println("POST request failed: " + response.body());
-                throw new ServiceNotAvailableException(); //lancia un'eccezione
-            }
-        } catch (Exception ex) {
-            throw new ServiceNotAvailableException();
-        }
+                    return Future.<Void>succeededFuture();
+                })
+                .toCompletionStage();
 	}
 	
     //fa entrare un utente in una partita
 	@Override
-	public String joinGame(UserId userId, String gameId, TTTSymbol symbol) throws InvalidJoinGameException, JoinGameFailedException, ServiceNotAvailableException {
-        try {
-            HttpClient client = HttpClient.newHttpClient(); //crea un client http
-            JsonObject body = new JsonObject(); //crea un oggetto json di richiesta
-            body.put("userId", userId.id()); //popola l'oggetto con l'id dell'utente
-            body.put("symbol", symbol.equals(TTTSymbol.X) ? "X" : "O"); //popola l'oggetto con il simbolo del giocatore
-            String joinGameEndpoint = serviceURI + "/api/v1/games/" + gameId + "/join"; //costruisce il link della richiesta al servizio di gioco
-            HttpRequest request = HttpRequest.newBuilder() //costruisce la richiesta specificando:
-                    .uri(URI.create(joinGameEndpoint)) //link
-                    .header("Accept", "application/json") //tipo di risposta attesa
-                    .POST(BodyPublishers.ofString(body.toString())) //tipo di richiesta
-                    .build();
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString()); //invia la richiesta al servizio account
-            System.out.println("Response Code: " + response.statusCode());
-            if (response.statusCode() == 200) { //se il codice di risposta è "200"
-                JsonObject json = new JsonObject(response.body()); //legge il messaggio di risposta
-                var res = json.getString("result"); //estrae il valore del campo "result"
-                if (res.equals("ok")) { //se il valore è "ok"
-                    var playerSessionId = json.getString("playerSessionId"); //recupera l'id della sessione del giocatore
-                    return playerSessionId; //restituisce l'id della sessione del giocatore
-                } else if (res.equals("error")) { //altrimenti se il valore è "error"
-                    throw new InvalidJoinGameException(); //lancia un'eccezione
-                } else { //altrimenti
-                    throw new JoinGameFailedException(); //lancia un'eccezione (diversa)
-                }
-            } else { //altrimenti
-                System.out.println("POST request failed: " + response.body());
-                throw new ServiceNotAvailableException(); //lancia un'eccezione
-            }
-        } catch (Exception ex) {
-            throw new ServiceNotAvailableException();
-        }
+	public CompletionStage<String> joinGame(UserId userId, String gameId, TTTSymbol symbol) {
+        JsonObject body = new JsonObject(); //crea un oggetto json di richiesta
+        body.put("userId", userId.id()); //popola l'oggetto con l'id dell'utente
+        body.put("symbol", symbol.equals(TTTSymbol.X) ? "X" : "O"); //popola l'oggetto con il simbolo del giocatore
+        return client.post("/api/v1/games/" + gameId + "/join", body, false) //invia la richiesta al servizio di gioco
+                .compose(json -> {
+                    var res = json.getString("result"); //estrae il valore del campo "result"
+                    if (res.equals("ok")) { //se il valore è "ok"
+                        return Future.succeededFuture(json.getString("playerSessionId")); //restituisce l'id della sessione del giocatore
+                    } else if (res.equals("error")) { //altrimenti se il valore è "error"
+                        return Future.<String>failedFuture(new InvalidJoinGameException());
+                    } else {
+                        return Future.<String>failedFuture(new JoinGameFailedException());
+                    }
+                })
+                .toCompletionStage();
     }
 }
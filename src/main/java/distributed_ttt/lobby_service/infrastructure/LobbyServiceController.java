@@ -1,5 +1,7 @@
 package distributed_ttt.lobby_service.infrastructure;
 
+import java.util.List;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import distributed_ttt.lobby_service.application.LobbyService;
@@ -26,13 +28,21 @@ public class LobbyServiceController extends VerticleBase  {
     static final String USER_SESSIONS_RESOURCE_PATH = 	"/api/" + API_VERSION + "/lobby/user-sessions"; //rotta per recuperare le informazioni della sessione utente
     static final String CREATE_GAME_RESOURCE_PATH = 	"/api/" + API_VERSION + "/lobby/user-sessions/:sessionId/create-game"; //rotta per creare una partita
     static final String JOIN_GAME_RESOURCE_PATH = 		"/api/" + API_VERSION + "/lobby/user-sessions/:sessionId/join-game"; //rotta per entrare in una partita
+    static final String DOWNSTREAMS_RESOURCE_PATH = 	"/api/" + API_VERSION + "/lobby/downstreams"; //rotta per recuperare le metriche dei servizi a valle (circuit breaker e rifiuti)
     static final String GAME_SERVICE_PATH = 	"/api/v1/games";  //rotte della partita (gestita dal servizio di gestione del flusso di gioco)
+    static final long EVICTION_PERIOD = 10_000; //intervallo (in ms) tra due passaggi di pulizia delle sessioni inattive
     private String gameServiceAddress; //indirizzo del servizio di gioco
     private String gameServiceURI; //uri del servizio di gioco
     private LobbyService lobbyService; //servizio di lobby
+    private List<ServiceGuard> downstreams; //guard dei servizi a valle (per le metriche)
 
     public LobbyServiceController(LobbyService service, int port, String gameServiceAddress) {
+        this(service, port, gameServiceAddress, List.of());
+    }
+
+    public LobbyServiceController(LobbyService service, int port, String gameServiceAddress, List<ServiceGuard> downstreams) {
         this.port = port;
+        this.downstreams = downstreams;
         this.gameServiceAddress = gameServiceAddress;
         this.gameServiceURI = gameServiceAddress + GAME_SERVICE_PATH;
         logger.setLevel(Level.INFO);
@@ -49,7 +59,10 @@ public class LobbyServiceController extends VerticleBase  {
         router.route(HttpMethod.POST, CREATE_GAME_RESOURCE_PATH).handler(this::createGame); //associa alla rotta per creare una partita il relativo metodo
         router.route(HttpMethod.POST, JOIN_GAME_RESOURCE_PATH).handler(this::joinGame); //associa alla rotta per entrare in una partita il relativo metodo
 
+        router.route(HttpMethod.GET, DOWNSTREAMS_RESOURCE_PATH).handler(this::getDownstreams); //associa alla rotta delle metriche dei servizi a valle il relativo metodo
+
         router.route("/public/*").handler(StaticHandler.create()); //gestisce le richieste del client che iniziano con "public", relative all'aspetto della pagina web
+        vertx.setPeriodic(EVICTION_PERIOD, id -> lobbyService.expireIdleSessions()); //pianifica la pulizia periodica delle sessioni inattive
 
         var fut = server.requestHandler(router).listen(port); //avvia il server sulla porta specificata
         fut.onSuccess(res -> { //in caso di avvio con successo
@@ -68,23 +81,25 @@ public class LobbyServiceController extends VerticleBase  {
             var userName = userInfo.getString("userName"); //estrae il valore del campo "userName"
             var password = userInfo.getString("password"); //estrae il valore del campo "password"
             var reply = new JsonObject(); //crea un oggetto json di risposta al client
-            try {
-                var sessionId = lobbyService.login(userName, password); //esegue il login dell'utente
-                reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-                var createPath = CREATE_GAME_RESOURCE_PATH.replace(":sessionId", sessionId); //costruisce il link per creare una partita
-                var joinPath = JOIN_GAME_RESOURCE_PATH.replace(":sessionId", sessionId); //costruisce il link per entrare nella partita
-                reply.put("sessionId", sessionId); //popola l'oggetto con l'id della sessione utente (creata dal login)
-                reply.put("createGameLink", createPath); //popola l'oggetto con il link per creare una partita
-                reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per entrare nella partita
-                reply.put("sessionLink", USER_SESSIONS_RESOURCE_PATH + "/" + sessionId); //popola l'oggetto con il link per recuperare le informazioni della sessione utente
-                sendReply(context.response(), reply); //invia la risposta al client
-            } catch (LoginFailedException ex) {
-                reply.put("result", "login-failed"); //popola l'oggetto con un'informazione di errore
-                reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
-                sendReply(context.response(), reply); //invia la risposta al client
-            } catch (Exception ex1) {
-                sendError(context.response()); //invia un errore al client
-            }
+            Future.fromCompletionStage(lobbyService.login(userName, password), this.context).onComplete(ar -> { //esegue il login dell'utente (senza bloccare l'event loop)
+                if (ar.succeeded()) {
+                    var sessionId = ar.result(); //id della sessione utente (creata dal login)
+                    reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+                    var createPath = CREATE_GAME_RESOURCE_PATH.replace(":sessionId", sessionId); //costruisce il link per creare una partita
+                    var joinPath = JOIN_GAME_RESOURCE_PATH.replace(":sessionId", sessionId); //costruisce il link per entrare nella partita
+                    reply.put("sessionId", sessionId); //popola l'oggetto con l'id della sessione utente (creata dal login)
+                    reply.put("createGameLink", createPath); //popola l'oggetto con il link per creare una partita
+                    reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per entrare nella partita
+                    reply.put("sessionLink", USER_SESSIONS_RESOURCE_PATH + "/" + sessionId); //popola l'oggetto con il link per recuperare le informazioni della sessione utente
+                    sendReply(context.response(), reply); //invia la risposta al client
+                } else if (cause(ar.cause()) instanceof LoginFailedException ex) {
+                    reply.put("result", "login-failed"); //popola l'oggetto con un'informazione di errore
+                    reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
+                    sendReply(context.response(), reply); //invia la risposta al client
+                } else {
+                    sendError(context.response()); //invia un errore al client
+                }
+            });
         });
     }
 
@@ -96,18 +111,18 @@ public class LobbyServiceController extends VerticleBase  {
             String sessionId = context.pathParam("sessionId"); //estrae (dall'url) il valore del campo "sessionId"
             var gameId = userInfo.getString("gameId"); //estrae il valore del campo "gameId"
             var reply = new JsonObject(); //crea un oggetto json di risposta al client
-            try {
-                lobbyService.createNewGame(sessionId, gameId); //crea una partita
-                var joinPath = JOIN_GAME_RESOURCE_PATH.replace(":sessionId", sessionId); //costruisce il link per entrare nella partita
-                reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-                reply.put("gameLink", gameServiceURI + "/" + gameId); //popola l'oggetto con il link della partita
-                reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per entrare nella partita
-                sendReply(context.response(), reply); //invia la risposta al client
-            } catch (Exception ex) {
-                reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
-                reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
+            Future.fromCompletionStage(lobbyService.createNewGame(sessionId, gameId), this.context).onComplete(ar -> { //crea una partita
+                if (ar.succeeded()) {
+                    var joinPath = JOIN_GAME_RESOURCE_PATH.replace(":sessionId", sessionId); //costruisce il link per entrare nella partita
+                    reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+                    reply.put("gameLink", gameServiceURI + "/" + gameId); //popola l'oggetto con il link della partita
+                    reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per entrare nella partita
+                } else {
+                    reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+                    reply.put("error", cause(ar.cause()).getMessage()); //popola l'oggetto con la specifica dell'errore
+                }
                 sendReply(context.response(), reply); //invia la risposta al client
-            }
+            });
         });
     }
 
@@ -120,25 +135,49 @@ public class LobbyServiceController extends VerticleBase  {
             var gameId = userInfo.getString("gameId"); //estrae il valore del campo "userId"
             var symbol = userInfo.getString("symbol");	//estrae il valore del campo "symbol"
             var reply = new JsonObject(); //crea un oggetto json di risposta al client
-            try {
-                String playerSessionId = lobbyService.joinGame(sessionId, gameId, symbol.equals("X") ? TTTSymbol.X : TTTSymbol.O); //esegue il join dell'utente nella partita
-                reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-                reply.put("playerSessionId", playerSessionId); //popola l'oggetto con l'id della sessione giocatore
-                var movePath = gameServiceURI + "/" + gameId + "/" + playerSessionId + "/move"; //costruisce il link per eseguire la mossa di un giocatore (per capire come è costruito, guarda le rotte di "GameServiceController")
-                reply.put("moveLink", movePath); //popola l'oggetto con il link per eseguire la mossa
-                reply.put("gameLink", gameServiceURI + "/" + gameId); //popola l'oggetto con il link per recuperare le informazioni della partita
-                var sessionPath = gameServiceURI + "/" + gameId + "/" + playerSessionId; //costruisce il link della sessione giocatore
-                reply.put("playerSessionLink", sessionPath); //popola l'oggetto con il link della sessione giocatore
+            Future.fromCompletionStage(lobbyService.joinGame(sessionId, gameId, symbol.equals("X") ? TTTSymbol.X : TTTSymbol.O), this.context).onComplete(ar -> { //esegue il join dell'utente nella partita
+                if (ar.succeeded()) {
+                    String playerSessionId = ar.result(); //id della sessione giocatore
+                    reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+                    reply.put("playerSessionId", playerSessionId); //popola l'oggetto con l'id della sessione giocatore
+                    var movePath = gameServiceURI + "/" + gameId + "/" + playerSessionId + "/move"; //costruisce il link per eseguire la mossa di un giocatore (per capire come è costruito, guarda le rotte di "GameServiceController")
+                    reply.put("moveLink", movePath); //popola l'oggetto con il link per eseguire la mossa
+                    reply.put("gameLink", gameServiceURI + "/" + gameId); //popola l'oggetto con il link per recuperare le informazioni della partita
+                    var sessionPath = gameServiceURI + "/" + gameId + "/" + playerSessionId; //costruisce il link della sessione giocatore
+                    reply.put("playerSessionLink", sessionPath); //popola l'oggetto con il link della sessione giocatore
+                } else {
+                    reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+                    reply.put("error", cause(ar.cause()).getMessage()); //popola l'oggetto con la specifica dell'errore
+                }
                 sendReply(context.response(), reply); //invia la risposta al client
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
-                reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
-                sendReply(context.response(), reply); //invia la risposta al client
-            }
+            });
         });
     }
 
+    //recupera le metriche dei servizi a valle
+    protected void getDownstreams(RoutingContext context) {
+        var services = new JsonArray();
+        for (var guard : downstreams) {
+            var m = guard.getMetrics();
+            services.add(new JsonObject() //popola l'oggetto con lo stato del circuit breaker e i contatori delle chiamate
+                .put("service", m.service())
+                .put("circuitState", m.state().toString())
+                .put("inFlight", m.inFlight())
+                .put("calls", m.calls())
+                .put("failures", m.failures())
+                .put("retries", m.retries())
+                .put("hedges", m.hedges())
+                .put("rejectedByBulkhead", m.rejectedByBulkhead())
+                .put("rejectedByBreaker", m.rejectedByBreaker()));
+        }
+        sendReply(context.response(), new JsonObject().put("result", "ok").put("downstreams", services)); //invia la risposta al client
+    }
+
+    //recupera l'eccezione originale di un'operazione asincrona fallita
+    private static Throwable cause(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
     //invia la risposta al client
     private void sendReply(HttpServerResponse response, JsonObject reply) {
         response.putHeader("content-type", "application/json"); //imposta l’header del messaggio http come json
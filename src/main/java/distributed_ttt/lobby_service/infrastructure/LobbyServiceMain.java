@@ -1,9 +1,10 @@
 package distributed_ttt.lobby_service.infrastructure;
 
+import java.util.List;
 import distributed_ttt.lobby_service.application.*;
 import io.vertx.core.Vertx;
 
-//sever servizio di lobby
+//sever servizio di lobby (l'argomento opzionale è l'id del nodo, da specificare se si avviano più istanze del servizio)
 public class LobbyServiceMain {
 
     static final int LOBBY_SERVICE_PORT = 9001; //porta sul quale il server ascolta le richiesta http
@@ -12,13 +13,13 @@ public class LobbyServiceMain {
 
     public static void main(String[] args) {
 
-        var lobby = new LobbyServiceImpl(); //crea un'istanza del servizio di lobby
-        AccountService accountService =  new AccountServiceProxy(ACCOUNT_SERVICE_ADDRESS); //crea un'istanza del proxy degli account
+        var vertx = Vertx.vertx(); //crea un'istanza vertx per gestire le richieste http (e quelle verso gli altri servizi)
+        var lobby = new LobbyServiceImpl(args.length > 0 ? Integer.parseInt(args[0]) : 0); //crea un'istanza del servizio di lobby
+        var accountService =  new AccountServiceProxy(vertx, ACCOUNT_SERVICE_ADDRESS); //crea un'istanza del proxy degli account (con il proprio pool di connessioni e la propria protezione: bulkhead, circuit breaker, retry)
         lobby.bindAccountService(accountService); //associa l'istanza al servizio di lobby
-        GameService gameService = new GameServiceProxy(GAME_SERVICE_ADDRESS); //crea un'istanza del proxy di gioco
+        var gameService = new GameServiceProxy(vertx, GAME_SERVICE_ADDRESS); //crea un'istanza del proxy di gioco (con il proprio pool di connessioni e la propria protezione: bulkhead, circuit breaker, retry)
         lobby.bindGameService(gameService); //associa l'istanza al servizio di lobby
-        var vertx = Vertx.vertx(); //crea un'istanza vertx per gestire le richieste http
-        var server = new LobbyServiceController(lobby, LOBBY_SERVICE_PORT, GAME_SERVICE_ADDRESS); //crea un'istanza del controller
+        var server = new LobbyServiceController(lobby, LOBBY_SERVICE_PORT, GAME_SERVICE_ADDRESS, List.of(accountService.getGuard(), gameService.getGuard())); //crea un'istanza del controller
         vertx.deployVerticle(server); //avvia il server sulla porta specificata (esegue il metodo "start" del controller)
     }
 }
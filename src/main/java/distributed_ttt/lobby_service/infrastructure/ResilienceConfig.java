@@ -0,0 +1,18 @@
+package distributed_ttt.lobby_service.infrastructure;
+
+/*
+configurazione della resilienza delle chiamate verso un servizio a valle:
+- bulkhead: numero massimo di chiamate contemporanee (le successive vengono rifiutate subito)
+- circuit breaker: sulle ultime windowSize chiamate (almeno minCalls), si apre se la frazione di chiamate fallite
+  o lente (oltre slowCallMillis) supera la soglia; resta aperto per openMillis e poi lascia passare halfOpenCalls chiamate di prova
+- retry (solo per le chiamate idempotenti): al più maxRetries tentativi aggiuntivi, con attesa esponenziale a partire da retryBaseMillis e jitter
+- hedging (solo per le chiamate idempotenti): se la risposta non arriva entro hedgeAfterMillis invia una seconda richiesta
+  e usa la prima risposta ricevuta (0 per disabilitarlo)
+*/
+public record ResilienceConfig(int maxConcurrent, int windowSize, int minCalls, double failureRateThreshold,
+		long slowCallMillis, double slowCallRateThreshold, long openMillis, int halfOpenCalls,
+		int maxRetries, long retryBaseMillis, long hedgeAfterMillis) {
+
+	//configurazione predefinita
+	public static final ResilienceConfig DEFAULT = new ResilienceConfig(256, 100, 20, 0.5, 2_000, 0.8, 5_000, 5, 2, 50, 0);
+}
@@ -0,0 +1,78 @@
+package distributed_ttt.lobby_service.infrastructure;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClientAgent;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonObject;
+import distributed_ttt.lobby_service.application.ServiceNotAvailableException;
+
+/*
+client http non bloccante verso un servizio a valle, condiviso da tutte le richieste dirette a quel servizio:
+le connessioni vengono mantenute in un pool e riutilizzate (keep-alive), con HTTP/2 se il servizio lo supporta
+(altrimenti HTTP/1.1), e ogni chiamata ha un proprio timeout ed è protetta dal ServiceGuard del servizio
+*/
+public class ServiceClient {
+
+	private final String serviceURI; //url del servizio
+	private final HttpClientAgent client; //client http con il pool di connessioni
+	private final ServiceClientConfig config;
+	private final ServiceGuard guard; //bulkhead, circuit breaker, retry e hedging delle chiamate
+
+	public ServiceClient(Vertx vertx, String serviceURI, ServiceClientConfig config, ResilienceConfig resilience) {
+		this.serviceURI = serviceURI;
+		this.config = config;
+		this.guard = new ServiceGuard(vertx, serviceURI, resilience);
+		var options = new HttpClientOptions()
+				.setKeepAlive(true) //riutilizza le connessioni
+				.setKeepAliveTimeout(config.keepAliveTimeoutSeconds())
+				.setConnectTimeout(config.connectTimeoutMillis());
+		if (config.http2()) { //prova HTTP/2 (upgrade h2c), tornando a HTTP/1.1 se il servizio non lo supporta
+			options.setProtocolVersion(HttpVersion.HTTP_2).setHttp2ClearTextUpgrade(true);
+		}
+		var pool = new PoolOptions()
+				.setHttp1MaxSize(config.maxConnections())
+				.setHttp2MaxSize(Math.max(1, config.maxConnections() / 8)) //ogni connessione HTTP/2 multiplexa più richieste
+				.setMaxWaitQueueSize(config.maxWaitQueueSize());
+		this.client = vertx.createHttpClient(options, pool);
+	}
+
+	/*
+	invia una richiesta POST con un body json e restituisce il body json della risposta
+	fallisce con ServiceNotAvailableException se il servizio non risponde (entro il timeout) o risponde con un codice diverso da 200,
+	con BulkheadFullException o CircuitOpenException se la chiamata viene rifiutata senza contattare il servizio;
+	le chiamate idempotenti possono essere ripetute (retry) o duplicate (hedging)
+	*/
+	public Future<JsonObject> post(String path, JsonObject body, boolean idempotent) {
+		return guard.call(() -> send(path, body), idempotent);
+	}
+
+	//recupera il guard del servizio (per le metriche)
+	public ServiceGuard getGuard() {
+		return guard;
+	}
+
+	private Future<JsonObject> send(String path, JsonObject body) {
+		var request = new RequestOptions()
+				.setMethod(HttpMethod.POST)
+				.setAbsoluteURI(serviceURI + path)
+				.putHeader("Accept", "application/json") //tipo di risposta attesa
+				.putHeader("Content-Type", "application/json")
+				.setTimeout(config.requestTimeoutMillis()); //timeout della singola chiamata
+		return client.request(request)
+				.compose(req -> req.send(Buffer.buffer(body.toString()))) //invia la richiesta
+				.compose(res -> res.statusCode() == 200 ? res.body() : Future.failedFuture(new ServiceNotAvailableException())) //legge il body della risposta
+				.map(Buffer::toJsonObject)
+				.recover(ex -> Future.failedFuture(ex instanceof ServiceNotAvailableException ? ex : new ServiceNotAvailableException())); //ogni errore di comunicazione rende il servizio non disponibile
+	}
+
+	//chiude le connessioni del pool
+	public Future<Void> close() {
+		return client.close();
+	}
+}
@@ -0,0 +1,12 @@
+package distributed_ttt.lobby_service.infrastructure;
+
+/*
+configurazione del client http condiviso verso un servizio a valle:
+dimensione del pool di connessioni persistenti (keep-alive), uso di HTTP/2 (se il servizio lo supporta) e timeout
+*/
+public record ServiceClientConfig(int maxConnections, int maxWaitQueueSize, boolean http2, int connectTimeoutMillis,
+		long requestTimeoutMillis, int keepAliveTimeoutSeconds) {
+
+	//configurazione predefinita
+	public static final ServiceClientConfig DEFAULT = new ServiceClientConfig(32, 1024, true, 2_000, 5_000, 60);
+}
@@ -0,0 +1,121 @@
+package distributed_ttt.lobby_service.infrastructure;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import distributed_ttt.lobby_service.application.ServiceNotAvailableException;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+
+/*
+protegge le chiamate verso un servizio a valle con bulkhead, circuit breaker, retry con jitter e hedging (vedi ResilienceConfig)
+solo i fallimenti di comunicazione (ServiceNotAvailableException) contano come errori del servizio e vengono ripetuti:
+le risposte di errore applicative sono esiti validi
+*/
+public class ServiceGuard {
+
+	//metriche del servizio a valle
+	public record Metrics(String service, CircuitBreaker.State state, int inFlight, long calls, long failures,
+			long retries, long hedges, long rejectedByBulkhead, long rejectedByBreaker) {}
+
+	private final Vertx vertx;
+	private final String name; //nome del servizio
+	private final ResilienceConfig config;
+	private final CircuitBreaker breaker;
+	private final AtomicInteger inFlight; //chiamate in corso (bulkhead)
+	private final LongAdder calls; //tentativi inviati al servizio (esclusi quelli di hedging)
+	private final LongAdder failures; //tentativi falliti
+	private final LongAdder retries; //tentativi ripetuti
+	private final LongAdder hedges; //richieste di hedging inviate
+	private final LongAdder rejectedByBulkhead; //chiamate rifiutate dal bulkhead
+	private final LongAdder rejectedByBreaker; //chiamate rifiutate dal circuit breaker
+
+	public ServiceGuard(Vertx vertx, String name, ResilienceConfig config) {
+		this.vertx = vertx;
+		this.name = name;
+		this.config = config;
+		this.breaker = new CircuitBreaker(config);
+		this.inFlight = new AtomicInteger();
+		this.calls = new LongAdder();
+		this.failures = new LongAdder();
+		this.retries = new LongAdder();
+		this.hedges = new LongAdder();
+		this.rejectedByBulkhead = new LongAdder();
+		this.rejectedByBreaker = new LongAdder();
+	}
+
+	//esegue una chiamata protetta (le chiamate idempotenti possono essere ripetute e duplicate)
+	public <T> Future<T> call(Supplier<Future<T>> call, boolean idempotent) {
+		if (inFlight.incrementAndGet() > config.maxConcurrent()) { //bulkhead pieno: rifiuta subito
+			inFlight.decrementAndGet();
+			rejectedByBulkhead.increment();
+			return Future.failedFuture(new BulkheadFullException());
+		}
+		Promise<T> result = Promise.promise();
+		attempt(call, idempotent, 0, result);
+		return result.future().andThen(ar -> inFlight.decrementAndGet());
+	}
+
+	//recupera le metriche del servizio
+	public Metrics getMetrics() {
+		return new Metrics(name, breaker.getState(), inFlight.get(), calls.sum(), failures.sum(), retries.sum(), hedges.sum(),
+				rejectedByBulkhead.sum(), rejectedByBreaker.sum());
+	}
+
+	//esegue un tentativo e, se fallisce per un errore di comunicazione, lo ripete (se la chiamata è idempotente)
+	private <T> void attempt(Supplier<Future<T>> call, boolean idempotent, int attempt, Promise<T> result) {
+		if (!breaker.tryAcquire(System.currentTimeMillis())) { //circuito aperto: rifiuta subito
+			rejectedByBreaker.increment();
+			result.fail(new CircuitOpenException());
+			return;
+		}
+		calls.increment();
+		long start = System.currentTimeMillis();
+		hedged(call, idempotent).onComplete(ar -> {
+			long now = System.currentTimeMillis();
+			boolean failure = ar.failed() && ar.cause() instanceof ServiceNotAvailableException;
+			breaker.onResult(failure, now - start, now);
+			if (!failure) {
+				result.handle(ar);
+				return;
+			}
+			failures.increment();
+			if (idempotent && attempt < config.maxRetries()) { //ripete dopo un'attesa esponenziale con jitter
+				retries.increment();
+				long delay = Math.max(1, (long) (config.retryBaseMillis() * (1L << attempt) * ThreadLocalRandom.current().nextDouble(0.5, 1.5)));
+				vertx.setTimer(delay, t -> attempt(call, idempotent, attempt + 1, result));
+			} else {
+				result.fail(ar.cause());
+			}
+		});
+	}
+
+	//invia la richiesta e, se non risponde entro il tempo di hedging, ne invia una seconda (vince la prima risposta riuscita)
+	private <T> Future<T> hedged(Supplier<Future<T>> call, boolean idempotent) {
+		if (!idempotent || config.hedgeAfterMillis() <= 0) {
+			return call.get();
+		}
+		Promise<T> first = Promise.promise();
+		var pending = new AtomicInteger(1); //richieste senza risposta
+		Handler<AsyncResult<T>> handler = ar -> {
+			if (ar.succeeded()) {
+				first.tryComplete(ar.result());
+			} else if (pending.decrementAndGet() == 0) { //fallisce solo se falliscono tutte le richieste
+				first.tryFail(ar.cause());
+			}
+		};
+		call.get().onComplete(handler);
+		long timer = vertx.setTimer(config.hedgeAfterMillis(), t -> {
+			if (!first.future().isComplete()) {
+				pending.incrementAndGet();
+				hedges.increment();
+				call.get().onComplete(handler);
+			}
+		});
+		return first.future().andThen(ar -> vertx.cancelTimer(timer));
+	}
+}
@@ -14,6 +14,9 @@ public interface AccountRepository extends Repository {
 	//aggiunge un account
 	void addAccount(Account account);
 
+	//aggiunge un account solo se non è già presente (in modo atomico); restituisce false se l'account esiste già
+	boolean addAccountIfAbsent(Account account);
+
 	//verifica se un account è presente
 	boolean isPresent(String userName);
 
@@ -1,5 +1,6 @@
 package monolith_ttt_game_server.application;
 
+import java.util.List;
 import common.ddd.Repository;
 import common.exagonal.OutBoundPort;
 import monolith_ttt_game_server.domain.Game;
@@ -14,9 +15,21 @@ public interface GameRepository extends Repository {
 	//aggiunge una partita
 	void addGame(Game game);
 
+	//aggiunge una partita solo se non è già presente (in modo atomico); restituisce false se la partita esiste già
+	boolean addGameIfAbsent(Game game);
+
 	//verifica se una partita è presente
 	boolean isPresent(String gameId);
 
 	//recupera una partita
 	Game getGame(String gameId);
+
+	//rimuove una partita
+	void removeGame(String gameId);
+
+	//recupera le partite terminate prima dell'istante indicato
+	List<Game> getGamesFinishedBefore(long time);
+
+	//recupera il numero di partite presenti
+	int count();
 }
@@ -1,8 +1,10 @@
 package monolith_ttt_game_server.application;
 
+import java.util.List;
+import java.util.Optional;
 import common.exagonal.InBoundPort;
 import monolith_ttt_game_server.domain.Account;
-import monolith_ttt_game_server.domain.Game;
+import monolith_ttt_game_server.domain.GameView;
 import monolith_ttt_game_server.domain.InvalidJoinException;
 import monolith_ttt_game_server.domain.TTTSymbol;
 import monolith_ttt_game_server.domain.UserId;
@@ -18,7 +20,10 @@ public interface GameService  {
 	Account getAccountInfo(String userName) throws AccountNotFoundException;
 
 	//recupera le informazioni della partita
-	Game getGameInfo(String gameId) throws GameNotFoundException;
+	GameView getGameInfo(String gameId) throws GameNotFoundException;
+
+	//recupera l'istantanea immutabile di una partita (in corso o archiviata): non legge lo stato mutabile della partita
+	GameView getGameSnapshot(String gameId) throws GameNotFoundException;
 
 	//esegue il login di un utente al servizio
 	UserSession login(String userName, String password) throws LoginFailedException;
@@ -32,9 +37,24 @@ public interface GameService  {
 	//crea una nuova partita
 	void createNewGame(String gameId) throws GameAlreadyPresentException;
 
+	//crea una nuova partita su una griglia width x height in cui vince chi allinea winLength simboli
+	void createNewGame(String gameId, int width, int height, int winLength) throws GameAlreadyPresentException;
+
 	//esegue il join di un utente ad un partita
 	PlayerSession joinGame(UserId userId, String gameId, TTTSymbol symbol, PlayerSessionEventObserver observer) throws InvalidJoinException;
 
+	//recupera gli eventi di una partita successivi al numero di sequenza indicato (vuoto se non sono più tutti disponibili: al client serve un'istantanea)
+	Optional<List<SequencedGameEvent>> getGameEventsSince(String gameId, long seq);
+
+	//recupera il numero di sequenza dell'ultimo evento di una partita (0 se non ci sono eventi registrati)
+	long getLastGameEventSeq(String gameId);
+
+	//archivia le partite terminate e rimuove le sessioni inattive
+	LifecycleStats evictExpired();
+
+	//recupera i contatori degli oggetti vivi e archiviati
+	LifecycleStats getLifecycleStats();
+
 	//definisce un repository per gli account
     void bindAccountRepository(AccountRepository repo);
 
@@ -1,9 +1,15 @@
 package monolith_ttt_game_server.application;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import common.ids.IdGenerator;
+import common.ids.TimeNodeSequenceIdGenerator;
 import monolith_ttt_game_server.domain.Account;
 import monolith_ttt_game_server.domain.Game;
+import monolith_ttt_game_server.domain.GameObserver;
+import monolith_ttt_game_server.domain.GameView;
 import monolith_ttt_game_server.domain.InvalidJoinException;
 import monolith_ttt_game_server.domain.TTTSymbol;
 import monolith_ttt_game_server.domain.UserId;
@@ -16,24 +22,38 @@ public class GameServiceImpl implements GameService {
 	private GameRepository gameRepository; //repository delle partite in corso
 	private UserSessions userSessionRepository; //repository delle sessioni degli utenti
 	private PlayerSessions playerSessionRepository; //repository delle sessioni dei giocatori
-	private int sessionCount; //numero di sessioni utente
-	private int playerSessionCount; //numero di sessioni giocatore
+	private ArchivedGames archivedGames; //partite terminate e archiviate
+	private GameLifecycleManager lifecycle; //gestore del ciclo di vita di partite e sessioni
+	private IdGenerator sessionIds; //generatore degli id delle sessioni (univoci anche tra più istanze del servizio)
+	private GameObserver gameTopic; //osservatore che pubblica gli eventi di ogni partita sul relativo topic (se il canale è definito)
+	private GameEventLog eventLog; //eventi recenti di ogni partita, con il loro numero di sequenza
     
     public GameServiceImpl(){
+    	this(0);
+    }
+
+	//crea un'istanza del servizio identificata da nodeId (es. l'indice della partizione che la possiede)
+    public GameServiceImpl(int nodeId){
+    	this(new TimeNodeSequenceIdGenerator(nodeId));
+    }
+
+	//crea un'istanza del servizio con un generatore di id specifico
+    public GameServiceImpl(IdGenerator sessionIds){
     	userSessionRepository = new UserSessions();
     	playerSessionRepository = new PlayerSessions();
-    	sessionCount = 0;
-    	playerSessionCount = 0;
+    	archivedGames = new ArchivedGames();
+    	eventLog = new GameEventLog();
+    	lifecycle = new GameLifecycleManager(userSessionRepository, playerSessionRepository, archivedGames, eventLog);
+    	this.sessionIds = sessionIds;
     }
 
 	//registra un utente al servizio
 	public Account registerUser(String userName, String password) throws AccountAlreadyPresentException {
 		logger.log(Level.INFO, "Register User: " + userName + " " + password);		
-		if (accountRepository.isPresent(userName)) { //se l'utente esiste già
-			throw new AccountAlreadyPresentException(); //lancia un'eccezione
-		}
 		var account = new Account(userName, password); //crea l'account
-		accountRepository.addAccount(account); //lo aggiunge
+		if (!accountRepository.addAccountIfAbsent(account)) { //lo aggiunge, se l'utente non esiste già (in modo atomico)
+			throw new AccountAlreadyPresentException(); //altrimenti lancia un'eccezione
+		}
 		return account; //restituisce l'account creato
 	}
 
@@ -44,8 +64,7 @@ public class GameServiceImpl implements GameService {
 			throw new LoginFailedException(); //lancia un'eccezione
 		}
 		var id = new UserId(userName); //crea l'utente
-		sessionCount++; //incrementa il numero di sessioni utente
-		var sessionId = "user-session-" + sessionCount; //crea un id per la sessione
+		var sessionId = sessionIds.nextId(UserSessions.ID_PREFIX); //crea un id per la sessione
 		var us = new UserSession(sessionId, id, this); //crea la sessione
 		userSessionRepository.addSession(us); //aggiunge la sessione
 		return us; //restituisce la sessione creata
@@ -53,12 +72,16 @@ public class GameServiceImpl implements GameService {
 
 	//crea una nuova partita
 	public void createNewGame(String gameId) throws GameAlreadyPresentException {
-		logger.log(Level.INFO, "create New Game " + gameId);
-		var game = new Game(gameId);
-		if (gameRepository.isPresent(gameId)) { //se la partita esiste già (è già avviata)
-			throw new GameAlreadyPresentException(); //lancia un'eccezione
+		createNewGame(gameId, 3, 3, 3); //crea una partita di tris classico
+	}
+
+	//crea una nuova partita su una griglia width x height in cui vince chi allinea winLength simboli
+	public void createNewGame(String gameId, int width, int height, int winLength) throws GameAlreadyPresentException {
+		logger.log(Level.INFO, "create New Game " + gameId + " (" + width + "x" + height + ", " + winLength + ")");
+		var game = new Game(gameId, width, height, winLength);
+		if (archivedGames.isPresent(gameId) || !gameRepository.addGameIfAbsent(game)) { //avvia la partita, se non esiste già né tra quelle in corso (in modo atomico) né tra quelle archiviate
+			throw new GameAlreadyPresentException(); //altrimenti lancia un'eccezione
 		}
-		gameRepository.addGame(game); //avvia la partita
 	}
 
 	//fa entrare un utente in una partita
@@ -66,12 +89,14 @@ public class GameServiceImpl implements GameService {
 		logger.log(Level.INFO, "JoinGame - user: " + userId + " game: " + gameId + " symbol " + symbol);
 		var game = gameRepository.getGame(gameId); //recupera la partita
 		game.joinGame(userId, symbol); //fa entrare l'utente nella partita indicata
-		playerSessionCount++; //incrementa il numero di sessioni giocatore
-		var playerSessionId = "player-session-" + playerSessionCount; //crea un id per la sessione
+		var playerSessionId = sessionIds.nextId(PlayerSessions.ID_PREFIX); //crea un id per la sessione
 		var ps = new PlayerSession(playerSessionId, userId, game, symbol);  //crea la sessione
 		ps.bindPlayerSessionEventNotifier(notifier); //definisce un observer per la sessione
 		playerSessionRepository.addSession(ps); //aggiunge la sessione
 		game.addGameObserver(ps); //aggiunge l'observer
+		if (gameTopic != null && !game.getObservers().contains(gameTopic)) { //se la partita non pubblica ancora i suoi eventi sul topic
+			game.addGameObserver(gameTopic); //aggiunge l'osservatore del topic (uno per partita, qualunque sia il numero di iscritti)
+		}
 		if (game.isReadyToStart()) { //se la partita può iniziare
 			game.startGame(); //avvia la partita
 		}
@@ -88,12 +113,30 @@ public class GameServiceImpl implements GameService {
 	}
 
 	//recupera una partita
-	public Game getGameInfo(String gameId) throws GameNotFoundException {
+	public GameView getGameInfo(String gameId) throws GameNotFoundException {
 		logger.log(Level.INFO, "create New Game " + gameId);
-		if (!gameRepository.isPresent(gameId)) { //se la partita non esiste
+		GameView game = gameRepository.getGame(gameId); //cerca la partita tra quelle in corso
+		if (game == null) { //se non è in corso
+			game = archivedGames.getGame(gameId); //la cerca tra quelle archiviate
+		}
+		if (game == null) { //se la partita non esiste
 			throw new GameNotFoundException(); //lancia un'eccezione
 		}
-		return gameRepository.getGame(gameId); //restituisce la partita
+		return game; //restituisce la partita
+	}
+
+	//recupera l'istantanea immutabile di una partita
+	//con repository concorrenti può essere chiamato da qualsiasi thread, anche mentre la partita esegue una mossa
+	public GameView getGameSnapshot(String gameId) throws GameNotFoundException {
+		var game = gameRepository.getGame(gameId); //cerca la partita tra quelle in corso
+		if (game != null) {
+			return game.snapshot(); //ultima istantanea pubblicata dalla partita
+		}
+		GameView archived = archivedGames.getGame(gameId); //le partite archiviate sono già immutabili
+		if (archived == null) { //se la partita non esiste
+			throw new GameNotFoundException(); //lancia un'eccezione
+		}
+		return archived;
 	}
 
 	//recupera una sessione utente
@@ -106,6 +149,37 @@ public class GameServiceImpl implements GameService {
 		return playerSessionRepository.getSession(sessionId);
 	}
 
+	//recupera gli eventi di una partita successivi al numero di sequenza indicato (vuoto se non sono più tutti disponibili)
+	public Optional<List<SequencedGameEvent>> getGameEventsSince(String gameId, long seq) {
+		if (eventLog.lastSeq(gameId) == 0) { //nessun evento registrato: la partita non è ancora iniziata, oppure i suoi eventi sono andati persi (riavvio o archiviazione)
+			var game = gameRepository.getGame(gameId);
+			if (game == null || game.isStarted() || game.isFinished()) {
+				return Optional.empty();
+			}
+		}
+		return eventLog.since(gameId, seq);
+	}
+
+	//recupera il numero di sequenza dell'ultimo evento di una partita
+	public long getLastGameEventSeq(String gameId) {
+		return eventLog.lastSeq(gameId);
+	}
+
+	//archivia le partite terminate e rimuove le sessioni inattive
+	public LifecycleStats evictExpired() {
+		return lifecycle.evictExpired(System.currentTimeMillis());
+	}
+
+	//recupera i contatori degli oggetti vivi e archiviati
+	public LifecycleStats getLifecycleStats() {
+		return lifecycle.getStats();
+	}
+
+	//definisce la politica di pulizia di partite terminate e sessioni inattive
+	public void bindLifecyclePolicy(LifecyclePolicy policy) {
+		lifecycle.bindLifecyclePolicy(policy);
+	}
+
 	//definisce un repository per gli account
     public void bindAccountRepository(AccountRepository repo) {
     	this.accountRepository = repo;
@@ -114,5 +188,14 @@ public class GameServiceImpl implements GameService {
 	//definisce un repository per le partite
     public void bindGameRepository(GameRepository repo) {
     	this.gameRepository = repo;
+    	lifecycle.bindGameRepository(repo);
     }
+
+	//definisce il canale su cui pubblicare gli eventi delle partite (una sola volta per partita, con il loro numero di sequenza)
+	public void bindGameEventChannel(GameEventChannel channel) {
+		gameTopic = event -> {
+			var sequenced = eventLog.append(event); //registra l'evento, così che un client che si riconnette possa recuperarlo
+			channel.publish(sequenced.seq(), event);
+		};
+	}
 }
@@ -0,0 +1,11 @@
+package monolith_ttt_game_server.application;
+
+//record con i contatori degli oggetti vivi e archiviati (ed i totali di quelli rimossi)
+public record LifecycleStats(int liveGames, int archivedGames, int userSessions, int playerSessions, long evictedGames, long discardedGames, long expiredUserSessions, long expiredPlayerSessions) {
+
+	//somma i contatori di due istanze del servizio (es. di due partizioni)
+	public LifecycleStats plus(LifecycleStats other) {
+		return new LifecycleStats(liveGames + other.liveGames, archivedGames + other.archivedGames, userSessions + other.userSessions, playerSessions + other.playerSessions,
+				evictedGames + other.evictedGames, discardedGames + other.discardedGames, expiredUserSessions + other.expiredUserSessions, expiredPlayerSessions + other.expiredPlayerSessions);
+	}
+}
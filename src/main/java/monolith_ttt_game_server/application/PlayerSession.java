@@ -1,10 +1,10 @@
 package monolith_ttt_game_server.application;
 
+import common.ddd.EventFilter;
+import common.ddd.EventRouter;
 import monolith_ttt_game_server.domain.Game;
-import monolith_ttt_game_server.domain.GameEnded;
 import monolith_ttt_game_server.domain.GameEvent;
 import monolith_ttt_game_server.domain.GameObserver;
-import monolith_ttt_game_server.domain.GameStarted;
 import monolith_ttt_game_server.domain.InvalidMoveException;
 import monolith_ttt_game_server.domain.NewMove;
 import monolith_ttt_game_server.domain.TTTSymbol;
@@ -13,17 +13,28 @@ import monolith_ttt_game_server.domain.UserId;
 //sessione del giocatore
 public class PlayerSession implements GameObserver {
 
+	//gestori degli eventi di gioco, registrati una sola volta per tutte le sessioni
+	private static final EventRouter<PlayerSession, GameEvent> ROUTER = EventRouter.<PlayerSession, GameEvent>builder(GameEvent.TYPES)
+			.on(GameEvent.GAME_STARTED, (ps, e) -> ps.playerSessionEventNotifier.gameStarted(ps.playerSessionId)) //notifica al giocatore che la partita è iniziata
+			.on(GameEvent.GAME_ENDED, (ps, e) -> ps.playerSessionEventNotifier.gameEnded(ps.playerSessionId, e.winner())) //notifica al giocatore che la partita è terminata e il vincitore
+			.on(GameEvent.NEW_MOVE, PlayerSession::moved) //notifica al giocatore la mossa eseguita
+			.build();
+
 	private UserId userId; //id del giocatore
 	private Game game; //partita associata alla sessione
 	private final TTTSymbol symbol; //simbolo del giocatore (croce o cerchio)
 	private String playerSessionId; //id della sessione del giocatore
 	private PlayerSessionEventObserver playerSessionEventNotifier; //observer associato alla sessione del giocatore (notifica il giocatore associato a questa sessione)
+	private volatile long lastAccess; //istante dell'ultimo accesso alla sessione
+	private final EventFilter subscription; //eventi notificati alla sessione (solo quelli della sua partita)
 
 	public PlayerSession(String playerSessionId, UserId userId, Game game, TTTSymbol symbol) {
 		this.userId = userId;
 		this.game = game;
 		this.symbol = symbol;
 		this.playerSessionId = playerSessionId;
+		this.lastAccess = System.currentTimeMillis();
+		this.subscription = EventFilter.any().onlyAggregate(game.getId());
 	}
 
 	//fa eseguire al giocatore una mossa
@@ -41,19 +52,29 @@ public class PlayerSession implements GameObserver {
 		return playerSessionId;
 	}
 
-	//notifica gli eventi di gioco
+	//recupera l'id della partita associata alla sessione
+	public String getGameId() {
+		return game.getId();
+	}
+
+	//aggiorna l'istante dell'ultimo accesso alla sessione
+	public void touch() {
+		lastAccess = System.currentTimeMillis();
+	}
+
+	//recupera l'istante dell'ultimo accesso alla sessione
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
+	//stacca la sessione dalla partita (che smette di notificarle gli eventi)
+	public void detach() {
+		game.removeGameObserver(this);
+	}
+
+	//notifica gli eventi di gioco (un solo accesso alla tabella dei gestori, indicizzata dal tipo dell'evento)
 	public void notifyGameEvent(GameEvent ev) {
-		if (ev instanceof GameStarted) { //se l'evento è di tipo "GameStarted"
-			playerSessionEventNotifier.gameStarted(playerSessionId); //notifica al giocatore che la partita è iniziata
-		} else if (ev instanceof GameEnded) { //altrimenti se l'evento è di tipo "GameEnded"
-			var e = (GameEnded) ev;
-			playerSessionEventNotifier.gameEnded(playerSessionId, e.winner()); //notifica al giocatore che la partita è terminata e il vincitore
-		} else if (ev instanceof NewMove) { //altrimenti se l'evento è di tipo "NewMove"
-			var e = (NewMove) ev;
-			log("new move: " + e.symbol() + " in (" + e.x() + ", " + e.y() + ")");
-			playerSessionEventNotifier.newMove(playerSessionId, e.symbol(), e.x(), e.y()); //notifica al giocatore che la mossa eseguita dall'avversario
-
-		}
+		ROUTER.route(this, ev, subscription);
 	}
 
 	//definisce un observer per la sessione
@@ -66,6 +87,12 @@ public class PlayerSession implements GameObserver {
 		return playerSessionEventNotifier;
 	}
 	
+	//notifica al giocatore una nuova mossa
+	private void moved(NewMove e) {
+		log("new move: " + e.symbol() + " in (" + e.x() + ", " + e.y() + ")");
+		playerSessionEventNotifier.newMove(playerSessionId, e.symbol(), e.x(), e.y());
+	}
+
 	private void log(String msg) {
 		System.out.println("[ player " + userId.id() + " in game " + game.getId() + " ] " + msg);
 	}
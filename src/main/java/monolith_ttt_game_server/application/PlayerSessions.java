@@ -1,25 +1,53 @@
 package monolith_ttt_game_server.application;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import common.ddd.Repository;
+import common.ids.IdGenerator;
 
 //tiene traccia delle sessioni di tutti i giocatori
 public class PlayerSessions implements Repository {
 
-	private HashMap<String, PlayerSession> userSessions; //hashmap che associa il giocatore alla sessione
+	public static final String ID_PREFIX = "player-session-"; //prefisso degli id delle sessioni dei giocatori
+	private ConcurrentHashMap<Long, PlayerSession> userSessions; //mappa concorrente (indicizzata sulla forma binaria dell'id) che associa il giocatore alla sessione
 	
 	public PlayerSessions() {
-		userSessions = new HashMap<>();
+		userSessions = new ConcurrentHashMap<>();
 	}
 
 	//aggiunge una sessione
 	public void addSession(PlayerSession ps) {
-		userSessions.put(ps.getId(), ps);
+		userSessions.put(IdGenerator.parse(ID_PREFIX, ps.getId()), ps);
 	}
 
-	//recupera la sessione del giocatore
+	//recupera la sessione del giocatore (e ne aggiorna l'istante dell'ultimo accesso)
 	public PlayerSession getSession(String sessionId) {
-		return userSessions.get(sessionId);
+		long id = IdGenerator.parse(ID_PREFIX, sessionId);
+		var ps = id < 0 ? null : userSessions.get(id);
+		if (ps != null) {
+			ps.touch();
+		}
+		return ps;
+	}
+
+	//rimuove le sessioni che soddisfano la condizione e le restituisce
+	public List<PlayerSession> removeSessions(Predicate<PlayerSession> condition) {
+		var removed = new ArrayList<PlayerSession>();
+		userSessions.values().removeIf(ps -> {
+			if (condition.test(ps)) {
+				removed.add(ps);
+				return true;
+			}
+			return false;
+		});
+		return removed;
+	}
+
+	//recupera il numero di sessioni presenti
+	public int size() {
+		return userSessions.size();
 	}
 	
 }
@@ -0,0 +1,6 @@
+package monolith_ttt_game_server.application;
+
+import monolith_ttt_game_server.domain.GameEvent;
+
+//evento di una partita con il suo numero di sequenza (crescente, a partire da 1, all'interno della partita)
+public record SequencedGameEvent(long seq, GameEvent event) {}
@@ -10,11 +10,13 @@ public class UserSession {
 	private String sessionId; //id della sessione
 	private UserId userId; //id dell'utente
 	private GameService gameService; //servizio principale dell'app
+	private volatile long lastAccess; //istante dell'ultimo accesso alla sessione
 	
 	public UserSession(String sessionId, UserId userId, GameServiceImpl gameService) {
 		this.userId = userId;
 		this.gameService = gameService;
 		this.sessionId = sessionId;
+		this.lastAccess = System.currentTimeMillis();
 	}
 
 	//crea una nuova partita
@@ -22,6 +24,11 @@ public class UserSession {
 		gameService.createNewGame(gameId);		
 	}
 
+	//crea una nuova partita su una griglia width x height in cui vince chi allinea winLength simboli
+	public void createNewGame(String gameId, int width, int height, int winLength) throws GameAlreadyPresentException {
+		gameService.createNewGame(gameId, width, height, winLength);
+	}
+
 	//fa entrare un giocaotre in una partita
 	public PlayerSession joinGame(String gameId, TTTSymbol symbol, PlayerSessionEventObserver notifier) throws InvalidJoinException {
 		return gameService.joinGame(userId, gameId, symbol, notifier);
@@ -37,4 +44,14 @@ public class UserSession {
 		return userId;
 	}
 
+	//aggiorna l'istante dell'ultimo accesso alla sessione
+	public void touch() {
+		lastAccess = System.currentTimeMillis();
+	}
+
+	//recupera l'istante dell'ultimo accesso alla sessione
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
 }
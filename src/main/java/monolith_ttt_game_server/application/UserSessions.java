@@ -1,25 +1,45 @@
 package monolith_ttt_game_server.application;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 import common.ddd.Repository;
+import common.ids.IdGenerator;
 
 //tiene traccia delle sessioni di tutti gli utenti
 public class UserSessions implements Repository {
 
-	private HashMap<String, UserSession> userSessions; //hashmap che associa l'utente alla sessione
+	public static final String ID_PREFIX = "user-session-"; //prefisso degli id delle sessioni degli utenti
+	private ConcurrentHashMap<Long, UserSession> userSessions; //mappa concorrente (indicizzata sulla forma binaria dell'id) che associa l'utente alla sessione
 	
 	public UserSessions() {
-		userSessions = new HashMap<>();
+		userSessions = new ConcurrentHashMap<>();
 	}
 
 	//aggiunge una sessione
 	public void addSession(UserSession us) {
-		userSessions.put(us.getSessionId(), us);
+		userSessions.put(IdGenerator.parse(ID_PREFIX, us.getSessionId()), us);
 	}
 
-	//recupera la sessione dell'utente
+	//recupera la sessione dell'utente (e ne aggiorna l'istante dell'ultimo accesso)
 	public UserSession getSession(String sessionId) {
-		return userSessions.get(sessionId);
+		long id = IdGenerator.parse(ID_PREFIX, sessionId);
+		var us = id < 0 ? null : userSessions.get(id);
+		if (us != null) {
+			us.touch();
+		}
+		return us;
+	}
+
+	//rimuove le sessioni che soddisfano la condizione e ne restituisce il numero
+	public int removeSessions(Predicate<UserSession> condition) {
+		int before = userSessions.size();
+		userSessions.values().removeIf(condition);
+		return before - userSessions.size();
+	}
+
+	//recupera il numero di sessioni presenti
+	public int size() {
+		return userSessions.size();
 	}
 	
 }
@@ -0,0 +1,65 @@
+package monolith_ttt_game_server.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import common.ddd.ValueObject;
+
+/*
+record (immutabile) di una partita terminata e rimossa dalle partite in corso
+non mantiene osservatori né sessioni: la griglia è compattata in una stringa con un carattere per cella
+*/
+public record ArchivedGame(String id, String board, int width, int height, int winLength, String lastTurn, Optional<String> winner, long finishedAt) implements GameView, ValueObject {
+
+	public String getId() {
+		return id;
+	}
+
+	public String getGameState() {
+		return "finished";
+	}
+
+	public boolean isStarted() {
+		return false;
+	}
+
+	public boolean isFinished() {
+		return true;
+	}
+
+	//ricostruisce lo stato della griglia a partire dalla stringa compatta
+	public List<String> getBoardState() {
+		var state = new ArrayList<String>(board.length());
+		for (int i = 0; i < board.length(); i++) {
+			state.add(String.valueOf(board.charAt(i)));
+		}
+		return state;
+	}
+
+	public int getBoardWidth() {
+		return width;
+	}
+
+	public int getBoardHeight() {
+		return height;
+	}
+
+	public int getWinLength() {
+		return winLength;
+	}
+
+	public String getCurrentTurn() {
+		return lastTurn;
+	}
+
+	//la versione di una partita terminata: ingresso dei due giocatori, avvio, mosse e fine (la stessa della partita prima dell'archiviazione)
+	public long getVersion() {
+		long moves = 0;
+		for (int i = 0; i < board.length(); i++) {
+			if (board.charAt(i) != '-') {
+				moves++;
+			}
+		}
+		return moves + 4;
+	}
+}
@@ -0,0 +1,111 @@
+package monolith_ttt_game_server.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/*
+griglia di gioco rappresentata con due maschere di bit (una per simbolo)
+la casella (x, y) corrisponde al bit di indice y * 3 + x
+*/
+public class BitboardGameBoard implements GameBoard {
+
+	private static final int FULL_BOARD = 0b111_111_111; //maschera con tutte le caselle occupate
+	private static final int[] WIN_MASKS = { //maschere delle linee vincenti (stesso ordine di controllo di ArrayGameBoard)
+			0b000_000_111, 0b000_111_000, 0b111_000_000, //righe
+			0b001_001_001, 0b010_010_010, 0b100_100_100, //colonne
+			0b100_010_001, //diagonale principale
+			0b001_010_100 //diagonale secondaria
+	};
+	private static final Optional<TTTSymbol> CROSS_WINS = Optional.of(TTTSymbol.X); //risultato precalcolato (evita allocazioni ad ogni mossa)
+	private static final Optional<TTTSymbol> CIRCLE_WINS = Optional.of(TTTSymbol.O); //risultato precalcolato (evita allocazioni ad ogni mossa)
+	private int crossBits; //caselle occupate dal simbolo "croce"
+	private int circleBits; //caselle occupate dal simbolo "cerchio"
+	private String id; //id della griglia
+
+	public BitboardGameBoard(String id) {
+		this.id = id;
+		crossBits = 0;
+		circleBits = 0;
+	}
+
+	//esegue una mossa
+	public void newMove(TTTSymbol symbol, int x, int y) throws InvalidMoveException {
+		if (x < 0 || x > 2 || y < 0 || y > 2) { //se la casella è fuori dalla griglia
+			throw new InvalidMoveException(); //lancia un'eccezione
+		}
+		int cell = 1 << (y * 3 + x); //bit corrispondente alla casella
+		if (((crossBits | circleBits) & cell) != 0) { //se la casella è già occupata
+			throw new InvalidMoveException(); //lancia un'eccezione
+		}
+		if (symbol == TTTSymbol.X) { //se il simbolo è "croce"
+			crossBits |= cell;
+		} else { //altrimenti
+			circleBits |= cell;
+		}
+	}
+
+	//controlla la presenza di un vincitore
+	public Optional<TTTSymbol> checkWinner() {
+		for (int mask : WIN_MASKS) { //per ogni linea vincente
+			if ((crossBits & mask) == mask) { //se la linea è completata dal simbolo "croce"
+				return CROSS_WINS;
+			}
+			if ((circleBits & mask) == mask) { //se la linea è completata dal simbolo "cerchio"
+				return CIRCLE_WINS;
+			}
+		}
+		return Optional.empty(); //altrimenti non ritorna nessun simbolo
+	}
+
+	//recupera lo stato della griglia
+	public List<String> getState() {
+		var l = new ArrayList<String>(9); //lista di simboli
+		for (int i = 0; i < 9; i++) { //per ogni casella
+			int cell = 1 << i;
+			if ((crossBits & cell) != 0) { //se la casella contiene una X
+				l.add("X");
+			} else if ((circleBits & cell) != 0) { //altrimenti se la casella contiene un O
+				l.add("O");
+			} else { //altrimenti
+				l.add("-");
+			}
+		}
+		return l; //restituisce la lista
+	}
+
+	//recupera lo stato della griglia compattato in una stringa (senza creare la lista di simboli)
+	public String getCells() {
+		var cells = new char[9];
+		for (int i = 0; i < 9; i++) { //per ogni casella
+			int cell = 1 << i;
+			cells[i] = (crossBits & cell) != 0 ? 'X' : (circleBits & cell) != 0 ? 'O' : '-';
+		}
+		return new String(cells);
+	}
+
+	//verifica il pareggio
+	public boolean isTie() {
+		return (crossBits | circleBits) == FULL_BOARD;
+	}
+
+	//recupera il numero di colonne della griglia
+	public int getWidth() {
+		return 3;
+	}
+
+	//recupera il numero di righe della griglia
+	public int getHeight() {
+		return 3;
+	}
+
+	//recupera il numero di simboli consecutivi necessari per vincere
+	public int getWinLength() {
+		return 3;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+}
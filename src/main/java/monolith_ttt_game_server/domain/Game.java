@@ -8,7 +8,7 @@ import java.util.logging.Logger;
 import common.ddd.Aggregate;
 
 //partita in corso
-public class Game implements Aggregate<String>{
+public class Game implements Aggregate<String>, GameView {
 
 	static Logger logger = Logger.getLogger("[Game]");
 	private String id; //id della partita
@@ -20,10 +20,23 @@ public class Game implements Aggregate<String>{
 	private Optional<UserId> winner; //vincitore
 	private Optional<UserId> currentTurn; //turno corrente
 	private List<GameObserver> observers; //lista degli osservatori (utenti) della partita
+	private long finishedAt; //istante in cui la partita è terminata (0 se non è ancora terminata)
+	private long version; //versione della partita (cresce ad ogni ingresso, avvio, mossa e fine della partita)
+	private volatile GameSnapshot snapshot; //istantanea immutabile dopo l'ultimo comando accettato (letta senza lock da qualsiasi thread)
 	
 	public Game(String id) {
+		this(id, GameBoard.newBoard(id+"-board"));
+	}
+
+	//crea una partita su una griglia width x height in cui vince chi allinea winLength simboli
+	public Game(String id, int width, int height, int winLength) {
+		this(id, GameBoard.newBoard(id+"-board", width, height, winLength));
+	}
+
+	//crea una partita con una specifica rappresentazione della griglia
+	public Game(String id, GameBoard board) {
 		this.id = id;
-		board = new GameBoard(id+"-board");
+		this.board = board;
 
 		playerCross = Optional.empty();
 		playerCircle = Optional.empty();
@@ -31,6 +44,7 @@ public class Game implements Aggregate<String>{
 		winner = Optional.empty();
 		state = GameState.WAITING_FOR_PLAYERS; //inizializza lo stato della partita come "in attesa"
 		observers = new ArrayList<>();		
+		publish();
 	}
 
 	//restituisce l'id della partita
@@ -51,12 +65,16 @@ public class Game implements Aggregate<String>{
 		} else { //altrimenti
 			playerCircle = Optional.of(userId); //assegna al giocatore il simbolo "cerchio"
 		}
+		version++;
+		publish();
 	}
 
 	//avvia la partita
 	public void startGame() {
 		state = GameState.STARTED; //imposta lo stato della partita come "avviata"
 		currentTurn = playerCross; //inizializza il turno al giocatore "croce"
+		version++;
+		publish();
 		notifyGameEvent(new GameStarted(id));  //invia un evento di avvio della partita a tutti gli osservatori (giocatori) registrati alla partita
 	}
 	
@@ -64,6 +82,21 @@ public class Game implements Aggregate<String>{
 	public List<String> getBoardState(){
 		return this.board.getState();
 	}
+
+	//recupera il numero di colonne della griglia
+	public int getBoardWidth() {
+		return board.getWidth();
+	}
+
+	//recupera il numero di righe della griglia
+	public int getBoardHeight() {
+		return board.getHeight();
+	}
+
+	//recupera il numero di simboli consecutivi necessari per vincere
+	public int getWinLength() {
+		return board.getWinLength();
+	}
 	
 	//recupera il turno corrente
 	public String getCurrentTurn() {
@@ -109,17 +142,28 @@ public class Game implements Aggregate<String>{
 		if (userId.id().equals(p.id())) { //se l'utente (che chiama il metodo) è il giocatore associato al turno corrente
 			var gridSymbol = userId.id().equals(playerCross.get().id()) ? TTTSymbol.X : TTTSymbol.O; //se il giocatore ha simbolo "croce", memorizza il simbolo croce, altrimenti memorizza il simbolo "cerchio"
 			board.newMove(gridSymbol, x, y); //esegue la mossa
-			notifyGameEvent(new NewMove(id, gridSymbol.toString(), x, y)); //invia un evento di esecuzione della mossa a tutti gli osservatori (giocatori) registrati alla partita
+			version++;
+			var move = new NewMove(id, gridSymbol.toString(), x, y); //evento di esecuzione della mossa
+			GameEnded ended = null; //evento di terminazione della partita (se la mossa la conclude)
 
 			currentTurn = (currentTurn == playerCross) ? playerCircle : playerCross; //cambia il turno
 			var optWin = board.checkWinner(); //verifica la presenza di un vincitore
 			if (optWin.isPresent()) { //se è presente un vincitore
 				winner = Optional.of(getPlayerUsingSymbol(optWin.get())); //recupera il vincitore
 				state = GameState.FINISHED; //imposta lo stato della partita come "terminato"
-				notifyGameEvent(new GameEnded(id, Optional.of(winner.get().id())));
+				finishedAt = System.currentTimeMillis();
+				version++;
+				ended = new GameEnded(id, Optional.of(winner.get().id()));
 			} else if (board.isTie()) { //se è finita in parità
 				state = GameState.FINISHED; //imposta lo stato della partita come "terminato"
-				notifyGameEvent(new GameEnded(id, Optional.empty())); //invia un evento di terminazione della partita a tutti gli osservatori (giocatori) registrati alla partita
+				finishedAt = System.currentTimeMillis();
+				version++;
+				ended = new GameEnded(id, Optional.empty());
+			}
+			publish(); //una sola istantanea per mossa (griglia, turno ed eventuale fine della partita), pubblicata prima di notificare gli osservatori (come join e avvio)
+			notifyGameEvent(move); //invia un evento di esecuzione della mossa a tutti gli osservatori (giocatori) registrati alla partita
+			if (ended != null) {
+				notifyGameEvent(ended); //invia un evento di terminazione della partita a tutti gli osservatori (giocatori) registrati alla partita
 			}
 		} else { //altrimenti
 			throw new InvalidMoveException(); //lancia un'eccezione
@@ -131,6 +175,42 @@ public class Game implements Aggregate<String>{
 		observers.add(observer);
 	}
 
+	//rimuove un osservatore dalla partita
+	public void removeGameObserver(GameObserver observer) {
+		observers.remove(observer);
+	}
+
+	//recupera gli osservatori della partita
+	public List<GameObserver> getObservers() {
+		return observers;
+	}
+
+	//recupera l'istante in cui la partita è terminata (0 se non è ancora terminata)
+	public long getFinishedAt() {
+		return finishedAt;
+	}
+
+	//recupera la versione della partita
+	public long getVersion() {
+		return version;
+	}
+
+	//recupera l'istantanea immutabile della partita (può essere chiamato da qualsiasi thread)
+	public GameSnapshot snapshot() {
+		return snapshot;
+	}
+
+	//crea il record archiviato della partita (terminata)
+	public ArchivedGame archive() {
+		return new ArchivedGame(id, board.getCells(), board.getWidth(), board.getHeight(), board.getWinLength(), getCurrentTurn(), winner.map(UserId::id), finishedAt);
+	}
+
+	//pubblica l'istantanea dello stato corrente (solo il thread che esegue i comandi sulla partita scrive il riferimento)
+	private void publish() {
+		snapshot = new GameSnapshot(id, board.getCells(), board.getWidth(), board.getHeight(), board.getWinLength(), state,
+				playerCross.map(UserId::id), playerCircle.map(UserId::id), getCurrentTurn(), winner.map(UserId::id), finishedAt, version);
+	}
+
 	//invia un evento di notifica agli osservatori
 	private void notifyGameEvent(GameEvent ev) {
 		for (var o: observers) { //per ogni elemento nella lista degli osservatori
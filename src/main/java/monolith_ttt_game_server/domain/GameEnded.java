@@ -1,6 +1,12 @@
 package monolith_ttt_game_server.domain;
 
 import java.util.Optional;
+import common.ddd.EventType;
 
 //record per la partita terminata
-public record GameEnded (String gameId, Optional<String> winner) implements GameEvent {}
+public record GameEnded (String gameId, Optional<String> winner) implements GameEvent {
+
+	public EventType<GameEnded> type() {
+		return GAME_ENDED;
+	}
+}
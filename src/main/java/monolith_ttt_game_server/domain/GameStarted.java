@@ -1,8 +1,15 @@
 package monolith_ttt_game_server.domain;
 
+import common.ddd.EventType;
+
 /**
  * 
  * Domain event: game started
  * 
  */
-public record GameStarted (String gameId) implements GameEvent {}
+public record GameStarted (String gameId) implements GameEvent {
+
+	public EventType<GameStarted> type() {
+		return GAME_STARTED;
+	}
+}
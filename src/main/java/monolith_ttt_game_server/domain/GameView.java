@@ -0,0 +1,37 @@
+package monolith_ttt_game_server.domain;
+
+import java.util.List;
+
+//vista in sola lettura di una partita (in corso o archiviata)
+public interface GameView {
+
+	//recupera l'id della partita
+	String getId();
+
+	//recupera lo stato della partita
+	String getGameState();
+
+	//controlla se la partita è iniziata
+	boolean isStarted();
+
+	//controlla se la partita è terminata
+	boolean isFinished();
+
+	//recupera lo stato della griglia
+	List<String> getBoardState();
+
+	//recupera il numero di colonne della griglia
+	int getBoardWidth();
+
+	//recupera il numero di righe della griglia
+	int getBoardHeight();
+
+	//recupera il numero di simboli consecutivi necessari per vincere
+	int getWinLength();
+
+	//recupera il turno corrente
+	String getCurrentTurn();
+
+	//recupera la versione della partita (cresce ad ogni ingresso, avvio, mossa e fine della partita)
+	long getVersion();
+}
@@ -0,0 +1,123 @@
+package monolith_ttt_game_server.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/*
+griglia di gioco generalizzata (m,n,k): width colonne, height righe, vince chi allinea winLength simboli
+il vincitore viene calcolato ad ogni mossa controllando solo le quattro linee che passano per la casella giocata
+*/
+public class MNKGameBoard implements GameBoard {
+
+	public static final int MAX_SIDE = 64; //dimensione massima di un lato della griglia
+	private static final byte EMPTY = 0, CROSS = 1, CIRCLE = 2; //contenuto delle caselle
+	private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}}; //orizzontale, verticale, diagonale, anti-diagonale
+	private static final Optional<TTTSymbol> CROSS_WINS = Optional.of(TTTSymbol.X); //risultato precalcolato (evita allocazioni ad ogni mossa)
+	private static final Optional<TTTSymbol> CIRCLE_WINS = Optional.of(TTTSymbol.O); //risultato precalcolato (evita allocazioni ad ogni mossa)
+	private final int width; //numero di colonne
+	private final int height; //numero di righe
+	private final int winLength; //numero di simboli consecutivi necessari per vincere
+	private final byte[] cells; //caselle della griglia (indice y * width + x)
+	private int numFreeCellsLeft; //numero di caselle disponibili
+	private Optional<TTTSymbol> winner; //vincitore (calcolato all'ultima mossa)
+	private String id; //id della griglia
+
+	public MNKGameBoard(String id, int width, int height, int winLength) {
+		if (width < 1 || height < 1 || width > MAX_SIDE || height > MAX_SIDE || winLength < 1 || winLength > Math.max(width, height)) { //se le dimensioni non sono valide
+			throw new IllegalArgumentException("invalid board size " + width + "x" + height + " (" + winLength + ")"); //lancia un'eccezione
+		}
+		this.id = id;
+		this.width = width;
+		this.height = height;
+		this.winLength = winLength;
+		cells = new byte[width * height];
+		numFreeCellsLeft = width * height;
+		winner = Optional.empty();
+	}
+
+	//esegue una mossa
+	public void newMove(TTTSymbol symbol, int x, int y) throws InvalidMoveException {
+		if (x < 0 || x >= width || y < 0 || y >= height || cells[y * width + x] != EMPTY) { //se la casella è fuori dalla griglia o già occupata
+			throw new InvalidMoveException(); //lancia un'eccezione
+		}
+		byte content = symbol == TTTSymbol.X ? CROSS : CIRCLE;
+		cells[y * width + x] = content; //inserisce il simbolo nella casella
+		numFreeCellsLeft--; //decrementa il numero di caselle disponibili
+		if (winner.isEmpty() && completesLine(content, x, y)) { //se la mossa completa una linea
+			winner = symbol == TTTSymbol.X ? CROSS_WINS : CIRCLE_WINS; //memorizza il vincitore
+		}
+	}
+
+	//verifica se una delle quattro linee passanti per (x, y) contiene winLength simboli consecutivi
+	private boolean completesLine(byte content, int x, int y) {
+		for (var d : DIRECTIONS) { //per ogni direzione
+			int count = 1 + count(content, x, y, d[0], d[1]) + count(content, x, y, -d[0], -d[1]); //conta i simboli consecutivi nei due versi
+			if (count >= winLength) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	//conta i simboli uguali consecutivi a partire da (x, y) nella direzione (dx, dy), al massimo winLength - 1
+	private int count(byte content, int x, int y, int dx, int dy) {
+		int n = 0;
+		int cx = x + dx;
+		int cy = y + dy;
+		while (n < winLength - 1 && cx >= 0 && cx < width && cy >= 0 && cy < height && cells[cy * width + cx] == content) {
+			n++;
+			cx += dx;
+			cy += dy;
+		}
+		return n;
+	}
+
+	//controlla la presenza di un vincitore
+	public Optional<TTTSymbol> checkWinner() {
+		return winner;
+	}
+
+	//recupera lo stato della griglia
+	public List<String> getState() {
+		var l = new ArrayList<String>(cells.length); //lista di simboli
+		for (byte c : cells) { //per ogni casella
+			l.add(c == CROSS ? "X" : c == CIRCLE ? "O" : "-");
+		}
+		return l; //restituisce la lista
+	}
+
+	//recupera lo stato della griglia compattato in una stringa (senza creare la lista di simboli)
+	public String getCells() {
+		var l = new char[cells.length];
+		for (int i = 0; i < cells.length; i++) { //per ogni casella
+			l[i] = cells[i] == CROSS ? 'X' : cells[i] == CIRCLE ? 'O' : '-';
+		}
+		return new String(l);
+	}
+
+	//verifica il pareggio
+	public boolean isTie() {
+		return numFreeCellsLeft == 0;
+	}
+
+	//recupera il numero di colonne della griglia
+	public int getWidth() {
+		return width;
+	}
+
+	//recupera il numero di righe della griglia
+	public int getHeight() {
+		return height;
+	}
+
+	//recupera il numero di simboli consecutivi necessari per vincere
+	public int getWinLength() {
+		return winLength;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+}
@@ -1,4 +1,11 @@
 package monolith_ttt_game_server.domain;
 
+import common.ddd.EventType;
+
 //record per la mossa
-public record NewMove (String gameId, String symbol, int x, int y) implements GameEvent {}
+public record NewMove (String gameId, String symbol, int x, int y) implements GameEvent {
+
+	public EventType<NewMove> type() {
+		return NEW_MOVE;
+	}
+}
@@ -0,0 +1,96 @@
+package monolith_ttt_game_server.infrastructure;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerResponse;
+
+/*
+client http (senza websocket) che seguono il topic di una partita:
+- gli stream server-sent events ricevono ogni evento come "id: <seq>" + "data: <json>"; uno stream lento viene chiuso
+  e il client si riconnette indicando l'ultimo evento ricevuto (Last-Event-ID), recuperando solo quelli persi
+- le richieste long-poll già aggiornate restano in attesa, senza thread né lavoro, fino al prossimo evento della partita
+  (a cui rispondono tutte con lo stesso buffer) o alla scadenza del timeout
+onLeave viene eseguito ogni volta che un client lascia il topic (il topic verifica se può chiudersi)
+va usato solo dal contesto del controller (nessun lock), come GameEventTopics
+*/
+final class GameEventHttpClients {
+
+	private final Vertx vertx; //per i timer delle richieste long-poll
+	private final Runnable onLeave; //eseguito quando un client lascia il topic
+	private final List<HttpServerResponse> streams = new ArrayList<>(); //stream server-sent events
+	private final Map<HttpServerResponse, Long> polls = new LinkedHashMap<>(); //richieste long-poll in attesa (con il timer della scadenza)
+
+	GameEventHttpClients(Vertx vertx, Runnable onLeave) {
+		this.vertx = vertx;
+		this.onLeave = onLeave;
+	}
+
+	//apre uno stream server-sent events: invia il recupero (eventi persi o istantanea) e poi gli eventi del topic
+	void stream(HttpServerResponse response, List<GameEventMessage> catchUp) {
+		response.setChunked(true).putHeader("content-type", "text/event-stream").putHeader("cache-control", "no-cache");
+		for (var ev : catchUp) {
+			response.write(EncodedGameEvent.sseEvent(ev));
+		}
+		streams.add(response);
+		response.closeHandler(c -> {
+			streams.remove(response);
+			onLeave.run();
+		});
+	}
+
+	//mette in attesa una richiesta long-poll fino al prossimo evento o, allo scadere del timeout, risponde con 204 (nessun evento)
+	void park(HttpServerResponse response, long timeoutMillis) {
+		long timer = vertx.setTimer(timeoutMillis, t -> { //scadenza: nessun evento nel frattempo
+			if (polls.remove(response) != null) {
+				response.setStatusCode(204).end();
+				onLeave.run();
+			}
+		});
+		polls.put(response, timer);
+		response.closeHandler(c -> {
+			if (polls.remove(response) != null) {
+				vertx.cancelTimer(timer);
+				onLeave.run();
+			}
+		});
+	}
+
+	//inoltra un evento a tutti gli stream (chiudendo quelli lenti) e risponde a tutte le richieste in attesa
+	void deliver(EncodedGameEvent encoded) {
+		if (!streams.isEmpty()) {
+			for (var response : List.copyOf(streams)) {
+				if (response.writeQueueFull()) { //stream lento: viene chiuso, il client si riconnette da Last-Event-ID
+					streams.remove(response);
+					response.end();
+				} else {
+					response.write(encoded.sse());
+				}
+			}
+		}
+		if (!polls.isEmpty()) { //ogni richiesta in attesa riceve l'evento e termina
+			for (var poll : polls.entrySet()) {
+				vertx.cancelTimer(poll.getValue());
+				poll.getKey().putHeader("content-type", "application/json").end(encoded.poll());
+			}
+			polls.clear();
+		}
+	}
+
+	//true se nessun client http segue il topic
+	boolean isEmpty() {
+		return streams.isEmpty() && polls.isEmpty();
+	}
+
+	//recupera il numero di stream server-sent events aperti
+	int streams() {
+		return streams.size();
+	}
+
+	//recupera il numero di richieste long-poll in attesa
+	int polls() {
+		return polls.size();
+	}
+}
@@ -0,0 +1,365 @@
+package monolith_ttt_game_server.infrastructure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import io.vertx.core.Context;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
+
+/*
+iscrizioni dei websocket di un'istanza del controller ai topic delle partite ("game/<gameId>")
+per ogni partita c'è un solo consumer sull'event bus: l'evento viene codificato una sola volta per ciascuna forma (vedi EncodedGameEvent)
+e la stessa codifica viene scritta su tutti i websocket iscritti (giocatori e spettatori)
+ogni websocket viene registrato all'apertura (track) e può seguire più partite (sessioni giocatore o partite da spettatore):
+in quel caso ogni evento porta anche l'id della partita; alla chiusura (o ad un errore) lascia tutti i topic,
+e il consumer di un topic viene rimosso appena il topic non ha più iscritti
+ogni iscrizione inizia con il recupero (gli eventi persi dopo l'ultimo numero di sequenza ricevuto dal client, oppure un'istantanea)
+gli spettatori lenti non accumulano eventi: appena la loro coda di scrittura è piena smettono di ricevere gli eventi
+e, quando la coda si svuota, ripetono l'iscrizione a partire dall'ultimo evento ricevuto (recuperando gli eventi persi o una nuova istantanea)
+oltre ai websocket, un topic serve anche i client http che non possono usarli (stream server-sent events e long-poll, vedi GameEventHttpClients)
+va usato solo dal contesto del controller (nessun lock)
+*/
+public class GameEventTopics {
+
+	static final int SPECTATOR_WRITE_QUEUE_BYTES = 8 * 1024; //dimensione della coda di scrittura oltre la quale uno spettatore è considerato lento
+
+	//topic di una partita
+	private static class Topic {
+		final String gameId; //id della partita
+		MessageConsumer<GameEventMessage> consumer; //consumer sull'event bus
+		final List<Subscriber> players = new ArrayList<>(); //websocket dei giocatori (ricevono sempre tutti gli eventi)
+		final Map<Subscriber, LongConsumer> spectators = new LinkedHashMap<>(); //websocket degli spettatori (con l'azione che ripete l'iscrizione dall'ultimo evento ricevuto)
+		GameEventHttpClients http; //stream server-sent events e richieste long-poll in attesa
+		int pending; //iscrizioni in attesa del recupero (eventi persi o istantanea)
+
+		//true se il topic non ha più destinatari
+		boolean isIdle() {
+			return players.isEmpty() && spectators.isEmpty() && http.isEmpty();
+		}
+
+		Topic(String gameId) {
+			this.gameId = gameId;
+		}
+	}
+
+	//websocket registrato, con le partite che segue
+	private static class Subscriber {
+		final ServerWebSocket webSocket;
+		final Set<String> games = new HashSet<>(); //partite seguite (comprese quelle sospese perché lo spettatore è rimasto indietro)
+		final Map<String, Runnable> lagging = new HashMap<>(); //partite sospese, con l'azione che ripete l'iscrizione
+		boolean binary; //true se il client usa i frame binari (vedi GameCommandFrames)
+
+		Subscriber(ServerWebSocket webSocket) {
+			this.webSocket = webSocket;
+		}
+
+		//true se il websocket segue più partite (gli eventi devono indicare la partita)
+		boolean isMultiplexed() {
+			return games.size() > 1;
+		}
+	}
+
+	private final EventBus eventBus; //event bus di vertx
+	private final Context context; //contesto del controller
+	private final Map<String, Topic> topics; //topic aperti, per id della partita
+	private final Map<ServerWebSocket, Subscriber> subscribers; //websocket aperti
+	private int subscriptions; //numero di partite seguite, sommato su tutti i websocket
+	private long conflated; //numero di volte in cui uno spettatore lento ha perso eventi (recuperati alla ripresa)
+
+	public GameEventTopics(EventBus eventBus, Context context) {
+		this.eventBus = eventBus;
+		this.context = context;
+		topics = new HashMap<>();
+		subscribers = new HashMap<>();
+	}
+
+	//indirizzo sull'event bus del topic di una partita
+	public static String address(String gameId) {
+		return "game/" + gameId;
+	}
+
+	/*
+	registra un websocket appena aperto: alla chiusura, o ad un errore (che chiude il websocket), lascia tutti i topic a cui si è iscritto
+	va chiamato prima di qualsiasi iscrizione del websocket
+	*/
+	public void track(ServerWebSocket webSocket) {
+		var subscriber = new Subscriber(webSocket);
+		subscribers.put(webSocket, subscriber);
+		webSocket.closeHandler(v -> release(subscriber));
+		webSocket.exceptionHandler(ex -> {
+			release(subscriber);
+			webSocket.close();
+		});
+	}
+
+	//da qui in poi il websocket riceve gli eventi in forma binaria (il client ha inviato un comando in forma binaria)
+	public void useBinary(ServerWebSocket webSocket) {
+		var subscriber = subscribers.get(webSocket);
+		if (subscriber != null) {
+			subscriber.binary = true;
+		}
+	}
+
+	/*
+	apre il topic di una partita per una nuova iscrizione (va chiamato prima di recuperare gli eventi persi o l'istantanea)
+	da questo momento gli eventi pubblicati sulla partita arrivano al controller; l'iscrizione si completa con subscribe/watch (o si annulla con cancel)
+	*/
+	public void open(String gameId) {
+		var topic = topics.computeIfAbsent(gameId, id -> {
+			var t = new Topic(id);
+			t.http = new GameEventHttpClients(context.owner(), () -> closeIfUnused(t));
+			t.consumer = eventBus.consumer(address(id), msg -> fanOut(t, msg.body()));
+			return t;
+		});
+		topic.pending++;
+	}
+
+	/*
+	completa l'iscrizione del websocket di un giocatore: invia il recupero (eventi persi o istantanea) e poi gli eventi del topic
+	va chiamato sul thread che possiede la partita, subito dopo aver letto il recupero: il websocket passa agli eventi del topic
+	con un task accodato sul contesto del controller dopo gli eventi già pubblicati (che sono nel recupero), quindi senza duplicati né buchi
+	se il websocket segue già la partita l'iscrizione viene ignorata
+	*/
+	public void subscribe(String gameId, ServerWebSocket webSocket, List<GameEventMessage> catchUp) {
+		context.runOnContext(v -> {
+			var topic = topics.get(gameId);
+			topic.pending--;
+			var subscriber = subscribers.get(webSocket);
+			if (subscriber == null || webSocket.isClosed() || !subscriber.games.add(gameId)) { //il client si è già disconnesso o segue già la partita
+				closeIfUnused(topic);
+				return;
+			}
+			subscriptions++;
+			for (var ev : catchUp) { //invia gli eventi persi (o l'istantanea)
+				write(subscriber, new EncodedGameEvent(gameId, ev));
+			}
+			topic.players.add(subscriber); //da qui in poi il websocket riceve gli eventi del topic
+		});
+	}
+
+	/*
+	completa l'iscrizione del websocket di uno spettatore: invia il recupero (eventi persi o istantanea) e poi gli eventi del topic
+	come subscribe, va chiamato sul thread che possiede la partita subito dopo aver letto il recupero;
+	resync viene eseguito (sul contesto del controller) quando uno spettatore rimasto indietro torna a poter ricevere dati
+	e deve ripetere l'iscrizione a partire dal numero di sequenza dell'ultimo evento che ha ricevuto
+	*/
+	public void watch(String gameId, ServerWebSocket webSocket, List<GameEventMessage> catchUp, LongConsumer resync) {
+		context.runOnContext(v -> {
+			var topic = topics.get(gameId);
+			topic.pending--;
+			var subscriber = subscribers.get(webSocket);
+			if (subscriber == null || webSocket.isClosed() || topic.spectators.containsKey(subscriber) || topic.players.contains(subscriber)) { //il client si è già disconnesso o riceve già gli eventi della partita
+				closeIfUnused(topic);
+				return;
+			}
+			if (subscriber.games.add(gameId)) { //nuova partita (altrimenti è uno spettatore sospeso che ripete l'iscrizione)
+				subscriptions++;
+			}
+			webSocket.setWriteQueueMaxSize(SPECTATOR_WRITE_QUEUE_BYTES);
+			long lastSeq = -1; //numero di sequenza dell'ultimo evento inviato
+			for (var ev : catchUp) { //invia gli eventi persi (o l'istantanea)
+				write(subscriber, new EncodedGameEvent(gameId, ev));
+				lastSeq = EncodedGameEvent.seqOf(ev);
+			}
+			topic.spectators.put(subscriber, resync); //da qui in poi il websocket riceve gli eventi del topic
+			if (webSocket.writeQueueFull()) { //se lo spettatore non riesce a ricevere nemmeno il recupero
+				lag(topic, subscriber, lastSeq);
+			}
+		});
+	}
+
+	/*
+	completa l'iscrizione di uno stream server-sent events: invia il recupero (eventi persi o istantanea) e poi gli eventi del topic
+	come subscribe, va chiamato sul thread che possiede la partita subito dopo aver letto il recupero
+	*/
+	public void stream(String gameId, HttpServerResponse response, List<GameEventMessage> catchUp) {
+		context.runOnContext(v -> {
+			var topic = topics.get(gameId);
+			topic.pending--;
+			if (response.closed()) { //il client si è già disconnesso
+				closeIfUnused(topic);
+				return;
+			}
+			topic.http.stream(response, catchUp); //invia gli eventi persi (o l'istantanea) e da qui in poi gli eventi del topic
+		});
+	}
+
+	/*
+	mette in attesa una richiesta long-poll che ha già ricevuto tutti gli eventi della partita: risponde al prossimo evento
+	oppure, allo scadere del timeout, con 204 (nessun evento)
+	come subscribe, va chiamato sul thread che possiede la partita subito dopo aver verificato che non ci sono eventi persi
+	*/
+	public void park(String gameId, HttpServerResponse response, long timeoutMillis) {
+		context.runOnContext(v -> {
+			var topic = topics.get(gameId);
+			topic.pending--;
+			if (response.closed()) { //il client si è già disconnesso
+				closeIfUnused(topic);
+				return;
+			}
+			topic.http.park(response, timeoutMillis);
+		});
+	}
+
+	//risposta long-poll con gli eventi indicati e il numero di sequenza ("seq") da usare come "since" nella richiesta successiva
+	public static Buffer pollReply(List<GameEventMessage> events, long seq) {
+		var sb = new StringBuilder(64 * events.size() + 32).append("{\"seq\":").append(seq).append(",\"events\":[");
+		for (int i = 0; i < events.size(); i++) {
+			sb.append(i == 0 ? "" : ",").append(events.get(i).toJson());
+		}
+		return Buffer.buffer(sb.append("]}").toString());
+	}
+
+	//annulla un'iscrizione aperta e non completata
+	public void cancel(String gameId) {
+		context.runOnContext(v -> {
+			var topic = topics.get(gameId);
+			topic.pending--;
+			closeIfUnused(topic);
+		});
+	}
+
+	//il websocket smette di seguire una partita (come giocatore o come spettatore)
+	public void unsubscribe(String gameId, ServerWebSocket webSocket) {
+		var subscriber = subscribers.get(webSocket);
+		if (subscriber == null || !subscriber.games.remove(gameId)) { //il websocket non segue la partita
+			return;
+		}
+		subscriptions--;
+		subscriber.lagging.remove(gameId);
+		leave(gameId, subscriber);
+	}
+
+	//recupera il numero di topic aperti
+	public int size() {
+		return topics.size();
+	}
+
+	//recupera il numero di websocket aperti
+	public int getSockets() {
+		return subscribers.size();
+	}
+
+	//recupera il numero di partite seguite, sommato su tutti i websocket aperti
+	public int getSubscriptions() {
+		return subscriptions;
+	}
+
+	//recupera il numero di stream server-sent events aperti
+	public int getStreams() {
+		int streams = 0;
+		for (var topic : topics.values()) {
+			streams += topic.http.streams();
+		}
+		return streams;
+	}
+
+	//recupera il numero di richieste long-poll in attesa
+	public int getParkedPolls() {
+		int polls = 0;
+		for (var topic : topics.values()) {
+			polls += topic.http.polls();
+		}
+		return polls;
+	}
+
+	//recupera il numero di volte in cui uno spettatore lento ha perso eventi (recuperati alla ripresa)
+	public long getConflated() {
+		return conflated;
+	}
+
+	//inoltra un evento a tutti i destinatari del topic (serializzato una sola volta per forma)
+	private void fanOut(Topic topic, GameEventMessage event) {
+		if (topic.isIdle()) {
+			return;
+		}
+		var encoded = new EncodedGameEvent(topic.gameId, event); //codifiche dell'evento, condivise da tutti i destinatari
+		for (var subscriber : topic.players) {
+			if (!subscriber.webSocket.isClosed()) { //un websocket chiuso lascia il topic nel suo close handler
+				write(subscriber, encoded);
+			}
+		}
+		List<Subscriber> lagging = null;
+		for (var subscriber : topic.spectators.keySet()) {
+			var ws = subscriber.webSocket;
+			if (ws.isClosed()) {
+				continue;
+			} else if (ws.writeQueueFull()) { //spettatore lento: non riceve più eventi finché la coda non si svuota
+				if (lagging == null) {
+					lagging = new ArrayList<>();
+				}
+				lagging.add(subscriber);
+			} else {
+				write(subscriber, encoded);
+			}
+		}
+		if (lagging != null) {
+			for (var subscriber : lagging) {
+				lag(topic, subscriber, EncodedGameEvent.seqOf(event) - 1); //lo spettatore ha ricevuto fino all'evento precedente
+			}
+		}
+		topic.http.deliver(encoded); //stream server-sent events e richieste long-poll
+		if (topic.isIdle()) {
+			closeIfUnused(topic);
+		}
+	}
+
+	//scrive un evento su un websocket, nella forma usata dal client
+	private static void write(Subscriber subscriber, EncodedGameEvent encoded) {
+		encoded.writeTo(subscriber.webSocket, subscriber.binary, subscriber.isMultiplexed());
+	}
+
+	//sospende uno spettatore rimasto indietro: quando la sua coda si svuota ripete l'iscrizione dall'ultimo evento ricevuto (lastSeq)
+	private void lag(Topic topic, Subscriber subscriber, long lastSeq) {
+		conflated++;
+		var resync = topic.spectators.remove(subscriber);
+		subscriber.lagging.put(topic.gameId, () -> resync.accept(lastSeq));
+		if (subscriber.lagging.size() == 1) { //un solo drain handler per websocket, per tutte le partite sospese
+			subscriber.webSocket.drainHandler(v -> {
+				subscriber.webSocket.drainHandler(null);
+				var resyncs = new ArrayList<>(subscriber.lagging.values());
+				subscriber.lagging.clear();
+				resyncs.forEach(Runnable::run);
+			});
+		}
+		closeIfUnused(topic);
+	}
+
+	//rimuove un websocket chiuso da tutti i topic
+	private void release(Subscriber subscriber) {
+		if (subscribers.remove(subscriber.webSocket, subscriber)) {
+			subscriptions -= subscriber.games.size();
+			subscriber.lagging.clear();
+			for (var gameId : subscriber.games) {
+				leave(gameId, subscriber);
+			}
+			subscriber.games.clear();
+		}
+	}
+
+	//rimuove un websocket dal topic di una partita
+	private void leave(String gameId, Subscriber subscriber) {
+		var topic = topics.get(gameId);
+		if (topic != null) { //il topic può essere già chiuso se lo spettatore era sospeso
+			topic.players.remove(subscriber);
+			topic.spectators.remove(subscriber);
+			closeIfUnused(topic);
+		}
+	}
+
+	//chiude il topic se non ha più websocket né iscrizioni in attesa
+	private void closeIfUnused(Topic topic) {
+		if (topic.isIdle() && topic.pending == 0 && topics.remove(topic.gameId, topic)) {
+			topic.consumer.unregister();
+		}
+	}
+}
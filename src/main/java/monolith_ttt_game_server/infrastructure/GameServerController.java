@@ -1,13 +1,16 @@
 package monolith_ttt_game_server.infrastructure;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import io.vertx.core.Future;
 import io.vertx.core.VerticleBase;
-import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.ServerWebSocket;
 import io.vertx.core.json.*;
 import io.vertx.ext.web.*;
 import io.vertx.ext.web.handler.StaticHandler;
@@ -16,6 +19,10 @@ import monolith_ttt_game_server.application.AccountNotFoundException;
 import monolith_ttt_game_server.application.GameAlreadyPresentException;
 import monolith_ttt_game_server.application.GameNotFoundException;
 import monolith_ttt_game_server.application.GameService;
+import monolith_ttt_game_server.application.LifecycleStats;
+import monolith_ttt_game_server.application.PlayerSession;
+import monolith_ttt_game_server.domain.GameView;
+import monolith_ttt_game_server.domain.UserId;
 import monolith_ttt_game_server.application.LoginFailedException;
 import monolith_ttt_game_server.domain.InvalidJoinException;
 import monolith_ttt_game_server.domain.InvalidMoveException;
@@ -38,18 +45,32 @@ public class GameServerController extends VerticleBase  {
 	static final String CREATE_GAME_RESOURCE_PATH = USER_SESSIONS_RESOURCE_PATH + "/:sessionId/create-game"; //rotta per creare una nuova partita
 	static final String JOIN_GAME_RESOURCE_PATH = USER_SESSIONS_RESOURCE_PATH + "/:sessionId/join-game"; //rotta per far entrare un utente in una partita
 	static final String PLAYER_MOVE_RESOURCE_PATH = GAME_RESOURCE_PATH + "/:playerSessionId/move"; //rotta per eseguire una mossa
+	static final String GAME_EVENTS_RESOURCE_PATH = GAME_RESOURCE_PATH + "/events"; //rotta (server-sent events) per ricevere gli eventi di una partita
+	static final String GAME_POLL_RESOURCE_PATH = GAME_RESOURCE_PATH + "/poll"; //rotta (long-poll, "?since=<seq>", numero di sequenza dell'ultimo evento ricevuto) per attendere gli eventi di una partita
+	static final long POLL_TIMEOUT = 25_000; //tempo massimo (in ms) di attesa di una richiesta long-poll
 	static final String WS_EVENT_CHANNEL_PATH = "/api/" + API_VERSION + "/events"; //rotta (websocket) per ricevere gli eventi di una partita
-	private GameService gameService; //servizio principale
+	static final String LIFECYCLE_RESOURCE_PATH = "/api/" + API_VERSION + "/lifecycle"; //rotta per recuperare i contatori di partite e sessioni vive e archiviate
+	private GameShards shards; //partizioni del servizio principale (ogni comando è eseguito dalla partizione che possiede la partita)
+	private GameEventTopics topics; //iscrizioni dei websocket ai topic delle partite
+	private GameInfoCache infoCache; //risposte di GET /games/:gameId, una per versione della partita (usata solo dal contesto del controller)
 
 	public GameServerController(GameService service, int port) {
+		this(GameShards.single(service), port);
+	}
+
+	//crea un controller che instrada i comandi alle partizioni del servizio
+	public GameServerController(GameShards shards, int port) {
 		this.port = port;
 		logger.setLevel(Level.INFO);
-		this.gameService = service;
+		this.shards = shards;
 	}
 
     //avvia il server (eseguito automaticamente alla chiamata "vertx.deployVerticle(server)")
 	public Future<?> start() {
 		logger.log(Level.INFO, "TTT Game Service initializing...");
+		GameEventMessageCodec.registerOn(vertx.eventBus()); //registra il codec degli eventi di gioco sull'event bus
+		topics = new GameEventTopics(vertx.eventBus(), context); //topic delle partite a cui si iscrivono i websocket di questo controller
+		infoCache = new GameInfoCache();
 		HttpServer server = vertx.createHttpServer(); //crea un sever http
 				
 		Router router = Router.router(vertx); //router per l'instradamento delle richieste http
@@ -60,9 +81,15 @@ public class GameServerController extends VerticleBase  {
         router.route(HttpMethod.POST, CREATE_GAME_RESOURCE_PATH).handler(this::createNewGame); //associa alla rotta per creare una nuova partita il relativo metodo
 		router.route(HttpMethod.POST, JOIN_GAME_RESOURCE_PATH).handler(this::joinGame); //associa alla rotta per far entrare un utente in una partita il relativo metodo
 		router.route(HttpMethod.POST, PLAYER_MOVE_RESOURCE_PATH).handler(this::makeAMove); //associa alla rotta per eseguire una mossa il relativo metodo
+		router.route(HttpMethod.GET, GAME_EVENTS_RESOURCE_PATH).handler(this::streamGameEvents); //associa alla rotta per ricevere gli eventi di una partita (server-sent events) il relativo metodo
+		router.route(HttpMethod.GET, GAME_POLL_RESOURCE_PATH).handler(this::pollGameEvents); //associa alla rotta per attendere gli eventi di una partita (long-poll) il relativo metodo
+		router.route(HttpMethod.GET, LIFECYCLE_RESOURCE_PATH).handler(this::getLifecycleStats); //associa alla rotta per recuperare i contatori del ciclo di vita il relativo metodo
 		handleEventSubscription(server); //registra un websocket handler al server per ascoltare le richieste del client
 
 		router.route("/public/*").handler(StaticHandler.create()); //gestisce le richieste del client che iniziano con "public", relative all'aspetto della pagina web
+		if (shards.size() == 1) { //in modalità non partizionata il servizio è eseguito sul contesto del controller, quindi anche la sua pulizia periodica
+			shards.accountShard().scheduleEviction(vertx);
+		}
 
 		var fut = server.requestHandler(router).listen(port); //avvia il server sulla porta specificata
 		fut.onSuccess(res -> { //in caso di avvio con successo
@@ -80,22 +107,23 @@ public class GameServerController extends VerticleBase  {
 			logger.log(Level.INFO, "Payload: " + userInfo);
 			var userName = userInfo.getString("userName"); //estrae il valore del campo "userName"
 			var password = userInfo.getString("password"); //estrae il valore del campo "password"
-			var reply = new JsonObject(); //crea un oggetto json di risposta al client
-			try {
-				gameService.registerUser(userName, password); //crea un nuovo account utente
-				reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-                var loginPath = LOGIN_RESOURCE_PATH.replace(":accountId", userName); //costruisce il link per il login
-                var accountPath = ACCOUNT_RESOURCE_PATH.replace(":accountId", userName); //costruisce il link per le informazioni dell'account
-				reply.put("loginLink", loginPath); //popola l'oggetto con il link per il login
-				reply.put("accountLink", accountPath); //popola l'oggetto con il link alle informazioni dell'account
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (AccountAlreadyPresentException ex) {
-				reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
-				reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (Exception ex1) {
-				sendError(context.response()); //invia un errore al client
-			}
+			shards.accountShard().execute(gameService -> { //esegue il comando sulla partizione degli account
+				var reply = new JsonObject(); //crea un oggetto json di risposta al client
+				try {
+					gameService.registerUser(userName, password); //crea un nuovo account utente
+					reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+					var loginPath = LOGIN_RESOURCE_PATH.replace(":accountId", userName); //costruisce il link per il login
+					var accountPath = ACCOUNT_RESOURCE_PATH.replace(":accountId", userName); //costruisce il link per le informazioni dell'account
+					reply.put("loginLink", loginPath); //popola l'oggetto con il link per il login
+					reply.put("accountLink", accountPath); //popola l'oggetto con il link alle informazioni dell'account
+				} catch (AccountAlreadyPresentException ex) {
+					reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+					reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
+				}
+				return reply;
+			})
+			.onSuccess(reply -> sendReply(context.response(), reply)) //invia la risposta al client
+			.onFailure(ex -> sendError(context.response())); //invia un errore al client
 		});
 	}
 
@@ -103,23 +131,24 @@ public class GameServerController extends VerticleBase  {
     protected void getAccountInfo(RoutingContext context) {
         logger.log(Level.INFO, "get account info");
         var userName = context.pathParam("accountId"); //estrae (dall'url) il valore del campo "userName"
-        var reply = new JsonObject(); //crea un oggetto json di risposta al client
-        try {
-            var acc = gameService.getAccountInfo(userName); //recupera l'account associato a "userName"
-            reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-            var accJson = new JsonObject(); //crea un oggetto json account per memorizzare le informazioni dell'account
-            accJson.put("userName", acc.getUserName()); //popola l'oggetto account con il relativo username
-            accJson.put("password", acc.getPassword()); //popola l'oggetto account con la relativa password
-            accJson.put("whenCreated", acc.getWhenCreated()); //popola l'oggetto account con la relativa data di creazione
-            reply.put("accountInfo", accJson); //popola l'oggetto di risposta con l'oggetto account
-            sendReply(context.response(), reply); //invia la risposta al client
-        } catch (AccountNotFoundException ex) {
-            reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
-            reply.put("error", "account-not-present"); //popola l'oggetto con la specifica dell'errore
-            sendReply(context.response(), reply); //invia la risposta al client
-        } catch (Exception ex1) {
-            sendError(context.response()); //invia un errore al client
-        }
+        shards.accountShard().execute(gameService -> { //esegue il comando sulla partizione degli account
+            var reply = new JsonObject(); //crea un oggetto json di risposta al client
+            try {
+                var acc = gameService.getAccountInfo(userName); //recupera l'account associato a "userName"
+                reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+                var accJson = new JsonObject(); //crea un oggetto json account per memorizzare le informazioni dell'account
+                accJson.put("userName", acc.getUserName()); //popola l'oggetto account con il relativo username
+                accJson.put("password", acc.getPassword()); //popola l'oggetto account con la relativa password
+                accJson.put("whenCreated", acc.getWhenCreated()); //popola l'oggetto account con la relativa data di creazione
+                reply.put("accountInfo", accJson); //popola l'oggetto di risposta con l'oggetto account
+            } catch (AccountNotFoundException ex) {
+                reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+                reply.put("error", "account-not-present"); //popola l'oggetto con la specifica dell'errore
+            }
+            return reply;
+        })
+        .onSuccess(reply -> sendReply(context.response(), reply)) //invia la risposta al client
+        .onFailure(ex -> sendError(context.response())); //invia un errore al client
     }
 	
 	//logga un utente
@@ -130,24 +159,25 @@ public class GameServerController extends VerticleBase  {
 			logger.log(Level.INFO, "Payload: " + userInfo);
 			var userName = context.pathParam("accountId"); //estrae (dall'url) il valore del campo "userName"
 			var password = userInfo.getString("password"); //estrae il valore del campo "password"
-			var reply = new JsonObject(); //crea un oggetto json di risposta al client
-			try {
-				var session = gameService.login(userName, password); //esegue il login dell'utente
-				reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-				var createPath = CREATE_GAME_RESOURCE_PATH.replace(":sessionId", session.getSessionId()); //costruisce il link per la creazione della partita
-				var joinPath = JOIN_GAME_RESOURCE_PATH.replace(":sessionId", session.getSessionId()); //costruisce il link per entrare nella partita
-				reply.put("createGameLink", createPath); //popola l'oggetto con il link per la creazione della partita
-				reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per il login
-				reply.put("sessionId", session.getSessionId()); //popola l'oggetto con l'id della sessione
-				reply.put("sessionLink", USER_SESSIONS_RESOURCE_PATH + "/" + session.getSessionId()); //popola l'oggetto con il link della sessione
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (LoginFailedException ex) {
-				reply.put("result", "login-failed"); //popola l'oggetto con un'informazione di errore
-				reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (Exception ex1) {
-				sendError(context.response()); //invia un errore al client
-			}
+			shards.accountShard().execute(gameService -> { //esegue il comando sulla partizione degli account
+				var reply = new JsonObject(); //crea un oggetto json di risposta al client
+				try {
+					var session = gameService.login(userName, password); //esegue il login dell'utente
+					reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+					var createPath = CREATE_GAME_RESOURCE_PATH.replace(":sessionId", session.getSessionId()); //costruisce il link per la creazione della partita
+					var joinPath = JOIN_GAME_RESOURCE_PATH.replace(":sessionId", session.getSessionId()); //costruisce il link per entrare nella partita
+					reply.put("createGameLink", createPath); //popola l'oggetto con il link per la creazione della partita
+					reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per il login
+					reply.put("sessionId", session.getSessionId()); //popola l'oggetto con l'id della sessione
+					reply.put("sessionLink", USER_SESSIONS_RESOURCE_PATH + "/" + session.getSessionId()); //popola l'oggetto con il link della sessione
+				} catch (LoginFailedException ex) {
+					reply.put("result", "login-failed"); //popola l'oggetto con un'informazione di errore
+					reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
+				}
+				return reply;
+			})
+			.onSuccess(reply -> sendReply(context.response(), reply)) //invia la risposta al client
+			.onFailure(ex -> sendError(context.response())); //invia un errore al client
 		});
 	}
 	
@@ -157,59 +187,83 @@ public class GameServerController extends VerticleBase  {
 		context.request().handler(buf -> { //prende il body del messaggio http inviato dal client
 			JsonObject userInfo = buf.toJsonObject(); //converte il body in un oggetto json
 			var sessionId = context.pathParam("sessionId"); //estrae (dall'url) il valore del campo "sessionId"
-			var reply = new JsonObject(); //crea un oggetto json di risposta al client
-			try {
-				var session = gameService.getUserSession(sessionId); //recupera la sessione dell'utente
-				var gameId = userInfo.getString("gameId"); //estrae il valore del campo "gameId"
-				session.createNewGame(gameId); //crea una partita
-                var gamePath = GAME_RESOURCE_PATH.replace(":gameId", gameId); //costruisce il link per recuperare le informazioni della partita creata
-				reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-                reply.put("gameLink", gamePath); //popola l'oggetto con il link alla partita creata
-				var joinPath = JOIN_GAME_RESOURCE_PATH.replace(":sessionId", session.getSessionId()); //costruisce il link per entrare nella partita
-				reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per entrare nella partita
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (GameAlreadyPresentException ex) {
-				reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
-				reply.put("error", "game-already-present"); //popola l'oggetto con la specifica dell'errore
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (Exception ex1) {
-				sendError(context.response()); //invia un errore al client
-			}			
+			var gameId = userInfo.getString("gameId"); //estrae il valore del campo "gameId"
+			var width = userInfo.getInteger("width", 3); //estrae il valore (opzionale) del campo "width"
+			var height = userInfo.getInteger("height", 3); //estrae il valore (opzionale) del campo "height"
+			var winLength = userInfo.getInteger("winLength", 3); //estrae il valore (opzionale) del campo "winLength"
+			if (gameId == null) { //senza id la partita non ha una partizione
+				sendReply(context.response(), missingGameId()); //invia la risposta di errore al client
+				return;
+			}
+			shards.accountShard().execute(gameService -> gameService.getUserSession(sessionId).getSessionId()) //verifica la sessione dell'utente sulla partizione degli account
+			.compose(userSessionId -> shards.shardOf(gameId).execute(gameService -> { //esegue il comando sulla partizione che possiede la partita
+				var reply = new JsonObject(); //crea un oggetto json di risposta al client
+				try {
+					gameService.createNewGame(gameId, width, height, winLength); //crea una partita
+					var gamePath = GAME_RESOURCE_PATH.replace(":gameId", gameId); //costruisce il link per recuperare le informazioni della partita creata
+					reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+					reply.put("gameLink", gamePath); //popola l'oggetto con il link alla partita creata
+					var joinPath = JOIN_GAME_RESOURCE_PATH.replace(":sessionId", userSessionId); //costruisce il link per entrare nella partita
+					reply.put("joinGameLink", joinPath); //popola l'oggetto con il link per entrare nella partita
+				} catch (GameAlreadyPresentException ex) {
+					reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+					reply.put("error", "game-already-present"); //popola l'oggetto con la specifica dell'errore
+				} catch (IllegalArgumentException ex) {
+					reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+					reply.put("error", "invalid-board-size"); //popola l'oggetto con la specifica dell'errore
+				}
+				return reply;
+			}))
+			.onSuccess(reply -> sendReply(context.response(), reply)) //invia la risposta al client
+			.onFailure(ex -> sendError(context.response())); //invia un errore al client
 		});		
 	}
 
-	//recupera le informazioni di una partita
-    protected void getGameInfo(RoutingContext context) {
-        logger.log(Level.INFO, "get game info");
-        var gameId = context.pathParam("gameId"); //estrae (dall'url) il valore del campo "gameId"
-        var reply = new JsonObject(); //crea un oggetto json di risposta al client
-        try {
-            var game = gameService.getGameInfo(gameId); //recupera la partita con id "gameId"
-            reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-            var gameJson = new JsonObject(); //crea un oggetto json partita per memorizzare le informazioni della partita
-            gameJson.put("gameId", game.getId()); //popola l'oggetto partita con il relativo id
-            gameJson.put("gameState", game.getGameState()); //popola l'oggetto partita con il relativo stato
-            if (game.isStarted() || game.isFinished()) { //se la partita è iniziata o terminata
-                var bs = game.getBoardState(); //recupera lo stato della griglia
-                JsonArray array = new JsonArray(); //crea un arrray per lo stato della griglia
-                for (var el : bs) { //per ogni elemento della griglia
-                    array.add(el); //lo aggiunge all'array
-                }
-                gameJson.put("boardState", array); //popola l'oggetto partita con l'array
-            }
-            if (game.isStarted()) { //se la partita è iniziata
-                gameJson.put("turn", game.getCurrentTurn()); //popola l'oggetto partita con il turno corrente
-            }
-            reply.put("gameInfo", gameJson); //popola l'oggetto di risposta con l'oggetto partita
-            sendReply(context.response(), reply); //invia la risposta al client
-        } catch (GameNotFoundException ex) {
-            reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
-            reply.put("error", "game-not-present"); //popola l'oggetto con la specifica dell'errore
-            sendReply(context.response(), reply); //invia la risposta al client
-        } catch (Exception ex1) {
-            sendError(context.response()); //invia un errore al client
-        }
-    }
+	//recupera le informazioni di una partita (304 se il client ha già la versione corrente, indicata in If-None-Match)
+	//legge l'istantanea immutabile della partita direttamente sul contesto del controller, senza attendere la partizione che la possiede
+	protected void getGameInfo(RoutingContext context) {
+		logger.log(Level.INFO, "get game info");
+		var gameId = context.pathParam("gameId"); //estrae (dall'url) il valore del campo "gameId"
+		var response = context.response();
+		try {
+			var game = shards.shardOf(gameId).snapshotOf(gameId); //recupera l'istantanea della partita con id "gameId"
+			var etag = GameInfoCache.etag(game); //la versione della partita identifica la risposta
+			response.putHeader("ETag", etag);
+			if (GameInfoCache.matches(context.request().getHeader("If-None-Match"), etag)) { //il client ha già questa versione
+				response.setStatusCode(304).end(); //risponde senza leggere la griglia
+				return;
+			}
+			response.putHeader("content-type", "application/json"); //imposta l’header del messaggio http come json
+			response.end(infoCache.get(game, GameServerController::gameInfoReply)); //invia la risposta (codificata una sola volta per versione)
+		} catch (Exception ex) { //partita inesistente o errore
+			sendFailure(response, ex);
+		}
+	}
+
+	//codifica la risposta con le informazioni di una partita
+	static Buffer gameInfoReply(GameView game) {
+		var reply = new JsonObject(); //crea un oggetto json di risposta al client
+		reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+		var gameJson = new JsonObject(); //crea un oggetto json partita per memorizzare le informazioni della partita
+		gameJson.put("gameId", game.getId()); //popola l'oggetto partita con il relativo id
+		gameJson.put("gameState", game.getGameState()); //popola l'oggetto partita con il relativo stato
+		gameJson.put("width", game.getBoardWidth()); //popola l'oggetto partita con il numero di colonne della griglia
+		gameJson.put("height", game.getBoardHeight()); //popola l'oggetto partita con il numero di righe della griglia
+		gameJson.put("winLength", game.getWinLength()); //popola l'oggetto partita con il numero di simboli da allineare per vincere
+		if (game.isStarted() || game.isFinished()) { //se la partita è iniziata o terminata
+			var bs = game.getBoardState(); //recupera lo stato della griglia
+			JsonArray array = new JsonArray(); //crea un arrray per lo stato della griglia
+			for (var el : bs) { //per ogni elemento della griglia
+				array.add(el); //lo aggiunge all'array
+			}
+			gameJson.put("boardState", array); //popola l'oggetto partita con l'array
+		}
+		if (game.isStarted()) { //se la partita è iniziata
+			gameJson.put("turn", game.getCurrentTurn()); //popola l'oggetto partita con il turno corrente
+		}
+		reply.put("gameInfo", gameJson); //popola l'oggetto di risposta con l'oggetto partita
+		return reply.toBuffer();
+	}
 
     //consente a un utente di unirsi a una partita
 	protected void joinGame(RoutingContext context) {
@@ -220,85 +274,331 @@ public class GameServerController extends VerticleBase  {
 			String sessionId = context.pathParam("sessionId"); //estrae (dall'url) il valore del campo "sessionId"
 			String gameId = joinInfo.getString("gameId"); //estrae il valore del campo "gameId"
 			String symbol = joinInfo.getString("symbol"); //estrae il valore del campo "symbol"
-			var reply = new JsonObject(); //crea un oggetto json di risposta al client
-			try {
-				var session = gameService.getUserSession(sessionId); //recupera la sessione dell'utente
-				var playerSession = session.joinGame(gameId, symbol.equals("X") ? TTTSymbol.X : TTTSymbol.O, new VertxPlayerSessionEventObserver(vertx.eventBus())); //esegue il join dell'utente nella partita
-				var movePath = PLAYER_MOVE_RESOURCE_PATH.replace(":gameId", gameId).replace(":playerSessionId",playerSession.getId()); //costruisce il link per eseguire una mossa nella partita
-                var gamePath = GAME_RESOURCE_PATH.replace(":gameId", gameId); //costruisce il link per recuperare le informazioni della partita creata
-                reply.put("playerSessionId", playerSession.getId()); //popola l'oggetto con l'id della sessione giocatore
-				reply.put("moveLink", movePath); //popola l'oggetto con il link per eseguire la mossa
-                reply.put("gameLink", gamePath); //popola l'oggetto con il link alla partita
-                reply.put("playerSessionLink", gamePath + "/player-" + symbol); //popola l'oggetto con il link alla partita dal punto di vista del giocatore
-                reply.put("eventChannelLink", WS_EVENT_CHANNEL_PATH); //popola l'oggetto con il link che il client deve usare per ricevere gli eventi di una partita
-				reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (InvalidJoinException  ex) {
-				reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
-				reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (Exception ex1) {
-				sendError(context.response()); //invia un errore al client
-			}			
+			if (gameId == null) { //senza id la partita non ha una partizione
+				sendReply(context.response(), missingGameId()); //invia la risposta di errore al client
+				return;
+			}
+			var gameShard = shards.shardOf(gameId); //partizione che possiede la partita
+			var notifier = new VertxPlayerSessionEventObserver(vertx.eventBus()); //crea il notificatore degli eventi della sessione giocatore
+			shards.accountShard().execute(gameService -> gameService.getUserSession(sessionId).getUserId()) //recupera l'utente della sessione sulla partizione degli account
+			.compose(userId -> gameShard.execute(gameService -> joinGame(gameService, userId, gameId, symbol, notifier))) //esegue il join sulla partizione che possiede la partita
+			.onSuccess(reply -> sendReply(context.response(), reply)) //invia la risposta al client
+			.onFailure(ex -> sendError(context.response())); //invia un errore al client
 		});
 	}
 
+	//esegue il join dell'utente nella partita (sulla partizione che la possiede) e costruisce la risposta
+	private JsonObject joinGame(GameService gameService, UserId userId, String gameId, String symbol, VertxPlayerSessionEventObserver notifier) {
+		var reply = new JsonObject(); //crea un oggetto json di risposta al client
+		try {
+			var playerSession = gameService.joinGame(userId, gameId, symbol.equals("X") ? TTTSymbol.X : TTTSymbol.O, notifier); //esegue il join dell'utente nella partita
+			var movePath = PLAYER_MOVE_RESOURCE_PATH.replace(":gameId", gameId).replace(":playerSessionId",playerSession.getId()); //costruisce il link per eseguire una mossa nella partita
+			var gamePath = GAME_RESOURCE_PATH.replace(":gameId", gameId); //costruisce il link per recuperare le informazioni della partita creata
+			reply.put("playerSessionId", playerSession.getId()); //popola l'oggetto con l'id della sessione giocatore
+			reply.put("moveLink", movePath); //popola l'oggetto con il link per eseguire la mossa
+			reply.put("gameLink", gamePath); //popola l'oggetto con il link alla partita
+			reply.put("playerSessionLink", gamePath + "/player-" + symbol); //popola l'oggetto con il link alla partita dal punto di vista del giocatore
+			reply.put("eventChannelLink", WS_EVENT_CHANNEL_PATH); //popola l'oggetto con il link che il client deve usare per ricevere gli eventi di una partita
+			reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+		} catch (InvalidJoinException  ex) {
+			reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+			reply.put("error", ex.getMessage()); //popola l'oggetto con la specifica dell'errore
+		}
+		return reply;
+	}
+
     //esegue una mossa
 	protected void makeAMove(RoutingContext context) {
 		logger.log(Level.INFO, "MakeAMove request - " + context.currentRoute().getPath());
 		context.request().handler(buf -> { //prende il body del messaggio http inviato dal client
-			var reply = new JsonObject(); //crea un oggetto json di risposta al client
-			try {
-				JsonObject moveInfo = buf.toJsonObject(); //converte il body in un oggetto json
-				logger.log(Level.INFO, "move info: " + moveInfo);
-                String playerSessionId = moveInfo.getString("playerSessionId"); //estrae il valore del campo "playerSessionId"
-				int x = Integer.parseInt(moveInfo.getString("x")); //estrae il valore del campo "x" e lo converte in un intero
-				int y = Integer.parseInt(moveInfo.getString("y")); //estrae il valore del campo "y" e lo converte in un intero
-				var ps = gameService.getPlayerSession(playerSessionId); //recupera la sessione del giocatore
-                ps.makeMove(x, y); //fa eseguire al giocatore una mossa
-				reply.put("result", "accepted"); //popola l'oggetto con un'informazione di successo
-				var gameId = moveInfo.getString("gameId"); //estrae il valore del campo "gameId"
-                var movePath = PLAYER_MOVE_RESOURCE_PATH.replace(":gameId",gameId).replace(":playerSessionId",ps.getId()); //costruisce il link per eseguire una mossa nella partita
-                var gamePath = GAME_RESOURCE_PATH.replace(":gameId", gameId); //costruisce il link per recuperare le informazioni della partita creata
-                reply.put("moveLink", movePath); //popola l'oggetto con il link per eseguire la mossa
-                reply.put("gameLink", gamePath); //popola l'oggetto con il link alla partita
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (InvalidMoveException ex) {
-				reply.put("result", "invalid-move"); //popola l'oggetto con un'informazione di errore
-				sendReply(context.response(), reply); //invia la risposta al client
-			} catch (Exception ex1) {
-				reply.put("result", ex1.getMessage()); //popola l'oggetto con la specifica dell'errore
+			shards.shardOf(context.pathParam("gameId")).execute(gameService -> { //esegue il comando sulla partizione che possiede la partita
+				var reply = new JsonObject(); //crea un oggetto json di risposta al client
 				try {
-					sendReply(context.response(), reply); //invia la risposta al client
-				} catch (Exception ex2) {
-					sendError(context.response()); //invia un errore al client
-				}				
+					JsonObject moveInfo = buf.toJsonObject(); //converte il body in un oggetto json
+					logger.log(Level.INFO, "move info: " + moveInfo);
+					String playerSessionId = moveInfo.getString("playerSessionId"); //estrae il valore del campo "playerSessionId"
+					int x = Integer.parseInt(moveInfo.getString("x")); //estrae il valore del campo "x" e lo converte in un intero
+					int y = Integer.parseInt(moveInfo.getString("y")); //estrae il valore del campo "y" e lo converte in un intero
+					var ps = gameService.getPlayerSession(playerSessionId); //recupera la sessione del giocatore
+					ps.makeMove(x, y); //fa eseguire al giocatore una mossa
+					reply.put("result", "accepted"); //popola l'oggetto con un'informazione di successo
+					var gameId = moveInfo.getString("gameId"); //estrae il valore del campo "gameId"
+					var movePath = PLAYER_MOVE_RESOURCE_PATH.replace(":gameId",gameId).replace(":playerSessionId",ps.getId()); //costruisce il link per eseguire una mossa nella partita
+					var gamePath = GAME_RESOURCE_PATH.replace(":gameId", gameId); //costruisce il link per recuperare le informazioni della partita creata
+					reply.put("moveLink", movePath); //popola l'oggetto con il link per eseguire la mossa
+					reply.put("gameLink", gamePath); //popola l'oggetto con il link alla partita
+				} catch (InvalidMoveException ex) {
+					reply.put("result", "invalid-move"); //popola l'oggetto con un'informazione di errore
+				} catch (Exception ex1) {
+					reply.put("result", ex1.getMessage()); //popola l'oggetto con la specifica dell'errore
+				}
+				return reply;
+			})
+			.onSuccess(reply -> sendReply(context.response(), reply)) //invia la risposta al client
+			.onFailure(ex -> sendError(context.response())); //invia un errore al client
+		});
+	}
+
+	//recupera i contatori di partite e sessioni vive e archiviate (sommati su tutte le partizioni)
+	protected void getLifecycleStats(RoutingContext context) {
+		var futs = new ArrayList<Future<LifecycleStats>>();
+		for (var shard : shards.all()) { //per ogni partizione
+			futs.add(shard.execute(gameService -> gameService.getLifecycleStats())); //recupera i contatori sulla partizione
+		}
+		Future.all(futs).onSuccess(res -> {
+			var total = new LifecycleStats(0, 0, 0, 0, 0, 0, 0, 0);
+			for (var f : futs) {
+				total = total.plus(f.result());
+			}
+			var reply = new JsonObject(); //crea un oggetto json di risposta al client
+			reply.put("result", "ok"); //popola l'oggetto con un'informazione di successo
+			reply.put("liveGames", total.liveGames()); //partite in corso
+			reply.put("archivedGames", total.archivedGames()); //partite archiviate
+			reply.put("userSessions", total.userSessions()); //sessioni utente attive
+			reply.put("playerSessions", total.playerSessions()); //sessioni giocatore attive
+			reply.put("evictedGames", total.evictedGames()); //totale delle partite archiviate dall'avvio
+			reply.put("discardedGames", total.discardedGames()); //totale delle partite archiviate e poi scartate dall'avvio
+			reply.put("expiredUserSessions", total.expiredUserSessions()); //totale delle sessioni utente scadute dall'avvio
+			reply.put("expiredPlayerSessions", total.expiredPlayerSessions()); //totale delle sessioni giocatore scadute dall'avvio
+			reply.put("eventSockets", topics.getSockets()); //websocket aperti sul canale degli eventi (di questa istanza del controller)
+			reply.put("eventSubscriptions", topics.getSubscriptions()); //partite seguite dai websocket aperti (di questa istanza del controller)
+			reply.put("eventTopics", topics.size()); //topic delle partite con almeno un iscritto (di questa istanza del controller)
+			reply.put("eventStreams", topics.getStreams()); //stream server-sent events aperti (di questa istanza del controller)
+			reply.put("parkedPolls", topics.getParkedPolls()); //richieste long-poll in attesa di un evento (di questa istanza del controller)
+			reply.put("gameInfoCacheHits", infoCache.getHits()); //richieste GET /games/:gameId servite dalla cache (di questa istanza del controller)
+			reply.put("gameInfoCacheMisses", infoCache.getMisses()); //richieste GET /games/:gameId che hanno codificato la risposta (di questa istanza del controller)
+			sendReply(context.response(), reply); //invia la risposta al client
+		})
+		.onFailure(ex -> sendError(context.response())); //invia un errore al client
+	}
+
+	/*
+	apre uno stream server-sent events con gli eventi di una partita
+	riparte dall'evento successivo a "Last-Event-ID" (inviato dal browser alla riconnessione) o a "since", altrimenti dall'istantanea della partita
+	*/
+	protected void streamGameEvents(RoutingContext context) {
+		var gameId = context.pathParam("gameId"); //estrae (dall'url) il valore del campo "gameId"
+		var lastEventId = context.request().getHeader("Last-Event-ID");
+		long since = parseSince(lastEventId != null ? lastEventId : context.request().getParam("since"), -1);
+		var response = context.response();
+		topics.open(gameId); //apre il topic della partita (lo stesso dei websocket)
+		shards.shardOf(gameId).execute(gameService -> { //legge il recupero sulla partizione che possiede la partita
+			topics.stream(gameId, response, catchUp(gameService, gameId, since)); //invia gli eventi persi (o l'istantanea) e poi quelli del topic
+			return null;
+		})
+		.onFailure(ex -> {
+			topics.cancel(gameId);
+			sendFailure(response, ex);
+		});
+	}
+
+	/*
+	attende gli eventi di una partita successivi al numero di sequenza "since" (long-poll)
+	se ci sono già eventi (o se serve un'istantanea) risponde subito, altrimenti la richiesta resta in attesa del prossimo evento (senza thread)
+	la risposta contiene gli eventi e il numero di sequenza ("seq") da indicare nella richiesta successiva; senza eventi entro il timeout risponde 204
+	*/
+	protected void pollGameEvents(RoutingContext context) {
+		var gameId = context.pathParam("gameId"); //estrae (dall'url) il valore del campo "gameId"
+		long since = parseSince(context.request().getParam("since"), -1);
+		var response = context.response();
+		topics.open(gameId); //apre il topic della partita (lo stesso dei websocket)
+		shards.shardOf(gameId).execute(gameService -> { //legge gli eventi persi sulla partizione che possiede la partita
+			var events = catchUp(gameService, gameId, since);
+			if (events.isEmpty()) { //il client è aggiornato: attende il prossimo evento
+				topics.park(gameId, response, POLL_TIMEOUT);
+			}
+			return events;
+		})
+		.onSuccess(events -> {
+			if (!events.isEmpty()) { //risponde subito con gli eventi persi (o l'istantanea)
+				topics.cancel(gameId);
+				var last = (GameEventMessage.Sequenced) events.get(events.size() - 1);
+				response.putHeader("content-type", "application/json").end(GameEventTopics.pollReply(events, last.seq()));
 			}
+		})
+		.onFailure(ex -> {
+			topics.cancel(gameId);
+			sendFailure(response, ex);
 		});
 	}
 
+	//ricava il numero di sequenza indicato dal client (defaultValue se assente o non valida)
+	static long parseSince(String since, long defaultValue) {
+		try {
+			return since == null ? defaultValue : Long.parseLong(since.trim());
+		} catch (NumberFormatException ex) {
+			return defaultValue;
+		}
+	}
+
+	//invia al client l'errore di partita inesistente o, per altri errori, una risposta di errore
+	private void sendFailure(HttpServerResponse response, Throwable ex) {
+		if (ex instanceof GameNotFoundException) {
+			var reply = new JsonObject(); //crea un oggetto json di risposta al client
+			reply.put("result", "error"); //popola l'oggetto con un'informazione di errore
+			reply.put("error", "game-not-present"); //popola l'oggetto con la specifica dell'errore
+			sendReply(response, reply); //invia la risposta al client
+		} else {
+			sendError(response); //invia un errore al client
+		}
+	}
+
     //registra un websocket handler al server
     protected void handleEventSubscription(HttpServer server) {
         server.webSocketHandler(webSocket -> { //registra un handler per websocket
             logger.log(Level.INFO, "New TTT subscription accepted.");
-            webSocket.textMessageHandler(openMsg -> { //imposta un handler per i messaggi ricevuti dal client
-                logger.log(Level.INFO, "For game: " + openMsg);
+            topics.track(webSocket); //alla chiusura il websocket lascia tutti i topic a cui si iscrive
+            var followed = new ArrayList<PlayerSession>(); //sessioni giocatore seguite dal websocket (ogni frame del client le mantiene attive)
+            webSocket.binaryMessageHandler(buf -> { //comandi in forma binaria compatta
+                touch(followed);
+                GameCommandFrames.Command command;
+                try {
+                    command = GameCommandFrames.fromBinary(buf); //decodifica il comando
+                } catch (RuntimeException ex) { //frame non valido
+                    webSocket.close(); //chiude il websocket
+                    return;
+                }
+                topics.useBinary(webSocket); //da qui in poi anche gli eventi sono inviati in forma binaria
+                handleCommand(webSocket, command, true, followed);
+            });
+            webSocket.textMessageHandler(openMsg -> { //imposta un handler per i messaggi ricevuti dal client (ogni messaggio aggiunge o rimuove un'iscrizione, oppure è un comando)
+                touch(followed);
                 JsonObject obj = new JsonObject(openMsg); //converte il messaggio ricevuto dal client in un oggetto json
-                String playerSessionId = obj.getString("playerSessionId"); //estrae il valore del campo "playerSessionId"
-                EventBus eb = vertx.eventBus(); //recupera l'event bus di vertx
-                eb.consumer(playerSessionId, msg -> { //iscrive l'event bus alla sessione giocatore e, ogni volta che arriva un messaggio all'event bus...
-                    JsonObject ev = (JsonObject) msg.body(); //...lo converte in json
-                    logger.log(Level.INFO, "Event: " + ev.encodePrettily());
-                    webSocket.writeTextMessage(ev.encodePrettily()); //lo invia al client tramite websocket
-                });
-
-                var ps = gameService.getPlayerSession(playerSessionId); //recupera la sessione del giocatore corrispondente al servizio principale (ovvero l'utente in prima persona)
-                var en = ps.getPlayerSessionEventNotifier(); //recupera il notificatore di eventi della sessione del giocatore
-                en.enableEventNotification(playerSessionId); //abilita la notifica degli eventi per questa sessione sul bus con l'indirizzo "playerSessionId"
+                if (obj.containsKey("cmd")) { //se il client invia un comando (ingresso in una partita o mossa)
+                    GameCommandFrames.Command command;
+                    try {
+                        command = GameCommandFrames.fromJson(obj); //decodifica il comando
+                    } catch (RuntimeException ex) { //comando non valido (sconosciuto, campi mancanti o del tipo sbagliato): il client riceve comunque la risposta
+                        sendAck(webSocket, GameCommandFrames.Ack.error(GameCommandFrames.idOf(obj), "invalid-command"), false);
+                        return;
+                    }
+                    handleCommand(webSocket, command, false, followed);
+                    return;
+                }
+                logger.log(Level.INFO, "For game: " + openMsg);
+                if (obj.containsKey("spectate")) { //se il client vuole seguire una partita come spettatore
+                    watchGame(obj.getString("spectate"), webSocket, obj.getLong("lastSeq", -1L)); //da "lastSeq", se indicato, altrimenti da un'istantanea
+                    return;
+                }
+                if (obj.containsKey("unsubscribe")) { //se il client non vuole più seguire una partita
+                    topics.unsubscribe(obj.getString("unsubscribe"), webSocket);
+                    return;
+                }
+                followPlayerSession(webSocket, obj.getString("playerSessionId"), obj.getLong("lastSeq", 0L), true, followed); //il client che si riconnette indica l'ultimo evento ricevuto ("lastSeq")
             });
         });
     }
 
+	/*
+	iscrive il websocket agli eventi della partita di una sessione giocatore, a partire dall'evento successivo a lastSeq
+	(se la sessione non esiste e closeIfMissing è true chiude il websocket)
+	*/
+	private void followPlayerSession(ServerWebSocket webSocket, String playerSessionId, long lastSeq, boolean closeIfMissing, List<PlayerSession> followed) {
+		if (playerSessionId == null) { //sessione non indicata: come una sessione inesistente
+			if (closeIfMissing) {
+				webSocket.close(); //chiude il websocket
+			}
+			return;
+		}
+		var shard = shards.shardOfPlayerSession(playerSessionId); //partizione che possiede la sessione giocatore (e la sua partita)
+		shard.execute(gameService -> gameService.getPlayerSession(playerSessionId)).onComplete(ar -> { //recupera la sessione (e la sua partita)
+			if (ar.failed() || ar.result() == null) { //se la sessione non esiste
+				if (closeIfMissing) {
+					webSocket.close(); //chiude il websocket
+				}
+				return;
+			}
+			followed.add(ar.result()); //da qui in poi l'attività sul websocket conta come attività della sessione
+			var gameId = ar.result().getGameId();
+			topics.open(gameId); //apre il topic della partita (un solo consumer sull'event bus per tutti i websocket della partita)
+			shard.execute(gameService -> {
+				topics.subscribe(gameId, webSocket, catchUp(gameService, gameId, lastSeq)); //invia al client gli eventi persi e poi quelli pubblicati sul topic della partita
+				return null;
+			}).onFailure(ex -> topics.cancel(gameId));
+		});
+	}
+
+	/*
+	recupera gli eventi della partita successivi a lastSeq (con il loro numero di sequenza)
+	se non sono più tutti disponibili restituisce l'istantanea della partita, con il numero di sequenza dell'ultimo evento
+	va eseguito sulla partizione che possiede la partita
+	*/
+	static List<GameEventMessage> catchUp(GameService gameService, String gameId, long lastSeq) throws GameNotFoundException {
+		var missed = gameService.getGameEventsSince(gameId, lastSeq);
+		if (missed.isPresent()) {
+			return missed.get().stream().<GameEventMessage>map(e -> GameEventMessage.of(e.seq(), e.event())).toList();
+		}
+		long seq = gameService.getLastGameEventSeq(gameId); //letto prima dell'istantanea (sulla stessa partizione, quindi coerente)
+		return List.of(new GameEventMessage.Sequenced(seq, GameEventMessage.Snapshot.of(gameService.getGameInfo(gameId))));
+	}
+
+	//esegue un comando ricevuto sul websocket e invia la risposta (con l'id del comando) nella stessa forma del comando
+	private void handleCommand(ServerWebSocket webSocket, GameCommandFrames.Command command, boolean binary, List<PlayerSession> followed) {
+		if (command instanceof GameCommandFrames.Join join) { //ingresso in una partita (user è la sessione utente): il websocket riceve anche gli eventi della partita
+			if (!join.symbol().equals("X") && !join.symbol().equals("O")) { //simbolo non valido: nessun ingresso
+				sendAck(webSocket, GameCommandFrames.Ack.error(join.id(), "invalid-symbol"), binary);
+				return;
+			}
+			var notifier = new VertxPlayerSessionEventObserver(vertx.eventBus()); //crea il notificatore degli eventi della sessione giocatore
+			var symbol = TTTSymbol.valueOf(join.symbol());
+			shards.accountShard().execute(gameService -> gameService.getUserSession(join.user()).getUserId()) //recupera l'utente della sessione sulla partizione degli account
+			.compose(userId -> shards.shardOf(join.gameId()).execute(gameService -> gameService.joinGame(userId, join.gameId(), symbol, notifier).getId())) //esegue il join sulla partizione che possiede la partita
+			.onSuccess(playerSessionId -> {
+				sendAck(webSocket, GameCommandFrames.Ack.ok(join.id(), playerSessionId), binary); //la risposta precede gli eventi della partita
+				followPlayerSession(webSocket, playerSessionId, 0, false, followed);
+			})
+			.onFailure(ex -> sendAck(webSocket, GameCommandFrames.Ack.error(join.id(), ex), binary));
+		} else if (command instanceof GameCommandFrames.Move move) { //mossa (con più partizioni l'evento corrispondente può arrivare prima della risposta)
+			shards.shardOfPlayerSession(move.playerSessionId()).execute(gameService -> { //esegue il comando sulla partizione che possiede la sessione (e la sua partita)
+				try {
+					gameService.getPlayerSession(move.playerSessionId()).makeMove(move.x(), move.y()); //fa eseguire al giocatore una mossa
+					return GameCommandFrames.Ack.accepted(move.id());
+				} catch (InvalidMoveException ex) {
+					return GameCommandFrames.Ack.invalidMove(move.id());
+				}
+			})
+			.onSuccess(ack -> sendAck(webSocket, ack, binary))
+			.onFailure(ex -> sendAck(webSocket, GameCommandFrames.Ack.error(move.id(), ex), binary));
+		}
+	}
+
+	//segna come attive le sessioni giocatore seguite da un websocket (chi gioca solo sul websocket non viene considerato inattivo)
+	private static void touch(List<PlayerSession> followed) {
+		for (var ps : followed) {
+			ps.touch();
+		}
+	}
+
+	//invia la risposta ad un comando
+	private void sendAck(ServerWebSocket webSocket, GameCommandFrames.Ack ack, boolean binary) {
+		if (binary) {
+			webSocket.writeBinaryMessage(ack.toBinary());
+		} else {
+			webSocket.writeTextMessage(ack.toJson());
+		}
+	}
+
+	//iscrive il websocket di uno spettatore al topic della partita: riceve gli eventi successivi a lastSeq (o l'istantanea della partita) e poi gli eventi del topic
+	private void watchGame(String gameId, ServerWebSocket webSocket, long lastSeq) {
+		if (gameId == null) { //partita non indicata: come una partita inesistente
+			webSocket.close(); //chiude il websocket
+			return;
+		}
+		topics.open(gameId); //apre il topic della partita
+		shards.shardOf(gameId).execute(gameService -> { //legge il recupero sulla partizione che possiede la partita
+			topics.watch(gameId, webSocket, catchUp(gameService, gameId, lastSeq), seq -> watchGame(gameId, webSocket, seq)); //invia gli eventi persi (o l'istantanea) e poi gli eventi (e ripete l'iscrizione se lo spettatore resta indietro)
+			return null;
+		}).onFailure(ex -> { //se la partita non esiste
+			topics.cancel(gameId);
+			webSocket.close(); //chiude il websocket
+		});
+	}
+
+    //risposta di errore per una richiesta senza id della partita
+    private static JsonObject missingGameId() {
+        return new JsonObject().put("result", "error").put("error", "missing-game-id");
+    }
+
     //invia la risposta al client
     private void sendReply(HttpServerResponse response, JsonObject reply) {
         response.putHeader("content-type", "application/json"); //imposta l’header del messaggio http come json
@@ -0,0 +1,87 @@
+package monolith_ttt_game_server.infrastructure;
+
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.VerticleBase;
+import io.vertx.core.Vertx;
+import monolith_ttt_game_server.application.GameNotFoundException;
+import monolith_ttt_game_server.application.GameService;
+import monolith_ttt_game_server.domain.GameView;
+
+/*
+partizione (shard) del servizio di gioco
+possiede un'istanza del servizio (con i propri repository) e ne esegue tutti i comandi sul proprio event loop:
+lo stato della partizione ha un solo thread scrittore, quindi non servono lock
+*/
+public class GameShard extends VerticleBase {
+
+	//comando da eseguire sul servizio della partizione
+	@FunctionalInterface
+	public interface Command<T> {
+		T execute(GameService service) throws Exception;
+	}
+
+	static final long EVICTION_PERIOD = 10_000; //intervallo (in ms) tra due passaggi di pulizia di partite terminate e sessioni inattive
+	private final int index; //indice della partizione
+	private final GameService service; //servizio posseduto dalla partizione
+
+	public GameShard(int index, GameService service) {
+		this.index = index;
+		this.service = service;
+	}
+
+	//recupera l'indice della partizione
+	public int getIndex() {
+		return index;
+	}
+
+	//legge l'istantanea immutabile di una partita sul thread del chiamante, senza passare dal thread della partizione
+	//(i repository della partizione sono concorrenti e ogni partita pubblica le proprie istantanee con un riferimento volatile)
+	public GameView snapshotOf(String gameId) throws GameNotFoundException {
+		return service.getGameSnapshot(gameId);
+	}
+
+	//esegue un comando sulla partizione e ne restituisce il risultato sul contesto del chiamante
+	public <T> Future<T> execute(Command<T> command) {
+		Context owner = context; //contesto della partizione (null se la partizione non è stata avviata come verticle)
+		if (owner == null || Vertx.currentContext() == owner) { //se il chiamante è già sul thread della partizione
+			try {
+				return Future.succeededFuture(command.execute(service)); //esegue il comando direttamente
+			} catch (Exception ex) {
+				return Future.failedFuture(ex);
+			}
+		}
+		Context caller = Vertx.currentContext(); //contesto del chiamante (es. event loop del controller)
+		Promise<T> promise = Promise.promise();
+		owner.runOnContext(v -> { //esegue il comando sul thread della partizione
+			try {
+				T res = command.execute(service);
+				complete(caller, () -> promise.complete(res)); //restituisce il risultato sul contesto del chiamante
+			} catch (Exception ex) {
+				complete(caller, () -> promise.fail(ex));
+			}
+		});
+		return promise.future();
+	}
+
+	//completa la promise sul contesto del chiamante (se presente)
+	private void complete(Context caller, Runnable completion) {
+		if (caller == null) {
+			completion.run();
+		} else {
+			caller.runOnContext(v -> completion.run());
+		}
+	}
+
+	//pianifica la pulizia periodica del servizio sul contesto corrente (che deve essere quello che esegue i comandi della partizione)
+	public void scheduleEviction(Vertx vertx) {
+		vertx.setPeriodic(EVICTION_PERIOD, id -> service.evictExpired());
+	}
+
+	//avvia la partizione (il contesto del verticle diventa il thread scrittore della partizione)
+	public Future<?> start() {
+		scheduleEviction(vertx);
+		return Future.succeededFuture();
+	}
+}
@@ -0,0 +1,85 @@
+package monolith_ttt_game_server.infrastructure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import common.ids.IdGenerator;
+import common.ids.TimeNodeSequenceIdGenerator;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import monolith_ttt_game_server.application.GameService;
+import monolith_ttt_game_server.application.PlayerSessions;
+
+/*
+insieme delle partizioni (shard) del servizio di gioco
+ogni comando relativo ad una partita viene instradato sempre alla stessa partizione (in base al suo id),
+mentre account e sessioni utente sono gestiti dalla prima partizione;
+ogni partizione genera gli id delle sessioni usando il proprio indice come id del nodo, quindi la partizione si ricava dall'id stesso
+*/
+public class GameShards {
+
+	private final List<GameShard> shards; //partizioni
+
+	private GameShards(List<GameShard> shards) {
+		this.shards = shards;
+	}
+
+	//crea un'unica partizione che esegue i comandi direttamente sul chiamante (modalità non partizionata)
+	public static GameShards single(GameService service) {
+		return new GameShards(List.of(new GameShard(0, service)));
+	}
+
+	//crea count partizioni, ciascuna con il proprio servizio
+	public static GameShards create(int count, IntFunction<GameService> serviceFactory) {
+		var shards = new ArrayList<GameShard>(count);
+		for (int i = 0; i < count; i++) { //per ogni partizione
+			shards.add(new GameShard(i, serviceFactory.apply(i))); //crea la partizione con il proprio servizio
+		}
+		return new GameShards(shards);
+	}
+
+	//avvia le partizioni come verticle, ciascuna sul proprio event loop
+	public Future<Void> deploy(Vertx vertx) {
+		var futs = new ArrayList<Future<String>>();
+		for (var shard : shards) {
+			futs.add(vertx.deployVerticle(shard));
+		}
+		return Future.all(futs).mapEmpty();
+	}
+
+	//recupera il numero di partizioni
+	public int size() {
+		return shards.size();
+	}
+
+	//recupera tutte le partizioni
+	public List<GameShard> all() {
+		return shards;
+	}
+
+	//recupera la partizione che gestisce account e sessioni utente
+	public GameShard accountShard() {
+		return shards.get(0);
+	}
+
+	//recupera la partizione che possiede la partita (l'id è obbligatorio)
+	public GameShard shardOf(String gameId) {
+		if (gameId == null) {
+			throw new IllegalArgumentException("missing game id");
+		}
+		return shards.get(Math.floorMod(gameId.hashCode(), shards.size()));
+	}
+
+	//recupera la partizione che possiede la sessione giocatore (l'id è obbligatorio; un id non generato da una partizione va alla prima)
+	public GameShard shardOfPlayerSession(String playerSessionId) {
+		if (playerSessionId == null) {
+			throw new IllegalArgumentException("missing player session id");
+		}
+		if (shards.size() == 1) { //se non ci sono partizioni multiple
+			return shards.get(0);
+		}
+		long id = IdGenerator.parse(PlayerSessions.ID_PREFIX, playerSessionId);
+		int node = id < 0 ? 0 : TimeNodeSequenceIdGenerator.nodeOf(id); //il nodo che ha generato l'id è l'indice della partizione
+		return node < shards.size() ? shards.get(node) : accountShard();
+	}
+}
@@ -1,6 +1,6 @@
 package monolith_ttt_game_server.infrastructure;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import common.exagonal.Adapter;
 import monolith_ttt_game_server.application.AccountRepository;
 import monolith_ttt_game_server.domain.Account;
@@ -9,10 +9,10 @@ import monolith_ttt_game_server.domain.Account;
 @Adapter
 public class InMemoryAccountRepository implements AccountRepository {
 
-	private HashMap<String, Account> userAccounts; //hashamp che associa l'utente all'account
+	private ConcurrentHashMap<String, Account> userAccounts; //mappa concorrente che associa l'utente all'account
 	
 	public InMemoryAccountRepository() {
-		userAccounts = new HashMap<>();
+		userAccounts = new ConcurrentHashMap<>();
 	}
 
 	//aggiunge un account
@@ -20,6 +20,11 @@ public class InMemoryAccountRepository implements AccountRepository {
 		userAccounts.put(account.getId(), account);
 	}
 
+	//aggiunge un account solo se non ne esiste già uno con lo stesso username (in modo atomico)
+	public boolean addAccountIfAbsent(Account account) {
+		return userAccounts.putIfAbsent(account.getId(), account) == null;
+	}
+
 	//recupera un account
 	@Override
 	public Account getAccount(String userName) {
@@ -33,7 +38,8 @@ public class InMemoryAccountRepository implements AccountRepository {
 
 	//verifica l'autenticazione
 	public boolean isValid(String userName, String password) {
-		return (userAccounts.containsKey(userName) && userAccounts.get(userName).getPassword().equals(password));
+		var account = userAccounts.get(userName); //recupera l'account con un'unica lettura
+		return (account != null && account.getPassword().equals(password));
 	}
 
 	
@@ -1,6 +1,8 @@
 package monolith_ttt_game_server.infrastructure;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import common.exagonal.Adapter;
 import monolith_ttt_game_server.application.GameRepository;
 import monolith_ttt_game_server.domain.Game;
@@ -9,10 +11,10 @@ import monolith_ttt_game_server.domain.Game;
 @Adapter
 public class InMemoryGameRepository implements GameRepository {
 
-	private HashMap<String, Game> games; //hashmap che associa l'id della partita alla partita
+	private ConcurrentHashMap<String, Game> games; //mappa concorrente che associa l'id della partita alla partita
 
 	public InMemoryGameRepository() {
-		games = new HashMap<>();
+		games = new ConcurrentHashMap<>();
 	}
 
 	//aggiunge una partita
@@ -21,6 +23,11 @@ public class InMemoryGameRepository implements GameRepository {
 		
 	}
 
+	//aggiunge una partita solo se non ne esiste già una con lo stesso id (in modo atomico)
+	public boolean addGameIfAbsent(Game game) {
+		return games.putIfAbsent(game.getId(), game) == null;
+	}
+
 	//verifica la presenza di un account
 	public boolean isPresent(String gameId) {
 		return games.containsKey(gameId);
@@ -30,4 +37,25 @@ public class InMemoryGameRepository implements GameRepository {
 	public Game getGame(String gameId) {
 		return games.get(gameId);
 	}
+
+	//rimuove una partita
+	public void removeGame(String gameId) {
+		games.remove(gameId);
+	}
+
+	//recupera le partite terminate prima dell'istante indicato
+	public List<Game> getGamesFinishedBefore(long time) {
+		var finished = new ArrayList<Game>();
+		for (var game : games.values()) {
+			if (game.isFinished() && game.getFinishedAt() < time) {
+				finished.add(game);
+			}
+		}
+		return finished;
+	}
+
+	//recupera il numero di partite presenti
+	public int count() {
+		return games.size();
+	}
 }
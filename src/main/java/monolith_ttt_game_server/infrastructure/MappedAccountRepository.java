@@ -0,0 +1,377 @@
+package monolith_ttt_game_server.infrastructure;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import common.exagonal.Adapter;
+import monolith_ttt_game_server.application.AccountRepository;
+import monolith_ttt_game_server.domain.Account;
+
+/*
+implementazione della porta di uscita che collega l'architettura (applicazione) al db degli account,
+con gli account memorizzati in file mappati in memoria (persistenti tra un riavvio e l'altro):
+- accounts.dat: record in sola aggiunta [hash][lunghezza username][lunghezza password][data di creazione][username][password]
+- accounts.idx: intestazione + tabella hash ad indirizzamento aperto sugli username (un long per cella: impronta dell'hash + posizione del record)
+all'avvio i file vengono solo mappati (nessuna fase di caricamento) e le letture confrontano i byte direttamente nei file mappati
+close forza su disco i file mappati e chiude i file: da quel momento il repository non è più utilizzabile
+*/
+@Adapter
+public class MappedAccountRepository implements AccountRepository, AutoCloseable {
+
+	private static final long MAGIC = 0x5454544143435431L; //"TTTACCT1"
+	private static final int INDEX_HEADER = 64; //intestazione dell'indice: magic, capacità, numero di account, fine dei dati
+	private static final int CAPACITY_OFFSET = 8;
+	private static final int COUNT_OFFSET = 16;
+	private static final int DATA_END_OFFSET = 24;
+	private static final int REGION_BITS = 26; //il file dei dati è mappato in regioni da 64MB (un record non è mai diviso tra due regioni)
+	private static final long REGION_SIZE = 1L << REGION_BITS;
+	private static final int RECORD_HEADER = 16; //hash (int), lunghezze (due short), data di creazione (long)
+	private static final int MAX_FIELD_BYTES = 4096; //lunghezza massima (in byte) di username e password
+	private static final int TAG_SHIFT = 44; //bit 44-63 della cella: impronta dell'hash, bit 0-43: posizione del record + 1
+	private static final long OFFSET_MASK = (1L << TAG_SHIFT) - 1;
+	private static final int MAX_CAPACITY = 1 << 27; //l'indice è un'unica mappatura (al più 1GB, ~90 milioni di account)
+
+	private final Path dir; //cartella dei file
+	private final FileChannel dataChannel; //file dei record
+	private final ArrayList<MappedByteBuffer> regions; //regioni mappate del file dei record
+	private FileChannel indexChannel; //file dell'indice
+	private MappedByteBuffer index; //indice mappato
+	private int capacity; //numero di celle dell'indice (potenza di 2)
+	private long count; //numero di account
+	private long dataEnd; //fine dei record scritti
+	private boolean closed; //true dopo close (protetto dal lock)
+	private final ReentrantReadWriteLock lock; //più letture concorrenti, una sola scrittura
+
+	public MappedAccountRepository(Path dir) throws IOException {
+		this(dir, 1 << 16);
+	}
+
+	public MappedAccountRepository(Path dir, int initialCapacity) throws IOException {
+		this.dir = dir;
+		this.regions = new ArrayList<>();
+		this.lock = new ReentrantReadWriteLock();
+		Files.createDirectories(dir);
+		dataChannel = FileChannel.open(dir.resolve("accounts.dat"), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		var indexFile = dir.resolve("accounts.idx");
+		if (Files.exists(indexFile) && Files.size(indexFile) >= INDEX_HEADER) { //riapre l'indice esistente
+			indexChannel = FileChannel.open(indexFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			var header = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, INDEX_HEADER);
+			if (header.getLong(0) != MAGIC) {
+				throw new IOException("not an account index: " + indexFile);
+			}
+			capacity = (int) header.getLong(CAPACITY_OFFSET);
+			index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) capacity * 8);
+			count = index.getLong(COUNT_OFFSET);
+			dataEnd = index.getLong(DATA_END_OFFSET);
+		} else { //crea un nuovo indice
+			capacity = Integer.highestOneBit(Math.max(16, Math.min(initialCapacity, MAX_CAPACITY) - 1) << 1);
+			indexChannel = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			index = newIndex(indexChannel, capacity);
+		}
+		if (dataEnd > 0) {
+			ensureRegion((int) ((dataEnd - 1) >>> REGION_BITS)); //mappa le regioni dei record esistenti
+		}
+	}
+
+	//aggiunge (o sostituisce) un account
+	public void addAccount(Account account) {
+		var name = bytes(account.getUserName());
+		int hash = hash(account.getUserName());
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			int slot = findSlot(name, hash);
+			boolean isNew = slotValue(slot) == 0;
+			if (isNew && (count + 1) * 10 > (long) capacity * 7) { //mantiene il fattore di carico sotto il 70%
+				resize(capacity * 2);
+				slot = findSlot(name, hash);
+			}
+			insert(slot, account, name, hash, isNew);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//aggiunge un account solo se non ne esiste già uno con lo stesso username (in modo atomico)
+	public boolean addAccountIfAbsent(Account account) {
+		var name = bytes(account.getUserName());
+		int hash = hash(account.getUserName());
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			int slot = findSlot(name, hash);
+			if (slotValue(slot) != 0) {
+				return false;
+			}
+			if ((count + 1) * 10 > (long) capacity * 7) {
+				resize(capacity * 2);
+				slot = findSlot(name, hash);
+			}
+			insert(slot, account, name, hash, true);
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//recupera un account
+	@Override
+	public Account getAccount(String userName) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			long value = slotValue(findSlot(bytes(userName), hash(userName)));
+			if (value == 0) {
+				return null;
+			}
+			long offset = (value & OFFSET_MASK) - 1;
+			var region = regions.get((int) (offset >>> REGION_BITS));
+			int pos = (int) (offset & (REGION_SIZE - 1));
+			int nameLen = region.getShort(pos + 4);
+			int pwdLen = region.getShort(pos + 6);
+			var pwd = new byte[pwdLen];
+			region.get(pos + RECORD_HEADER + nameLen, pwd);
+			return new Account(userName, new String(pwd, StandardCharsets.UTF_8), region.getLong(pos + 8));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//verifica la presenza di un account
+	public boolean isPresent(String userName) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return slotValue(findSlot(bytes(userName), hash(userName))) != 0;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//verifica l'autenticazione (confrontando la password direttamente nel file mappato)
+	public boolean isValid(String userName, String password) {
+		var pwd = bytes(password);
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			long value = slotValue(findSlot(bytes(userName), hash(userName)));
+			if (value == 0) {
+				return false;
+			}
+			long offset = (value & OFFSET_MASK) - 1;
+			var region = regions.get((int) (offset >>> REGION_BITS));
+			int pos = (int) (offset & (REGION_SIZE - 1));
+			int nameLen = region.getShort(pos + 4);
+			return region.getShort(pos + 6) == pwd.length && equalBytes(region, pos + RECORD_HEADER + nameLen, pwd);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//recupera il numero di account
+	public long count() {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return count;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//forza la scrittura su disco dei file mappati
+	public void flush() {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			for (var region : regions) {
+				region.force();
+			}
+			index.force();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+	forza su disco i file mappati, chiude i file e rilascia le mappature (le regioni vengono liberate dal garbage collector,
+	non essendo più raggiungibili); chiamarlo più volte non ha effetto
+	*/
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			for (var region : regions) {
+				region.force();
+			}
+			index.force();
+			regions.clear();
+			index = null;
+			try {
+				dataChannel.close();
+			} finally {
+				indexChannel.close();
+			}
+		} catch (IOException ex) {
+			throw new IllegalStateException("account files close failed", ex);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//verifica che il repository non sia stato chiuso (chiamato sotto il lock)
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("account repository closed");
+		}
+	}
+
+	/*
+	aggiunge il record dell'account e lo collega alla cella dell'indice
+	l'ordine delle scritture (record, fine dei dati, cella, numero di account) fa sì che un'interruzione del processo
+	lasci al più un record non raggiungibile, mai una cella che punta a dati non scritti
+	*/
+	private void insert(int slot, Account account, byte[] name, int hash, boolean isNew) {
+		var pwd = bytes(account.getPassword());
+		if (name.length > MAX_FIELD_BYTES || pwd.length > MAX_FIELD_BYTES) {
+			throw new IllegalArgumentException("user name or password too long");
+		}
+		int size = (RECORD_HEADER + name.length + pwd.length + 7) & ~7; //record allineati a 8 byte
+		long offset = dataEnd;
+		if ((offset & (REGION_SIZE - 1)) + size > REGION_SIZE) { //il record non entra nella regione corrente: passa alla successiva
+			offset = ((offset >>> REGION_BITS) + 1) << REGION_BITS;
+		}
+		var region = ensureRegion((int) (offset >>> REGION_BITS));
+		int pos = (int) (offset & (REGION_SIZE - 1));
+		region.putInt(pos, hash);
+		region.putShort(pos + 4, (short) name.length);
+		region.putShort(pos + 6, (short) pwd.length);
+		region.putLong(pos + 8, account.getWhenCreated());
+		region.put(pos + RECORD_HEADER, name);
+		region.put(pos + RECORD_HEADER + name.length, pwd);
+		dataEnd = offset + size;
+		index.putLong(DATA_END_OFFSET, dataEnd);
+		index.putLong(INDEX_HEADER + slot * 8, (tag(hash) << TAG_SHIFT) | (offset + 1));
+		if (isNew) {
+			count++;
+			index.putLong(COUNT_OFFSET, count);
+		}
+	}
+
+	//cerca la cella dell'username (o la cella vuota in cui inserirlo)
+	private int findSlot(byte[] name, int hash) {
+		long tag = tag(hash);
+		int mask = capacity - 1;
+		int slot = hash & mask;
+		while (true) {
+			long value = slotValue(slot);
+			if (value == 0 || ((value >>> TAG_SHIFT) == tag && nameEquals((value & OFFSET_MASK) - 1, name))) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private long slotValue(int slot) {
+		return index.getLong(INDEX_HEADER + slot * 8);
+	}
+
+	//confronta l'username di un record con quello cercato
+	private boolean nameEquals(long offset, byte[] name) {
+		var region = regions.get((int) (offset >>> REGION_BITS));
+		int pos = (int) (offset & (REGION_SIZE - 1));
+		return region.getShort(pos + 4) == name.length && equalBytes(region, pos + RECORD_HEADER, name);
+	}
+
+	private static boolean equalBytes(MappedByteBuffer region, int pos, byte[] bytes) {
+		for (int i = 0; i < bytes.length; i++) {
+			if (region.get(pos + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	//raddoppia l'indice: lo ricostruisce in un nuovo file che sostituisce quello corrente in modo atomico
+	private void resize(int newCapacity) {
+		if (newCapacity > MAX_CAPACITY) {
+			throw new IllegalStateException("account index full");
+		}
+		try {
+			var tmp = dir.resolve("accounts.idx.tmp");
+			var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			var newIndex = newIndex(channel, newCapacity);
+			int mask = newCapacity - 1;
+			for (int i = 0; i < capacity; i++) {
+				long value = slotValue(i);
+				if (value != 0) { //reinserisce la cella usando l'hash memorizzato nel record
+					long offset = (value & OFFSET_MASK) - 1;
+					int hash = regions.get((int) (offset >>> REGION_BITS)).getInt((int) (offset & (REGION_SIZE - 1)));
+					int slot = hash & mask;
+					while (newIndex.getLong(INDEX_HEADER + slot * 8) != 0) {
+						slot = (slot + 1) & mask;
+					}
+					newIndex.putLong(INDEX_HEADER + slot * 8, value);
+				}
+			}
+			newIndex.putLong(COUNT_OFFSET, count);
+			newIndex.putLong(DATA_END_OFFSET, dataEnd);
+			newIndex.force();
+			Files.move(tmp, dir.resolve("accounts.idx"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			indexChannel.close();
+			indexChannel = channel;
+			index = newIndex;
+			capacity = newCapacity;
+		} catch (IOException ex) {
+			throw new IllegalStateException("account index resize failed", ex);
+		}
+	}
+
+	private static MappedByteBuffer newIndex(FileChannel channel, int capacity) throws IOException {
+		var index = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER + (long) capacity * 8);
+		index.putLong(0, MAGIC);
+		index.putLong(CAPACITY_OFFSET, capacity);
+		return index;
+	}
+
+	//mappa le regioni del file dei record fino a quella indicata
+	private MappedByteBuffer ensureRegion(int region) {
+		try {
+			while (regions.size() <= region) {
+				regions.add(dataChannel.map(FileChannel.MapMode.READ_WRITE, (long) regions.size() << REGION_BITS, REGION_SIZE));
+			}
+			return regions.get(region);
+		} catch (IOException ex) {
+			throw new IllegalStateException("account data mapping failed", ex);
+		}
+	}
+
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+
+	//hash dell'username (stabile tra esecuzioni diverse)
+	private static int hash(String userName) {
+		int h = userName.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		return h ^ (h >>> 16);
+	}
+
+	//impronta dell'hash memorizzata nella cella (evita di leggere i record di username diversi)
+	private static long tag(int hash) {
+		return (hash >>> 12) & 0xFFFFF;
+	}
+}
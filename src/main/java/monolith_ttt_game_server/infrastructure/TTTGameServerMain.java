@@ -1,21 +1,54 @@
 package monolith_ttt_game_server.infrastructure;
 
+import java.nio.file.Path;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
+import monolith_ttt_game_server.application.AccountRepository;
 import monolith_ttt_game_server.application.GameServiceImpl;
 
-//avvia il backend
+/*
+avvia il backend
+senza argomenti usa un solo event loop; con "cores" o un numero N avvia N partizioni (shard) e N istanze del controller
+il secondo argomento (opzionale) è la cartella in cui memorizzare gli account in file mappati in memoria
+*/
 public class TTTGameServerMain {
 
 	static final int BACKEND_PORT = 8080; //porta sul quale il server ascolta le richiesta http
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws Exception {
 
-		var service = new GameServiceImpl(); //crea un'istanza del servizio principale
-		service.bindAccountRepository(new InMemoryAccountRepository()); //crea un repository degli account utente e lo collega al servizio principale
-		service.bindGameRepository(new InMemoryGameRepository()); //crea un repository delle partite e lo collega al servizio principale
+		int shardCount = shardCount(args); //numero di partizioni
+		AccountRepository accountRepository = args.length > 1 ? new MappedAccountRepository(Path.of(args[1])) : new InMemoryAccountRepository(); //crea un repository degli account utente (usato solo dalla partizione degli account)
 		var vertx = Vertx.vertx(); //crea un'istanza vertx per gestire le richieste http
-		var server = new GameServerController(service, BACKEND_PORT); //crea un'istanza del controller
-		vertx.deployVerticle(server); //avvia il server sulla porta specificata (esegue il metodo "start" del controller)
+		if (shardCount == 1) { //modalità non partizionata
+			var service = new GameServiceImpl(); //crea un'istanza del servizio principale
+			service.bindAccountRepository(accountRepository); //collega il repository degli account al servizio principale
+			service.bindGameRepository(new InMemoryGameRepository()); //crea un repository delle partite e lo collega al servizio principale
+			service.bindGameEventChannel(new VertxGameEventChannel(vertx.eventBus())); //pubblica gli eventi di ogni partita sul relativo topic dell'event bus
+			var server = new GameServerController(service, BACKEND_PORT); //crea un'istanza del controller
+			vertx.deployVerticle(server); //avvia il server sulla porta specificata (esegue il metodo "start" del controller)
+		} else { //modalità partizionata
+			var shards = GameShards.create(shardCount, i -> { //crea le partizioni, ciascuna con il proprio servizio e il proprio repository delle partite
+				var service = new GameServiceImpl(i); //l'indice della partizione è l'id del nodo usato per generare gli id delle sessioni
+				service.bindAccountRepository(accountRepository);
+				service.bindGameRepository(new InMemoryGameRepository());
+				service.bindGameEventChannel(new VertxGameEventChannel(vertx.eventBus()));
+				return service;
+			});
+			shards.deploy(vertx).onSuccess(res -> //avvia le partizioni e poi le istanze del controller (che condividono la stessa porta)
+				vertx.deployVerticle(() -> new GameServerController(shards, BACKEND_PORT), new DeploymentOptions().setInstances(shardCount))
+			);
+		}
 	}
-}
 
+	//ricava il numero di partizioni dagli argomenti
+	static int shardCount(String[] args) {
+		if (args.length == 0) {
+			return 1;
+		} else if (args[0].equals("cores")) {
+			return Runtime.getRuntime().availableProcessors();
+		} else {
+			return Math.max(1, Integer.parseInt(args[0]));
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package ttt_game_service_tests;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.application.PlayerSessionEventObserver;
+import distributed_ttt.game_service.domain.*;
+import distributed_ttt.game_service.infrastructure.DurableGameEventStore;
+import distributed_ttt.game_service.infrastructure.EventSourcedGameRepository;
+import distributed_ttt.game_service.infrastructure.FsyncPolicy;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che i flussi di eventi resi persistenti sopravvivano ad un riavvio (eventi, istantanee e partite archiviate),
+così che all'apertura vengano ricostruite le partite aperte, che un record troncato in coda al log venga scartato
+e che con la politica ALWAYS le modifiche vengano confermate solo quando i loro eventi sono su disco
+*/
+public class DurableGameEventStoreTests {
+
+	@TempDir
+	Path dir;
+
+	private static final PlayerSessionEventObserver NO_NOTIFIER = new PlayerSessionEventObserver() { //i giocatori del test non ricevono notifiche
+		public void enableEventNotification(String playerSessionId) {}
+		public void gameStarted(String playerSessionId) {}
+		public void newMove(String playerSessionId, String symbol, int x, int y) {}
+		public void gameEnded(String playerSessionId, Optional<String> winner) {}
+	};
+
+	@Test
+	public void openGamesAreRehydratedAfterARestart() throws Exception {
+		var store = DurableGameEventStore.open(dir, FsyncPolicy.ALWAYS, 10);
+		var played = new InMemoryGameRepository();
+		var repository = EventSourcedGameRepository.open(played, store, 3, ForkJoinPool.commonPool()); //istantanee ogni 3 eventi
+		var service = new GameServiceImpl();
+		service.bindGameRepository(repository);
+		for (var id : List.of("g1", "g2", "g3")) {
+			service.createNewGame(id);
+		}
+		var alice = service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, NO_NOTIFIER);
+		var bob = service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, NO_NOTIFIER);
+		var carol = service.joinGame(new UserId("carol"), "g2", TTTSymbol.X, NO_NOTIFIER);
+		var dave = service.joinGame(new UserId("dave"), "g2", TTTSymbol.O, NO_NOTIFIER);
+		int[][] win = {{0, 0}, {1, 0}, {1, 1}, {2, 0}, {2, 2}}; //alice vince in diagonale
+		for (int i = 0; i < win.length; i++) {
+			(i % 2 == 0 ? alice : bob).makeMove(win[i][0], win[i][1]);
+		}
+		carol.makeMove(1, 1);
+		dave.makeMove(0, 0);
+		repository.removeGame("g3"); //archiviata
+		service.whenDurable().get(5, TimeUnit.SECONDS);
+		var history = store.load("g1", 0);
+		var snapshot = store.loadSnapshot("g2");
+		assertThat(snapshot).isPresent();
+		store.close();
+
+		var reopened = DurableGameEventStore.open(dir, FsyncPolicy.ALWAYS, 10);
+		assertThat(reopened.gameIds()).containsExactlyInAnyOrder("g1", "g2", "g3");
+		assertThat(reopened.openGameIds()).containsExactly("g2");
+		assertThat(reopened.load("g1", 0)).isEqualTo(history); //il flusso di una partita terminata resta verificabile
+		assertThat(reopened.loadSnapshot("g2")).isEqualTo(snapshot);
+		var restarted = new InMemoryGameRepository();
+		EventSourcedGameRepository.open(restarted, reopened, 3, ForkJoinPool.commonPool());
+		assertThat(restarted.count()).isEqualTo(1);
+		var g2 = restarted.getGame("g2");
+		assertThat(g2.snapshot()).isEqualTo(played.getGame("g2").snapshot());
+		g2.makeAmove(new UserId("carol"), 2, 1); //la partita ricostruita accetta i comandi successivi
+		assertThat(g2.getCurrentTurn()).isEqualTo("O");
+		reopened.close();
+	}
+
+	@Test
+	public void aTornRecordAtTheEndOfTheLogIsIgnored() throws Exception {
+		var store = DurableGameEventStore.open(dir, FsyncPolicy.NEVER, 10);
+		for (int i = 0; i < 100; i++) {
+			store.append("game-" + i, List.of(new GameCreated("game-" + i, 3, 3, 3), new PlayerJoined("game-" + i, "alice", "X")));
+		}
+		store.close();
+		Path segment;
+		try (Stream<Path> files = Files.list(dir)) {
+			segment = files.filter(p -> p.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+		}
+		Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 1, 0}, StandardOpenOption.APPEND); //scrittura interrotta a metà record
+
+		var reopened = DurableGameEventStore.open(dir, FsyncPolicy.NEVER, 10);
+		assertThat(reopened.openGameIds()).hasSize(100);
+		assertThat(reopened.load("game-7", 1)).containsExactly(new PlayerJoined("game-7", "alice", "X"));
+		reopened.append("game-7", List.of(new PlayerJoined("game-7", "bob", "O"))); //le aggiunte successive vanno in un nuovo segmento
+		reopened.close();
+		var again = DurableGameEventStore.open(dir, FsyncPolicy.NEVER, 10);
+		assertThat(again.count("game-7")).isEqualTo(3);
+		again.close();
+	}
+
+	@Test
+	public void changesAreConfirmedWhenTheirEventsAreDurable() throws Exception {
+		var store = DurableGameEventStore.open(dir, FsyncPolicy.ALWAYS, 10);
+		var repository = new EventSourcedGameRepository(new InMemoryGameRepository(), store, Long.MAX_VALUE);
+		repository.addGame(new Game("g1"));
+		var durable = repository.whenDurable();
+		durable.get(5, TimeUnit.SECONDS);
+		assertThat(durable).isCompleted();
+		store.close();
+		var reopened = DurableGameEventStore.open(dir, FsyncPolicy.NEVER, 10);
+		assertThat(reopened.count("g1")).isEqualTo(1);
+		reopened.close();
+	}
+}
@@ -0,0 +1,176 @@
+package ttt_game_service_tests;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.UserId;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.infrastructure.DurableGameRepository;
+import distributed_ttt.game_service.infrastructure.FsyncPolicy;
+import distributed_ttt.game_service.infrastructure.GameLog;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.game_service.infrastructure.PackedGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che le partite rese persistenti (log + snapshot) vengano ripristinate dopo un riavvio,
+che le modifiche vengano confermate senza bloccare il chiamante, che un errore di scrittura renda il log inutilizzabile
+e che una partita non codificabile non venga aggiunta
+*/
+public class DurableGameRepositoryTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void gamesAreRecoveredFromTheLog() throws Exception {
+		var repo = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.ALWAYS, 10, 1_000_000);
+		playFinishedGame(repo, "g1");
+		repo.addGame(new Game("g2"));
+		repo.addGame(new Game("g3", 15, 15, 5));
+		repo.removeGame("g2");
+		repo.close();
+
+		var recovered = DurableGameRepository.open(new PackedGameRepository(), dir, FsyncPolicy.ALWAYS, 10, 1_000_000);
+		assertThat(recovered.count()).isEqualTo(2);
+		assertThat(recovered.isPresent("g2")).isFalse();
+		var g1 = recovered.getGame("g1");
+		assertThat(g1.getGameState()).isEqualTo("finished");
+		assertThat(g1.getBoardState()).containsExactly("X", "X", "X", "O", "O", "-", "-", "-", "-");
+		assertThat(g1.getWinner()).contains(new UserId("alice"));
+		assertThat(g1.getFinishedAt()).isPositive();
+		assertThat(recovered.getGame("g3").getBoardWidth()).isEqualTo(15);
+		recovered.close();
+	}
+
+	@Test
+	public void aTornRecordAtTheEndOfTheLogIsIgnored() throws Exception {
+		var repo = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.NEVER, 10, 1_000_000);
+		for (int i = 0; i < 100; i++) {
+			repo.addGame(new Game("game-" + i));
+		}
+		repo.close();
+		Path segment;
+		try (Stream<Path> files = Files.list(dir)) {
+			segment = files.filter(p -> p.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+		}
+		Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 1, 0}, StandardOpenOption.APPEND); //scrittura interrotta a metà record
+
+		var recovered = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.NEVER, 10, 1_000_000);
+		assertThat(recovered.count()).isEqualTo(100);
+		recovered.close();
+	}
+
+	@Test
+	public void snapshotsReplaceOlderSegments() throws Exception {
+		var repo = DurableGameRepository.open(new PackedGameRepository(), dir, FsyncPolicy.INTERVAL, 5, 1_000_000);
+		for (int i = 0; i < 1000; i++) {
+			repo.addGame(new Game("game-" + i));
+		}
+		repo.snapshot();
+		for (int i = 0; i < 1000; i += 2) { //modifiche successive allo snapshot, nel nuovo segmento
+			repo.removeGame("game-" + i);
+		}
+		playFinishedGame(repo, "game-1");
+		repo.close();
+		try (Stream<Path> files = Files.list(dir)) {
+			assertThat(files.map(p -> p.getFileName().toString())).containsExactlyInAnyOrder("wal-0000000000000002.log", "snapshot-0000000000000002.bin");
+		}
+
+		var recovered = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.INTERVAL, 5, 1_000_000);
+		assertThat(recovered.count()).isEqualTo(500);
+		assertThat(recovered.isPresent("game-2")).isFalse();
+		assertThat(recovered.getGame("game-3").getGameState()).isEqualTo("waiting-for-players");
+		assertThat(recovered.getGame("game-1").getWinner()).contains(new UserId("alice"));
+		recovered.close();
+	}
+
+	@Test
+	public void automaticSnapshotsKeepTheLogBounded() throws Exception {
+		var repo = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.NEVER, 10, 100);
+		for (int i = 0; i < 2000; i++) {
+			repo.addGame(new Game("game-" + i));
+		}
+		repo.close();
+		var recovered = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.NEVER, 10, 100);
+		assertThat(recovered.count()).isEqualTo(2000);
+		recovered.close();
+		try (Stream<Path> files = Files.list(dir)) {
+			assertThat(files.filter(p -> p.getFileName().toString().startsWith("snapshot-")).count()).isEqualTo(1);
+		}
+	}
+
+	@Test
+	public void aWriteErrorFailsTheLogForGood() throws Exception {
+		var logDir = Files.createDirectories(dir.resolve("log"));
+		var log = new GameLog(logDir, 1, FsyncPolicy.ALWAYS, 10);
+		log.append(ByteBuffer.wrap(new byte[] {1, 2, 3})).join();
+		Files.delete(logDir.resolve("wal-0000000000000001.log"));
+		Files.delete(logDir); //il prossimo segmento non può essere creato
+		log.rotate();
+		assertThat(catchThrowable(() -> log.sync().join())).hasRootCauseInstanceOf(NoSuchFileException.class);
+		assertThat(log.isFailed()).isTrue();
+		assertThatThrownBy(() -> log.append(ByteBuffer.wrap(new byte[] {4}))).isInstanceOf(UncheckedIOException.class); //nessun record dopo l'errore
+		log.close();
+	}
+
+	@Test
+	public void aGameThatCannotBeEncodedIsNotAdded() throws Exception {
+		var repo = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.ALWAYS, 10, 1_000_000);
+		var id = "g".repeat(40_000); //la lunghezza dell'id non è rappresentabile su 2 byte
+		assertThatThrownBy(() -> repo.addGame(new Game(id))).isInstanceOf(IllegalArgumentException.class);
+		assertThat(repo.isPresent(id)).isFalse();
+		repo.addGame(new Game("g1"));
+		repo.close();
+		var recovered = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.ALWAYS, 10, 1_000_000);
+		assertThat(recovered.count()).isEqualTo(1);
+		recovered.close();
+	}
+
+	@Test
+	public void changesAreConfirmedWithoutBlockingTheCaller() throws Exception {
+		var repo = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.ALWAYS, 10, 1_000_000);
+		for (int i = 0; i < 500; i++) { //il chiamante non attende le scritture: i record si accumulano nei gruppi del log
+			repo.addGame(new Game("g" + i));
+		}
+		repo.whenDurable().get(10, TimeUnit.SECONDS); //conferma di tutti i record aggiunti finora
+		assertThat(repo.getLoggedRecords()).isEqualTo(500);
+		assertThat(repo.getLogForces()).isBetween(1L, 500L);
+		repo.close();
+
+		var recovered = DurableGameRepository.open(new InMemoryGameRepository(), dir, FsyncPolicy.ALWAYS, 10, 1_000_000);
+		assertThat(recovered.count()).isEqualTo(500);
+		recovered.close();
+		var interval = DurableGameRepository.open(new InMemoryGameRepository(), dir.resolve("interval"), FsyncPolicy.INTERVAL, 10, 1_000_000);
+		interval.addGame(new Game("g"));
+		assertThat(interval.whenDurable()).isDone(); //senza fsync ad ogni gruppo la conferma non attende il disco
+		interval.close();
+	}
+
+	//gioca una partita vinta da alice salvando ogni cambiamento di stato
+	private void playFinishedGame(DurableGameRepository repo, String id) throws Exception {
+		var game = new Game(id);
+		repo.addGameIfAbsent(game);
+		var alice = new UserId("alice");
+		var bob = new UserId("bob");
+		game.joinGame(alice, TTTSymbol.X);
+		game.joinGame(bob, TTTSymbol.O);
+		game.startGame();
+		repo.updateGame(game);
+		int[][] moves = {{0, 0}, {0, 1}, {1, 0}, {1, 1}, {2, 0}};
+		for (int i = 0; i < moves.length; i++) {
+			game = repo.getGame(id);
+			game.makeAmove(i % 2 == 0 ? alice : bob, moves[i][0], moves[i][1]);
+			repo.updateGame(game);
+		}
+	}
+}
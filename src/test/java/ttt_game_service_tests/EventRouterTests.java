@@ -0,0 +1,83 @@
+package ttt_game_service_tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import common.ddd.EventFilter;
+import common.ddd.EventHandler;
+import common.ddd.EventRouter;
+import common.ddd.EventType;
+import distributed_ttt.game_service.application.PlayerSession;
+import distributed_ttt.game_service.application.PlayerSessionEventObserver;
+import distributed_ttt.game_service.domain.*;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che il router degli eventi di dominio chiami, per ogni evento, solo i gestori registrati per il suo tipo (nell'ordine di registrazione),
+che i filtri per tipo e per partita di ogni sottoscrittore scartino gli altri eventi e che un tipo di un'altra famiglia di eventi venga rifiutato
+*/
+public class EventRouterTests {
+
+	@Test
+	public void eventsReachOnlyTheHandlersOfTheirType() {
+		assertThat(GameEvent.TYPES.all()).extracting(type -> type.index()).containsExactly(0, 1, 2, 3, 4);
+		var router = EventRouter.<List<String>, GameEvent>builder(GameEvent.TYPES)
+				.on(GameEvent.NEW_MOVE, (log, e) -> log.add("move " + e.symbol() + e.x() + e.y()))
+				.on(GameEvent.NEW_MOVE, (log, e) -> log.add("again " + e.gameId()))
+				.on(GameEvent.GAME_ENDED, (log, e) -> log.add("ended " + e.winner().orElse("draw")))
+				.build();
+		var log = new ArrayList<String>();
+		assertThat(router.route(log, new NewMove("g1", "X", 1, 2))).isTrue();
+		assertThat(router.route(log, new GameStarted("g1"))).isFalse(); //nessun gestore
+		assertThat(router.route(log, new GameEnded("g1", Optional.empty(), 0))).isTrue();
+		assertThat(log).containsExactly("move X12", "again g1", "ended draw");
+	}
+
+	@Test
+	public void filtersSelectTypesAndGames() {
+		var log = new ArrayList<String>();
+		var router = EventRouter.<List<String>, GameEvent>builder(GameEvent.TYPES)
+				.on(GameEvent.GAME_STARTED, (l, e) -> l.add("started " + e.gameId()))
+				.on(GameEvent.NEW_MOVE, (l, e) -> l.add("move " + e.gameId()))
+				.build();
+		var g2Moves = EventFilter.any().onlyTypes(GameEvent.NEW_MOVE, GameEvent.GAME_ENDED).onlyAggregate("g2"); //filtro di un sottoscrittore
+		assertThat(router.route(log, new GameStarted("g2"), g2Moves)).isFalse(); //tipo escluso
+		assertThat(router.route(log, new NewMove("g1", "X", 0, 0), g2Moves)).isFalse(); //partita esclusa
+		assertThat(router.route(log, new NewMove("g2", "O", 0, 0), g2Moves)).isTrue();
+		router.route(log, new GameStarted("g1"), EventFilter.any()); //un altro sottoscrittore, stesso router
+		assertThat(log).containsExactly("move g2", "started g1");
+
+		var filter = EventFilter.any().onlyAggregate("g1");
+		assertThat(filter.test(new PlayerJoined("g1", "alice", "X"))).isTrue();
+		assertThat(filter.onlyTypes(GameEvent.GAME_CREATED).test(new PlayerJoined("g1", "alice", "X"))).isFalse();
+	}
+
+	@Test
+	public void aPlayerSessionReceivesOnlyTheEventsOfItsGame() {
+		var moves = new ArrayList<String>();
+		var session = new PlayerSession("ps1", new UserId("alice"), "g1", new InMemoryGameRepository(), TTTSymbol.X);
+		session.bindPlayerSessionEventNotifier(new PlayerSessionEventObserver() {
+			public void enableEventNotification(String playerSessionId) {}
+			public void gameStarted(String playerSessionId) {}
+			public void newMove(String playerSessionId, String symbol, int x, int y) {
+				moves.add(symbol + x + y);
+			}
+			public void gameEnded(String playerSessionId, Optional<String> winner) {}
+		});
+		session.notifyGameEvent(new NewMove("g2", "O", 1, 1)); //evento di un'altra partita
+		session.notifyGameEvent(new NewMove("g1", "O", 2, 2));
+		assertThat(moves).containsExactly("O22");
+	}
+
+	@Test
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void typesOfAnotherFamilyAreRejected() {
+		EventRouter.Builder builder = EventRouter.<List<String>, GameEvent>builder(GameEvent.TYPES);
+		EventType monolithType = monolith_ttt_game_server.domain.GameEvent.NEW_MOVE; //stessa posizione, famiglia diversa
+		EventHandler handler = (l, e) -> {};
+		assertThatThrownBy(() -> builder.on(monolithType, handler)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,140 @@
+package ttt_game_service_tests;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.application.PlayerSessionEventObserver;
+import distributed_ttt.game_service.domain.*;
+import distributed_ttt.game_service.infrastructure.EventSourcedGameRepository;
+import distributed_ttt.game_service.infrastructure.InMemoryGameEventStore;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che ogni comando accettato finisca in coda al flusso di eventi della partita (e solo quelli accettati),
+che la partita ricostruita dal solo flusso, o da un'istantanea e dagli eventi successivi, sia identica a quella giocata,
+e che all'apertura vengano ricostruite solo le partite né terminate né archiviate (senza leggere gli altri flussi)
+*/
+public class EventSourcingTests {
+
+	private static final PlayerSessionEventObserver NO_NOTIFIER = new PlayerSessionEventObserver() { //i giocatori del test non ricevono notifiche
+		public void enableEventNotification(String playerSessionId) {}
+		public void gameStarted(String playerSessionId) {}
+		public void newMove(String playerSessionId, String symbol, int x, int y) {}
+		public void gameEnded(String playerSessionId, Optional<String> winner) {}
+	};
+
+	@Test
+	public void theStreamHoldsEveryAcceptedCommand() throws Exception {
+		var store = new InMemoryGameEventStore();
+		var service = new GameServiceImpl();
+		service.bindGameRepository(new EventSourcedGameRepository(new InMemoryGameRepository(), store, Long.MAX_VALUE));
+		service.createNewGame("g1", 4, 4, 3);
+		var alice = service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, NO_NOTIFIER);
+		var bob = service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, NO_NOTIFIER);
+		alice.makeMove(3, 2);
+		assertThatThrownBy(() -> bob.makeMove(3, 2)).isInstanceOf(InvalidMoveException.class); //casella occupata: nessun evento
+		bob.makeMove(0, 1);
+		assertThat(store.load("g1", 0)).containsExactly(new GameCreated("g1", 4, 4, 3),
+				new PlayerJoined("g1", "alice", "X"), new PlayerJoined("g1", "bob", "O"), new GameStarted("g1"),
+				new NewMove("g1", "X", 3, 2), new NewMove("g1", "O", 0, 1));
+		assertThat(store.load("g1", 4)).hasSize(2);
+	}
+
+	@Test
+	public void rehydratedGamesMatchThePlayedOnes() throws Exception {
+		for (long snapshotEvery : List.of(Long.MAX_VALUE, 3L)) { //solo flusso, oppure istantanee ogni 3 eventi
+			var store = new InMemoryGameEventStore();
+			var played = new InMemoryGameRepository();
+			var repository = new EventSourcedGameRepository(played, store, snapshotEvery);
+			var service = new GameServiceImpl();
+			service.bindGameRepository(repository);
+			service.createNewGame("g1");
+			service.createNewGame("g2");
+			service.createNewGame("g3");
+			var alice = service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, NO_NOTIFIER);
+			var bob = service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, NO_NOTIFIER);
+			var carol = service.joinGame(new UserId("carol"), "g2", TTTSymbol.X, NO_NOTIFIER);
+			var dave = service.joinGame(new UserId("dave"), "g2", TTTSymbol.O, NO_NOTIFIER);
+			service.joinGame(new UserId("erin"), "g3", TTTSymbol.O, NO_NOTIFIER);
+			int[][] win = {{0, 0}, {1, 0}, {1, 1}, {2, 0}, {2, 2}}; //alice vince in diagonale
+			for (int i = 0; i < win.length; i++) {
+				(i % 2 == 0 ? alice : bob).makeMove(win[i][0], win[i][1]);
+			}
+			carol.makeMove(1, 1);
+			dave.makeMove(0, 0);
+			carol.makeMove(2, 1);
+			if (snapshotEvery == 3) {
+				assertThat(store.loadSnapshot("g1")).isPresent();
+			}
+			for (var id : List.of("g1", "g2", "g3")) {
+				assertSameGame(repository.rehydrate(id), played.getGame(id));
+			}
+			Thread.sleep(5);
+			assertSameGame(repository.rehydrate("g1"), played.getGame("g1")); //riapplicare più tardi lo stesso flusso dà lo stesso stato
+			var g2 = repository.rehydrate("g2");
+			g2.makeAmove(new UserId("dave"), 0, 1); //la partita ricostruita accetta i comandi successivi
+			assertThat(g2.getCurrentTurn()).isEqualTo("X");
+
+			var reopened = new InMemoryGameRepository();
+			EventSourcedGameRepository.open(reopened, store, snapshotEvery, ForkJoinPool.commonPool());
+			assertThat(reopened.isPresent("g1")).isFalse(); //terminata
+			assertSameGame(reopened.getGame("g2"), played.getGame("g2"));
+			assertSameGame(reopened.getGame("g3"), played.getGame("g3"));
+		}
+	}
+
+	@Test
+	public void onlyOpenStreamsAreRehydrated() throws Exception {
+		var store = new InMemoryGameEventStore();
+		var repository = new EventSourcedGameRepository(new InMemoryGameRepository(), store, Long.MAX_VALUE);
+		var service = new GameServiceImpl();
+		service.bindGameRepository(repository);
+		for (var id : List.of("g1", "g2", "g3")) {
+			service.createNewGame(id);
+		}
+		var alice = service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, NO_NOTIFIER);
+		var bob = service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, NO_NOTIFIER);
+		int[][] win = {{0, 0}, {1, 0}, {1, 1}, {2, 0}, {2, 2}};
+		for (int i = 0; i < win.length; i++) {
+			(i % 2 == 0 ? alice : bob).makeMove(win[i][0], win[i][1]);
+		}
+		repository.removeGame("g3"); //archiviata senza essere terminata
+		assertThat(store.gameIds()).containsExactlyInAnyOrder("g1", "g2", "g3"); //i flussi restano nell'archivio
+		assertThat(store.openGameIds()).containsExactly("g2");
+		assertThat(repository.rehydrate("g3")).isNotNull();
+
+		var reopened = new InMemoryGameRepository();
+		EventSourcedGameRepository.open(reopened, store, Long.MAX_VALUE, ForkJoinPool.commonPool());
+		assertThat(reopened.count()).isEqualTo(1);
+		assertThat(reopened.isPresent("g2")).isTrue();
+	}
+
+	@Test
+	public void gamesWithoutAStreamOpenOneWhenWrapped() throws Exception {
+		var restored = new InMemoryGameRepository(); //es. partite ripristinate dal log di DurableGameRepository
+		var game = new Game("g1");
+		game.joinGame(new UserId("alice"), TTTSymbol.X);
+		restored.addGame(game);
+		var store = new InMemoryGameEventStore();
+		var repository = EventSourcedGameRepository.open(restored, store, Long.MAX_VALUE, ForkJoinPool.commonPool());
+		assertThat(store.openGameIds()).containsExactly("g1");
+		var service = new GameServiceImpl();
+		service.bindGameRepository(repository);
+		service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, NO_NOTIFIER);
+		assertSameGame(repository.rehydrate("g1"), restored.getGame("g1")); //dall'istantanea iniziale e dagli eventi successivi
+	}
+
+	//verifica che due partite abbiano lo stesso stato (istante di fine compreso: la ricostruzione è deterministica)
+	private static void assertSameGame(Game rehydrated, Game played) {
+		var a = rehydrated.snapshot();
+		var b = played.snapshot();
+		assertThat(a).usingRecursiveComparison().isEqualTo(b);
+		assertThat(rehydrated.getFinishedAt()).isEqualTo(played.getFinishedAt());
+		assertThat(rehydrated.getWinner()).isEqualTo(played.getWinner());
+		assertThat(rehydrated.getTurn()).isEqualTo(played.getTurn());
+	}
+}
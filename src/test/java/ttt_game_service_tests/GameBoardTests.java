@@ -0,0 +1,102 @@
+package ttt_game_service_tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import monolith_ttt_game_server.domain.ArrayGameBoard;
+import monolith_ttt_game_server.domain.BitboardGameBoard;
+import monolith_ttt_game_server.domain.GameBoard;
+import monolith_ttt_game_server.domain.InvalidMoveException;
+import monolith_ttt_game_server.domain.MNKGameBoard;
+import monolith_ttt_game_server.domain.TTTSymbol;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che la griglia bitboard produca gli stessi risultati della griglia a matrice
+per ogni posizione raggiungibile giocando una partita a partire dalla griglia vuota
+*/
+public class GameBoardTests {
+
+	private int visitedPositions;
+
+	@Test
+	public void bitboardMatchesArrayBoardOnEveryReachablePosition() throws Exception {
+		visitedPositions = 0;
+		explore(new ArrayList<>());
+		assertThat(visitedPositions).isEqualTo(549946); //numero di partite (anche parziali) distinte del tris
+	}
+
+	@Test
+	public void occupiedOrOutOfBoardCellsAreRejected() throws Exception {
+		var board = new BitboardGameBoard("b");
+		board.newMove(TTTSymbol.X, 1, 1);
+		assertThatThrownBy(() -> board.newMove(TTTSymbol.O, 1, 1)).isInstanceOf(InvalidMoveException.class);
+		assertThatThrownBy(() -> board.newMove(TTTSymbol.O, 3, 0)).isInstanceOf(InvalidMoveException.class);
+		assertThat(board.getState()).containsExactly("-", "-", "-", "-", "X", "-", "-", "-", "-");
+	}
+
+	@Test
+	public void fiveInARowIsDetectedThroughTheLastMove() throws Exception {
+		var board = GameBoard.newBoard("g", 15, 15, 5);
+		for (int i = 0; i < 4; i++) {
+			board.newMove(TTTSymbol.X, 3 + i, 10 - i); //anti-diagonale
+			board.newMove(TTTSymbol.O, i, 0);
+			assertThat(board.checkWinner()).isEmpty();
+		}
+		board.newMove(TTTSymbol.X, 7, 6);
+		assertThat(board.checkWinner()).contains(TTTSymbol.X);
+		assertThat(board.getState()).hasSize(225);
+		assertThatThrownBy(() -> GameBoard.newBoard("g", 3, 3, 4)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void distributedBitboardMatchesArrayBoard() throws Exception {
+		var array = new distributed_ttt.game_service.domain.ArrayGameBoard("a");
+		var bits = new distributed_ttt.game_service.domain.BitboardGameBoard("b");
+		int[][] moves = {{0, 0}, {1, 0}, {1, 1}, {2, 0}, {2, 2}};
+		var symbol = distributed_ttt.game_service.domain.TTTSymbol.X;
+		for (var m : moves) {
+			array.newMove(symbol, m[0], m[1]);
+			bits.newMove(symbol, m[0], m[1]);
+			assertThat(bits.checkWinner()).isEqualTo(array.checkWinner());
+			assertThat(bits.getState()).isEqualTo(array.getState());
+			symbol = symbol == distributed_ttt.game_service.domain.TTTSymbol.X ? distributed_ttt.game_service.domain.TTTSymbol.O : distributed_ttt.game_service.domain.TTTSymbol.X;
+		}
+		assertThat(bits.checkWinner()).contains(distributed_ttt.game_service.domain.TTTSymbol.X);
+	}
+
+	//visita ricorsivamente tutte le sequenze di mosse valide, confrontando le due griglie ad ogni passo
+	private void explore(List<int[]> moves) throws Exception {
+		GameBoard array = replay(new ArrayGameBoard("a"), moves);
+		GameBoard bits = replay(new BitboardGameBoard("b"), moves);
+		GameBoard mnk = replay(new MNKGameBoard("m", 3, 3, 3), moves);
+		visitedPositions++;
+		assertThat(bits.getState()).isEqualTo(array.getState());
+		assertThat(bits.checkWinner()).isEqualTo(array.checkWinner());
+		assertThat(bits.isTie()).isEqualTo(array.isTie());
+		assertThat(mnk.checkWinner()).isEqualTo(array.checkWinner());
+		assertThat(mnk.isTie()).isEqualTo(array.isTie());
+		if (array.checkWinner().isPresent() || array.isTie()) { //la partita è terminata
+			return;
+		}
+		for (int y = 0; y < 3; y++) {
+			for (int x = 0; x < 3; x++) {
+				if (array.getState().get(y * 3 + x).equals("-")) {
+					moves.add(new int[] {x, y});
+					explore(moves);
+					moves.remove(moves.size() - 1);
+				}
+			}
+		}
+	}
+
+	private GameBoard replay(GameBoard board, List<int[]> moves) throws InvalidMoveException {
+		var symbol = TTTSymbol.X;
+		for (var m : moves) {
+			board.newMove(symbol, m[0], m[1]);
+			symbol = symbol == TTTSymbol.X ? TTTSymbol.O : TTTSymbol.X;
+		}
+		return board;
+	}
+}
@@ -0,0 +1,48 @@
+package ttt_game_service_tests;
+
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import distributed_ttt.game_service.infrastructure.GameEventMessage;
+import distributed_ttt.game_service.infrastructure.GameEventMessageCodec;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che il codec degli eventi di gioco ricostruisca gli eventi dalla forma binaria
+e che la forma json compatta abbia gli stessi campi della precedente rappresentazione
+*/
+public class GameEventCodecTests {
+
+	private final GameEventMessageCodec codec = new GameEventMessageCodec();
+
+	@Test
+	public void eventsSurviveTheWireFormat() {
+		var events = new GameEventMessage[] {GameEventMessage.STARTED, new GameEventMessage.Moved("X", 2, 1),
+				new GameEventMessage.Ended(Optional.of("user-\"è\"")), new GameEventMessage.Ended(Optional.empty()),
+				new GameEventMessage.Snapshot("started", 3, 3, List.of("X", "-", "-", "-", "O", "-", "-", "-", "-"), Optional.of("X")),
+				new GameEventMessage.Snapshot("waiting-for-players", 4, 3, List.of(), Optional.empty()),
+				new GameEventMessage.Sequenced(42, new GameEventMessage.Moved("O", 0, 1)), new GameEventMessage.Sequenced(7, GameEventMessage.STARTED)};
+		for (var ev : events) {
+			var buf = Buffer.buffer().appendString("prefix"); //il codec deve rispettare la posizione di partenza
+			codec.encodeToWire(buf, ev);
+			assertThat(codec.decodeFromWire(6, buf)).isEqualTo(ev);
+			assertThat(codec.transform(ev)).isSameAs(ev); //nessuna copia all'interno del processo
+		}
+	}
+
+	@Test
+	public void compactJsonKeepsTheWireFields() {
+		var move = new JsonObject(new GameEventMessage.Moved("O", 0, 2).toJson());
+		assertThat(move).isEqualTo(new JsonObject().put("event", "new-move").put("x", 0).put("y", 2).put("symbol", "O"));
+		var win = new JsonObject(new GameEventMessage.Ended(Optional.of("a\"b\\c")).toJson());
+		assertThat(win).isEqualTo(new JsonObject().put("event", "game-ended").put("winner", "a\"b\\c"));
+		var tie = new JsonObject(new GameEventMessage.Ended(Optional.empty()).toJson());
+		assertThat(tie).isEqualTo(new JsonObject().put("event", "game-ended").put("result", "tie"));
+		assertThat(new JsonObject(GameEventMessage.STARTED.toJson())).isEqualTo(new JsonObject().put("event", "game-started"));
+		var sequenced = new JsonObject(new GameEventMessage.Sequenced(3, new GameEventMessage.Moved("O", 0, 2)).toJson("g1"));
+		assertThat(sequenced).isEqualTo(move.copy().put("gameId", "g1").put("seq", 3));
+	}
+}
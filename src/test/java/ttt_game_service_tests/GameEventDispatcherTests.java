@@ -0,0 +1,147 @@
+package ttt_game_service_tests;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+import distributed_ttt.game_service.application.GameEventDispatcher;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.application.PlayerSessionEventObserver;
+import distributed_ttt.game_service.application.QueueFullPolicy;
+import distributed_ttt.game_service.domain.*;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che con il dispatcher asincrono le mosse terminino senza attendere le notifiche ai giocatori,
+che gli eventi di ogni partita arrivino a ogni osservatore nell'ordine in cui sono stati generati, qualunque sia la politica con la coda piena,
+e che con la politica DROP gli eventi in eccesso vengano scartati e contati
+*/
+public class GameEventDispatcherTests {
+
+	@Test
+	public void movesDoNotWaitForThePlayerNotifications() throws Exception {
+		var dispatcher = new GameEventDispatcher();
+		try {
+			var repository = new InMemoryGameRepository();
+			var service = new GameServiceImpl();
+			service.bindGameRepository(repository);
+			service.bindGameEventDispatcher(dispatcher);
+			var release = new CountDownLatch(1);
+			var moves = Collections.synchronizedList(new ArrayList<String>());
+			var slowNotifier = new PlayerSessionEventObserver() { //il client di bob è lento: ogni notifica attende il via libera
+				public void enableEventNotification(String playerSessionId) {}
+				public void gameStarted(String playerSessionId) {
+					try {
+						release.await();
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				public void newMove(String playerSessionId, String symbol, int x, int y) {
+					moves.add(symbol + x + y);
+				}
+				public void gameEnded(String playerSessionId, Optional<String> winner) {
+					moves.add("end " + winner.orElse("draw"));
+				}
+			};
+			service.createNewGame("g1");
+			var alice = service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, recording(new ArrayList<>()));
+			var bob = service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, slowNotifier);
+			int[][] win = {{0, 0}, {1, 0}, {1, 1}, {2, 0}, {2, 2}}; //alice vince in diagonale
+			for (int i = 0; i < win.length; i++) {
+				(i % 2 == 0 ? alice : bob).makeMove(win[i][0], win[i][1]); //termina anche se bob non ha ancora ricevuto l'avvio
+			}
+			assertThat(moves).isEmpty();
+			release.countDown();
+			dispatcher.flush();
+			assertThat(moves).containsExactly("X00", "O10", "X11", "O20", "X22", "end alice");
+
+			bob.detach(); //la sessione avvolta dal dispatcher si stacca comunque dalla partita
+			assertThat(repository.getGame("g1").getObservers()).extracting(GameObserver::target).doesNotContain(bob).contains(alice);
+		} finally {
+			dispatcher.close();
+		}
+	}
+
+	@Test
+	public void eventsKeepTheirOrderWithEveryPolicy() throws Exception {
+		for (var policy : List.of(QueueFullPolicy.BLOCK, QueueFullPolicy.CALLER_DRAINS)) {
+			var dispatcher = new GameEventDispatcher(16, policy); //coda piccola: si riempie di continuo
+			var received = new ArrayList<List<GameEvent>>();
+			var observers = new ArrayList<GameObserver>();
+			for (int g = 0; g < 8; g++) {
+				var list = new ArrayList<GameEvent>();
+				received.add(list);
+				observers.add(dispatcher.queued(list::add)); //ogni osservatore è notificato da un solo lotto alla volta
+			}
+			for (int i = 0; i < 20_000; i++) {
+				observers.get(i % 8).notifyGameEvent(new NewMove("g" + (i % 8), "X", i, 0));
+			}
+			dispatcher.close();
+			for (int g = 0; g < 8; g++) {
+				var xs = received.get(g).stream().mapToInt(ev -> ((NewMove) ev).x()).toArray();
+				assertThat(xs).hasSize(2_500).isSorted();
+			}
+			assertThat(dispatcher.getDispatched()).isEqualTo(20_000);
+			assertThat(dispatcher.getBatches()).isLessThan(20_000);
+		}
+	}
+
+	@Test
+	public void aFullQueueDropsTheNewestEvents() throws Exception {
+		var dispatcher = new GameEventDispatcher(8, QueueFullPolicy.DROP);
+		var release = new CountDownLatch(1);
+		var started = new CountDownLatch(1);
+		var received = Collections.synchronizedList(new ArrayList<GameEvent>());
+		var observer = dispatcher.queued(ev -> {
+			started.countDown();
+			try {
+				release.await(); //il consumatore resta fermo sul primo evento
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			received.add(ev);
+		});
+		observer.notifyGameEvent(new GameStarted("g1"));
+		started.await();
+		for (int i = 0; i < 20; i++) {
+			observer.notifyGameEvent(new NewMove("g1", "X", i, 0));
+		}
+		assertThat(dispatcher.getDropped()).isEqualTo(12); //8 accodati, 12 scartati
+		release.countDown();
+		dispatcher.close();
+		assertThat(received).hasSize(9).startsWith(new GameStarted("g1"), new NewMove("g1", "X", 0, 0));
+	}
+
+	@Test
+	public void eventsOfferedAfterCloseAreNotLost() {
+		var dispatcher = new GameEventDispatcher(8, QueueFullPolicy.BLOCK);
+		var received = Collections.synchronizedList(new ArrayList<GameEvent>());
+		var observer = dispatcher.queued(received::add);
+		observer.notifyGameEvent(new GameStarted("g1"));
+		dispatcher.close();
+		observer.notifyGameEvent(new NewMove("g1", "X", 0, 0)); //notificato subito, nel thread chiamante
+		assertThat(received).containsExactly(new GameStarted("g1"), new NewMove("g1", "X", 0, 0));
+		assertThat(dispatcher.pending()).isZero();
+	}
+
+	//notifier che registra gli eventi ricevuti dal giocatore
+	private static PlayerSessionEventObserver recording(List<String> events) {
+		return new PlayerSessionEventObserver() {
+			public void enableEventNotification(String playerSessionId) {}
+			public void gameStarted(String playerSessionId) {
+				events.add("started");
+			}
+			public void newMove(String playerSessionId, String symbol, int x, int y) {
+				events.add(symbol + x + y);
+			}
+			public void gameEnded(String playerSessionId, Optional<String> winner) {
+				events.add("end " + winner.orElse("draw"));
+			}
+		};
+	}
+}
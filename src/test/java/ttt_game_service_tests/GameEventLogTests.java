@@ -0,0 +1,50 @@
+package ttt_game_service_tests;
+
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import monolith_ttt_game_server.application.GameEventLog;
+import monolith_ttt_game_server.application.SequencedGameEvent;
+import monolith_ttt_game_server.domain.GameStarted;
+import monolith_ttt_game_server.domain.NewMove;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che il registro degli eventi numeri gli eventi di ogni partita separatamente,
+restituisca solo quelli successivi al numero indicato e, quando sono già stati scartati dal buffer circolare, nessuno (serve un'istantanea)
+*/
+public class GameEventLogTests {
+
+	@Test
+	public void eachGameHasItsOwnSequence() {
+		var log = new GameEventLog();
+		assertThat(log.append(new GameStarted("g1")).seq()).isEqualTo(1);
+		assertThat(log.append(new GameStarted("g2")).seq()).isEqualTo(1);
+		var move = new NewMove("g1", "X", 1, 1);
+		assertThat(log.append(move).seq()).isEqualTo(2);
+		assertThat(log.lastSeq("g1")).isEqualTo(2);
+		assertThat(log.lastSeq("g3")).isZero();
+		assertThat(log.since("g1", 1)).contains(List.of(new SequencedGameEvent(2, move)));
+		assertThat(log.since("g1", 2)).contains(List.of());
+		assertThat(log.since("g1", 3)).isEmpty(); //numero mai assegnato
+		assertThat(log.since("g3", 0)).contains(List.of()); //partita senza eventi
+		log.remove("g1");
+		assertThat(log.size()).isEqualTo(1);
+		assertThat(log.since("g1", 2)).isEqualTo(Optional.empty());
+	}
+
+	@Test
+	public void evictedGapsAreNotReplayed() {
+		var log = new GameEventLog();
+		int events = GameEventLog.CAPACITY + 5;
+		for (int i = 0; i < events; i++) {
+			log.append(new NewMove("g1", "X", i, 0));
+		}
+		assertThat(log.since("g1", 4)).isEmpty(); //l'evento 5 è già stato scartato
+		var gap = log.since("g1", 5).orElseThrow(); //esattamente gli ultimi CAPACITY eventi
+		assertThat(gap).hasSize(GameEventLog.CAPACITY);
+		assertThat(gap.get(0).seq()).isEqualTo(6);
+		assertThat(gap.get(gap.size() - 1)).isEqualTo(new SequencedGameEvent(events, new NewMove("g1", "X", events - 1, 0)));
+	}
+}
@@ -0,0 +1,382 @@
+package ttt_game_service_tests;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.application.LifecyclePolicy;
+import distributed_ttt.game_service.infrastructure.GameCommandFrames;
+import distributed_ttt.game_service.infrastructure.GameEventMessage;
+import distributed_ttt.game_service.infrastructure.GameEventMessageCodec;
+import distributed_ttt.game_service.infrastructure.GameServiceController;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.game_service.infrastructure.VertxGameEventChannel;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import io.vertx.core.json.JsonObject;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che gli eventi di una partita, pubblicati una sola volta sul topic della partita, arrivino a tutti i websocket iscritti
+esattamente una volta e in ordine (con il numero di sequenza), compresi quelli avvenuti prima dell'iscrizione, che gli spettatori ricevano l'istantanea della partita seguita dagli eventi,
+che un client che si riconnette riceva solo gli eventi persi, anche con server-sent events e long-poll (alimentati dallo stesso topic),
+che la partita letta via http porti la sua versione come ETag (304 se invariata)
+che un websocket possa seguire più partite e lasci tutti i topic alla chiusura
+che una partita si possa giocare interamente sul websocket, con comandi json o binari e risposte con l'id del comando (anche ai comandi non validi)
+e che la sessione di un giocatore attivo solo sul websocket non venga considerata inattiva
+*/
+public class GameEventTopicTests {
+
+	private static final int PORT = 19200;
+
+	private Vertx vertx;
+	private GameServiceImpl service;
+	private HttpClient http;
+	private WebSocketClient webSockets; //client websocket (tenuto per tutto il test: un client non più referenziato viene chiuso)
+	private List<WebSocket> sockets; //websocket aperti dal test
+
+	@BeforeEach
+	public void startGameService() {
+		vertx = Vertx.vertx();
+		service = new GameServiceImpl();
+		service.bindGameRepository(new InMemoryGameRepository());
+		service.bindGameEventChannel(new VertxGameEventChannel(vertx.eventBus()));
+		vertx.deployVerticle(new GameServiceController(service, PORT)).await();
+		http = vertx.createHttpClient();
+		webSockets = vertx.createWebSocketClient();
+		sockets = new CopyOnWriteArrayList<>();
+	}
+
+	@AfterEach
+	public void stop() {
+		for (var ws : sockets) {
+			ws.close().await();
+		}
+		vertx.close().await();
+	}
+
+	@Test
+	public void everySubscriberReceivesEachEventOnce() throws Exception {
+		post("/api/v1/games", new JsonObject().put("gameId", "g1"));
+		var crossSession = post("/api/v1/games/g1/join", new JsonObject().put("userId", "alice").put("symbol", "X")).getString("playerSessionId");
+		var cross = subscribe(crossSession);
+		var circleSession = post("/api/v1/games/g1/join", new JsonObject().put("userId", "bob").put("symbol", "O")).getString("playerSessionId");
+		var circle = subscribe(circleSession); //iscritto dopo l'avvio della partita: riceve l'evento arretrato
+		int[][] moves = {{0, 0}, {1, 0}, {0, 1}, {1, 1}, {0, 2}};
+		for (int i = 0; i < moves.length; i++) {
+			var session = i % 2 == 0 ? crossSession : circleSession;
+			post("/api/v1/games/g1/" + session + "/move", new JsonObject().put("x", "" + moves[i][0]).put("y", "" + moves[i][1]));
+		}
+		var expected = List.of("{\"seq\":1,\"event\":\"game-started\"}",
+				"{\"seq\":2,\"event\":\"new-move\",\"x\":0,\"y\":0,\"symbol\":\"X\"}", "{\"seq\":3,\"event\":\"new-move\",\"x\":1,\"y\":0,\"symbol\":\"O\"}",
+				"{\"seq\":4,\"event\":\"new-move\",\"x\":0,\"y\":1,\"symbol\":\"X\"}", "{\"seq\":5,\"event\":\"new-move\",\"x\":1,\"y\":1,\"symbol\":\"O\"}",
+				"{\"seq\":6,\"event\":\"new-move\",\"x\":0,\"y\":2,\"symbol\":\"X\"}", "{\"seq\":7,\"event\":\"game-ended\",\"winner\":\"alice\"}");
+		waitFor(cross, expected.size());
+		waitFor(circle, expected.size());
+		assertThat(cross).containsExactlyElementsOf(expected);
+		assertThat(circle).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	public void spectatorsGetASnapshotAndThenTheLiveEvents() throws Exception {
+		post("/api/v1/games", new JsonObject().put("gameId", "g2"));
+		var crossSession = post("/api/v1/games/g2/join", new JsonObject().put("userId", "alice").put("symbol", "X")).getString("playerSessionId");
+		var circleSession = post("/api/v1/games/g2/join", new JsonObject().put("userId", "bob").put("symbol", "O")).getString("playerSessionId");
+		post("/api/v1/games/g2/" + crossSession + "/move", new JsonObject().put("x", "1").put("y", "1"));
+		var watchers = List.of(watch("g2"), watch("g2"), watch("g2"));
+		post("/api/v1/games/g2/" + circleSession + "/move", new JsonObject().put("x", "0").put("y", "0"));
+		var expected = List.of("{\"seq\":2,\"event\":\"game-snapshot\",\"gameState\":\"started\",\"width\":3,\"height\":3,"
+				+ "\"boardState\":[\"-\",\"-\",\"-\",\"-\",\"X\",\"-\",\"-\",\"-\",\"-\"],\"turn\":\"O\"}",
+				"{\"seq\":3,\"event\":\"new-move\",\"x\":0,\"y\":0,\"symbol\":\"O\"}");
+		for (var received : watchers) {
+			waitFor(received, expected.size());
+			assertThat(received).containsExactlyElementsOf(expected);
+		}
+		var missing = watch("no-such-game");
+		Thread.sleep(200);
+		assertThat(missing).isEmpty(); //partita inesistente: il websocket viene chiuso senza eventi
+	}
+
+	@Test
+	public void oneSocketFollowsManyGamesAndLeavesThemOnClose() throws Exception {
+		for (var gameId : List.of("g3", "g4")) {
+			post("/api/v1/games", new JsonObject().put("gameId", gameId));
+			post("/api/v1/games/" + gameId + "/join", new JsonObject().put("userId", "alice").put("symbol", "X"));
+		}
+		var received = new CopyOnWriteArrayList<String>();
+		var ws = connect(received);
+		ws.writeTextMessage(new JsonObject().put("spectate", "g3").toString()).await();
+		ws.writeTextMessage(new JsonObject().put("spectate", "g4").toString()).await();
+		ws.writeTextMessage(new JsonObject().put("spectate", "g4").toString()).await(); //iscrizione ripetuta: ignorata
+		post("/api/v1/games/g4/join", new JsonObject().put("userId", "bob").put("symbol", "O"));
+		waitFor(received, 3);
+		assertThat(received).containsExactly("{\"seq\":0,\"event\":\"game-snapshot\",\"gameState\":\"waiting-for-players\",\"width\":3,\"height\":3,\"boardState\":[]}",
+				"{\"gameId\":\"g4\",\"seq\":0,\"event\":\"game-snapshot\",\"gameState\":\"waiting-for-players\",\"width\":3,\"height\":3,\"boardState\":[]}",
+				"{\"gameId\":\"g4\",\"seq\":1,\"event\":\"game-started\"}"); //con più partite sullo stesso websocket ogni evento indica la partita
+		var stats = get("/api/v1/lifecycle");
+		assertThat(stats.getInteger("eventSockets")).isEqualTo(1);
+		assertThat(stats.getInteger("eventSubscriptions")).isEqualTo(2);
+		assertThat(stats.getInteger("eventTopics")).isEqualTo(2);
+
+		ws.writeTextMessage(new JsonObject().put("unsubscribe", "g4").toString()).await();
+		post("/api/v1/games/g3/join", new JsonObject().put("userId", "bob").put("symbol", "O")); //evento di g3, ancora seguita
+		waitFor(received, 4);
+		assertThat(received).hasSize(4).last().isEqualTo("{\"seq\":1,\"event\":\"game-started\"}"); //di nuovo una sola partita: eventi senza id
+		stats = get("/api/v1/lifecycle");
+		assertThat(stats.getInteger("eventSubscriptions")).isEqualTo(1);
+		assertThat(stats.getInteger("eventTopics")).isEqualTo(1);
+
+		for (int i = 0; i < 50; i++) { //websocket aperti e chiusi ripetutamente: nessuna iscrizione resta registrata
+			var other = connect(new CopyOnWriteArrayList<>());
+			other.writeTextMessage(new JsonObject().put("spectate", "g" + (3 + i % 2)).toString()).await();
+			other.close().await();
+		}
+		ws.close().await();
+		sockets.clear();
+		long deadline = System.currentTimeMillis() + 5_000;
+		do {
+			Thread.sleep(20);
+			stats = get("/api/v1/lifecycle");
+		} while (stats.getInteger("eventSockets") > 0 && System.currentTimeMillis() < deadline);
+		assertThat(stats.getInteger("eventSockets")).isZero();
+		assertThat(stats.getInteger("eventSubscriptions")).isZero();
+		assertThat(stats.getInteger("eventTopics")).isZero();
+	}
+
+	@Test
+	public void aGameCanBePlayedOverTheEventWebSocket() throws Exception {
+		post("/api/v1/games", new JsonObject().put("gameId", "g5"));
+		var crossEvents = new CopyOnWriteArrayList<String>();
+		var cross = connect(crossEvents);
+		var circleFrames = new CopyOnWriteArrayList<Buffer>();
+		var circle = connect(new CopyOnWriteArrayList<>());
+		circle.binaryMessageHandler(circleFrames::add);
+		cross.writeTextMessage(new GameCommandFrames.Join(1, "g5", "alice", "X").toJson()).await(); //comandi in json
+		waitFor(crossEvents, 1);
+		var crossSession = new JsonObject(crossEvents.get(0)).getString("playerSessionId");
+		circle.writeBinaryMessage(new GameCommandFrames.Join(7, "g5", "bob", "O").toBinary()).await(); //comandi in forma binaria
+		waitFor(circleFrames, 2);
+		var circleSession = GameCommandFrames.Ack.fromBinary(circleFrames.get(0)).detail();
+		cross.writeTextMessage(new GameCommandFrames.Move(2, crossSession, 1, 1).toJson()).await();
+		waitFor(circleFrames, 3);
+		circle.writeBinaryMessage(new GameCommandFrames.Move(8, circleSession, 1, 1).toBinary()).await(); //casella occupata
+		circle.writeBinaryMessage(new GameCommandFrames.Move(9, circleSession, 0, 0).toBinary()).await();
+		waitFor(crossEvents, 5);
+		waitFor(circleFrames, 6);
+		assertThat(crossEvents).containsExactly("{\"ack\":1,\"result\":\"ok\",\"playerSessionId\":\"" + crossSession + "\"}",
+				"{\"seq\":1,\"event\":\"game-started\"}",
+				"{\"ack\":2,\"result\":\"accepted\"}",
+				"{\"seq\":2,\"event\":\"new-move\",\"x\":1,\"y\":1,\"symbol\":\"X\"}",
+				"{\"seq\":3,\"event\":\"new-move\",\"x\":0,\"y\":0,\"symbol\":\"O\"}");
+		var codec = new GameEventMessageCodec();
+		assertThat(circleFrames).hasSize(6);
+		assertThat(GameCommandFrames.Ack.fromBinary(circleFrames.get(0))).isEqualTo(new GameCommandFrames.Ack(7, "ok", circleSession));
+		assertThat(codec.decodeFromWire(0, circleFrames.get(1))).isEqualTo(new GameEventMessage.Sequenced(1, GameEventMessage.STARTED));
+		assertThat(codec.decodeFromWire(0, circleFrames.get(2))).isEqualTo(new GameEventMessage.Sequenced(2, new GameEventMessage.Moved("X", 1, 1)));
+		assertThat(GameCommandFrames.Ack.fromBinary(circleFrames.get(3))).isEqualTo(new GameCommandFrames.Ack(8, "invalid-move", null));
+		assertThat(GameCommandFrames.Ack.fromBinary(circleFrames.get(4))).isEqualTo(new GameCommandFrames.Ack(9, "accepted", null));
+		assertThat(codec.decodeFromWire(0, circleFrames.get(5))).isEqualTo(new GameEventMessage.Sequenced(3, new GameEventMessage.Moved("O", 0, 0)));
+	}
+
+	@Test
+	public void invalidCommandsAreAnsweredWithAnError() throws Exception {
+		post("/api/v1/games", new JsonObject().put("gameId", "g8"));
+		var replies = new CopyOnWriteArrayList<String>();
+		var ws = connect(replies);
+		ws.writeTextMessage("{\"cmd\":\"fly\",\"id\":1}").await(); //comando sconosciuto
+		ws.writeTextMessage("{\"cmd\":\"move\",\"id\":2,\"playerSessionId\":\"ps\"}").await(); //coordinate mancanti
+		ws.writeTextMessage("{\"cmd\":\"join\",\"id\":3,\"gameId\":\"g8\",\"user\":\"alice\",\"symbol\":\"Z\"}").await(); //simbolo non valido
+		ws.writeTextMessage("{\"cmd\":\"join\",\"id\":4,\"gameId\":\"g8\",\"user\":\"alice\",\"symbol\":\"X\"}").await();
+		waitFor(replies, 4);
+		var session = new JsonObject(replies.get(3)).getString("playerSessionId");
+		connect(new CopyOnWriteArrayList<>()).writeTextMessage("{\"cmd\":\"join\",\"id\":1,\"gameId\":\"g8\",\"user\":\"bob\",\"symbol\":\"O\"}").await();
+		waitFor(replies, 5); //avvio della partita
+		ws.writeTextMessage("{\"cmd\":\"move\",\"id\":5,\"playerSessionId\":\"" + session + "\",\"x\":\"1\",\"y\":\"2\"}").await(); //coordinate come stringhe (come via http)
+		waitFor(replies, 7);
+		assertThat(replies).startsWith("{\"ack\":1,\"result\":\"error\",\"error\":\"invalid-command\"}",
+				"{\"ack\":2,\"result\":\"error\",\"error\":\"invalid-command\"}",
+				"{\"ack\":3,\"result\":\"error\",\"error\":\"invalid-symbol\"}");
+		assertThat(new JsonObject(replies.get(3)).getString("result")).isEqualTo("ok");
+		assertThat(replies).contains("{\"ack\":5,\"result\":\"accepted\"}", "{\"seq\":2,\"event\":\"new-move\",\"x\":1,\"y\":2,\"symbol\":\"X\"}");
+	}
+
+	@Test
+	public void aReconnectingClientGetsOnlyTheEventsItMissed() throws Exception {
+		post("/api/v1/games", new JsonObject().put("gameId", "g6"));
+		var crossSession = post("/api/v1/games/g6/join", new JsonObject().put("userId", "alice").put("symbol", "X")).getString("playerSessionId");
+		var circleSession = post("/api/v1/games/g6/join", new JsonObject().put("userId", "bob").put("symbol", "O")).getString("playerSessionId");
+		var first = new CopyOnWriteArrayList<String>();
+		var ws = connect(first);
+		ws.writeTextMessage(new JsonObject().put("playerSessionId", crossSession).toString()).await();
+		post("/api/v1/games/g6/" + crossSession + "/move", new JsonObject().put("x", "1").put("y", "1"));
+		waitFor(first, 2);
+		long lastSeq = new JsonObject(first.get(first.size() - 1)).getLong("seq");
+		assertThat(lastSeq).isEqualTo(2);
+		ws.close().await(); //disconnessione: gli eventi successivi vanno persi
+		post("/api/v1/games/g6/" + circleSession + "/move", new JsonObject().put("x", "0").put("y", "0"));
+		post("/api/v1/games/g6/" + crossSession + "/move", new JsonObject().put("x", "2").put("y", "2"));
+
+		var resumed = open(new JsonObject().put("playerSessionId", crossSession).put("lastSeq", lastSeq)); //riconnessione dall'ultimo evento ricevuto
+		waitFor(resumed, 2);
+		assertThat(resumed).containsExactly("{\"seq\":3,\"event\":\"new-move\",\"x\":0,\"y\":0,\"symbol\":\"O\"}",
+				"{\"seq\":4,\"event\":\"new-move\",\"x\":2,\"y\":2,\"symbol\":\"X\"}");
+		var upToDate = open(new JsonObject().put("spectate", "g6").put("lastSeq", 4)); //nessun evento perso: nessun recupero
+		var unknown = open(new JsonObject().put("spectate", "g6").put("lastSeq", 99)); //numero di sequenza non valido: istantanea
+		post("/api/v1/games/g6/" + circleSession + "/move", new JsonObject().put("x", "0").put("y", "1"));
+		waitFor(upToDate, 1);
+		waitFor(unknown, 2);
+		assertThat(upToDate).containsExactly("{\"seq\":5,\"event\":\"new-move\",\"x\":0,\"y\":1,\"symbol\":\"O\"}");
+		assertThat(unknown).hasSize(2).first().asString().startsWith("{\"seq\":4,\"event\":\"game-snapshot\"");
+	}
+
+	@Test
+	public void serverSentEventsAndLongPollsFollowTheSameTopic() throws Exception {
+		post("/api/v1/games", new JsonObject().put("gameId", "g7"));
+		post("/api/v1/games/g7/join", new JsonObject().put("userId", "alice").put("symbol", "X"));
+		var waiting = "\"event\":\"game-snapshot\",\"gameState\":\"waiting-for-players\",\"width\":3,\"height\":3,\"boardState\":[]}";
+		var clients = vertx.createHttpClient(); //client separato: stream e richieste in attesa occupano le proprie connessioni
+		assertThat(get("/api/v1/games/g7/poll")).isEqualTo(new JsonObject("{\"seq\":0,\"events\":[{\"seq\":0," + waiting + "]}")); //senza "since": istantanea
+		var parked = clients.request(HttpMethod.GET, PORT, "localhost", "/api/v1/games/g7/poll?since=0") //già aggiornato: resta in attesa
+				.compose(req -> req.send()).compose(resp -> resp.body());
+		var stream = new StringBuffer();
+		clients.request(HttpMethod.GET, PORT, "localhost", "/api/v1/games/g7/events").compose(req -> req.send())
+				.onSuccess(resp -> resp.handler(buf -> stream.append(buf.toString()))).await();
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (get("/api/v1/lifecycle").getInteger("parkedPolls") < 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(parked.isComplete()).isFalse();
+		assertThat(get("/api/v1/lifecycle").getInteger("eventStreams")).isEqualTo(1);
+
+		post("/api/v1/games/g7/join", new JsonObject().put("userId", "bob").put("symbol", "O")); //evento: risveglia la richiesta in attesa
+		assertThat(parked.await().toJsonObject()).isEqualTo(new JsonObject("{\"seq\":1,\"events\":[{\"seq\":1,\"event\":\"game-started\"}]}"));
+		deadline = System.currentTimeMillis() + 5_000;
+		while (!stream.toString().contains("id: 1") && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(stream.toString()).isEqualTo("id: 0\ndata: {\"seq\":0," + waiting + "\n\nid: 1\ndata: {\"seq\":1,\"event\":\"game-started\"}\n\n");
+
+		var resumed = new StringBuffer(); //riconnessione dello stream dall'ultimo evento ricevuto: solo gli eventi persi
+		clients.request(HttpMethod.GET, PORT, "localhost", "/api/v1/games/g7/events").compose(req -> req.putHeader("Last-Event-ID", "0").send())
+				.onSuccess(resp -> resp.handler(buf -> resumed.append(buf.toString()))).await();
+		deadline = System.currentTimeMillis() + 5_000;
+		while (resumed.length() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(100);
+		assertThat(resumed.toString()).isEqualTo("id: 1\ndata: {\"seq\":1,\"event\":\"game-started\"}\n\n");
+		assertThat(get("/api/v1/games/no-such-game/poll?since=0").getString("error")).isEqualTo("game-not-present");
+		clients.close().await();
+	}
+
+	@Test
+	public void gameInfoIsVersionedAndUnchangedGamesAnswer304() throws Exception {
+		post("/api/v1/games", new JsonObject().put("gameId", "g8"));
+		var first = conditionalGet("/api/v1/games/g8", null);
+		assertThat(first.status()).isEqualTo(200);
+		assertThat(first.etag()).isEqualTo("\"0\"");
+		assertThat(first.body().toJsonObject().getJsonObject("gameInfo").getString("gameState")).isEqualTo("waiting-for-players");
+		var unchanged = conditionalGet("/api/v1/games/g8", first.etag());
+		assertThat(unchanged.status()).isEqualTo(304);
+		assertThat(unchanged.body().length()).isZero();
+
+		post("/api/v1/games/g8/join", new JsonObject().put("userId", "alice").put("symbol", "X")); //nuova versione
+		var changed = conditionalGet("/api/v1/games/g8", first.etag());
+		assertThat(changed.status()).isEqualTo(200);
+		assertThat(changed.etag()).isEqualTo("\"1\"");
+		for (int i = 0; i < 3; i++) { //stessa versione: la risposta viene codificata una sola volta
+			assertThat(get("/api/v1/games/g8").getJsonObject("gameInfo").getString("gameState")).isEqualTo("waiting-for-players");
+		}
+		var stats = get("/api/v1/lifecycle");
+		assertThat(stats.getLong("gameInfoCacheMisses")).isEqualTo(2);
+		assertThat(stats.getLong("gameInfoCacheHits")).isEqualTo(3);
+	}
+
+	//risposta di una richiesta GET condizionale
+	private record ConditionalReply(int status, String etag, Buffer body) {}
+
+	//esegue una GET indicando (se presente) l'ETag già posseduto
+	private ConditionalReply conditionalGet(String path, String ifNoneMatch) {
+		return http.request(HttpMethod.GET, PORT, "localhost", path)
+				.compose(req -> (ifNoneMatch == null ? req : req.putHeader("If-None-Match", ifNoneMatch)).send())
+				.compose(resp -> resp.body().map(body -> new ConditionalReply(resp.statusCode(), resp.getHeader("ETag"), body)))
+				.await();
+	}
+
+	private JsonObject get(String path) {
+		return http.request(HttpMethod.GET, PORT, "localhost", path)
+				.compose(req -> req.send())
+				.compose(resp -> resp.body())
+				.map(buf -> buf.toJsonObject())
+				.await();
+	}
+
+	@Test
+	public void activityOnTheWebSocketKeepsThePlayerSessionAlive() throws Exception {
+		service.bindLifecyclePolicy(new LifecyclePolicy(60_000, 300)); //sessioni inattive dopo 300 ms
+		post("/api/v1/games", new JsonObject().put("gameId", "g9"));
+		var crossSession = post("/api/v1/games/g9/join", new JsonObject().put("userId", "alice").put("symbol", "X")).getString("playerSessionId");
+		post("/api/v1/games/g9/join", new JsonObject().put("userId", "bob").put("symbol", "O")); //sessione mai più usata
+		var received = new CopyOnWriteArrayList<String>();
+		var ws = connect(received);
+		ws.writeTextMessage(new JsonObject().put("playerSessionId", crossSession).toString()).await();
+		waitFor(received, 1);
+		for (int i = 0; i < 6; i++) { //il client usa solo il websocket (anche un comando non valido è attività)
+			Thread.sleep(100);
+			ws.writeTextMessage(new JsonObject().put("cmd", "noop").put("id", i).toString()).await();
+		}
+		waitFor(received, 7);
+		var stats = service.evictExpired();
+		assertThat(stats.expiredPlayerSessions()).isEqualTo(1); //solo la sessione inattiva
+		assertThat(stats.playerSessions()).isEqualTo(1);
+		assertThat(service.getPlayerSession(crossSession)).isNotNull();
+	}
+
+	private JsonObject post(String path, JsonObject body) {
+		return http.request(HttpMethod.POST, PORT, "localhost", path)
+				.compose(req -> req.send(body.toBuffer()))
+				.compose(resp -> resp.body())
+				.map(buf -> buf.toJsonObject())
+				.await();
+	}
+
+	//apre un websocket per la sessione giocatore e raccoglie gli eventi ricevuti
+	private List<String> subscribe(String playerSessionId) {
+		return open(new JsonObject().put("playerSessionId", playerSessionId));
+	}
+
+	//apre un websocket per seguire una partita come spettatore e raccoglie gli eventi ricevuti
+	private List<String> watch(String gameId) {
+		return open(new JsonObject().put("spectate", gameId));
+	}
+
+	private List<String> open(JsonObject openMsg) {
+		var received = new CopyOnWriteArrayList<String>();
+		connect(received).writeTextMessage(openMsg.toString()).await();
+		return received;
+	}
+
+	//apre un websocket che raccoglie gli eventi ricevuti
+	private WebSocket connect(List<String> received) {
+		WebSocket ws = webSockets.connect(PORT, "localhost", "/api/v1/events").await();
+		ws.textMessageHandler(received::add);
+		sockets.add(ws);
+		return ws;
+	}
+
+	//attende che arrivino almeno count eventi (e poco oltre, per accorgersi di eventuali duplicati)
+	private static void waitFor(List<?> received, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (received.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(100);
+	}
+}
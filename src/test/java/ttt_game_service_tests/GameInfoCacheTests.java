@@ -0,0 +1,44 @@
+package ttt_game_service_tests;
+
+import org.junit.jupiter.api.Test;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+import distributed_ttt.game_service.infrastructure.GameInfoCache;
+import io.vertx.core.buffer.Buffer;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che la cache delle informazioni della partita codifichi la risposta una volta per versione,
+scarti la partita letta meno di recente quando è piena e riconosca l'ETag nelle forme ammesse da If-None-Match
+*/
+public class GameInfoCacheTests {
+
+	@Test
+	public void theReplyIsEncodedOncePerVersion() throws Exception {
+		var cache = new GameInfoCache(2);
+		var game = new Game("g1");
+		var first = cache.get(game, g -> Buffer.buffer("v" + g.getVersion()));
+		assertThat(cache.get(game, g -> fail("versione già in cache"))).isSameAs(first);
+		game.joinGame(new UserId("alice"), TTTSymbol.X); //nuova versione
+		assertThat(cache.get(game, g -> Buffer.buffer("v" + g.getVersion())).toString()).isEqualTo("v1");
+		assertThat(cache.getHits()).isEqualTo(1);
+		assertThat(cache.getMisses()).isEqualTo(2);
+
+		cache.get(new Game("g2"), g -> Buffer.buffer("g2"));
+		cache.get(game, g -> fail("versione già in cache")); //g1 diventa la più recente
+		cache.get(new Game("g3"), g -> Buffer.buffer("g3")); //viene scartata g2
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.get(new Game("g2"), g -> Buffer.buffer("again")).toString()).isEqualTo("again");
+	}
+
+	@Test
+	public void ifNoneMatchAcceptsListsWeakTagsAndWildcards() {
+		assertThat(GameInfoCache.matches(null, "\"3\"")).isFalse();
+		assertThat(GameInfoCache.matches("\"3\"", "\"3\"")).isTrue();
+		assertThat(GameInfoCache.matches("\"2\", W/\"3\"", "\"3\"")).isTrue();
+		assertThat(GameInfoCache.matches("*", "\"3\"")).isTrue();
+		assertThat(GameInfoCache.matches("\"30\"", "\"3\"")).isFalse();
+	}
+}
@@ -0,0 +1,110 @@
+package ttt_game_service_tests;
+
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import monolith_ttt_game_server.application.GameAlreadyPresentException;
+import monolith_ttt_game_server.application.GameNotFoundException;
+import monolith_ttt_game_server.application.GameServiceImpl;
+import monolith_ttt_game_server.application.LifecyclePolicy;
+import monolith_ttt_game_server.application.PlayerSessionEventObserver;
+import monolith_ttt_game_server.domain.ArchivedGame;
+import monolith_ttt_game_server.domain.TTTSymbol;
+import monolith_ttt_game_server.domain.UserId;
+import monolith_ttt_game_server.infrastructure.InMemoryAccountRepository;
+import monolith_ttt_game_server.infrastructure.InMemoryGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che le partite terminate vengano archiviate (restando consultabili fino alla scadenza della loro conservazione) e che le sessioni inattive scadano
+*/
+public class GameLifecycleTests {
+
+	@Test
+	public void finishedGamesAreArchivedAndStillServed() throws Exception {
+		var gs = newService(new LifecyclePolicy(0, 60_000));
+		gs.createNewGame("g1");
+		gs.createNewGame("g2");
+		var x = gs.joinGame(new UserId("alice"), "g1", TTTSymbol.X, new NoOpObserver());
+		var o = gs.joinGame(new UserId("bob"), "g1", TTTSymbol.O, new NoOpObserver());
+		x.makeMove(0, 0);
+		o.makeMove(0, 1);
+		x.makeMove(1, 0);
+		o.makeMove(1, 1);
+		x.makeMove(2, 0); //vince "croce"
+		Thread.sleep(5);
+
+		var stats = gs.evictExpired();
+		assertThat(stats.liveGames()).isEqualTo(1); //g2 non è terminata
+		assertThat(stats.archivedGames()).isEqualTo(1);
+		assertThat(stats.playerSessions()).isZero(); //le sessioni della partita archiviata sono rimosse
+		assertThat(stats.expiredPlayerSessions()).isEqualTo(2);
+		assertThat(gs.getPlayerSession(x.getId())).isNull();
+
+		var archived = gs.getGameInfo("g1");
+		assertThat(archived).isInstanceOf(ArchivedGame.class);
+		assertThat(archived.getGameState()).isEqualTo("finished");
+		assertThat(archived.getBoardState()).containsExactly("X", "X", "X", "O", "O", "-", "-", "-", "-");
+		assertThat(((ArchivedGame) archived).winner()).contains("alice");
+		assertThatThrownBy(() -> gs.createNewGame("g1")).isInstanceOf(GameAlreadyPresentException.class);
+	}
+
+	@Test
+	public void idleSessionsExpire() throws Exception {
+		var gs = newService(new LifecyclePolicy(60_000, 0));
+		gs.registerUser("alice", "pwd");
+		var us = gs.login("alice", "pwd");
+		gs.createNewGame("g1");
+		gs.joinGame(new UserId("alice"), "g1", TTTSymbol.X, new NoOpObserver());
+		Thread.sleep(5);
+
+		var stats = gs.evictExpired();
+		assertThat(stats.userSessions()).isZero();
+		assertThat(stats.playerSessions()).isZero();
+		assertThat(stats.expiredUserSessions()).isEqualTo(1);
+		assertThat(stats.liveGames()).isEqualTo(1); //la partita non è terminata, quindi resta in corso
+		assertThat(gs.getUserSession(us.getSessionId())).isNull();
+	}
+
+	@Test
+	public void archivedGamesAreDiscardedAfterTheirRetention() throws Exception {
+		var gs = newService(new LifecyclePolicy(0, 60_000, 60_000)); //partite archiviate conservate per un minuto
+		gs.createNewGame("g1");
+		var x = gs.joinGame(new UserId("alice"), "g1", TTTSymbol.X, new NoOpObserver());
+		var o = gs.joinGame(new UserId("bob"), "g1", TTTSymbol.O, new NoOpObserver());
+		x.makeMove(0, 0);
+		o.makeMove(0, 1);
+		x.makeMove(1, 0);
+		o.makeMove(1, 1);
+		x.makeMove(2, 0);
+		Thread.sleep(5);
+
+		var stats = gs.evictExpired();
+		assertThat(stats.archivedGames()).isEqualTo(1);
+		assertThat(stats.discardedGames()).isZero(); //ancora entro la conservazione
+		assertThat(gs.getGameInfo("g1")).isInstanceOf(ArchivedGame.class);
+
+		gs.bindLifecyclePolicy(new LifecyclePolicy(0, 60_000, 0)); //conservazione scaduta
+		stats = gs.evictExpired();
+		assertThat(stats.archivedGames()).isZero();
+		assertThat(stats.discardedGames()).isEqualTo(1);
+		assertThat(stats.evictedGames()).isEqualTo(1);
+		assertThatThrownBy(() -> gs.getGameInfo("g1")).isInstanceOf(GameNotFoundException.class);
+	}
+
+	private GameServiceImpl newService(LifecyclePolicy policy) {
+		var gs = new GameServiceImpl();
+		gs.bindAccountRepository(new InMemoryAccountRepository());
+		gs.bindGameRepository(new InMemoryGameRepository());
+		gs.bindLifecyclePolicy(policy);
+		return gs;
+	}
+
+	//observer che ignora tutti gli eventi
+	private static class NoOpObserver implements PlayerSessionEventObserver {
+		public void enableEventNotification(String playerSessionId) {}
+		public void gameStarted(String playerSessionId) {}
+		public void newMove(String playerSessionId, String symbol, int x, int y) {}
+		public void gameEnded(String playerSessionId, Optional<String> winner) {}
+	}
+}
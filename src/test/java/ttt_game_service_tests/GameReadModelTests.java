@@ -0,0 +1,162 @@
+package ttt_game_service_tests;
+
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.application.GameSummary;
+import distributed_ttt.game_service.application.LifecyclePolicy;
+import distributed_ttt.game_service.application.PlayerSessionEventObserver;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+import distributed_ttt.game_service.infrastructure.GameQueryController;
+import distributed_ttt.game_service.infrastructure.InMemoryGameReadModel;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonObject;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che il modello di lettura, aggiornato solo dalla creazione, dagli ingressi e dagli eventi delle partite,
+abbia le stesse viste delle partite (griglia, turno, stato e versione) e gli indici per stato e per giocatore,
+e che le interrogazioni http servite da più istanze del controller delle interrogazioni leggano solo il modello
+*/
+public class GameReadModelTests {
+
+	private static final int PORT = 19700;
+	private static final PlayerSessionEventObserver NO_NOTIFIER = new PlayerSessionEventObserver() { //i giocatori del test non ricevono notifiche
+		public void enableEventNotification(String playerSessionId) {}
+		public void gameStarted(String playerSessionId) {}
+		public void newMove(String playerSessionId, String symbol, int x, int y) {}
+		public void gameEnded(String playerSessionId, Optional<String> winner) {}
+	};
+
+	@Test
+	public void theReadModelFollowsTheGames() throws Exception {
+		var repository = new InMemoryGameRepository();
+		var readModel = new InMemoryGameReadModel();
+		var service = new GameServiceImpl();
+		service.bindGameRepository(repository);
+		service.bindGameReadModel(readModel);
+		service.createNewGame("g1");
+		service.createNewGame("g2", 4, 4, 3);
+		service.createNewGame("g3");
+		var alice = service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, NO_NOTIFIER);
+		var bob = service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, NO_NOTIFIER);
+		var carol = service.joinGame(new UserId("carol"), "g2", TTTSymbol.X, NO_NOTIFIER);
+		var alice2 = service.joinGame(new UserId("alice"), "g2", TTTSymbol.O, NO_NOTIFIER);
+		assertSameAsGame(readModel.getGame("g3").orElseThrow(), repository.getGame("g3"));
+		assertSameAsGame(readModel.getGame("g2").orElseThrow(), repository.getGame("g2"));
+
+		carol.makeMove(3, 2);
+		alice2.makeMove(0, 1);
+		assertSameAsGame(readModel.getGame("g2").orElseThrow(), repository.getGame("g2"));
+		alice.makeMove(0, 0);
+		bob.makeMove(1, 0);
+		alice.makeMove(1, 1);
+		bob.makeMove(2, 0);
+		alice.makeMove(2, 2); //alice vince g1
+		var g1 = readModel.getGame("g1").orElseThrow();
+		assertSameAsGame(g1, repository.getGame("g1"));
+		assertThat(g1.winner()).contains("alice");
+
+		assertThat(readModel.getGamesByState("finished")).extracting(GameSummary::id).containsExactly("g1");
+		assertThat(readModel.getGamesByState("started")).extracting(GameSummary::id).containsExactly("g2");
+		assertThat(readModel.getGamesByState("waiting-for-players")).extracting(GameSummary::id).containsExactly("g3");
+		assertThat(readModel.getGamesByPlayer("alice")).extracting(GameSummary::id).containsExactlyInAnyOrder("g1", "g2");
+		assertThat(readModel.getGamesByPlayer("carol")).extracting(GameSummary::id).containsExactly("g2");
+		assertThat(readModel.getGamesByPlayer("dave")).isEmpty();
+	}
+
+	@Test
+	public void existingGamesAreSeededAndArchivedGamesLeaveTheModel() throws Exception {
+		var repository = new InMemoryGameRepository();
+		var service = new GameServiceImpl();
+		service.bindGameRepository(repository); //partite già presenti prima del modello (es. ripristinate dal log)
+		service.createNewGame("g1");
+		service.createNewGame("g2");
+		var alice = service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, NO_NOTIFIER);
+		var bob = service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, NO_NOTIFIER);
+		service.joinGame(new UserId("carol"), "g2", TTTSymbol.X, NO_NOTIFIER);
+		alice.makeMove(0, 0);
+
+		var readModel = new InMemoryGameReadModel();
+		service.bindGameReadModel(readModel);
+		assertThat(readModel.size()).isEqualTo(2);
+		assertSameAsGame(readModel.getGame("g1").orElseThrow(), repository.getGame("g1"));
+		assertSameAsGame(readModel.getGame("g2").orElseThrow(), repository.getGame("g2"));
+		assertThat(readModel.getGamesByPlayer("carol")).extracting(GameSummary::id).containsExactly("g2");
+
+		service.joinGame(new UserId("dave"), "g2", TTTSymbol.O, NO_NOTIFIER); //le partite ripristinate seguono i comandi successivi
+		assertSameAsGame(readModel.getGame("g2").orElseThrow(), repository.getGame("g2"));
+		int[][] rest = {{1, 0}, {1, 1}, {2, 0}, {2, 2}}; //alice vince g1
+		for (int i = 0; i < rest.length; i++) {
+			(i % 2 == 0 ? bob : alice).makeMove(rest[i][0], rest[i][1]);
+		}
+		assertThat(readModel.getGamesByState("finished")).extracting(GameSummary::id).containsExactly("g1");
+
+		service.bindLifecyclePolicy(new LifecyclePolicy(-1_000, Long.MAX_VALUE / 2)); //le partite terminate vanno subito archiviate, le sessioni restano
+		service.evictExpired(); //archivia g1
+		assertThat(readModel.getGame("g1")).isEmpty();
+		assertThat(readModel.getGamesByState("finished")).isEmpty();
+		assertThat(readModel.getGamesByPlayer("alice")).isEmpty();
+		assertThat(readModel.getGamesByPlayer("bob")).isEmpty();
+		assertThat(readModel.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void queriesAreServedByManyQueryControllers() throws Exception {
+		var vertx = Vertx.vertx();
+		try {
+			var readModel = new InMemoryGameReadModel();
+			var service = new GameServiceImpl();
+			service.bindGameRepository(new InMemoryGameRepository());
+			service.bindGameReadModel(readModel);
+			service.createNewGame("g1");
+			service.createNewGame("g2");
+			service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, NO_NOTIFIER);
+			service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, NO_NOTIFIER);
+			vertx.deployVerticle(() -> new GameQueryController(readModel, PORT), new DeploymentOptions().setInstances(2)).await();
+			var http = vertx.createHttpClient();
+
+			var game = get(http, "/api/v1/games/g1");
+			assertThat(game.getJsonObject("gameInfo").getString("gameState")).isEqualTo("started");
+			assertThat(game.getJsonObject("gameInfo").getString("turn")).isEqualTo("X");
+			int status = http.request(HttpMethod.GET, PORT, "localhost", "/api/v1/games/g1")
+					.compose(req -> req.putHeader("If-None-Match", "\"3\"").send())
+					.compose(resp -> resp.body().map(body -> resp.statusCode())).await();
+			assertThat(status).isEqualTo(304); //due ingressi e l'avvio: versione 3
+			assertThat(get(http, "/api/v1/games/g9").getString("error")).isEqualTo("game-not-present");
+
+			var waiting = get(http, "/api/v1/games").getJsonArray("games");
+			assertThat(waiting.size()).isEqualTo(1);
+			assertThat(waiting.getJsonObject(0).getString("gameId")).isEqualTo("g2");
+			var started = get(http, "/api/v1/games?state=started").getJsonArray("games");
+			assertThat(started.getJsonObject(0).getString("playerX")).isEqualTo("alice");
+			assertThat(started.getJsonObject(0).getString("playerO")).isEqualTo("bob");
+			assertThat(get(http, "/api/v1/players/bob/games").getJsonArray("games").getJsonObject(0).getString("gameId")).isEqualTo("g1");
+		} finally {
+			vertx.close().await();
+		}
+	}
+
+	//verifica che la vista abbia lo stesso stato della partita
+	private static void assertSameAsGame(GameSummary view, Game game) {
+		assertThat(view.getGameState()).isEqualTo(game.getGameState());
+		assertThat(view.getBoardState()).isEqualTo(game.getBoardState());
+		assertThat(view.getVersion()).isEqualTo(game.getVersion());
+		if (game.isStarted()) {
+			assertThat(view.getCurrentTurn()).isEqualTo(game.getCurrentTurn());
+		}
+	}
+
+	//esegue una GET e restituisce il json della risposta
+	private static JsonObject get(HttpClient http, String path) {
+		return http.request(HttpMethod.GET, PORT, "localhost", path)
+				.compose(req -> req.send()).compose(resp -> resp.body()).map(body -> body.toJsonObject()).await();
+	}
+}
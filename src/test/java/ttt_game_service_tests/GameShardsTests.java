@@ -0,0 +1,111 @@
+package ttt_game_service_tests;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import monolith_ttt_game_server.application.GameServiceImpl;
+import monolith_ttt_game_server.application.PlayerSessionEventObserver;
+import monolith_ttt_game_server.domain.TTTSymbol;
+import monolith_ttt_game_server.domain.UserId;
+import monolith_ttt_game_server.infrastructure.GameShards;
+import monolith_ttt_game_server.infrastructure.InMemoryAccountRepository;
+import monolith_ttt_game_server.infrastructure.InMemoryGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica l'instradamento dei comandi sulle partizioni: ogni partita va sempre alla stessa partizione,
+ogni sessione giocatore alla partizione che ne ha generato l'id (quella della sua partita, anche se l'utente è sulla partizione degli account)
+e gli id mancanti vengono rifiutati
+*/
+public class GameShardsTests {
+
+	private static final int SHARDS = 4;
+
+	@Test
+	public void gamesAndSessionsAreRoutedToTheirShard() throws Exception {
+		var shards = newShards(new InMemoryAccountRepository());
+		var used = new HashSet<Integer>();
+		for (int i = 0; i < 64; i++) {
+			var shard = shards.shardOf("game-" + i);
+			assertThat(shards.shardOf("game-" + i)).isSameAs(shard); //sempre la stessa partizione
+			used.add(shard.getIndex());
+		}
+		assertThat(used).hasSize(SHARDS); //le partite sono distribuite su tutte le partizioni
+
+		for (var shard : shards.all()) { //ogni partizione genera gli id delle sessioni con il proprio indice
+			var id = "own-" + shard.getIndex();
+			var playerSessionId = await(shard.execute(gs -> { //partizione non avviata: il comando viene eseguito direttamente
+				gs.createNewGame(id);
+				return gs.joinGame(new UserId("alice"), id, TTTSymbol.X, new NoOpObserver()).getId();
+			}));
+			assertThat(shards.shardOfPlayerSession(playerSessionId)).isSameAs(shard);
+		}
+		assertThat(shards.shardOfPlayerSession("not-an-id")).isSameAs(shards.accountShard()); //id non generato da una partizione
+	}
+
+	@Test
+	public void aJoinCrossesFromTheAccountShardToTheGameShard() throws Exception {
+		var vertx = Vertx.vertx();
+		try {
+			var shards = newShards(new InMemoryAccountRepository());
+			await(shards.deploy(vertx));
+			var gameId = "g0";
+			for (int i = 1; shards.shardOf(gameId) == shards.accountShard(); i++) { //una partita che non sta sulla partizione degli account
+				gameId = "g" + i;
+			}
+			var id = gameId;
+			var gameShard = shards.shardOf(id);
+			await(shards.accountShard().execute(gs -> gs.registerUser("alice", "pwd")));
+			var userSessionId = await(shards.accountShard().execute(gs -> gs.login("alice", "pwd").getSessionId()));
+			await(gameShard.execute(gs -> {
+				gs.createNewGame(id);
+				return null;
+			}));
+			var playerSessionId = await(shards.accountShard().execute(gs -> gs.getUserSession(userSessionId).getUserId()) //utente sulla partizione degli account
+					.compose(userId -> gameShard.execute(gs -> gs.joinGame(userId, id, TTTSymbol.X, new NoOpObserver()).getId()))); //ingresso sulla partizione della partita
+			assertThat(shards.shardOfPlayerSession(playerSessionId)).isSameAs(gameShard); //le mosse seguono la partita
+			String sessionGame = await(gameShard.execute(gs -> gs.getPlayerSession(playerSessionId).getGameId()));
+			assertThat(sessionGame).isEqualTo(id);
+			boolean onAccountShard = await(shards.accountShard().execute(gs -> gs.getPlayerSession(playerSessionId) != null));
+			assertThat(onAccountShard).isFalse(); //la sessione non è sulla partizione degli account
+		} finally {
+			await(vertx.close());
+		}
+	}
+
+	@Test
+	public void missingIdsAreRejected() {
+		var shards = newShards(new InMemoryAccountRepository());
+		assertThatThrownBy(() -> shards.shardOf(null)).isInstanceOf(IllegalArgumentException.class).hasMessage("missing game id");
+		assertThatThrownBy(() -> shards.shardOfPlayerSession(null)).isInstanceOf(IllegalArgumentException.class).hasMessage("missing player session id");
+		var single = GameShards.single(new GameServiceImpl());
+		assertThatThrownBy(() -> single.shardOf(null)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> single.shardOfPlayerSession(null)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	//crea le partizioni come in TTTGameServerMain (account condivisi, partite separate)
+	private GameShards newShards(InMemoryAccountRepository accounts) {
+		return GameShards.create(SHARDS, i -> {
+			var gs = new GameServiceImpl(i);
+			gs.bindAccountRepository(accounts);
+			gs.bindGameRepository(new InMemoryGameRepository());
+			return gs;
+		});
+	}
+
+	private static <T> T await(Future<T> future) throws Exception {
+		return future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+	}
+
+	//observer che ignora tutti gli eventi
+	private static class NoOpObserver implements PlayerSessionEventObserver {
+		public void enableEventNotification(String playerSessionId) {}
+		public void gameStarted(String playerSessionId) {}
+		public void newMove(String playerSessionId, String symbol, int x, int y) {}
+		public void gameEnded(String playerSessionId, Optional<String> winner) {}
+	}
+}
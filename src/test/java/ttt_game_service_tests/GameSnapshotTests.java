@@ -0,0 +1,119 @@
+package ttt_game_service_tests;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+import monolith_ttt_game_server.domain.Game;
+import monolith_ttt_game_server.domain.TTTSymbol;
+import monolith_ttt_game_server.domain.UserId;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che la partita pubblichi un'istantanea immutabile ad ogni comando accettato, prima di notificarne gli eventi agli osservatori,
+e che un thread lettore veda sempre istantanee coerenti (griglia, turno e versione della stessa mossa) mentre un altro thread gioca
+*/
+public class GameSnapshotTests {
+
+	@Test
+	public void eachCommandPublishesAnImmutableSnapshot() throws Exception {
+		var game = new Game("g1");
+		var created = game.snapshot();
+		assertThat(created.getGameState()).isEqualTo("waiting-for-players");
+		assertThat(created.getVersion()).isZero();
+		var alice = new UserId("alice");
+		var bob = new UserId("bob");
+		game.joinGame(alice, TTTSymbol.X);
+		game.joinGame(bob, TTTSymbol.O);
+		game.startGame();
+		var started = game.snapshot();
+		game.makeAmove(alice, 1, 1);
+		var moved = game.snapshot();
+		assertThat(started.board()).isEqualTo("---------"); //l'istantanea precedente non cambia
+		assertThat(started.getCurrentTurn()).isEqualTo("X");
+		assertThat(moved.board()).isEqualTo("----X----");
+		assertThat(moved.getCurrentTurn()).isEqualTo("O");
+		assertThat(moved.getVersion()).isEqualTo(game.getVersion());
+		assertThat(moved.getBoardState()).isEqualTo(game.getBoardState());
+
+		game.makeAmove(bob, 0, 0);
+		game.makeAmove(alice, 0, 1);
+		game.makeAmove(bob, 1, 0);
+		game.makeAmove(alice, 2, 1); //tris sulla riga centrale
+		var finished = game.snapshot();
+		assertThat(finished.isFinished()).isTrue();
+		assertThat(finished.winner()).contains("alice");
+		assertThat(finished.getVersion()).isEqualTo(game.getVersion()).isEqualTo(game.archive().getVersion());
+	}
+
+	@Test
+	public void observersSeeTheSnapshotOfTheEventTheyReceive() throws Exception {
+		var game = new Game("g1");
+		var alice = new UserId("alice");
+		var bob = new UserId("bob");
+		var seen = new ArrayList<String>();
+		game.addGameObserver(ev -> { //l'osservatore legge l'istantanea pubblicata (es. per rispondere ad un client)
+			var snapshot = game.snapshot();
+			seen.add(ev.getClass().getSimpleName() + " " + snapshot.getVersion() + " " + snapshot.board() + " " + snapshot.getGameState());
+		});
+		game.joinGame(alice, TTTSymbol.X);
+		game.joinGame(bob, TTTSymbol.O);
+		game.startGame();
+		seen.clear();
+		game.makeAmove(alice, 0, 0);
+		game.makeAmove(bob, 1, 0);
+		game.makeAmove(alice, 0, 1);
+		game.makeAmove(bob, 1, 1);
+		game.makeAmove(alice, 0, 2);
+		assertThat(seen).containsExactly("NewMove 4 X-------- started", "NewMove 5 XO------- started", "NewMove 6 XO-X----- started",
+				"NewMove 7 XO-XO---- started", "NewMove 9 XO-XO-X-- finished", "GameEnded 9 XO-XO-X-- finished"); //l'ultima mossa chiude la partita: stessa istantanea
+	}
+
+	@Test
+	public void readersOnOtherThreadsNeverSeeATornMove() throws Exception {
+		var alice = new UserId("alice");
+		var bob = new UserId("bob");
+		var stop = new AtomicBoolean();
+		var torn = new AtomicReference<String>();
+		var current = new AtomicReference<Game>();
+		var reader = new Thread(() -> {
+			while (!stop.get()) {
+				var game = current.get();
+				if (game == null) {
+					continue;
+				}
+				var snapshot = game.snapshot();
+				long crosses = snapshot.board().chars().filter(c -> c == 'X').count();
+				long circles = snapshot.board().chars().filter(c -> c == 'O').count();
+				if (snapshot.isStarted()) {
+					var expectedTurn = crosses == circles ? "X" : "O"; //il turno segue sempre il numero di simboli sulla griglia
+					if (!snapshot.getCurrentTurn().equals(expectedTurn) || snapshot.getVersion() != 3 + crosses + circles) {
+						torn.compareAndSet(null, snapshot.toString());
+					}
+				}
+			}
+		});
+		var gameLogger = Logger.getLogger("[Game]");
+		var level = gameLogger.getLevel();
+		gameLogger.setLevel(Level.WARNING); //nessun log per ogni mossa
+		reader.start();
+		for (int i = 0; i < 5_000; i++) { //partite senza vincitore fino alla penultima mossa
+			var game = new Game("g" + i);
+			game.joinGame(alice, TTTSymbol.X);
+			game.joinGame(bob, TTTSymbol.O);
+			game.startGame();
+			current.set(game);
+			game.makeAmove(alice, 0, 0);
+			game.makeAmove(bob, 1, 1);
+			game.makeAmove(alice, 2, 2);
+			game.makeAmove(bob, 0, 1);
+		}
+		stop.set(true);
+		reader.join();
+		gameLogger.setLevel(level);
+		assertThat(torn.get()).isNull();
+	}
+}
@@ -0,0 +1,68 @@
+package ttt_game_service_tests;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import common.ids.IdGenerator;
+import common.ids.TimeNodeSequenceIdGenerator;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che il generatore di id produca id univoci anche con più thread e più nodi
+*/
+public class IdGeneratorTests {
+
+	private static final int THREADS = 8;
+	private static final int PER_THREAD = 50_000;
+
+	@Test
+	public void idsAreUniqueAcrossThreadsAndNodes() throws Exception {
+		var generators = new TimeNodeSequenceIdGenerator[] {new TimeNodeSequenceIdGenerator(0), new TimeNodeSequenceIdGenerator(1)};
+		var ids = ConcurrentHashMap.<Long>newKeySet();
+		var pool = Executors.newFixedThreadPool(THREADS);
+		var start = new CountDownLatch(1);
+		var tasks = new ArrayList<Future<?>>();
+		for (int t = 0; t < THREADS; t++) {
+			var gen = generators[t % 2]; //metà dei thread su ciascun nodo
+			tasks.add(pool.submit(() -> {
+				start.await();
+				long last = -1;
+				for (int i = 0; i < PER_THREAD; i++) {
+					long id = gen.nextId();
+					assertThat(id).isGreaterThan(last); //gli id di uno stesso nodo sono crescenti
+					last = id;
+					ids.add(id);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (var task : tasks) {
+			task.get(1, TimeUnit.MINUTES); //rilancia le asserzioni fallite nei thread
+		}
+		pool.shutdown();
+		assertThat(ids).hasSize(THREADS * PER_THREAD);
+	}
+
+	@Test
+	public void textualFormRoundTripsAndCarriesTheNode() {
+		var gen = new TimeNodeSequenceIdGenerator(5);
+		var text = gen.nextId("player-session-");
+		long id = IdGenerator.parse("player-session-", text);
+		assertThat(id).isPositive();
+		assertThat(IdGenerator.format("player-session-", id)).isEqualTo(text);
+		assertThat(TimeNodeSequenceIdGenerator.nodeOf(id)).isEqualTo(5);
+		assertThat(IdGenerator.parse("player-session-", "player-session-")).isEqualTo(-1);
+		assertThat(IdGenerator.parse("player-session-", "player-session-xyz")).isEqualTo(-1);
+		assertThat(IdGenerator.parse("player-session-", null)).isEqualTo(-1);
+		assertThat(IdGenerator.parse("user-session-", text)).isEqualTo(-1); //prefisso diverso
+		assertThat(IdGenerator.parse("player-session-", text.replace("player-session-", ""))).isEqualTo(-1); //senza prefisso
+		assertThat(IdGenerator.parse("player-session-", "x" + text)).isEqualTo(-1);
+		assertThatThrownBy(() -> new TimeNodeSequenceIdGenerator(TimeNodeSequenceIdGenerator.MAX_NODE + 1)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,85 @@
+package ttt_game_service_tests;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import distributed_ttt.account_service.domain.Account;
+import distributed_ttt.account_service.infrastructure.MappedAccountRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che gli account memorizzati in file mappati in memoria sopravvivano ad un riavvio
+e che un repository chiuso rilasci i file e non sia più utilizzabile
+*/
+public class MappedAccountRepositoryTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void accountsSurviveReopening() throws Exception {
+		try (var repo = new MappedAccountRepository(dir)) {
+			assertThat(repo.addAccountIfAbsent(new Account("alice", "pwd-a", 1234))).isTrue();
+			assertThat(repo.addAccountIfAbsent(new Account("alice", "other"))).isFalse();
+			repo.addAccount(new Account("bob", "pwd-b"));
+			repo.addAccount(new Account("bob", "pwd-b2")); //sostituisce l'account
+			repo.addAccount(new Account("çhärlie", "pässwörd"));
+		}
+
+		try (var reopened = new MappedAccountRepository(dir)) {
+			assertThat(reopened.count()).isEqualTo(3);
+			assertThat(reopened.isPresent("alice")).isTrue();
+			assertThat(reopened.isPresent("dave")).isFalse();
+			assertThat(reopened.getAccount("dave")).isNull();
+			var alice = reopened.getAccount("alice");
+			assertThat(alice.getPassword()).isEqualTo("pwd-a");
+			assertThat(alice.getWhenCreated()).isEqualTo(1234);
+			assertThat(reopened.isValid("bob", "pwd-b2")).isTrue();
+			assertThat(reopened.isValid("bob", "pwd-b")).isFalse();
+			assertThat(reopened.isValid("dave", "pwd")).isFalse();
+			assertThat(reopened.isValid("çhärlie", "pässwörd")).isTrue();
+		}
+	}
+
+	@Test
+	public void indexGrowsAndIsReopenedWithoutLoading() throws Exception {
+		int n = 300_000;
+		try (var repo = new MappedAccountRepository(dir, 16)) { //indice iniziale minimo: forza più ridimensionamenti
+			for (int i = 0; i < n; i++) {
+				assertThat(repo.addAccountIfAbsent(new Account("user-" + i, "pwd-" + i))).isTrue();
+			}
+		}
+		try (var reopened = new MappedAccountRepository(dir)) {
+			assertThat(reopened.count()).isEqualTo(n);
+			for (int i = 0; i < n; i++) {
+				assertThat(reopened.isValid("user-" + i, "pwd-" + i)).isTrue();
+			}
+			assertThat(reopened.isPresent("user-" + n)).isFalse();
+		}
+	}
+
+	@Test
+	public void aClosedRepositoryCannotBeUsed() throws Exception {
+		var repo = new MappedAccountRepository(dir);
+		repo.addAccount(new Account("alice", "pwd"));
+		repo.close();
+		repo.close(); //nessun effetto
+		assertThatThrownBy(() -> repo.isValid("alice", "pwd")).isInstanceOf(IllegalStateException.class);
+		assertThatThrownBy(() -> repo.addAccount(new Account("bob", "pwd"))).isInstanceOf(IllegalStateException.class);
+		try (var reopened = new MappedAccountRepository(dir)) {
+			assertThat(reopened.isValid("alice", "pwd")).isTrue();
+		}
+	}
+
+	@Test
+	public void monolithRepositoryBehavesTheSame() throws Exception {
+		try (var repo = new monolith_ttt_game_server.infrastructure.MappedAccountRepository(dir)) {
+			repo.addAccountIfAbsent(new monolith_ttt_game_server.domain.Account("alice", "pwd"));
+		}
+		try (var reopened = new monolith_ttt_game_server.infrastructure.MappedAccountRepository(dir)) {
+			assertThat(reopened.isValid("alice", "pwd")).isTrue();
+			assertThat(reopened.isValid("alice", "wrong")).isFalse();
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package ttt_game_service_tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import distributed_ttt.game_service.application.GameRepository;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.application.LifecyclePolicy;
+import distributed_ttt.game_service.application.PlayerSessionEventObserver;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.game_service.infrastructure.PackedGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica che il repository compatto si comporti come quello in memoria (compresa la versione delle partite),
+che le istantanee costruite dalla forma compatta coincidano con quelle delle partite ricreate
+e che osservatori e utenti internati vengano rilasciati con le partite
+*/
+public class PackedGameRepositoryTests {
+
+	@Test
+	public void packedRepositoryPlaysLikeInMemoryRepository() throws Exception {
+		var expected = play(new InMemoryGameRepository());
+		var actual = play(new PackedGameRepository());
+		assertThat(actual).isEqualTo(expected);
+		assertThat(actual).contains("X:game-ended:alice", "info:finished:[X, X, X, O, O, -, -, -, -]");
+		assertThat(actual).contains("version:3", "version:9"); //la versione dipende solo dallo stato (anche per le partite ricreate dal repository compatto)
+	}
+
+	@Test
+	public void gamesSurviveGrowthRemovalAndReuse() throws Exception {
+		var repo = new PackedGameRepository();
+		int n = 200_000;
+		for (int i = 0; i < n; i++) {
+			assertThat(repo.addGameIfAbsent(new Game("game-" + i))).isTrue();
+		}
+		assertThat(repo.addGameIfAbsent(new Game("game-42"))).isFalse();
+		for (int i = 0; i < n; i += 2) { //rimuove metà delle partite (forzando la compattazione dell'arena degli id)
+			repo.removeGame("game-" + i);
+		}
+		assertThat(repo.count()).isEqualTo(n / 2);
+		for (int i = 0; i < n; i++) {
+			assertThat(repo.isPresent("game-" + i)).isEqualTo(i % 2 == 1);
+		}
+		for (int i = 0; i < n; i += 2) { //riusa le posizioni liberate
+			assertThat(repo.addGameIfAbsent(new Game("again-" + i))).isTrue();
+		}
+		assertThat(repo.count()).isEqualTo(n);
+		assertThat(repo.getGame("again-10").getId()).isEqualTo("again-10");
+		assertThat(repo.getGame("game-11").getGameState()).isEqualTo("waiting-for-players");
+		assertThat(repo.getGame("game-10")).isNull();
+	}
+
+	@Test
+	public void largerBoardsAreKeptAsObjects() throws Exception {
+		var repo = new PackedGameRepository();
+		assertThat(repo.addGameIfAbsent(new Game("big", 15, 15, 5))).isTrue();
+		assertThat(repo.addGameIfAbsent(new Game("big"))).isFalse();
+		assertThat(repo.getGame("big").getBoardWidth()).isEqualTo(15);
+		assertThat(repo.count()).isEqualTo(1);
+		repo.removeGame("big");
+		assertThat(repo.isPresent("big")).isFalse();
+	}
+
+	@Test
+	public void snapshotsAreBuiltWithoutRecreatingTheGame() throws Exception {
+		var repo = new PackedGameRepository();
+		var games = new ArrayList<Game>();
+		games.add(new Game("empty"));
+		var waiting = new Game("waiting");
+		waiting.joinGame(new UserId("carol"), TTTSymbol.O);
+		games.add(waiting);
+		var started = new Game("started");
+		started.joinGame(new UserId("alice"), TTTSymbol.X);
+		started.joinGame(new UserId("bob"), TTTSymbol.O);
+		started.startGame();
+		started.makeAmove(new UserId("alice"), 1, 1);
+		games.add(started);
+		var finished = new Game("finished");
+		finished.joinGame(new UserId("alice"), TTTSymbol.X);
+		finished.joinGame(new UserId("bob"), TTTSymbol.O);
+		finished.startGame();
+		int[][] moves = {{0, 0}, {0, 1}, {1, 0}, {1, 1}, {2, 0}};
+		for (int i = 0; i < moves.length; i++) {
+			finished.makeAmove(new UserId(i % 2 == 0 ? "alice" : "bob"), moves[i][0], moves[i][1]);
+		}
+		games.add(finished);
+		var alone = new Game("alone"); //lo stesso utente con entrambi i simboli
+		alone.joinGame(new UserId("dave"), TTTSymbol.X);
+		alone.joinGame(new UserId("dave"), TTTSymbol.O);
+		alone.startGame();
+		alone.makeAmove(new UserId("dave"), 0, 0);
+		games.add(alone);
+		for (var game : games) {
+			repo.addGame(game);
+			var snapshot = repo.getGameSnapshot(game.getId());
+			assertThat(snapshot).isEqualTo(repo.getGame(game.getId()).snapshot()); //la stessa istantanea della partita ricreata
+			if (!game.getId().equals("alone")) {
+				assertThat(snapshot).isEqualTo(game.snapshot());
+			}
+		}
+		assertThat(repo.getGameSnapshot("finished").winner()).contains("alice");
+		assertThat(repo.getGameSnapshot("missing")).isNull();
+		repo.addGame(new Game("big", 15, 15, 5)); //partita mantenuta come oggetto
+		assertThat(repo.getGameSnapshot("big").getBoardWidth()).isEqualTo(15);
+	}
+
+	@Test
+	public void observersAndPlayersAreReleasedWithTheirGames() throws Exception {
+		var repo = new PackedGameRepository();
+		for (int i = 0; i < 1_000; i++) {
+			var game = new Game("game-" + i);
+			game.joinGame(new UserId("user-" + i), TTTSymbol.X);
+			game.joinGame(new UserId("shared"), TTTSymbol.O);
+			if (i % 100 == 0) {
+				game.addGameObserver(ev -> {});
+			}
+			repo.addGame(game);
+		}
+		assertThat(repo.getInternedPlayers()).isEqualTo(1_001);
+		assertThat(repo.getGame("game-100").getObservers()).hasSize(1);
+		assertThat(repo.getGame("game-101").getObservers()).isEmpty();
+
+		var game = repo.getGame("game-100");
+		game.removeGameObserver(game.getObservers().get(0));
+		repo.updateGame(game);
+		assertThat(repo.getGame("game-100").getObservers()).isEmpty();
+
+		for (int i = 0; i < 1_000; i += 2) {
+			repo.removeGame("game-" + i);
+		}
+		assertThat(repo.getInternedPlayers()).isEqualTo(501); //gli utenti delle partite rimosse vengono dimenticati
+		for (int i = 1; i < 1_000; i += 2) {
+			repo.removeGame("game-" + i);
+		}
+		assertThat(repo.getInternedPlayers()).isZero();
+
+		var reused = new Game("reused"); //gli indici liberati vengono riusati
+		reused.joinGame(new UserId("erin"), TTTSymbol.X);
+		repo.addGame(reused);
+		assertThat(repo.getGame("reused").getPlayerCross()).contains(new UserId("erin"));
+		assertThat(repo.getGame("reused").getPlayerCircle()).isEmpty();
+		assertThat(repo.getGame("reused").getObservers()).isEmpty();
+		assertThat(repo.getInternedPlayers()).isEqualTo(1);
+	}
+
+	//gioca una partita completa (con una partita terminata archiviata) e restituisce la sequenza degli eventi osservati
+	private List<String> play(GameRepository repo) throws Exception {
+		var events = new ArrayList<String>();
+		var gs = new GameServiceImpl();
+		gs.bindGameRepository(repo);
+		gs.bindLifecyclePolicy(new LifecyclePolicy(60_000, 60_000));
+		gs.createNewGame("g1");
+		var x = gs.joinGame(new UserId("alice"), "g1", TTTSymbol.X, new RecordingObserver("X", events));
+		var o = gs.joinGame(new UserId("bob"), "g1", TTTSymbol.O, new RecordingObserver("O", events));
+		events.add("info:" + gs.getGameInfo("g1").getGameState() + ":" + gs.getGameInfo("g1").getCurrentTurn());
+		events.add("version:" + gs.getGameInfo("g1").getVersion()); //due ingressi e l'avvio
+		x.makeMove(0, 0);
+		o.makeMove(0, 1);
+		assertThatThrownBy(() -> x.makeMove(0, 1)).isInstanceOf(distributed_ttt.game_service.domain.InvalidMoveException.class);
+		x.makeMove(1, 0);
+		o.makeMove(1, 1);
+		x.makeMove(2, 0);
+		var info = gs.getGameInfo("g1");
+		events.add("info:" + info.getGameState() + ":" + info.getBoardState());
+		events.add("version:" + info.getVersion()); //più cinque mosse e la fine
+		assertThat(((Game) info).archive().getVersion()).isEqualTo(info.getVersion()); //la partita archiviata mantiene la versione
+		assertThat(gs.evictExpired().liveGames()).isEqualTo(1); //la partita è terminata da meno del tempo di permanenza
+		assertThat(((Game) gs.getGameInfo("g1")).getWinner()).contains(new UserId("alice"));
+		return events;
+	}
+
+	//observer che registra gli eventi ricevuti
+	private record RecordingObserver(String who, List<String> events) implements PlayerSessionEventObserver {
+		public void enableEventNotification(String playerSessionId) {}
+		public void gameStarted(String playerSessionId) {
+			events.add(who + ":game-started");
+		}
+		public void newMove(String playerSessionId, String symbol, int x, int y) {
+			events.add(who + ":new-move:" + symbol + "@" + x + "," + y);
+		}
+		public void gameEnded(String playerSessionId, Optional<String> winner) {
+			events.add(who + ":game-ended:" + winner.orElse("tie"));
+		}
+	}
+}
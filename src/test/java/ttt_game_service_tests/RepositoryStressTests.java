@@ -0,0 +1,123 @@
+package ttt_game_service_tests;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import monolith_ttt_game_server.application.AccountAlreadyPresentException;
+import monolith_ttt_game_server.application.GameAlreadyPresentException;
+import monolith_ttt_game_server.application.GameServiceImpl;
+import monolith_ttt_game_server.domain.Account;
+import monolith_ttt_game_server.infrastructure.InMemoryAccountRepository;
+import monolith_ttt_game_server.infrastructure.InMemoryGameRepository;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+stress test dei repository concorrenti: più thread registrano utenti, creano partite e leggono account contemporaneamente
+(il throughput delle letture al crescere dei thread è misurato da bench/AccountReadBenchmark)
+*/
+public class RepositoryStressTests {
+
+	private static final int THREADS = 8;
+	private static final int PER_THREAD = 5_000;
+
+	@Test
+	public void concurrentRegistrationsAreNeitherLostNorDuplicated() throws Exception {
+		var gs = newService();
+		var duplicates = new AtomicInteger();
+		runConcurrently(t -> {
+			for (int i = 0; i < PER_THREAD; i++) {
+				try {
+					gs.registerUser("user-" + t + "-" + i, "pwd"); //utenti distinti per ogni thread
+					gs.registerUser("shared-" + i, "pwd"); //utenti contesi tra tutti i thread
+				} catch (AccountAlreadyPresentException ex) {
+					duplicates.incrementAndGet();
+				}
+			}
+		});
+		for (int t = 0; t < THREADS; t++) {
+			for (int i = 0; i < PER_THREAD; i++) {
+				assertThat(gs.getAccountInfo("user-" + t + "-" + i)).isNotNull();
+			}
+		}
+		assertThat(duplicates.get()).isEqualTo((THREADS - 1) * PER_THREAD); //ogni utente conteso è stato registrato esattamente una volta
+	}
+
+	@Test
+	public void concurrentGameCreationsYieldExactlyOneGamePerId() throws Exception {
+		var gs = newService();
+		var created = new AtomicInteger();
+		runConcurrently(t -> {
+			for (int i = 0; i < PER_THREAD; i++) {
+				try {
+					gs.createNewGame("game-" + i);
+					created.incrementAndGet();
+				} catch (GameAlreadyPresentException ex) {
+					//un altro thread ha già creato la partita
+				}
+			}
+		});
+		assertThat(created.get()).isEqualTo(PER_THREAD);
+	}
+
+	@Test
+	public void concurrentReadsSeeConsistentAccounts() throws Exception {
+		var repo = new InMemoryAccountRepository(); //letture dirette sul repository (il servizio registra un log per ogni chiamata)
+		for (int i = 0; i < PER_THREAD; i++) {
+			repo.addAccountIfAbsent(new Account("user-" + i, "pwd-" + i));
+		}
+		var mismatches = new AtomicInteger();
+		runConcurrently(t -> {
+			for (int i = 0; i < PER_THREAD; i++) {
+				if (t == 0) { //un thread registra nuovi utenti mentre gli altri leggono
+					repo.addAccountIfAbsent(new Account("late-" + i, "pwd-" + i));
+				} else {
+					var account = repo.getAccount("user-" + i);
+					var late = repo.getAccount("late-" + i); //non ancora registrato oppure completo
+					if (account == null || !account.getPassword().equals("pwd-" + i) || (late != null && !late.getPassword().equals("pwd-" + i))) {
+						mismatches.incrementAndGet();
+					}
+				}
+			}
+		});
+		assertThat(mismatches.get()).isZero();
+		assertThat(repo.getAccount("late-" + (PER_THREAD - 1)).getPassword()).isEqualTo("pwd-" + (PER_THREAD - 1));
+	}
+
+	private GameServiceImpl newService() {
+		var gs = new GameServiceImpl();
+		gs.bindAccountRepository(new InMemoryAccountRepository());
+		gs.bindGameRepository(new InMemoryGameRepository());
+		return gs;
+	}
+
+	//esegue il task su THREADS thread che partono nello stesso istante
+	private void runConcurrently(ThrowingTask task) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		var start = new CountDownLatch(1);
+		var failures = new AtomicInteger();
+		for (int t = 0; t < THREADS; t++) {
+			int id = t;
+			pool.execute(() -> {
+				try {
+					start.await();
+					task.run(id);
+				} catch (Exception ex) {
+					failures.incrementAndGet();
+				}
+			});
+		}
+		start.countDown();
+		pool.shutdown();
+		assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+		assertThat(failures.get()).isZero();
+	}
+
+	@FunctionalInterface
+	private interface ThrowingTask {
+		void run(int threadId) throws Exception;
+	}
+}
@@ -0,0 +1,148 @@
+package ttt_game_service_tests;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import distributed_ttt.lobby_service.application.ServiceNotAvailableException;
+import distributed_ttt.lobby_service.infrastructure.AccountServiceProxy;
+import distributed_ttt.lobby_service.infrastructure.BulkheadFullException;
+import distributed_ttt.lobby_service.infrastructure.CircuitBreaker;
+import distributed_ttt.lobby_service.infrastructure.CircuitOpenException;
+import distributed_ttt.lobby_service.infrastructure.GameServiceProxy;
+import distributed_ttt.lobby_service.infrastructure.ResilienceConfig;
+import distributed_ttt.lobby_service.infrastructure.ServiceClientConfig;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import static org.assertj.core.api.Assertions.*;
+
+/*
+verifica bulkhead, circuit breaker, retry e hedging delle chiamate della lobby contro un servizio locale che simula guasti
+*/
+public class ResilienceTests {
+
+	private static final int PORT = 19100;
+	private static final ServiceClientConfig CLIENT = new ServiceClientConfig(16, 64, false, 1_000, 2_000, 60);
+	private static final ResilienceConfig RESILIENCE = new ResilienceConfig(8, 10, 4, 0.5, 1_000, 1.0, 300, 1, 2, 10, 0);
+
+	private Vertx vertx;
+	private AtomicInteger hits; //richieste ricevute dal servizio simulato
+	private volatile IntFunction<Fault> faults; //guasto da simulare per l'n-esima richiesta
+
+	//comportamento del servizio simulato per una richiesta: ritardo (ms) e codice di risposta
+	private record Fault(long delay, int status) {
+		static final Fault OK = new Fault(0, 200);
+		static final Fault ERROR = new Fault(0, 500);
+	}
+
+	@BeforeEach
+	public void startFaultyService() {
+		vertx = Vertx.vertx();
+		hits = new AtomicInteger();
+		faults = n -> Fault.OK;
+		vertx.createHttpServer().requestHandler(req -> {
+			var fault = faults.apply(hits.getAndIncrement());
+			vertx.setTimer(Math.max(1, fault.delay()), t -> req.response().setStatusCode(fault.status())
+				.putHeader("content-type", "application/json")
+				.end(new JsonObject().put("result", req.path().endsWith("check-pwd") ? "valid-password" : "ok").put("playerSessionId", "ps-1").toString()));
+		}).listen(PORT).await();
+	}
+
+	@AfterEach
+	public void stop() {
+		vertx.close().await();
+	}
+
+	@Test
+	public void idempotentCallsAreRetriedAfterTransientFailures() throws Exception {
+		faults = n -> n < 2 ? Fault.ERROR : Fault.OK; //le prime due richieste falliscono
+		var proxy = new AccountServiceProxy(vertx, "http://localhost:" + PORT, CLIENT, RESILIENCE);
+		assertThat(proxy.isValidPassword("alice", "pwd").toCompletableFuture().get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(hits.get()).isEqualTo(3);
+		assertThat(proxy.getGuard().getMetrics().retries()).isEqualTo(2);
+	}
+
+	@Test
+	public void nonIdempotentCallsAreNotRetried() throws Exception {
+		faults = n -> Fault.ERROR;
+		var proxy = new GameServiceProxy(vertx, "http://localhost:" + PORT, CLIENT, RESILIENCE);
+		assertThat(causeOf(proxy.createNewGame("g1").toCompletableFuture())).isInstanceOf(ServiceNotAvailableException.class);
+		assertThat(hits.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void circuitOpensFailsFastAndCloses() throws Exception {
+		faults = n -> Fault.ERROR;
+		var noRetry = new ResilienceConfig(8, 10, 4, 0.5, 1_000, 1.0, 300, 1, 0, 10, 0);
+		var proxy = new AccountServiceProxy(vertx, "http://localhost:" + PORT, CLIENT, noRetry);
+		for (int i = 0; i < 4; i++) { //raggiunge il numero minimo di chiamate con il 100% di errori
+			assertThat(causeOf(proxy.isValidPassword("alice", "pwd").toCompletableFuture())).isInstanceOf(ServiceNotAvailableException.class);
+		}
+		assertThat(proxy.getGuard().getMetrics().state()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThat(causeOf(proxy.isValidPassword("alice", "pwd").toCompletableFuture())).isInstanceOf(CircuitOpenException.class);
+		assertThat(hits.get()).isEqualTo(4); //il servizio non è stato contattato
+		assertThat(proxy.getGuard().getMetrics().rejectedByBreaker()).isEqualTo(1);
+
+		faults = n -> Fault.OK; //il servizio torna disponibile
+		Thread.sleep(400); //scade il tempo di apertura
+		assertThat(proxy.isValidPassword("alice", "pwd").toCompletableFuture().get(5, TimeUnit.SECONDS)).isTrue(); //chiamata di prova
+		assertThat(proxy.getGuard().getMetrics().state()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	public void slowCallsOpenTheCircuit() throws Exception {
+		faults = n -> new Fault(100, 200);
+		var slowIsBad = new ResilienceConfig(8, 10, 4, 0.5, 50, 0.5, 300, 1, 0, 10, 0);
+		var proxy = new AccountServiceProxy(vertx, "http://localhost:" + PORT, CLIENT, slowIsBad);
+		for (int i = 0; i < 4; i++) {
+			proxy.isValidPassword("alice", "pwd").toCompletableFuture().get(5, TimeUnit.SECONDS);
+		}
+		assertThat(proxy.getGuard().getMetrics().state()).isEqualTo(CircuitBreaker.State.OPEN);
+	}
+
+	@Test
+	public void bulkheadRejectsCallsBeyondTheLimit() throws Exception {
+		faults = n -> new Fault(300, 200);
+		var proxy = new AccountServiceProxy(vertx, "http://localhost:" + PORT, CLIENT, RESILIENCE);
+		var calls = new ArrayList<CompletableFuture<Boolean>>();
+		for (int i = 0; i < 12; i++) {
+			calls.add(proxy.isValidPassword("user-" + i, "pwd").toCompletableFuture());
+		}
+		int rejected = 0;
+		for (var call : calls) {
+			if (causeOf(call) instanceof BulkheadFullException) {
+				rejected++;
+			}
+		}
+		assertThat(rejected).isEqualTo(4); //il limite è di 8 chiamate contemporanee
+		assertThat(proxy.getGuard().getMetrics().rejectedByBulkhead()).isEqualTo(4);
+		assertThat(proxy.getGuard().getMetrics().inFlight()).isZero();
+	}
+
+	@Test
+	public void hedgedRequestsCutTailLatency() throws Exception {
+		faults = n -> n == 0 ? new Fault(1_500, 200) : Fault.OK; //la prima richiesta è molto lenta
+		var hedging = new ResilienceConfig(8, 10, 4, 0.5, 5_000, 1.0, 300, 1, 0, 10, 50);
+		var proxy = new AccountServiceProxy(vertx, "http://localhost:" + PORT, CLIENT, hedging);
+		long start = System.currentTimeMillis();
+		assertThat(proxy.isValidPassword("alice", "pwd").toCompletableFuture().get(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(System.currentTimeMillis() - start).isLessThan(1_000);
+		assertThat(proxy.getGuard().getMetrics().hedges()).isEqualTo(1);
+	}
+
+	//attende la fine di una chiamata e ne restituisce l'eccezione (null se è riuscita)
+	private static Throwable causeOf(CompletableFuture<?> call) throws Exception {
+		try {
+			call.get(5, TimeUnit.SECONDS);
+			return null;
+		} catch (ExecutionException ex) {
+			return ex.getCause();
+		}
+	}
+}
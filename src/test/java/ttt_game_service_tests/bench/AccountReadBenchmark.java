@@ -0,0 +1,50 @@
+package ttt_game_service_tests.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import monolith_ttt_game_server.domain.Account;
+import monolith_ttt_game_server.infrastructure.InMemoryAccountRepository;
+
+/*
+misura il throughput delle letture concorrenti sul repository degli account al crescere dei thread
+(le letture non prendono lock: il throughput dovrebbe crescere con il numero di core)
+uso: AccountReadBenchmark [numero di account] [numero massimo di thread]
+*/
+public class AccountReadBenchmark {
+
+	private static final int ROUNDS = 20; //letture di ogni account per thread
+
+	public static void main(String[] args) throws Exception {
+		int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		var repo = new InMemoryAccountRepository();
+		for (int i = 0; i < accounts; i++) {
+			repo.addAccountIfAbsent(new Account("user-" + i, "pwd"));
+		}
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			var pool = Executors.newFixedThreadPool(threads);
+			var reads = new AtomicLong();
+			var done = new CountDownLatch(threads);
+			long start = System.nanoTime();
+			for (int t = 0; t < threads; t++) {
+				pool.execute(() -> {
+					long n = 0;
+					for (int r = 0; r < ROUNDS; r++) {
+						for (int i = 0; i < accounts; i++) {
+							if (repo.getAccount("user-" + i) != null) {
+								n++;
+							}
+						}
+					}
+					reads.addAndGet(n);
+					done.countDown();
+				});
+			}
+			done.await();
+			long elapsed = System.nanoTime() - start;
+			pool.shutdown();
+			System.out.printf("[AccountReadBenchmark] %d thread(s): %.1f M reads/s%n", threads, reads.get() * 1e3 / elapsed);
+		}
+	}
+}
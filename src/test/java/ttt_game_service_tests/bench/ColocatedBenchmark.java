@@ -0,0 +1,78 @@
+package ttt_game_service_tests.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.account_service.application.AccountServiceImpl;
+import distributed_ttt.account_service.infrastructure.InMemoryAccountRepository;
+import distributed_ttt.colocated.infrastructure.ColocatedMain;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.lobby_service.application.LobbyServiceImpl;
+import distributed_ttt.lobby_service.domain.TTTSymbol;
+import io.vertx.core.Vertx;
+
+/*
+misura il costo del confine di rete tra i servizi co-locati: esegue login + creazione partita + join tramite il servizio di lobby
+con le porte di uscita collegate in-process e tramite http (sullo stesso host)
+uso: ColocatedBenchmark [numero di operazioni] [operazioni concorrenti]
+*/
+public class ColocatedBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int ops = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+		int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		for (var handler : Logger.getLogger("").getHandlers()) { //i log per richiesta falserebbero la misura
+			handler.setLevel(Level.WARNING);
+		}
+		run("in-process", false, ops, concurrency);
+		run("http", true, ops, concurrency);
+	}
+
+	private static void run(String name, boolean overHttp, int ops, int concurrency) throws Exception {
+		var vertx = Vertx.vertx();
+		var accountService = new AccountServiceImpl();
+		accountService.bindAccountRepository(new InMemoryAccountRepository());
+		var gameService = new GameServiceImpl();
+		gameService.bindGameRepository(new InMemoryGameRepository());
+		for (int i = 0; i < ops; i++) {
+			accountService.registerUser("user-" + i, "pwd");
+		}
+		var lobby = ColocatedMain.deploy(vertx, accountService, gameService, overHttp).await();
+		var next = new AtomicInteger();
+		var ok = new AtomicInteger();
+		var latency = new AtomicLong();
+		var done = new CountDownLatch(ops);
+		long start = System.nanoTime();
+		for (int c = 0; c < concurrency; c++) {
+			step(lobby, next, ok, latency, done, ops);
+		}
+		done.await(5, TimeUnit.MINUTES);
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("[ColocatedBenchmark] %s: %,d/%d login+create+join in %d ms (%.0f ops/s, mean latency %.2f ms)%n",
+				name, ok.get(), ops, elapsed / 1_000_000, ops * 1e9 / elapsed, latency.get() / 1e6 / ops);
+		vertx.close().await();
+	}
+
+	//esegue login, creazione e join di una partita e, alla fine, l'operazione successiva
+	private static void step(LobbyServiceImpl lobby, AtomicInteger next, AtomicInteger ok, AtomicLong latency, CountDownLatch done, int ops) {
+		int n = next.getAndIncrement();
+		if (n >= ops) {
+			return;
+		}
+		long start = System.nanoTime();
+		lobby.login("user-" + n, "pwd")
+			.thenCompose(session -> lobby.createNewGame(session, "game-" + n).thenCompose(v -> lobby.joinGame(session, "game-" + n, TTTSymbol.X)))
+			.whenComplete((playerSession, ex) -> {
+				if (ex == null) {
+					ok.incrementAndGet();
+				}
+				latency.addAndGet(System.nanoTime() - start);
+				done.countDown();
+				step(lobby, next, ok, latency, done, ops);
+			});
+	}
+}
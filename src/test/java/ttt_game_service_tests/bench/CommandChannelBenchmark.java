@@ -0,0 +1,169 @@
+package ttt_game_service_tests.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.infrastructure.GameCommandFrames;
+import distributed_ttt.game_service.infrastructure.GameServiceController;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.game_service.infrastructure.VertxGameEventChannel;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import io.vertx.core.json.JsonObject;
+
+/*
+misura la latenza tra l'invio di una mossa e l'arrivo del relativo evento sul websocket del giocatore:
+- rest: mossa con una richiesta http (POST sulla rotta della mossa), evento sul websocket degli eventi
+- ws-json / ws-binary: mossa come comando sullo stesso websocket da cui arrivano gli eventi (in json o in forma binaria compatta)
+una mossa alla volta su una griglia 31x32 (che non si completa mai con un vincitore); il server ha un solo event loop
+uso: CommandChannelBenchmark [mosse per modalità]
+*/
+public class CommandChannelBenchmark {
+
+	private static final int PORT = 19500;
+	private static final int WIDTH = 31, HEIGHT = 32, WIN_LENGTH = 32; //con righe dispari e simboli alternati nessuna linea è completa
+
+	public static void main(String[] args) throws Exception {
+		int moves = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+		for (var handler : Logger.getLogger("").getHandlers()) { //i log per richiesta falserebbero la misura
+			handler.setLevel(Level.WARNING);
+		}
+		var out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream())); //come le stampe degli osservatori delle partite
+		var server = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(1));
+		var service = new GameServiceImpl();
+		service.bindGameRepository(new InMemoryGameRepository());
+		service.bindGameEventChannel(new VertxGameEventChannel(server.eventBus()));
+		for (int i = 0; i < 2 * (moves / (WIDTH * HEIGHT) + 1) * 3; i++) { //partite create prima dell'avvio (servono solo le mosse)
+			service.createNewGame("bench-" + i, WIDTH, HEIGHT, WIN_LENGTH);
+		}
+		server.deployVerticle(new GameServiceController(service, PORT)).await();
+		var clients = Vertx.vertx();
+		var bench = new CommandChannelBenchmark(clients.createHttpClient(), clients.createWebSocketClient());
+		for (int round = 0; round < 2; round++) { //il primo giro scalda il jit
+			for (var mode : new String[] {"rest", "ws-json", "ws-binary"}) {
+				Thread.sleep(3_000); //lascia terminare le mosse http ripetute della modalità precedente
+				bench.restRetries = 0;
+				var latencies = bench.play(mode, round == 0 ? moves / 4 : moves);
+				if (round == 1) {
+					Arrays.sort(latencies);
+					long total = Arrays.stream(latencies).sum();
+					out.printf("[CommandChannelBenchmark] %-9s %,d moves: mean %.1f us, p50 %.1f us, p99 %.1f us (%,.0f moves/s)%n", mode, latencies.length,
+							total / 1e3 / latencies.length, latencies[latencies.length / 2] / 1e3, latencies[latencies.length * 99 / 100] / 1e3, latencies.length * 1e9 / total);
+					if (bench.restRetries > 0) {
+						out.printf("[CommandChannelBenchmark] %-9s %,d moves repeated%n", mode, bench.restRetries);
+					}
+				}
+			}
+		}
+		clients.close().await();
+		server.close().await();
+	}
+
+	private final HttpClient http; //tenuti per tutta la misura (un client non più referenziato viene chiuso)
+	private final WebSocketClient webSockets;
+	private int games;
+	private volatile int restRetries; //mosse http ripetute
+
+	private CommandChannelBenchmark(HttpClient http, WebSocketClient webSockets) {
+		this.http = http;
+		this.webSockets = webSockets;
+	}
+
+	//gioca le mosse indicate (su più partite se necessario) e restituisce la latenza di ciascuna, in ns
+	private long[] play(String mode, int moves) throws Exception {
+		var latencies = new long[moves];
+		int done = 0;
+		while (done < moves) {
+			var gameId = "bench-" + games++;
+			var events = new Semaphore(0); //nuove mosse ricevute dal giocatore X
+			var ack = new AtomicReference<String>(); //ultima risposta ad un comando (sessione giocatore dopo il join)
+			var joined = new Semaphore(0);
+			var ws = webSockets.connect(PORT, "localhost", "/api/v1/events").await();
+			ws.textMessageHandler(msg -> {
+				if (msg.contains("new-move")) {
+					events.release();
+				} else if (msg.contains("playerSessionId")) {
+					ack.set(new JsonObject(msg).getString("playerSessionId"));
+					joined.release();
+				}
+			});
+			ws.binaryMessageHandler(buf -> {
+				if (buf.getByte(0) == GameCommandFrames.ACK) {
+					var detail = GameCommandFrames.Ack.fromBinary(buf).detail();
+					if (detail != null) {
+						ack.set(detail);
+						joined.release();
+					}
+				} else if (buf.getByte(0) == 5 && buf.getByte(9) == 2) { //nuova mossa nella forma binaria di GameEventMessageCodec ([5][numero di sequenza][2][mossa])
+					events.release();
+				}
+			});
+			String[] sessions = new String[2]; //entrambi i giocatori entrano con un comando sullo stesso websocket (che riceve gli eventi una sola volta)
+			var joinMode = mode.equals("rest") ? "ws-json" : mode;
+			send(ws, joinMode, new GameCommandFrames.Join(0, gameId, "alice", "X"));
+			joined.acquire();
+			sessions[0] = ack.get();
+			send(ws, joinMode, new GameCommandFrames.Join(0, gameId, "bob", "O"));
+			joined.acquire();
+			sessions[1] = ack.get();
+			for (int cell = 0; cell < WIDTH * HEIGHT && done < moves; cell++, done++) {
+				var session = sessions[cell % 2];
+				int x = cell % WIDTH, y = cell / WIDTH;
+				long start = System.nanoTime();
+				if (mode.equals("rest")) {
+					restMove("/api/v1/games/" + gameId + "/" + session + "/move", new JsonObject().put("x", "" + x).put("y", "" + y));
+				} else {
+					send(ws, mode, new GameCommandFrames.Move(cell + 1, session, x, y));
+				}
+				if (!events.tryAcquire(10, TimeUnit.SECONDS)) { //attende l'evento della mossa
+					throw new IllegalStateException("no event for move " + cell + " of " + gameId + " (" + mode + ")");
+				}
+				latencies[done] = System.nanoTime() - start;
+			}
+			ws.close().await();
+		}
+		return latencies;
+	}
+
+	//invia una mossa con una richiesta http e la ripete se non viene accettata (il controller legge il body a blocchi e, se arriva spezzato, non lo riconosce o non risponde)
+	private void restMove(String path, JsonObject body) {
+		http.request(HttpMethod.POST, PORT, "localhost", path)
+			.compose(req -> req.idleTimeout(1_000).send(body.toBuffer())) //una richiesta senza risposta viene ripetuta
+			.compose(resp -> resp.body()) //la risposta va letta per riusare la connessione
+			.timeout(2, TimeUnit.SECONDS)
+			.onComplete(ar -> {
+				var result = ar.failed() || ar.result().length() == 0 ? null : ar.result().toJsonObject().getString("result");
+				if (!"accepted".equals(result) && !"invalid-move".equals(result)) { //invalid-move: la casella è occupata dal tentativo precedente
+					restRetries++;
+					restMove(path, body);
+				}
+			});
+	}
+
+	private static void send(WebSocket ws, String mode, GameCommandFrames.Join join) {
+		if (mode.equals("ws-binary")) {
+			ws.writeBinaryMessage(join.toBinary());
+		} else {
+			ws.writeTextMessage(join.toJson());
+		}
+	}
+
+	private static void send(WebSocket ws, String mode, GameCommandFrames.Move move) {
+		if (mode.equals("ws-binary")) {
+			ws.writeBinaryMessage(move.toBinary());
+		} else {
+			ws.writeTextMessage(move.toJson());
+		}
+	}
+}
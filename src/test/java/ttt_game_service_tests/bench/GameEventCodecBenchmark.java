@@ -0,0 +1,94 @@
+package ttt_game_service_tests.bench;
+
+import java.lang.management.ManagementFactory;
+import com.sun.management.ThreadMXBean;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.game_service.infrastructure.GameEventMessage;
+import distributed_ttt.game_service.infrastructure.GameEventMessageCodec;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+
+/*
+confronta la consegna degli eventi di gioco sull'event bus (pubblicazione + conversione per il websocket):
+- json: JsonObject pubblicato e serializzato due volte con encodePrettily (log + invio), come in precedenza
+- codec: evento immutabile consegnato senza copie e serializzato una sola volta in json compatto
+misura eventi/s e byte allocati per evento; riporta anche la dimensione della forma binaria
+uso: GameEventCodecBenchmark [numero di eventi]
+*/
+public class GameEventCodecBenchmark {
+
+	private static final Logger logger = Logger.getLogger("[GameEventCodecBenchmark]");
+
+	public static void main(String[] args) throws Exception {
+		int events = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		logger.setLevel(Level.INFO); //il log per evento è disattivato: si misura solo il costo di costruzione del messaggio
+		for (var handler : Logger.getLogger("").getHandlers()) {
+			handler.setLevel(Level.WARNING);
+		}
+		for (int round = 0; round < 2; round++) { //il primo giro scalda il jit
+			run("json", events, i -> newJson(i), msg -> {
+				var ev = (JsonObject) msg.body();
+				logger.log(Level.FINE, "Event: " + ev.encodePrettily());
+				return ev.encodePrettily();
+			}, false);
+			run("codec", events, i -> newEvent(i), msg -> {
+				var ev = ((GameEventMessage) msg.body()).toJson();
+				logger.log(Level.FINE, () -> "Event: " + ev);
+				return ev;
+			}, true);
+		}
+		var buf = Buffer.buffer();
+		new GameEventMessageCodec().encodeToWire(buf, new GameEventMessage.Moved("X", 1, 2));
+		System.out.printf("[GameEventCodecBenchmark] wire size of a move: json %d bytes, binary %d bytes%n",
+				((JsonObject) newJson(0)).toBuffer().length(), buf.length());
+	}
+
+	private static Object newJson(int i) {
+		return i % 3 == 0 ? new JsonObject().put("event", "new-move").put("x", i % 3).put("y", i % 5).put("symbol", "X")
+				: i % 3 == 1 ? new JsonObject().put("event", "game-started") : new JsonObject().put("event", "game-ended").put("winner", "user-1");
+	}
+
+	private static Object newEvent(int i) {
+		return i % 3 == 0 ? new GameEventMessage.Moved("X", i % 3, i % 5)
+				: i % 3 == 1 ? GameEventMessage.STARTED : new GameEventMessage.Ended(Optional.of("user-1"));
+	}
+
+	private static void run(String name, int events, IntFunction<Object> factory, Function<Message<Object>, String> toText, boolean codec) throws Exception {
+		var vertx = Vertx.vertx();
+		var eb = vertx.eventBus();
+		GameEventMessageCodec.registerOn(eb);
+		var done = new CountDownLatch(1);
+		var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long[] result = new long[3]; //byte allocati, nanosecondi, caratteri inviati
+		vertx.runOnContext(v -> { //pubblicazione e consegna sullo stesso event loop: l'allocazione del thread è quella dell'intero percorso
+			eb.consumer("session", msg -> {
+				result[2] += toText.apply(msg).length(); //il testo che verrebbe scritto sul websocket
+				if (msg.headers().contains("last")) {
+					result[0] = threads.getCurrentThreadAllocatedBytes() - result[0];
+					result[1] = System.nanoTime() - result[1];
+					done.countDown();
+				}
+			});
+			result[0] = threads.getCurrentThreadAllocatedBytes();
+			result[1] = System.nanoTime();
+			var options = codec ? GameEventMessageCodec.DELIVERY : new DeliveryOptions();
+			var last = new DeliveryOptions(options).addHeader("last", "1");
+			for (int i = 0; i < events; i++) {
+				eb.publish("session", factory.apply(i), i == events - 1 ? last : options);
+			}
+		});
+		done.await(5, TimeUnit.MINUTES);
+		System.out.printf("[GameEventCodecBenchmark] %s: %,d events in %d ms (%.0f events/s, %d bytes allocated per event)%n",
+				name, events, result[1] / 1_000_000, events * 1e9 / result[1], result[0] / events);
+		vertx.close().await();
+	}
+}
@@ -0,0 +1,107 @@
+package ttt_game_service_tests.bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.infrastructure.DurableGameRepository;
+import distributed_ttt.game_service.infrastructure.FsyncPolicy;
+import distributed_ttt.game_service.infrastructure.PackedGameRepository;
+
+/*
+misura il throughput delle scritture di DurableGameRepository per ogni politica di fsync e il tempo di ripristino
+ogni chiamante attende la conferma del proprio record (come il controller prima di rispondere al client);
+con la politica ALWAYS la misura si ripete con un solo chiamante, con più chiamanti concorrenti e con un unico chiamante
+che non si blocca (come l'event loop del controller, con al più WINDOW comandi in attesa di conferma):
+il numero medio di record per fsync mostra se il group commit raggruppa davvero i record
+uso: GameLogBenchmark [numero di partite] [numero di thread] [cartella]
+*/
+public class GameLogBenchmark {
+
+	private static final int WINDOW = 1024; //comandi in attesa di conferma del chiamante che non si blocca
+
+	public static void main(String[] args) throws Exception {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		var base = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("game-log-bench");
+		for (var policy : FsyncPolicy.values()) {
+			var dir = base.resolve(policy.name().toLowerCase());
+			if (policy == FsyncPolicy.ALWAYS) { //con fsync ad ogni gruppo il throughput dipende dal disco e dal numero di record per gruppo
+				run(policy, dir, games / 100, 1);
+				run(policy, dir, games / 10, threads);
+				runNonBlocking(dir, games / 10);
+			} else {
+				run(policy, dir, games, threads);
+			}
+
+			long recoveryStart = System.nanoTime();
+			var recovered = DurableGameRepository.open(new PackedGameRepository(), dir, policy, 10, Long.MAX_VALUE);
+			System.out.printf("[GameLogBenchmark] %s: recovered %,d games in %d ms%n", policy, recovered.count(), (System.nanoTime() - recoveryStart) / 1_000_000);
+			long snapshotStart = System.nanoTime();
+			recovered.snapshot();
+			System.out.printf("[GameLogBenchmark] %s: snapshot in %d ms%n", policy, (System.nanoTime() - snapshotStart) / 1_000_000);
+			recovered.close();
+		}
+	}
+
+	//n record da callers thread, ciascuno in attesa della conferma del proprio record prima del successivo
+	private static void run(FsyncPolicy policy, Path dir, int n, int callers) throws Exception {
+		delete(dir);
+		var repo = DurableGameRepository.open(new PackedGameRepository(), dir, policy, 10, Long.MAX_VALUE);
+		var pool = Executors.newFixedThreadPool(callers);
+		var done = new CountDownLatch(callers);
+		long start = System.nanoTime();
+		for (int t = 0; t < callers; t++) {
+			int id = t;
+			pool.execute(() -> {
+				for (int i = id; i < n; i += callers) {
+					repo.addGame(new Game("game-" + i));
+					repo.whenDurable().join();
+				}
+				done.countDown();
+			});
+		}
+		done.await();
+		long elapsed = System.nanoTime() - start;
+		pool.shutdown();
+		print(policy + ", " + callers + " caller(s)", repo, n, elapsed);
+		repo.close();
+	}
+
+	//n record da un unico thread che non attende le conferme (al più WINDOW record in attesa, come l'event loop con molti client)
+	private static void runNonBlocking(Path dir, int n) throws Exception {
+		delete(dir);
+		var repo = DurableGameRepository.open(new PackedGameRepository(), dir, FsyncPolicy.ALWAYS, 10, Long.MAX_VALUE);
+		var window = new Semaphore(WINDOW);
+		long start = System.nanoTime();
+		for (int i = 0; i < n; i++) {
+			window.acquire();
+			repo.addGame(new Game("game-" + i));
+			repo.whenDurable().thenRun(window::release);
+		}
+		repo.whenDurable().join();
+		long elapsed = System.nanoTime() - start;
+		print(FsyncPolicy.ALWAYS + ", non-blocking caller", repo, n, elapsed);
+		repo.close();
+	}
+
+	private static void print(String label, DurableGameRepository repo, int n, long elapsed) {
+		long forces = repo.getLogForces();
+		System.out.printf("[GameLogBenchmark] %s: %,d records in %d ms (%.0f records/s, %,d fsync, %.1f records per fsync)%n",
+				label, n, elapsed / 1_000_000, n * 1e9 / elapsed, forces, forces == 0 ? 0.0 : (double) repo.getLoggedRecords() / forces);
+	}
+
+	private static void delete(Path dir) throws Exception {
+		if (Files.exists(dir)) {
+			try (Stream<Path> files = Files.walk(dir)) {
+				for (var p : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.delete(p);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package ttt_game_service_tests.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import distributed_ttt.game_service.application.GameRepository;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.game_service.infrastructure.PackedGameRepository;
+
+/*
+confronta occupazione di memoria e pause del garbage collector di InMemoryGameRepository e PackedGameRepository
+uso: GameRepositoryBenchmark [numero di partite] [memory|packed]
+(per misure pulite conviene eseguire un repository per JVM, es. con -Xmx4g)
+*/
+public class GameRepositoryBenchmark {
+
+	private static final AtomicLong gcCount = new AtomicLong(); //numero di pause del garbage collector
+	private static final AtomicLong gcTotal = new AtomicLong(); //durata totale delle pause (ms)
+	private static final AtomicLong gcMax = new AtomicLong(); //pausa più lunga (ms)
+
+	public static void main(String[] args) throws Exception {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		var which = args.length > 1 ? args[1] : "both";
+		listenToGcPauses();
+		if (!which.equals("packed")) {
+			run("InMemoryGameRepository", new InMemoryGameRepository(), games);
+		}
+		if (!which.equals("memory")) {
+			run("PackedGameRepository", new PackedGameRepository(), games);
+		}
+	}
+
+	private static void run(String name, GameRepository repo, int games) throws Exception {
+		long baseline = usedHeapAfterGc();
+		resetGcStats();
+		long start = System.nanoTime();
+		for (int i = 0; i < games; i++) { //partite in attesa (70%) e avviate con alcune mosse (30%)
+			var game = new Game("game-" + i);
+			repo.addGameIfAbsent(game);
+			if (i % 10 < 3) {
+				game = repo.getGame(game.getId());
+				game.joinGame(new UserId("user-" + (2 * i % 100_000)), TTTSymbol.X);
+				game.joinGame(new UserId("user-" + ((2 * i + 1) % 100_000)), TTTSymbol.O);
+				game.startGame();
+				game.makeAmove(game.getPlayerCross().get(), 1, 1);
+				repo.updateGame(game);
+			}
+		}
+		long fillMs = (System.nanoTime() - start) / 1_000_000;
+		long fillGcCount = gcCount.get(), fillGcTotal = gcTotal.get(), fillGcMax = gcMax.get();
+		long used = usedHeapAfterGc() - baseline;
+
+		resetGcStats();
+		var rnd = new Random(42);
+		int ops = 2_000_000;
+		start = System.nanoTime();
+		for (int i = 0; i < ops; i++) { //letture e mosse casuali sulle partite avviate
+			int g = rnd.nextInt(games / 10) * 10 + rnd.nextInt(3);
+			if (g >= games) {
+				continue;
+			}
+			var game = repo.getGame("game-" + g);
+			if (game.isStarted() && i % 4 == 0) {
+				var turn = game.getTurn().get() == TTTSymbol.X ? game.getPlayerCross().get() : game.getPlayerCircle().get();
+				try {
+					game.makeAmove(turn, rnd.nextInt(3), rnd.nextInt(3));
+					repo.updateGame(game);
+				} catch (Exception ex) {
+					//casella occupata
+				}
+			}
+		}
+		double opsPerSec = ops * 1e9 / (System.nanoTime() - start);
+
+		System.out.printf("%s: %,d games%n", name, games);
+		System.out.printf("  heap: %,d MB (%d bytes/game), fill %,d ms, GC during fill: %d pauses, total %d ms, max %d ms%n",
+				used >> 20, used / games, fillMs, fillGcCount, fillGcTotal, fillGcMax);
+		System.out.printf("  churn: %,.0f ops/s, GC during churn: %d pauses, total %d ms, max %d ms%n",
+				opsPerSec, gcCount.get(), gcTotal.get(), gcMax.get());
+		if (repo.count() != games) {
+			throw new IllegalStateException("lost games");
+		}
+	}
+
+	//registra durata e numero delle pause del garbage collector
+	private static void listenToGcPauses() {
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+				if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+					var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+					long ms = info.getGcInfo().getDuration();
+					gcCount.incrementAndGet();
+					gcTotal.addAndGet(ms);
+					gcMax.accumulateAndGet(ms, Math::max);
+				}
+			}, null, null);
+		}
+	}
+
+	private static void resetGcStats() {
+		gcCount.set(0);
+		gcTotal.set(0);
+		gcMax.set(0);
+	}
+
+	private static long usedHeapAfterGc() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		return heap.getUsed();
+	}
+}
@@ -0,0 +1,107 @@
+package ttt_game_service_tests.bench;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.lobby_service.application.AccountService;
+import distributed_ttt.lobby_service.application.LobbyServiceImpl;
+import distributed_ttt.lobby_service.application.ServiceNotAvailableException;
+import distributed_ttt.lobby_service.infrastructure.AccountServiceProxy;
+import distributed_ttt.lobby_service.infrastructure.LobbyServiceController;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+import io.vertx.core.json.JsonObject;
+
+/*
+misura il throughput dei login della lobby contro un servizio degli account locale (simulato, con latenza configurabile),
+confrontando il proxy bloccante (un client http per richiesta, chiamata bloccante sull'event loop) con quello non bloccante a pool
+uso: LobbyLoginBenchmark [numero di login] [login concorrenti] [latenza del servizio degli account in ms]
+*/
+public class LobbyLoginBenchmark {
+
+	private static final int ACCOUNT_PORT = 19000;
+	private static final int LOBBY_PORT = 19001;
+
+	public static void main(String[] args) throws Exception {
+		int logins = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+		int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+		int latency = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		for (var handler : Logger.getLogger("").getHandlers()) { //i log per richiesta falserebbero la misura
+			handler.setLevel(Level.WARNING);
+		}
+		var vertx = Vertx.vertx();
+		vertx.createHttpServer().requestHandler(req -> //servizio degli account simulato: ogni password è valida
+			vertx.setTimer(latency, t -> req.response().putHeader("content-type", "application/json").end(new JsonObject().put("result", "valid-password").toString()))
+		).listen(ACCOUNT_PORT).await();
+		var accountAddress = "http://localhost:" + ACCOUNT_PORT;
+		run(vertx, "blocking", new BlockingAccountServiceProxy(accountAddress), logins, concurrency);
+		run(vertx, "pooled", new AccountServiceProxy(vertx, accountAddress), logins, concurrency);
+		vertx.close().await();
+	}
+
+	private static void run(Vertx vertx, String name, AccountService accountService, int logins, int concurrency) throws Exception {
+		var lobby = new LobbyServiceImpl();
+		lobby.bindAccountService(accountService);
+		var deployment = vertx.deployVerticle(new LobbyServiceController(lobby, LOBBY_PORT, "http://localhost:9002")).await();
+		var client = vertx.createHttpClient(new HttpClientOptions().setKeepAlive(true), new PoolOptions().setHttp1MaxSize(concurrency));
+		var sent = new AtomicInteger();
+		var ok = new AtomicInteger();
+		var done = new CountDownLatch(logins);
+		long start = System.nanoTime();
+		for (int c = 0; c < concurrency; c++) {
+			login(client, sent, ok, done, logins);
+		}
+		done.await(5, TimeUnit.MINUTES);
+		long elapsed = System.nanoTime() - start;
+		System.out.printf("[LobbyLoginBenchmark] %s: %,d/%d logins in %d ms (%.0f logins/s)%n", name, ok.get(), logins, elapsed / 1_000_000, logins * 1e9 / elapsed);
+		client.close().await();
+		vertx.undeploy(deployment).await();
+	}
+
+	//esegue un login e, alla risposta, il successivo
+	private static void login(io.vertx.core.http.HttpClient client, AtomicInteger sent, AtomicInteger ok, CountDownLatch done, int logins) {
+		int n = sent.getAndIncrement();
+		if (n >= logins) {
+			return;
+		}
+		var body = new JsonObject().put("userName", "user-" + n).put("password", "pwd").toString();
+		client.request(HttpMethod.POST, LOBBY_PORT, "localhost", "/api/v1/lobby/login")
+			.compose(req -> req.send(body))
+			.compose(res -> res.body())
+			.onComplete(ar -> {
+				if (ar.succeeded() && ar.result().toJsonObject().getString("result").equals("ok")) {
+					ok.incrementAndGet();
+				}
+				done.countDown();
+				login(client, sent, ok, done, logins);
+			});
+	}
+
+	//proxy degli account con l'implementazione precedente: un nuovo client http e una chiamata bloccante per ogni richiesta
+	private record BlockingAccountServiceProxy(String serviceURI) implements AccountService {
+		public CompletionStage<Boolean> isValidPassword(String userName, String password) {
+			try {
+				var client = HttpClient.newHttpClient();
+				var request = HttpRequest.newBuilder()
+						.uri(URI.create(serviceURI + "/api/v1/accounts/" + userName + "/check-pwd"))
+						.header("Accept", "application/json")
+						.POST(HttpRequest.BodyPublishers.ofString(new JsonObject().put("password", password).toString()))
+						.build();
+				var response = client.send(request, HttpResponse.BodyHandlers.ofString());
+				return CompletableFuture.completedFuture(new JsonObject(response.body()).getString("result").equals("valid-password"));
+			} catch (Exception ex) {
+				return CompletableFuture.failedFuture(new ServiceNotAvailableException());
+			}
+		}
+	}
+}
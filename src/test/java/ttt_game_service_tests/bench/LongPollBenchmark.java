@@ -0,0 +1,118 @@
+package ttt_game_service_tests.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+import distributed_ttt.game_service.infrastructure.GameServiceController;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.game_service.infrastructure.VertxGameEventChannel;
+import distributed_ttt.game_service.infrastructure.VertxPlayerSessionEventObserver;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.PoolOptions;
+
+/*
+confronta il costo per il server dei client che non possono usare i websocket:
+- polling ripetuto di GET /games/:gameId (ogni richiesta ricostruisce il json della partita)
+- long-poll (/games/:gameId/poll?since=<seq>): le richieste restano in attesa senza lavoro fino alla mossa successiva
+misura il tempo di cpu dell'event loop del server (un solo event loop; i client girano su un'altra istanza vertx)
+uso: LongPollBenchmark [numero di client] [durata della fase di attesa in ms]
+*/
+public class LongPollBenchmark {
+
+	private static final int PORT = 19600;
+	private static final long POLL_INTERVAL = 250; //intervallo (in ms) del polling ripetuto
+
+	public static void main(String[] args) throws Exception {
+		int clientCount = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		long idle = args.length > 1 ? Long.parseLong(args[1]) : 2_000;
+		for (var handler : Logger.getLogger("").getHandlers()) {
+			handler.setLevel(Level.WARNING);
+		}
+		var server = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(1));
+		var service = new GameServiceImpl();
+		service.bindGameRepository(new InMemoryGameRepository());
+		service.bindGameEventChannel(new VertxGameEventChannel(server.eventBus()));
+		service.createNewGame("g1");
+		var controller = new GameServiceController(service, PORT);
+		server.deployVerticle(controller).await();
+		var cross = controller.execute(() -> { //i giocatori entrano dopo l'avvio del controller (che registra il codec degli eventi)
+			var ps = service.joinGame(new UserId("alice"), "g1", TTTSymbol.X, new VertxPlayerSessionEventObserver(server.eventBus()));
+			service.joinGame(new UserId("bob"), "g1", TTTSymbol.O, new VertxPlayerSessionEventObserver(server.eventBus()));
+			return ps;
+		}).await();
+		long serverThread = controller.execute(() -> Thread.currentThread().getId()).await(); //id del thread dell'event loop del server
+		var threads = ManagementFactory.getThreadMXBean();
+		var clients = Vertx.vertx();
+		var http = clients.createHttpClient(new HttpClientOptions().setKeepAlive(true), new PoolOptions().setHttp1MaxSize(clientCount + 1)); //una connessione in più per leggere i contatori
+
+		//polling ripetuto della partita (il primo giro apre le connessioni e non viene misurato)
+		pollRound(http, clientCount).await();
+		long cpu0 = threads.getThreadCpuTime(serverThread);
+		long requests = 0;
+		long end = System.currentTimeMillis() + idle;
+		while (System.currentTimeMillis() < end) {
+			pollRound(http, clientCount).await();
+			requests += clientCount;
+			Thread.sleep(POLL_INTERVAL);
+		}
+		long pollingCpu = threads.getThreadCpuTime(serverThread) - cpu0;
+		System.out.printf("[LongPollBenchmark] repeated GET: %d clients, %,d requests in %d ms, server cpu %,d ms (%.1f µs per request)%n",
+				clientCount, requests, idle, pollingCpu / 1_000_000, pollingCpu / 1000.0 / requests);
+
+		//long-poll: le richieste restano in attesa fino alla mossa
+		long lastSeq = controller.execute(() -> service.getLastGameEventSeq("g1")).await();
+		var woken = new CountDownLatch(clientCount);
+		for (int i = 0; i < clientCount; i++) {
+			http.request(HttpMethod.GET, PORT, "localhost", "/api/v1/games/g1/poll?since=" + lastSeq).compose(req -> req.send()).compose(resp -> resp.body())
+				.onSuccess(body -> woken.countDown());
+		}
+		long deadline = System.currentTimeMillis() + 30_000;
+		while (parkedPolls(http) < clientCount && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		cpu0 = threads.getThreadCpuTime(serverThread);
+		Thread.sleep(idle);
+		long idleCpu = threads.getThreadCpuTime(serverThread) - cpu0;
+		System.out.printf("[LongPollBenchmark] long-poll: %d parked requests, server cpu while idle for %d ms: %,d µs%n", clientCount, idle, idleCpu / 1000);
+
+		cpu0 = threads.getThreadCpuTime(serverThread);
+		long t0 = System.nanoTime();
+		controller.execute(() -> {
+			cross.makeMove(1, 1);
+			return null;
+		}).await();
+		woken.await(30, TimeUnit.SECONDS);
+		long wakeNanos = System.nanoTime() - t0;
+		long wakeCpu = threads.getThreadCpuTime(serverThread) - cpu0;
+		System.out.printf("[LongPollBenchmark] one move woke %d/%d requests in %,d µs, server cpu %,d µs (%.1f µs per request)%n",
+				clientCount - woken.getCount(), clientCount, wakeNanos / 1000, wakeCpu / 1000, wakeCpu / 1000.0 / clientCount);
+		clients.close().await();
+		server.close().await();
+	}
+
+	//un giro di polling: ogni client chiede le informazioni della partita
+	private static Future<?> pollRound(HttpClient http, int clientCount) {
+		var round = new ArrayList<Future<?>>(clientCount);
+		for (int i = 0; i < clientCount; i++) {
+			round.add(http.request(HttpMethod.GET, PORT, "localhost", "/api/v1/games/g1").compose(req -> req.send()).compose(resp -> resp.body()));
+		}
+		return Future.join(round);
+	}
+
+	//numero di richieste long-poll in attesa sul server
+	private static int parkedPolls(HttpClient http) {
+		return http.request(HttpMethod.GET, PORT, "localhost", "/api/v1/lifecycle").compose(req -> req.send()).compose(resp -> resp.body())
+				.map(buf -> buf.toJsonObject().getInteger("parkedPolls")).await();
+	}
+}
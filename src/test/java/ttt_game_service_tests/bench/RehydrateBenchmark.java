@@ -0,0 +1,103 @@
+package ttt_game_service_tests.bench;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.game_service.domain.Game;
+import distributed_ttt.game_service.domain.TTTSymbol;
+import distributed_ttt.game_service.domain.UserId;
+import distributed_ttt.game_service.infrastructure.EventSourcedGameRepository;
+import distributed_ttt.game_service.infrastructure.InMemoryGameEventStore;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+
+/*
+misura la ricostruzione delle partite dal loro flusso di eventi:
+gioca N partite attraverso il repository event sourced (vittorie, pareggi e partite in corso), poi le ricostruisce tutte
+con un ForkJoinPool (un thread per core) e con un solo thread, senza istantanee e con un'istantanea ogni K eventi
+uso: RehydrateBenchmark [numero di partite] [K]
+*/
+public class RehydrateBenchmark {
+
+	private static final int[][][] GAMES = { //sequenze di mosse (X per prima)
+			{{0, 0}, {1, 0}, {1, 1}, {2, 0}, {2, 2}}, //vince X
+			{{0, 0}, {1, 1}, {2, 2}, {0, 2}, {2, 0}, {1, 0}, {0, 1}, {2, 1}, {1, 2}}, //pareggio
+			{{1, 1}, {0, 0}, {2, 2}, {0, 2}}, //in corso
+			{{0, 0}, {0, 1}, {2, 2}, {1, 1}, {0, 2}, {2, 1}} //vince O
+	};
+
+	public static void main(String[] args) throws Exception {
+		int gameCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		long snapshotEvery = args.length > 1 ? Long.parseLong(args[1]) : 4;
+		for (var handler : Logger.getLogger("").getHandlers()) { //nessun log per ogni mossa
+			handler.setLevel(Level.WARNING);
+		}
+		var pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		for (long every : List.of(Long.MAX_VALUE, snapshotEvery)) {
+			var label = every == Long.MAX_VALUE ? "no snapshots" : "snapshot every " + every + " events";
+			long heap0 = usedHeap();
+			var store = new InMemoryGameEventStore();
+			var repository = new EventSourcedGameRepository(new InMemoryGameRepository(), store, every);
+			long t0 = System.nanoTime();
+			play(repository, gameCount);
+			long playNanos = System.nanoTime() - t0;
+			long storeBytes = usedHeap() - heap0;
+			System.out.printf("[RehydrateBenchmark] %s: played %,d games in %,d ms, event store %,d MB (%d bytes per game)%n",
+					label, gameCount, playNanos / 1_000_000, storeBytes >> 20, storeBytes / gameCount);
+
+			var ids = store.gameIds();
+			rehydrateAll(pool, repository, ids); //riscaldamento
+			t0 = System.nanoTime();
+			long versions = rehydrateAll(pool, repository, ids);
+			long parallelNanos = System.nanoTime() - t0;
+			t0 = System.nanoTime();
+			long sequentialVersions = 0;
+			for (var id : ids) {
+				sequentialVersions += repository.rehydrate(id).getVersion();
+			}
+			long sequentialNanos = System.nanoTime() - t0;
+			if (versions != sequentialVersions) {
+				throw new IllegalStateException("rehydrated games differ");
+			}
+			System.out.printf("[RehydrateBenchmark] %s: rehydrated %,d games in %,d ms with %d fork/join threads (%.0f ns per game), %,d ms on one thread (%.0f ns per game)%n",
+					label, ids.size(), parallelNanos / 1_000_000, pool.getParallelism(), (double) parallelNanos / ids.size(),
+					sequentialNanos / 1_000_000, (double) sequentialNanos / ids.size());
+		}
+		pool.shutdown();
+	}
+
+	//gioca le partite attraverso il repository (le partite terminate vengono rimosse, il loro flusso resta nell'archivio)
+	private static void play(EventSourcedGameRepository repository, int gameCount) throws Exception {
+		var alice = new UserId("alice");
+		var bob = new UserId("bob");
+		for (int i = 0; i < gameCount; i++) {
+			var id = "g" + i;
+			repository.addGameIfAbsent(new Game(id));
+			var game = repository.getGame(id);
+			game.joinGame(alice, TTTSymbol.X);
+			game.joinGame(bob, TTTSymbol.O);
+			game.startGame();
+			repository.updateGame(game);
+			var moves = GAMES[i % GAMES.length];
+			for (int m = 0; m < moves.length; m++) {
+				game.makeAmove(m % 2 == 0 ? alice : bob, moves[m][0], moves[m][1]);
+				repository.updateGame(game);
+			}
+			repository.removeGame(id);
+		}
+	}
+
+	//ricostruisce in parallelo tutte le partite e restituisce la somma delle loro versioni
+	private static long rehydrateAll(ForkJoinPool pool, EventSourcedGameRepository repository, List<String> ids) throws Exception {
+		return pool.submit(() -> ids.parallelStream().mapToLong(id -> repository.rehydrate(id).getVersion()).sum()).get();
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		var rt = Runtime.getRuntime();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}
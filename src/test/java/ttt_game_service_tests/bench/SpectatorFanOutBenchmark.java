@@ -0,0 +1,155 @@
+package ttt_game_service_tests.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import distributed_ttt.game_service.application.GameServiceImpl;
+import distributed_ttt.game_service.infrastructure.GameEventMessage;
+import distributed_ttt.game_service.infrastructure.GameEventMessageCodec;
+import distributed_ttt.game_service.infrastructure.GameEventTopics;
+import distributed_ttt.game_service.infrastructure.GameServiceController;
+import distributed_ttt.game_service.infrastructure.InMemoryGameRepository;
+import distributed_ttt.game_service.infrastructure.VertxGameEventChannel;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClientOptions;
+import io.vertx.core.json.JsonObject;
+
+/*
+misura il costo della distribuzione (fan-out) degli eventi di una partita a molti spettatori:
+per ogni numero di spettatori pubblica una serie di mosse sul topic della partita e misura il tempo di cpu dell'event loop del server per mossa
+(il server ha un solo event loop; i client girano su un'altra istanza vertx);
+poi sospende la lettura di alcuni spettatori e verifica che vengano scartati e risincronizzati con una nuova istantanea invece di accumulare eventi
+uso: SpectatorFanOutBenchmark [numeri di spettatori separati da virgola] [mosse per misura]
+*/
+public class SpectatorFanOutBenchmark {
+
+	private static final int PORT = 19400;
+
+	public static void main(String[] args) throws Exception {
+		var watcherCounts = (args.length > 0 ? args[0] : "100,1000,5000").split(",");
+		int moves = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		for (var handler : Logger.getLogger("").getHandlers()) {
+			handler.setLevel(Level.WARNING);
+		}
+		var server = Vertx.vertx(new VertxOptions().setEventLoopPoolSize(1));
+		var service = new GameServiceImpl();
+		service.bindGameRepository(new InMemoryGameRepository());
+		service.bindGameEventChannel(new VertxGameEventChannel(server.eventBus()));
+		service.createNewGame("g1");
+		server.deployVerticle(new GameServiceController(service, PORT)).await();
+		long serverThread = server.executeBlocking(() -> 0L).compose(v -> { //id del thread dell'event loop del server
+			var p = io.vertx.core.Promise.<Long>promise();
+			server.getOrCreateContext().runOnContext(x -> p.complete(Thread.currentThread().getId()));
+			return p.future();
+		}).await();
+		var clients = Vertx.vertx();
+		var wsClient = clients.createWebSocketClient(new WebSocketClientOptions().setMaxConnections(100_000));
+		var threads = ManagementFactory.getThreadMXBean();
+		var sockets = new ArrayList<WebSocket>();
+		var received = new AtomicLong();
+		for (var count : watcherCounts) {
+			int n = Integer.parseInt(count.trim());
+			connect(wsClient, sockets, n, received);
+			for (int round = 0; round < 2; round++) { //il primo giro scalda il jit
+				received.set(0);
+				long cpu = threads.getThreadCpuTime(serverThread);
+				long start = System.nanoTime();
+				for (int i = 0; i < moves; i++) {
+					server.eventBus().publish(GameEventTopics.address("g1"), new GameEventMessage.Moved("X", i % 3, i % 5), GameEventMessageCodec.DELIVERY);
+					long expected = (long) (i + 1) * n;
+					while (received.get() < expected) { //attende la consegna a tutti gli spettatori prima della mossa successiva
+						Thread.onSpinWait();
+					}
+				}
+				long elapsed = System.nanoTime() - start;
+				cpu = threads.getThreadCpuTime(serverThread) - cpu;
+				if (round == 1) {
+					System.out.printf("[SpectatorFanOutBenchmark] %,d spectators: server cpu %.3f ms/move (%.2f us per spectator), move-to-last-spectator %.2f ms%n",
+							n, cpu / 1e6 / moves, cpu / 1e3 / moves / n, elapsed / 1e6 / moves);
+				}
+			}
+		}
+		for (var ws : sockets) {
+			ws.close();
+		}
+		Thread.sleep(2_000);
+		slowSpectators(server, wsClient);
+		clients.close().await();
+		server.close().await();
+	}
+
+	//apre gli spettatori mancanti fino ad arrivare a n (a blocchi, per non saturare l'accept del server)
+	private static void connect(io.vertx.core.http.WebSocketClient wsClient, ArrayList<WebSocket> sockets, int n, AtomicLong received) throws Exception {
+		while (sockets.size() < n) {
+			int batch = Math.min(200, n - sockets.size());
+			var snapshots = new CountDownLatch(batch);
+			var futs = new ArrayList<Future<WebSocket>>();
+			for (int i = 0; i < batch; i++) {
+				futs.add(wsClient.connect(PORT, "localhost", "/api/v1/events").onSuccess(ws -> {
+					var first = new AtomicInteger();
+					ws.textMessageHandler(msg -> {
+						if (first.getAndIncrement() == 0) {
+							snapshots.countDown(); //la prima notifica è l'istantanea
+						} else {
+							received.incrementAndGet();
+						}
+					});
+					ws.writeTextMessage(new JsonObject().put("spectate", "g1").toString());
+				}));
+			}
+			for (var f : futs) {
+				sockets.add(f.await());
+			}
+			snapshots.await(30, TimeUnit.SECONDS);
+		}
+	}
+
+	//sospende la lettura di alcuni spettatori, pubblica molti eventi e verifica che al risveglio ricevano una nuova istantanea
+	private static void slowSpectators(Vertx server, io.vertx.core.http.WebSocketClient wsClient) throws Exception {
+		int slow = 10, events = 200_000;
+		var snapshots = new AtomicInteger();
+		var deltas = new AtomicLong();
+		var slowSockets = new ArrayList<WebSocket>();
+		for (int i = 0; i < slow; i++) {
+			var ws = wsClient.connect(PORT, "localhost", "/api/v1/events").await();
+			ws.textMessageHandler(msg -> {
+				if (msg.contains("game-snapshot")) {
+					snapshots.incrementAndGet();
+				} else {
+					deltas.incrementAndGet();
+				}
+			});
+			ws.writeTextMessage(new JsonObject().put("spectate", "g1").toString()).await();
+			slowSockets.add(ws);
+		}
+		Thread.sleep(500);
+		slowSockets.forEach(WebSocket::pause); //gli spettatori smettono di leggere
+		var heapBefore = usedHeap();
+		for (int i = 0; i < events; i++) {
+			server.eventBus().publish(GameEventTopics.address("g1"), new GameEventMessage.Moved("O", i % 3, i % 5), GameEventMessageCodec.DELIVERY);
+			if (i % 1000 == 0) {
+				Thread.sleep(1);
+			}
+		}
+		Thread.sleep(1_000);
+		var heapAfter = usedHeap();
+		slowSockets.forEach(ws -> ws.resume());
+		Thread.sleep(2_000);
+		System.out.printf("[SpectatorFanOutBenchmark] %d paused spectators, %,d events: %,d deltas delivered (%.1f%%), %d snapshots (resync after lag), heap delta %,d KB%n",
+				slow, events, deltas.get(), 100.0 * deltas.get() / ((long) slow * events), snapshots.get(), (heapAfter - heapBefore) / 1024);
+	}
+
+	private static long usedHeap() {
+		System.gc();
+		var rt = Runtime.getRuntime();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+}